@@ -1,12 +1,12 @@
 package im.zhaojun.zfile.core.aspect;
 
-import cn.hutool.cache.CacheUtil;
-import cn.hutool.cache.impl.TimedCache;
 import cn.hutool.extra.servlet.JakartaServletUtil;
 import im.zhaojun.zfile.core.annotation.ApiLimit;
 import im.zhaojun.zfile.core.exception.ErrorCode;
 import im.zhaojun.zfile.core.exception.core.BizException;
+import im.zhaojun.zfile.core.ratelimit.RateLimiter;
 import im.zhaojun.zfile.core.util.RequestHolder;
+import jakarta.annotation.Resource;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
@@ -15,7 +15,6 @@ import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Method;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 接口限流切面, 通过注解 {@link ApiLimit} 进行限流.
@@ -26,9 +25,8 @@ import java.util.concurrent.atomic.AtomicLong;
 @Component
 public class ApiLimitAspect {
 
-    private final TimedCache<String, AtomicLong> apiLimitTimedCache = CacheUtil.newTimedCache(1000);
-
-    public static final String API_LIMIT_KEY_PREFIX = "api_limit_";
+    @Resource
+    private RateLimiter rateLimiter;
 
     /**
      * 在标记了 {@link ApiLimit} 注解的方法执行前进行限流校验.
@@ -49,15 +47,10 @@ public class ApiLimitAspect {
         // 获取请求相关信息
         String ip = JakartaServletUtil.getClientIP(RequestHolder.getRequest());
 
-        // 限制访问次数
-        String key = API_LIMIT_KEY_PREFIX.concat(ip).concat(method.getName());
-        AtomicLong atomicLong = apiLimitTimedCache.get(key, false);
-        if (atomicLong == null) {
-            apiLimitTimedCache.put(key, new AtomicLong(1), millis);
-        } else {
-            if (atomicLong.incrementAndGet() > maxCount) {
-                throw new BizException(ErrorCode.BIZ_ACCESS_TOO_FREQUENT);
-            }
+        // 限制访问次数, 每个方法一条规则, 按 IP 分别计数.
+        String rule = RateLimiter.API_RULE_PREFIX.concat(method.getDeclaringClass().getSimpleName()).concat(".").concat(method.getName());
+        if (!rateLimiter.tryAcquire(rule, ip, maxCount, millis)) {
+            throw new BizException(ErrorCode.BIZ_ACCESS_TOO_FREQUENT);
         }
     }
 
@@ -0,0 +1,29 @@
+package im.zhaojun.zfile.core.cache;
+
+/**
+ * 缓存失效通知发布者, 本机缓存内容变更时通知其他节点删除各自本机缓存中的对应内容.
+ *
+ * @author zhaojun
+ */
+public interface CacheInvalidationPublisher {
+
+    /**
+     * 通知其他节点删除指定缓存 key
+     *
+     * @param   cacheName
+     *          缓存名称
+     *
+     * @param   key
+     *          缓存 key
+     */
+    void publishEvict(String cacheName, Object key);
+
+    /**
+     * 通知其他节点清空指定缓存
+     *
+     * @param   cacheName
+     *          缓存名称
+     */
+    void publishClear(String cacheName);
+
+}
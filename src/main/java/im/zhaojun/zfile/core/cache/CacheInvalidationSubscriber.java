@@ -0,0 +1,88 @@
+package im.zhaojun.zfile.core.cache;
+
+import im.zhaojun.zfile.core.config.spring.SpringCacheConfig;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订阅其他节点发出的缓存失效通知, 删除本机缓存中的对应内容.
+ * <br>
+ * 在后台线程中订阅, Redis 暂时不可用时不影响启动, 会定时重试直到订阅成功.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = SpringCacheConfig.REDIS_HOST_PROPERTY)
+public class CacheInvalidationSubscriber {
+
+    /**
+     * 订阅失败后的重试间隔, 单位: 秒
+     */
+    private static final long RETRY_INTERVAL_SECONDS = 10;
+
+    @Resource
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Resource
+    private CacheManager cacheManager;
+
+    private RedisMessageListenerContainer container;
+
+    private volatile boolean stopped;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribe() {
+        if (!(cacheManager instanceof TwoLevelCacheManager twoLevelCacheManager)) {
+            return;
+        }
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener((message, pattern) ->
+                        twoLevelCacheManager.onInvalidationMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(TwoLevelCacheManager.INVALIDATION_CHANNEL));
+        container.afterPropertiesSet();
+        Thread.ofVirtual().name("cache-invalidation-subscriber").start(this::startWithRetry);
+    }
+
+    @PreDestroy
+    public void destroy() throws Exception {
+        stopped = true;
+        if (container != null) {
+            container.destroy();
+        }
+    }
+
+    private void startWithRetry() {
+        while (!stopped) {
+            try {
+                container.start();
+                log.info("已订阅缓存失效通知频道 {}", TwoLevelCacheManager.INVALIDATION_CHANNEL);
+                return;
+            } catch (Exception e) {
+                // 订阅失败时容器仍处于运行状态, 需要先停止才能重新订阅.
+                container.stop();
+                log.warn("订阅缓存失效通知失败, {} 秒后重试, 原因: {}", RETRY_INTERVAL_SECONDS, e.getMessage());
+            }
+            try {
+                TimeUnit.SECONDS.sleep(RETRY_INTERVAL_SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,23 @@
+package im.zhaojun.zfile.core.cache;
+
+/**
+ * 非 Spring 缓存的本机缓存 (如预编译的过滤规则、访问黑名单、文件列表缓存) 处理其他节点失效通知的回调.
+ *
+ * @author zhaojun
+ */
+public interface LocalCacheInvalidationHandler {
+
+    /**
+     * 其他节点使指定 key 失效, 删除本机缓存中的对应内容.
+     *
+     * @param   key
+     *          缓存 key 的字符串形式
+     */
+    void evict(String key);
+
+    /**
+     * 其他节点清空了缓存, 清空本机缓存.
+     */
+    void clear();
+
+}
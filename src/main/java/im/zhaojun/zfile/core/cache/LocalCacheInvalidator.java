@@ -0,0 +1,86 @@
+package im.zhaojun.zfile.core.cache;
+
+import jakarta.annotation.Resource;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 本机缓存的跨节点失效通知, 与 Spring 缓存共用 {@link TwoLevelCacheManager} 的 Redis 频道.
+ * <br>
+ * 未配置 Redis 或关闭了数据库缓存 (缓存管理器不是 {@link TwoLevelCacheManager}) 时, 注册和通知均不生效, 只作用于本机.
+ *
+ * @author zhaojun
+ */
+@Component
+public class LocalCacheInvalidator {
+
+    @Resource
+    private CacheManager cacheManager;
+
+    /**
+     * 注册本机缓存, 收到其他节点对该缓存名称的失效通知时回调 handler.
+     *
+     * @param   cacheName
+     *          缓存名称, 不能与 Spring 缓存名称重复.
+     *
+     * @param   handler
+     *          失效通知回调
+     */
+    public void register(String cacheName, LocalCacheInvalidationHandler handler) {
+        if (cacheManager instanceof TwoLevelCacheManager twoLevelCacheManager) {
+            twoLevelCacheManager.registerLocalCache(cacheName, handler);
+        }
+    }
+
+    /**
+     * 通知其他节点删除本机缓存中的指定 key
+     */
+    public void publishEvict(String cacheName, Object key) {
+        if (cacheManager instanceof CacheInvalidationPublisher publisher) {
+            publisher.publishEvict(cacheName, key);
+        }
+    }
+
+    /**
+     * 在当前事务提交后通知其他节点删除本机缓存中的指定 key, 不在事务中时立即通知.
+     * <br>
+     * 在事务完成 (afterCompletion) 阶段发送, 晚于事务中 Spring 缓存延迟到提交后 (afterCommit) 执行的删除,
+     * 保证其他节点收到通知重新加载时, 读到的不是旧的 Spring 缓存.
+     */
+    public void publishEvictAfterCommit(String cacheName, Object key) {
+        runAfterCommit(() -> publishEvict(cacheName, key));
+    }
+
+    /**
+     * 在当前事务提交后执行, 不在事务中时立即执行. 执行时机同 {@link #publishEvictAfterCommit(String, Object)}.
+     *
+     * @param   action
+     *          要执行的操作, 事务回滚时不执行.
+     */
+    public void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * 通知其他节点清空本机缓存
+     */
+    public void publishClear(String cacheName) {
+        if (cacheManager instanceof CacheInvalidationPublisher publisher) {
+            publisher.publishClear(cacheName);
+        }
+    }
+
+}
@@ -0,0 +1,286 @@
+package im.zhaojun.zfile.core.cache;
+
+import im.zhaojun.zfile.module.admin.model.result.CacheStatsResult;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 二级缓存, 一级为本机内存缓存 (按最大条目数和过期时间淘汰), 二级为可选的远程缓存 (Redis).
+ * <br>
+ * 读取时先查本机缓存, 未命中再查远程缓存并回填本机缓存. 写入、删除、清空时同时操作两级缓存, 并通知其他节点删除本机缓存中的对应内容.
+ * 远程缓存出现异常时只记录日志, 视为未命中, 不影响业务.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    @Getter
+    private final String name;
+
+    @Getter
+    private final int maxEntries;
+
+    /**
+     * 本机缓存过期时间, 单位: 毫秒
+     */
+    private final long ttlMillis;
+
+    /**
+     * 远程缓存, 未配置时为 null.
+     */
+    private final Cache remoteCache;
+
+    private final CacheInvalidationPublisher invalidationPublisher;
+
+    /**
+     * 按访问顺序排列的本机缓存, 所有读写均在 localCache 锁内进行.
+     */
+    private final LinkedHashMap<Object, LocalEntry> localCache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 正在加载的 key 及其加载锁, 同一 key 的加载串行执行, 不同 key 互不阻塞.
+     */
+    private final ConcurrentHashMap<Object, Object> loadingLockMap = new ConcurrentHashMap<>();
+
+    private final LongAdder localHitCount = new LongAdder();
+
+    private final LongAdder remoteHitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder expiredCount = new LongAdder();
+
+    private final LongAdder remoteInvalidateCount = new LongAdder();
+
+    public TwoLevelCache(String name, int maxEntries, long ttlSeconds, Cache remoteCache, CacheInvalidationPublisher invalidationPublisher) {
+        super(true);
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.remoteCache = remoteCache;
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object localValue = getLocal(key);
+        if (localValue != null) {
+            localHitCount.increment();
+            return localValue;
+        }
+
+        if (remoteCache != null) {
+            try {
+                ValueWrapper valueWrapper = remoteCache.get(key);
+                if (valueWrapper != null) {
+                    Object storeValue = toStoreValue(valueWrapper.get());
+                    putLocal(key, storeValue);
+                    remoteHitCount.increment();
+                    return storeValue;
+                }
+            } catch (Exception e) {
+                log.warn("读取远程缓存 {} 失败, key: {}, 原因: {}", name, key, e.getMessage());
+            }
+        }
+
+        missCount.increment();
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper valueWrapper = get(key);
+        if (valueWrapper != null) {
+            return (T) valueWrapper.get();
+        }
+        Object loadingLock = loadingLockMap.computeIfAbsent(key, k -> new Object());
+        try {
+            synchronized (loadingLock) {
+                // 等待锁期间可能已由其他线程加载完成
+                valueWrapper = get(key);
+                if (valueWrapper != null) {
+                    return (T) valueWrapper.get();
+                }
+                T value;
+                try {
+                    value = valueLoader.call();
+                } catch (Exception e) {
+                    throw new ValueRetrievalException(key, valueLoader, e);
+                }
+                put(key, value);
+                return value;
+            }
+        } finally {
+            loadingLockMap.remove(key, loadingLock);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (remoteCache != null) {
+            try {
+                remoteCache.put(key, value);
+            } catch (Exception e) {
+                log.warn("写入远程缓存 {} 失败, key: {}, 原因: {}", name, key, e.getMessage());
+            }
+        }
+        putLocal(key, toStoreValue(value));
+        invalidationPublisher.publishEvict(name, key);
+    }
+
+    @Override
+    public void evict(Object key) {
+        if (remoteCache != null) {
+            try {
+                remoteCache.evict(key);
+            } catch (Exception e) {
+                log.warn("删除远程缓存 {} 失败, key: {}, 原因: {}", name, key, e.getMessage());
+            }
+        }
+        synchronized (localCache) {
+            localCache.remove(key);
+        }
+        invalidationPublisher.publishEvict(name, key);
+    }
+
+    @Override
+    public void clear() {
+        if (remoteCache != null) {
+            try {
+                remoteCache.clear();
+            } catch (Exception e) {
+                log.warn("清空远程缓存 {} 失败, 原因: {}", name, e.getMessage());
+            }
+        }
+        clearLocal();
+        invalidationPublisher.publishClear(name);
+    }
+
+    /**
+     * 其他节点修改了缓存, 删除本机缓存中的对应内容 (key 的类型在传输后无法还原, 所以按字符串形式比较).
+     *
+     * @param   key
+     *          缓存 key 的字符串形式
+     */
+    public void evictLocal(String key) {
+        synchronized (localCache) {
+            localCache.keySet().removeIf(localKey -> Objects.equals(String.valueOf(localKey), key));
+        }
+        remoteInvalidateCount.increment();
+    }
+
+    /**
+     * 其他节点清空了缓存, 清空本机缓存.
+     */
+    public void clearLocalByRemote() {
+        clearLocal();
+        remoteInvalidateCount.increment();
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public CacheStatsResult getStats() {
+        CacheStatsResult stats = new CacheStatsResult();
+        stats.setName(name);
+        synchronized (localCache) {
+            stats.setSize(localCache.size());
+        }
+        stats.setMaxEntries(maxEntries);
+        stats.setTtl(ttlMillis / 1000);
+        stats.setRemoteEnabled(remoteCache != null);
+        stats.setLocalHitCount(localHitCount.sum());
+        stats.setRemoteHitCount(remoteHitCount.sum());
+        stats.setMissCount(missCount.sum());
+        stats.setEvictionCount(evictionCount.sum());
+        stats.setExpiredCount(expiredCount.sum());
+        stats.setRemoteInvalidateCount(remoteInvalidateCount.sum());
+        return stats;
+    }
+
+    private void clearLocal() {
+        synchronized (localCache) {
+            localCache.clear();
+        }
+    }
+
+    private Object getLocal(Object key) {
+        synchronized (localCache) {
+            LocalEntry entry = localCache.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired()) {
+                localCache.remove(key);
+                expiredCount.increment();
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    private void putLocal(Object key, Object storeValue) {
+        synchronized (localCache) {
+            localCache.put(key, new LocalEntry(storeValue, System.currentTimeMillis() + ttlMillis));
+            if (localCache.size() > maxEntries) {
+                removeExpiredOrEldest();
+            }
+        }
+    }
+
+    /**
+     * 超过最大条目数时, 优先淘汰已过期的条目, 没有过期条目时淘汰最久未使用的条目.
+     */
+    private void removeExpiredOrEldest() {
+        Iterator<Map.Entry<Object, LocalEntry>> iterator = localCache.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue().isExpired()) {
+                iterator.remove();
+                expiredCount.increment();
+            }
+        }
+        iterator = localCache.entrySet().iterator();
+        while (localCache.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictionCount.increment();
+        }
+    }
+
+    private static class LocalEntry {
+
+        private final Object value;
+
+        private final long expireTime;
+
+        private LocalEntry(Object value, long expireTime) {
+            this.value = value;
+            this.expireTime = expireTime;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() > expireTime;
+        }
+
+    }
+
+}
@@ -0,0 +1,167 @@
+package im.zhaojun.zfile.core.cache;
+
+import cn.hutool.core.util.IdUtil;
+import im.zhaojun.zfile.core.config.ZFileProperties;
+import im.zhaojun.zfile.module.admin.model.result.CacheStatsResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 二级缓存管理器, 为每个缓存名称创建 {@link TwoLevelCache}.
+ * <br>
+ * 配置了 Redis 时, 使用 Redis 作为二级缓存, 并通过 Redis 发布/订阅通知其他节点删除本机缓存, 保证多节点部署时各节点缓存一致;
+ * 未配置 Redis 时只使用本机缓存. 缓存的写入、删除、清空操作会延迟到事务提交后执行.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public class TwoLevelCacheManager extends AbstractTransactionSupportingCacheManager implements CacheInvalidationPublisher {
+
+    /**
+     * 缓存失效通知的 Redis 频道
+     */
+    public static final String INVALIDATION_CHANNEL = "zfile:cache:invalidation";
+
+    private static final String MESSAGE_SEPARATOR = "|";
+
+    private static final String EVICT_ACTION = "E";
+
+    private static final String CLEAR_ACTION = "C";
+
+    /**
+     * 当前节点 ID, 用于忽略自己发出的通知.
+     */
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    private final ZFileProperties.DbCacheProperties dbCacheProperties;
+
+    /**
+     * Redis 缓存管理器, 未配置 Redis 时为 null.
+     */
+    private final CacheManager remoteCacheManager;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final Map<String, TwoLevelCache> twoLevelCacheMap = new ConcurrentHashMap<>();
+
+    /**
+     * 非 Spring 缓存的本机缓存失效通知回调, 见 {@link LocalCacheInvalidator}.
+     */
+    private final Map<String, LocalCacheInvalidationHandler> localCacheHandlerMap = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(ZFileProperties.DbCacheProperties dbCacheProperties, CacheManager remoteCacheManager, StringRedisTemplate stringRedisTemplate) {
+        this.dbCacheProperties = dbCacheProperties;
+        this.remoteCacheManager = remoteCacheManager;
+        this.stringRedisTemplate = stringRedisTemplate;
+        setTransactionAware(true);
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return List.of();
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        ZFileProperties.DbCacheProperties.LocalCacheSpec spec = dbCacheProperties.getCaches().get(name);
+        int maxEntries = spec != null && spec.getMaxEntries() != null ? spec.getMaxEntries() : dbCacheProperties.getMaxEntries();
+        long ttl = spec != null && spec.getTtl() != null ? spec.getTtl() : dbCacheProperties.getTtl();
+        Cache remoteCache = remoteCacheManager == null ? null : remoteCacheManager.getCache(name);
+        return twoLevelCacheMap.computeIfAbsent(name, cacheName -> new TwoLevelCache(cacheName, maxEntries, ttl, remoteCache, this));
+    }
+
+    @Override
+    public void publishEvict(String cacheName, Object key) {
+        publish(EVICT_ACTION, cacheName, String.valueOf(key));
+    }
+
+    @Override
+    public void publishClear(String cacheName) {
+        publish(CLEAR_ACTION, cacheName, "");
+    }
+
+    /**
+     * 注册非 Spring 缓存的本机缓存, 使其能收到其他节点的失效通知.
+     *
+     * @param   cacheName
+     *          缓存名称
+     *
+     * @param   handler
+     *          失效通知回调
+     */
+    public void registerLocalCache(String cacheName, LocalCacheInvalidationHandler handler) {
+        localCacheHandlerMap.put(cacheName, handler);
+    }
+
+    /**
+     * 处理其他节点发出的缓存失效通知
+     *
+     * @param   message
+     *          通知内容, 格式: 节点 ID|操作|缓存名称|缓存 key
+     */
+    public void onInvalidationMessage(String message) {
+        String[] parts = message.split("\\" + MESSAGE_SEPARATOR, 4);
+        if (parts.length != 4 || nodeId.equals(parts[0])) {
+            return;
+        }
+        boolean clear = CLEAR_ACTION.equals(parts[1]);
+        TwoLevelCache twoLevelCache = twoLevelCacheMap.get(parts[2]);
+        LocalCacheInvalidationHandler localCacheHandler = localCacheHandlerMap.get(parts[2]);
+        if (twoLevelCache != null) {
+            if (clear) {
+                twoLevelCache.clearLocalByRemote();
+            } else {
+                twoLevelCache.evictLocal(parts[3]);
+            }
+        } else if (localCacheHandler != null) {
+            try {
+                if (clear) {
+                    localCacheHandler.clear();
+                } else {
+                    localCacheHandler.evict(parts[3]);
+                }
+            } catch (Exception e) {
+                log.warn("处理本机缓存 {} 的失效通知失败, key: {}, 原因: {}", parts[2], parts[3], e.getMessage());
+            }
+        } else {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("收到节点 {} 的缓存失效通知, 缓存: {}, 操作: {}, key: {}", parts[0], parts[2], parts[1], parts[3]);
+        }
+    }
+
+    /**
+     * 获取所有缓存的统计信息
+     *
+     * @return  缓存统计信息列表
+     */
+    public List<CacheStatsResult> getStats() {
+        return twoLevelCacheMap.values().stream()
+                .map(TwoLevelCache::getStats)
+                .sorted(Comparator.comparing(CacheStatsResult::getName))
+                .toList();
+    }
+
+    private void publish(String action, String cacheName, String key) {
+        if (stringRedisTemplate == null) {
+            return;
+        }
+        try {
+            String message = String.join(MESSAGE_SEPARATOR, nodeId, action, cacheName, key);
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, message);
+        } catch (Exception e) {
+            log.warn("发送缓存失效通知失败, 缓存: {}, key: {}, 原因: {}", cacheName, key, e.getMessage());
+        }
+    }
+
+}
@@ -5,6 +5,9 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * ZFile 配置类，将配置文件中的 zfile 配置项映射到该类中.
  *
@@ -26,6 +29,17 @@ public class ZFileProperties {
 	private OAuth2Properties onedriveChina = new OAuth2Properties();
 	private OAuth2Properties gd = new OAuth2Properties();
 	private Open115Properties open115 = new Open115Properties();
+	private FileListCacheProperties fileListCache = new FileListCacheProperties();
+	private PathIdCacheProperties pathIdCache = new PathIdCacheProperties();
+	private StorageInitProperties storageInit = new StorageInitProperties();
+	private S3MultipartUploadProperties s3MultipartUpload = new S3MultipartUploadProperties();
+	private MicrosoftUploadSessionProperties microsoftUploadSession = new MicrosoftUploadSessionProperties();
+	private DownloadUrlCacheProperties downloadUrlCache = new DownloadUrlCacheProperties();
+	private HttpClientProperties httpClient = new HttpClientProperties();
+	private TokenRefreshProperties tokenRefresh = new TokenRefreshProperties();
+	private DownloadLogProperties downloadLog = new DownloadLogProperties();
+	private RateLimitProperties rateLimit = new RateLimitProperties();
+	private DbCacheProperties dbCache = new DbCacheProperties();
 
 	@Data
 	public static class OAuth2Properties {
@@ -40,4 +54,324 @@ public class ZFileProperties {
 		private String appId;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * 文件列表缓存配置, 每个存储源单独持有一份缓存, 以下限制均为单个存储源的限制.
+	 */
+	@Data
+	public static class FileListCacheProperties {
+		/**
+		 * 是否为所有存储源启用文件列表缓存, 未启用时仅对开启了缓存的存储源生效.
+		 */
+		private boolean enable = false;
+		/**
+		 * 缓存过期时间, 单位: 秒. 需小于直链/签名链接的有效期.
+		 */
+		private long ttl = 60;
+		/**
+		 * 最大缓存文件夹数
+		 */
+		private int maxEntries = 1000;
+		/**
+		 * 最大缓存占用字节数 (估算值)
+		 */
+		private long maxBytes = 64 * 1024 * 1024;
+	}
+
+	/**
+	 * 路径与文件 id 映射缓存配置 (用于 Google Drive, 115 等只能通过 id 访问文件的存储源), 以下限制均为单个存储源的限制.
+	 */
+	@Data
+	public static class PathIdCacheProperties {
+		/**
+		 * 缓存过期时间, 单位: 秒. 在 ZFile 外部修改文件后, 最长在此时间后生效.
+		 */
+		private long ttl = 600;
+		/**
+		 * 不存在结果的缓存时间, 单位: 秒. 文件夹完整列出后, 在此时间内查找其中不存在的文件直接返回不存在, 不再重新列出.
+		 * 在 ZFile 外部新增的文件最长在此时间后可以访问, 不超过 ttl.
+		 */
+		private long negativeTtl = 10;
+		/**
+		 * 最大缓存路径数
+		 */
+		private int maxEntries = 10000;
+		/**
+		 * 最大缓存占用字节数 (估算值)
+		 */
+		private long maxBytes = 16 * 1024 * 1024;
+	}
+
+	/**
+	 * 启动时存储源初始化配置
+	 */
+	@Data
+	public static class StorageInitProperties {
+		/**
+		 * 同时初始化的存储源数量
+		 */
+		private int concurrency = 8;
+		/**
+		 * 单个存储源初始化超时时间, 单位: 秒, 小于等于 0 表示不限制.
+		 */
+		private long timeout = 60;
+	}
+
+	/**
+	 * S3 类存储源代理上传时的分片上传配置
+	 */
+	@Data
+	public static class S3MultipartUploadProperties {
+		/**
+		 * 文件大小达到此值时使用分片上传, 单位: 字节, 小于等于 0 表示不使用分片上传.
+		 */
+		private long threshold = 64 * 1024 * 1024;
+		/**
+		 * 分片大小, 单位: 字节, 最小为 5MB, 文件过大导致分片数超过 10000 时会自动增大.
+		 */
+		private long partSize = 16 * 1024 * 1024;
+		/**
+		 * 单个文件同时上传的分片数, 每个分片会占用一个分片大小的内存缓冲区.
+		 */
+		private int concurrency = 4;
+		/**
+		 * 单个存储源所有上传中的文件的分片缓冲区总大小上限, 单位: 字节, 超出时新的上传会等待, 已在上传的文件不再增加缓冲区.
+		 */
+		private long maxBufferBytes = 256 * 1024 * 1024;
+		/**
+		 * 单个分片上传失败时的重试次数
+		 */
+		private int maxRetries = 3;
+		/**
+		 * 上传中断后, 保留已上传分片以便续传的时间, 单位: 秒.
+		 */
+		private long sessionTtl = 24 * 60 * 60;
+	}
+
+	/**
+	 * OneDrive / SharePoint 类存储源代理上传时的上传会话配置
+	 */
+	@Data
+	public static class MicrosoftUploadSessionProperties {
+		/**
+		 * 每次请求上传的分片大小, 单位: 字节, 会向下对齐到 320 KiB 的整数倍, 最小 320 KiB, 最大 60 MiB.
+		 */
+		private long fragmentSize = 10 * 1024 * 1024;
+		/**
+		 * 单个存储源同时使用的分片缓冲区数量上限, 每个上传中的文件占用 2 个 (一个读取, 一个上传), 用完时新的上传会等待.
+		 */
+		private int maxBuffers = 8;
+		/**
+		 * 单个分片上传失败时的重试次数
+		 */
+		private int maxRetries = 3;
+		/**
+		 * 上传中断后, 保留上传会话以便续传的时间, 单位: 秒. 只有流式上传时通过 X-Checksum-Sha256 请求头提供了文件校验值才可续传.
+		 */
+		private long sessionTtl = 24 * 60 * 60;
+	}
+
+	/**
+	 * OneDrive / SharePoint 类存储源直链下载地址缓存配置, 以下限制均为单个存储源的限制.
+	 */
+	@Data
+	public static class DownloadUrlCacheProperties {
+		/**
+		 * 是否启用
+		 */
+		private boolean enable = true;
+		/**
+		 * 缓存过期时间, 单位: 秒. Graph API 返回的预授权下载地址有效期约 1 小时, 需小于此时间.
+		 */
+		private long ttl = 30 * 60;
+		/**
+		 * 最大缓存路径数
+		 */
+		private int maxEntries = 10000;
+		/**
+		 * 最大缓存占用字节数 (估算值)
+		 */
+		private long maxBytes = 32 * 1024 * 1024;
+	}
+
+	/**
+	 * 基于 HTTP 接口的存储源 (如 OneDrive, SharePoint, Google Drive, 115) 使用的 HTTP 连接池配置, 以下限制均为单个存储源的限制.
+	 */
+	@Data
+	public static class HttpClientProperties {
+		/**
+		 * 最大连接数
+		 */
+		private int maxConnections = 200;
+		/**
+		 * 每个目标主机的最大连接数
+		 */
+		private int maxConnectionsPerRoute = 50;
+		/**
+		 * 代理下载使用独立的连接池, 与接口请求互不占用连接. 此为代理下载连接池的最大连接数, 同时也是每个目标主机的最大连接数.
+		 */
+		private int maxDownloadConnections = 50;
+		/**
+		 * 建立连接超时时间, 单位: 秒.
+		 */
+		private long connectTimeout = 10;
+		/**
+		 * 从连接池获取连接的超时时间, 单位: 秒.
+		 */
+		private long connectionRequestTimeout = 30;
+		/**
+		 * 等待响应超时时间, 单位: 秒, 0 表示不限制.
+		 */
+		private long responseTimeout = 60;
+		/**
+		 * 连接保持时间, 单位: 秒. 服务端未返回 Keep-Alive 时使用此值, 空闲超过此时间的连接会被关闭.
+		 */
+		private long keepAlive = 60;
+	}
+
+	/**
+	 * 存储源令牌 (如 OneDrive, Google Drive, 115 的 AccessToken, 多吉云的临时密钥) 后台刷新配置
+	 */
+	@Data
+	public static class TokenRefreshProperties {
+		/**
+		 * 是否启用后台定时刷新, 关闭后仅在请求时发现令牌即将过期才刷新.
+		 */
+		private boolean enable = true;
+		/**
+		 * 检查令牌过期时间的间隔, 单位: 秒.
+		 */
+		private long checkInterval = 30;
+		/**
+		 * 提前刷新时间, 令牌剩余有效期小于此值时刷新, 单位: 秒.
+		 */
+		private long refreshAhead = 10 * 60;
+		/**
+		 * 提前刷新时间的随机抖动上限, 避免多个存储源同时刷新, 单位: 秒.
+		 */
+		private long jitter = 2 * 60;
+		/**
+		 * 刷新失败后首次重试的间隔, 之后每次失败翻倍, 单位: 秒.
+		 */
+		private long retryInitialInterval = 30;
+		/**
+		 * 刷新失败后重试的最大间隔, 单位: 秒.
+		 */
+		private long retryMaxInterval = 10 * 60;
+		/**
+		 * 同时刷新的最大存储源数量
+		 */
+		private int concurrency = 4;
+	}
+
+	/**
+	 * 直/短链下载日志异步写入配置
+	 */
+	@Data
+	public static class DownloadLogProperties {
+		/**
+		 * 等待写入的日志队列容量
+		 */
+		private int queueCapacity = 10000;
+		/**
+		 * 每批写入数据库的最大条数
+		 */
+		private int batchSize = 200;
+		/**
+		 * 写入间隔, 单位: 毫秒, 队列中日志不足一批时, 最多等待此时间后写入.
+		 */
+		private long flushInterval = 1000;
+		/**
+		 * 队列已满时的处理策略
+		 */
+		private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+		/**
+		 * 队列已满且策略为 BLOCK 时, 最长等待时间, 单位: 毫秒, 超时后丢弃.
+		 */
+		private long blockTimeout = 1000;
+		/**
+		 * 清理过期日志时, 每批删除的最大条数, 分批删除以避免长时间锁表.
+		 */
+		private int purgeBatchSize = 1000;
+		/**
+		 * 按保留天数清理下载日志的检查间隔, 单位: 分钟.
+		 */
+		private long retentionCheckInterval = 60;
+
+		public enum OverflowPolicy {
+			/**
+			 * 直接丢弃, 不阻塞请求
+			 */
+			DROP,
+			/**
+			 * 阻塞请求等待队列空闲, 超过等待时间后丢弃
+			 */
+			BLOCK
+		}
+	}
+
+	/**
+	 * 访问频率限制配置
+	 */
+	@Data
+	public static class RateLimitProperties {
+		/**
+		 * 计数存储方式
+		 */
+		private Store store = Store.LOCAL;
+		/**
+		 * 单机计数时最多保存的计数条目数, 超过后按最近最少使用的顺序淘汰.
+		 */
+		private int maxEntries = 100000;
+		/**
+		 * Redis 计数 key 前缀
+		 */
+		private String redisKeyPrefix = "zfile:rate-limit:";
+
+		public enum Store {
+			/**
+			 * 保存在本机内存中
+			 */
+			LOCAL,
+			/**
+			 * 保存在 Redis 中, 多节点共享计数, 需配置 spring.data.redis.host.
+			 */
+			REDIS
+		}
+	}
+
+	/**
+	 * 数据库查询结果缓存 (Spring Cache) 配置
+	 */
+	@Data
+	public static class DbCacheProperties {
+		/**
+		 * 是否启用缓存
+		 */
+		private boolean enable = true;
+		/**
+		 * 每个缓存的本机缓存最大条目数
+		 */
+		private int maxEntries = 1000;
+		/**
+		 * 本机缓存过期时间, 单位: 秒
+		 */
+		private long ttl = 600;
+		/**
+		 * 按缓存名称单独配置本机缓存, 未配置的项使用上面的默认值.
+		 */
+		private Map<String, LocalCacheSpec> caches = new HashMap<>();
+
+		@Data
+		public static class LocalCacheSpec {
+			/**
+			 * 本机缓存最大条目数
+			 */
+			private Integer maxEntries;
+			/**
+			 * 本机缓存过期时间, 单位: 秒
+			 */
+			private Long ttl;
+		}
+	}
+
+}
@@ -22,6 +22,7 @@ import java.util.List;
  * <ul>
  *     <li>提前创建 sqlite 数据文件所在目录.</li>
  *     <li>检测到版本更新时(pom.xml -> project.version)自动备份原数据库.</li>
+ *     <li>配置 WAL 日志模式、同步模式、内存映射大小、忙等待超时等参数.</li>
  * </ul>
  * <br/>
  * 2. 针对 Flyway 进行处理，根据数据库类型, 配置不同的 Flyway Migration Location：
@@ -46,6 +47,19 @@ public class DataSourceBeanPostProcessor implements BeanPostProcessor, PriorityO
 
     public static final String MYSQL_DRIVE_CLASS_NAME = "com.mysql.cj.jdbc.Driver";
 
+    public static final String SQLITE_WAL_PROPERTIES = "zfile.db.sqlite.wal";
+
+    public static final String SQLITE_SYNCHRONOUS_PROPERTIES = "zfile.db.sqlite.synchronous";
+
+    public static final String SQLITE_BUSY_TIMEOUT_PROPERTIES = "zfile.db.sqlite.busy-timeout";
+
+    public static final String SQLITE_MMAP_SIZE_PROPERTIES = "zfile.db.sqlite.mmap-size";
+
+    /**
+     * WAL 模式下的日志文件后缀
+     */
+    private static final String SQLITE_WAL_FILE_SUFFIX = "-wal";
+
     @Override
     public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
         // 如果更改了数据源类型这里要修改
@@ -69,6 +83,8 @@ public class DataSourceBeanPostProcessor implements BeanPostProcessor, PriorityO
         String driverClassName = dataSource.getDriverClassName();
         String jdbcUrl = dataSource.getJdbcUrl();
         if (StringUtils.equals(driverClassName, SQLITE_DRIVE_CLASS_NAME)) {
+            configureSqlitePragma(dataSource);
+
             String path = jdbcUrl.replace("jdbc:sqlite:", "");
             String folderPath = FileUtil.getAbsolutePath(new File(path).getParentFile());
             log.info("SQLite 数据库文件所在目录: [{}]", folderPath);
@@ -93,6 +109,10 @@ public class DataSourceBeanPostProcessor implements BeanPostProcessor, PriorityO
                         log.info("检测到 SQLite 数据库备份文件 [{}] 已存在, 无需再次备份.", backupPath);
                     } else {
                         FileUtil.copy(path, backupPath, false);
+                        // WAL 模式下未写回数据库文件的内容保存在 -wal 文件中, 需要一起备份.
+                        if (FileUtil.exist(path + SQLITE_WAL_FILE_SUFFIX)) {
+                            FileUtil.copy(path + SQLITE_WAL_FILE_SUFFIX, backupPath + SQLITE_WAL_FILE_SUFFIX, false);
+                        }
                         log.info("自动备份 SQLite 数据库文件到: [{}]", backupPath);
                     }
                 }
@@ -100,6 +120,38 @@ public class DataSourceBeanPostProcessor implements BeanPostProcessor, PriorityO
         }
     }
 
+    /**
+     * 配置 SQLite 连接参数, 每个连接建立时由驱动执行对应的 PRAGMA:
+     * <ul>
+     *     <li>journal_mode=WAL: 读写互不阻塞, 写入只追加日志文件.</li>
+     *     <li>synchronous=NORMAL: WAL 模式下只在检查点时同步磁盘, 断电时可能丢失最近的事务, 但不会损坏数据库.</li>
+     *     <li>busy_timeout: 数据库被锁定时的最长等待时间, 超时后才抛出 SQLITE_BUSY.</li>
+     *     <li>mmap_size: 使用内存映射读取数据库文件, 减少读操作的系统调用.</li>
+     * </ul>
+     * 已在 jdbcUrl 或 data-source-properties 中配置的参数不会被覆盖.
+     *
+     * @param   dataSource
+     *          数据源
+     */
+    private void configureSqlitePragma(HikariDataSource dataSource) {
+        if (!StringUtils.equalsIgnoreCase(SpringUtil.getProperty(SQLITE_WAL_PROPERTIES), "false")) {
+            setSqlitePragmaIfAbsent(dataSource, "journal_mode", "WAL");
+        }
+        setSqlitePragmaIfAbsent(dataSource, "synchronous", SpringUtil.getProperty(SQLITE_SYNCHRONOUS_PROPERTIES));
+        setSqlitePragmaIfAbsent(dataSource, "busy_timeout", SpringUtil.getProperty(SQLITE_BUSY_TIMEOUT_PROPERTIES));
+        setSqlitePragmaIfAbsent(dataSource, "mmap_size", SpringUtil.getProperty(SQLITE_MMAP_SIZE_PROPERTIES));
+        log.info("SQLite 连接参数: {}", dataSource.getDataSourceProperties());
+    }
+
+    private void setSqlitePragmaIfAbsent(HikariDataSource dataSource, String pragma, String value) {
+        if (StringUtils.isBlank(value)
+                || dataSource.getDataSourceProperties().containsKey(pragma)
+                || StringUtils.containsIgnoreCase(dataSource.getJdbcUrl(), pragma + "=")) {
+            return;
+        }
+        dataSource.addDataSourceProperty(pragma, value);
+    }
+
     /**
      * 根据使用的不同数据库, 配置使用不同的 migration location
      *
@@ -3,6 +3,8 @@ package im.zhaojun.zfile.core.config.mybatis;
 import com.baomidou.mybatisplus.annotation.DbType;
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -30,4 +32,14 @@ public class MyBatisPlusConfig {
         return interceptor;
     }
 
+    /**
+     * SQLite 写操作串行化插件, 仅在使用 SQLite 且未关闭 zfile.db.sqlite.serialize-writes 时启用.
+     * 等待写锁的超时时间与 zfile.db.sqlite.busy-timeout 一致.
+     */
+    @Bean
+    @ConditionalOnExpression("'${spring.datasource.driver-class-name:}' == 'org.sqlite.JDBC' and ${zfile.db.sqlite.serialize-writes:true}")
+    public SqliteWriteSerializeInterceptor sqliteWriteSerializeInterceptor(@Value("${zfile.db.sqlite.busy-timeout:10000}") long busyTimeout) {
+        return new SqliteWriteSerializeInterceptor(busyTimeout);
+    }
+
 }
\ No newline at end of file
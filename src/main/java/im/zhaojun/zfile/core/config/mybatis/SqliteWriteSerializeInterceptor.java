@@ -0,0 +1,96 @@
+package im.zhaojun.zfile.core.config.mybatis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SQLite 写操作串行化拦截器.
+ * <br>
+ * SQLite 同一时间只允许一个连接写入, 多个连接同时写入时, 后写入的连接只能通过 busy_timeout 轮询等待, 高并发下容易等待超时抛出 SQLITE_BUSY.
+ * 此拦截器在应用内通过公平锁将所有写操作排队执行:
+ * <ul>
+ *     <li>事务中的写操作: 第一次写入时获取锁, 直到事务结束 (提交或回滚) 后才释放, 与 SQLite 写锁的持有时间一致.</li>
+ *     <li>非事务中的写操作: 只在执行该语句期间持有锁.</li>
+ * </ul>
+ * 读操作不受影响, 配合 WAL 模式时读操作不会被写操作阻塞.
+ * <br>
+ * 排队等待的时间上限与 busy_timeout 一致, 超时后抛出 {@link CannotAcquireLockException} 快速失败, 避免某个长事务卡住后所有写请求无限期排队.
+ * 因此事务中不应包含网络请求等耗时操作, 以免长时间占用写锁.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+@Intercepts(@Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}))
+public class SqliteWriteSerializeInterceptor implements Interceptor {
+
+    private final ReentrantLock writeLock = new ReentrantLock(true);
+
+    /**
+     * 等待写锁的最长时间, 单位: 毫秒.
+     */
+    private final long lockTimeoutMillis;
+
+    public SqliteWriteSerializeInterceptor(long lockTimeoutMillis) {
+        this.lockTimeoutMillis = lockTimeoutMillis;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        // 当前线程已持有锁 (事务中已写入过), 直接执行.
+        if (writeLock.isHeldByCurrentThread()) {
+            return invocation.proceed();
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            lock();
+            try {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        writeLock.unlock();
+                    }
+                });
+            } catch (RuntimeException e) {
+                writeLock.unlock();
+                throw e;
+            }
+            return invocation.proceed();
+        }
+
+        lock();
+        try {
+            return invocation.proceed();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void lock() {
+        if (log.isDebugEnabled() && writeLock.isLocked()) {
+            log.debug("SQLite 写操作排队中, 等待数: {}", writeLock.getQueueLength() + 1);
+        }
+        boolean locked;
+        try {
+            locked = writeLock.tryLock(lockTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("等待 SQLite 写锁时线程被中断", e);
+        }
+        if (!locked) {
+            log.warn("等待 SQLite 写锁超时 ({} ms), 等待数: {}", lockTimeoutMillis, writeLock.getQueueLength());
+            throw new CannotAcquireLockException("等待 SQLite 写锁超时 (" + lockTimeoutMillis + " ms)");
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+package im.zhaojun.zfile.core.config.spring;
+
+import im.zhaojun.zfile.core.config.ZFileProperties;
+import im.zhaojun.zfile.core.ratelimit.LocalRateLimiter;
+import im.zhaojun.zfile.core.ratelimit.RateLimiter;
+import im.zhaojun.zfile.core.ratelimit.RedisRateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * 访问频率限制器配置, 根据 zfile.rate-limit.store 选择单机或 Redis 计数.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+@Configuration
+public class RateLimiterConfig {
+
+	@Bean
+	public RateLimiter rateLimiter(ZFileProperties zFileProperties, ObjectProvider<StringRedisTemplate> stringRedisTemplateProvider, Environment environment) {
+		ZFileProperties.RateLimitProperties rateLimitProperties = zFileProperties.getRateLimit();
+		LocalRateLimiter localRateLimiter = new LocalRateLimiter(rateLimitProperties.getMaxEntries());
+		if (rateLimitProperties.getStore() != ZFileProperties.RateLimitProperties.Store.REDIS) {
+			return localRateLimiter;
+		}
+
+		StringRedisTemplate stringRedisTemplate = stringRedisTemplateProvider.getIfAvailable();
+		if (stringRedisTemplate == null || !environment.containsProperty("spring.data.redis.host")) {
+			log.warn("访问频率限制配置为使用 Redis 计数, 但未配置 Redis (spring.data.redis.host), 使用单机计数.");
+			return localRateLimiter;
+		}
+		return new RedisRateLimiter(stringRedisTemplate, rateLimitProperties.getRedisKeyPrefix(), localRateLimiter);
+	}
+
+}
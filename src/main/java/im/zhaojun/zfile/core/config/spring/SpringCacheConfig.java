@@ -1,36 +1,56 @@
 package im.zhaojun.zfile.core.config.spring;
 
-import im.zhaojun.zfile.core.config.security.SaTokenDaoRedisJackson;
-import org.apache.commons.lang3.BooleanUtils;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import im.zhaojun.zfile.core.cache.TwoLevelCacheManager;
+import im.zhaojun.zfile.core.config.ZFileProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.cache.support.NoOpCacheManager;
-import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
 
 /**
  * Spring Cache 相关配置
  *
  * @author zhaojun
  */
+@Slf4j
 @Configuration
 @EnableCaching
 public class SpringCacheConfig {
 
-	@Value("${zfile.dbCache.enable:true}")
-	private Boolean dbCacheEnable;
+	public static final String REDIS_HOST_PROPERTY = "spring.data.redis.host";
 
 	/**
-	 * 使用 TransactionAwareCacheManagerProxy 装饰 ConcurrentMapCacheManager，使其支持事务 （将 put、evict、clear 操作延迟到事务成功提交再执行.）
+	 * 使用二级缓存管理器: 本机缓存 + Redis 缓存 (配置了 Redis 时), 缓存的 put、evict、clear 操作延迟到事务成功提交再执行.
 	 */
 	@Bean
-	@ConditionalOnMissingBean(SaTokenDaoRedisJackson.class)
-	public CacheManager cacheManager() {
-		return BooleanUtils.isNotTrue(dbCacheEnable) ? new NoOpCacheManager() : new TransactionAwareCacheManagerProxy(new ConcurrentMapCacheManager());
+	public CacheManager cacheManager(ZFileProperties zFileProperties, ObjectProvider<RedisConnectionFactory> redisConnectionFactoryProvider, Environment environment) {
+		ZFileProperties.DbCacheProperties dbCacheProperties = zFileProperties.getDbCache();
+		if (!dbCacheProperties.isEnable()) {
+			return new NoOpCacheManager();
+		}
+
+		RedisConnectionFactory redisConnectionFactory = environment.containsProperty(REDIS_HOST_PROPERTY) ? redisConnectionFactoryProvider.getIfAvailable() : null;
+		if (redisConnectionFactory == null) {
+			return new TwoLevelCacheManager(dbCacheProperties, null, null);
+		}
+
+		Duration redisTtl = environment.getProperty("spring.cache.redis.time-to-live", Duration.class, Duration.ofMinutes(10));
+		RedisCacheManager redisCacheManager = RedisCacheManager.builder(redisConnectionFactory)
+				.cacheDefaults(RedisCacheConfiguration.defaultCacheConfig(getClass().getClassLoader()).entryTtl(redisTtl))
+				.build();
+		redisCacheManager.afterPropertiesSet();
+		log.info("已启用 Redis 二级缓存, Redis 缓存过期时间: {}", redisTtl);
+		return new TwoLevelCacheManager(dbCacheProperties, redisCacheManager, new StringRedisTemplate(redisConnectionFactory));
 	}
-	
-}
\ No newline at end of file
+
+}
@@ -13,4 +13,9 @@ public class ZFileHttpHeaderConstant {
 
     public static final String AXIOS_FROM = "Axios-From";
 
+    /**
+     * 流式上传时, 客户端提供的文件 SHA-256 校验值 (十六进制)
+     */
+    public static final String UPLOAD_CHECKSUM_SHA256 = "X-Checksum-Sha256";
+
 }
\ No newline at end of file
@@ -72,6 +72,14 @@ public enum ErrorCode {
     BIZ_SHARE_FILE_LIST_ERROR("41037", "获取分享文件列表失败"),
     BIZ_SHARE_FILE_DOWNLOAD_ERROR("41038", "获取文件下载地址失败"),
     BIZ_SHARE_FILE_INFO_ERROR("41039", "获取文件信息失败"),
+    BIZ_STORAGE_INITIALIZING("41040", "存储源正在初始化中, 请稍后再试"),
+    BIZ_INVALID_PAGE_TOKEN("41041", "分页标识无效或已过期, 请重新获取文件列表"),
+    BIZ_UPLOAD_CONTENT_LENGTH_REQUIRED("41042", "流式上传必须指定 Content-Length"),
+    BIZ_UPLOAD_FILE_INCOMPLETE("41043", "上传文件不完整, 实际接收大小与 Content-Length 不一致"),
+    BIZ_UPLOAD_FILE_CHECKSUM_MISMATCH("41044", "上传文件校验失败, 文件内容与校验值不一致"),
+    BIZ_UPLOAD_CHECKSUM_INVALID("41045", "上传文件校验值格式错误, 应为 SHA-256 的十六进制字符串"),
+    BIZ_FOLDER_OPERATION_PARTIAL_FAILED("41046", "文件夹操作部分失败"),
+    BIZ_FOLDER_TARGET_INVALID("41047", "目标文件夹不能是源文件夹本身或其子文件夹"),
 
     // 第二位为 2 时，是登录错误
     BIZ_UNAUTHORIZED("42000", "未登录或未授权"),
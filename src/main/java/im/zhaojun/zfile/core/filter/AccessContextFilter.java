@@ -0,0 +1,33 @@
+package im.zhaojun.zfile.core.filter;
+
+import im.zhaojun.zfile.module.user.context.RequestAccessContext;
+import jakarta.servlet.*;
+import jakarta.servlet.annotation.WebFilter;
+
+import java.io.IOException;
+
+/**
+ * 请求级访问上下文过滤器, 为每个请求创建 {@link RequestAccessContext}, 请求结束后清理.
+ *
+ * @author zhaojun
+ */
+@WebFilter(urlPatterns = "/*")
+public class AccessContextFilter implements Filter {
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain filterChain) throws IOException, ServletException {
+		// 转发等嵌套调用时沿用外层请求的上下文
+		if (RequestAccessContext.current() != null) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+
+		RequestAccessContext.init();
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			RequestAccessContext.clear();
+		}
+	}
+
+}
@@ -0,0 +1,199 @@
+package im.zhaojun.zfile.core.io;
+
+import im.zhaojun.zfile.core.exception.ErrorCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+
+/**
+ * 流式上传校验输入流, 在存储源读取上传内容的同时统计已接收的字节数, 并计算摘要.
+ * <br>
+ * 读取到流末尾时校验实际大小是否与 Content-Length 一致, 以及摘要是否与客户端提供的校验值一致, 不一致时抛出 IOException 中断上传.
+ * 部分存储源读取到指定大小后不会继续读取到流末尾, 所以上传完成后还需要调用 {@link #verify()} 进行最终校验.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public class UploadVerifyInputStream extends FilterInputStream {
+
+    /**
+     * 每接收多少字节输出一次上传进度日志
+     */
+    private static final long PROGRESS_LOG_INTERVAL_BYTES = 64 * 1024 * 1024;
+
+    private final String pathAndName;
+
+    private final long expectedLength;
+
+    private final MessageDigest messageDigest;
+
+    private final byte[] expectedDigest;
+
+    private final long startTime = System.currentTimeMillis();
+
+    /**
+     * 已接收的字节数
+     */
+    @Getter
+    private long transferredBytes;
+
+    private long nextProgressLogBytes = PROGRESS_LOG_INTERVAL_BYTES;
+
+    private boolean verified;
+
+    /**
+     * 校验失败的原因, 校验通过或尚未校验时为 null.
+     */
+    @Getter
+    private ErrorCode failure;
+
+    /**
+     * 创建流式上传校验输入流.
+     *
+     * @param   in
+     *          请求输入流
+     *
+     * @param   pathAndName
+     *          上传文件路径, 仅用于日志输出
+     *
+     * @param   expectedLength
+     *          期望的文件大小 (Content-Length)
+     *
+     * @param   messageDigest
+     *          摘要算法, 为 null 时不校验摘要
+     *
+     * @param   expectedDigest
+     *          期望的摘要值, 为 null 时不校验摘要
+     */
+    public UploadVerifyInputStream(InputStream in, String pathAndName, long expectedLength, MessageDigest messageDigest, byte[] expectedDigest) {
+        super(in);
+        this.pathAndName = pathAndName;
+        this.expectedLength = expectedLength;
+        this.messageDigest = expectedDigest == null ? null : messageDigest;
+        this.expectedDigest = expectedDigest;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b == -1) {
+            verifyOnEnd();
+        } else {
+            onRead(new byte[] { (byte) b }, 0, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int count = super.read(b, off, len);
+        if (count == -1) {
+            verifyOnEnd();
+        } else {
+            onRead(b, off, count);
+        }
+        return count;
+    }
+
+    /**
+     * 跳过的内容也需要计算摘要, 所以通过读取的方式实现.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(Math.max(n, 0), 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int count = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (count == -1) {
+                break;
+            }
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * 上传完成后进行最终校验, 如果存储源未读取到流末尾, 则确认请求体中没有多余内容后再校验大小和摘要.
+     *
+     * @return  校验失败的原因, 校验通过时返回 null.
+     */
+    public ErrorCode verify() {
+        if (!verified) {
+            try {
+                if (transferredBytes == expectedLength && super.read() != -1) {
+                    failure = ErrorCode.BIZ_UPLOAD_FILE_INCOMPLETE;
+                    verified = true;
+                } else {
+                    verifyOnEnd();
+                }
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = ErrorCode.BIZ_UPLOAD_FILE_INCOMPLETE;
+                }
+            }
+        }
+        return failure;
+    }
+
+    private void onRead(byte[] b, int off, int len) throws IOException {
+        transferredBytes += len;
+        if (messageDigest != null) {
+            messageDigest.update(b, off, len);
+        }
+        if (transferredBytes > expectedLength) {
+            failure = ErrorCode.BIZ_UPLOAD_FILE_INCOMPLETE;
+            verified = true;
+            throw new IOException("上传内容超出 Content-Length: " + expectedLength);
+        }
+        if (transferredBytes >= nextProgressLogBytes) {
+            nextProgressLogBytes += PROGRESS_LOG_INTERVAL_BYTES;
+            if (log.isDebugEnabled()) {
+                log.debug("流式上传 {} 进度: {}/{} 字节", pathAndName, transferredBytes, expectedLength);
+            }
+        }
+    }
+
+    private void verifyOnEnd() throws IOException {
+        if (verified) {
+            if (failure != null) {
+                throw new IOException("上传文件校验失败: " + failure.getMessage());
+            }
+            return;
+        }
+        verified = true;
+
+        if (transferredBytes != expectedLength) {
+            failure = ErrorCode.BIZ_UPLOAD_FILE_INCOMPLETE;
+        } else if (messageDigest != null && !MessageDigest.isEqual(messageDigest.digest(), expectedDigest)) {
+            failure = ErrorCode.BIZ_UPLOAD_FILE_CHECKSUM_MISMATCH;
+        }
+
+        if (failure != null) {
+            throw new IOException("上传文件校验失败: " + failure.getMessage());
+        }
+
+        if (log.isDebugEnabled()) {
+            long costMillis = Math.max(System.currentTimeMillis() - startTime, 1);
+            log.debug("流式上传 {} 接收完成, 大小: {} 字节, 耗时: {} ms", pathAndName, transferredBytes, costMillis);
+        }
+    }
+
+}
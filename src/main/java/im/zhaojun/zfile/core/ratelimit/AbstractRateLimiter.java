@@ -0,0 +1,59 @@
+package im.zhaojun.zfile.core.ratelimit;
+
+import im.zhaojun.zfile.module.link.model.result.RateLimitStatsResult;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 抽象访问频率限制器, 统计各规则允许/拒绝的请求数.
+ *
+ * @author zhaojun
+ */
+public abstract class AbstractRateLimiter implements RateLimiter {
+
+    private final Map<String, RuleStats> ruleStatsMap = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean tryAcquire(String rule, String key, long limit, long windowMillis) {
+        boolean allowed = doTryAcquire(rule, key, limit, windowMillis);
+        RuleStats ruleStats = ruleStatsMap.computeIfAbsent(rule, r -> new RuleStats());
+        if (allowed) {
+            ruleStats.allowedCount.increment();
+        } else {
+            ruleStats.rejectedCount.increment();
+        }
+        return allowed;
+    }
+
+    @Override
+    public List<RateLimitStatsResult> getStats() {
+        return ruleStatsMap.entrySet().stream()
+                .map(entry -> {
+                    RateLimitStatsResult result = new RateLimitStatsResult();
+                    result.setRule(entry.getKey());
+                    result.setAllowedCount(entry.getValue().allowedCount.sum());
+                    result.setRejectedCount(entry.getValue().rejectedCount.sum());
+                    return result;
+                })
+                .sorted(Comparator.comparing(RateLimitStatsResult::getRule))
+                .toList();
+    }
+
+    /**
+     * 尝试获取一次访问许可, 参数同 {@link #tryAcquire(String, String, long, long)}.
+     */
+    protected abstract boolean doTryAcquire(String rule, String key, long limit, long windowMillis);
+
+    private static class RuleStats {
+
+        private final LongAdder allowedCount = new LongAdder();
+
+        private final LongAdder rejectedCount = new LongAdder();
+
+    }
+
+}
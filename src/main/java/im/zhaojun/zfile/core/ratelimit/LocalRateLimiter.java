@@ -0,0 +1,179 @@
+package im.zhaojun.zfile.core.ratelimit;
+
+import im.zhaojun.zfile.module.link.model.dto.CacheInfo;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 单机访问频率限制器, 计数保存在内存中.
+ * <br>
+ * 计数按 规则 + key 分散到多个分段中, 每个分段按最近最少使用的顺序淘汰, 总条目数不超过 maxEntries, 避免大量不同 IP 访问时占用过多内存.
+ * 分段的锁只用于查找和插入计数器, 计数本身通过 CAS 更新, 不加锁.
+ *
+ * @author zhaojun
+ */
+public class LocalRateLimiter extends AbstractRateLimiter {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+    public LocalRateLimiter(int maxEntries) {
+        int maxEntriesPerSegment = Math.max(1, maxEntries / SEGMENT_COUNT);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(maxEntriesPerSegment);
+        }
+    }
+
+    @Override
+    protected boolean doTryAcquire(String rule, String key, long limit, long windowMillis) {
+        CounterKey counterKey = new CounterKey(rule, key);
+        return segmentFor(counterKey).getOrCreate(counterKey).tryAcquire(limit, windowMillis, System.currentTimeMillis());
+    }
+
+    @Override
+    public List<CacheInfo<String, Long>> getCacheInfo(String rule) {
+        long now = System.currentTimeMillis();
+        List<CacheInfo<String, Long>> cacheInfoList = new ArrayList<>();
+        for (Segment segment : segments) {
+            for (Map.Entry<CounterKey, SlidingWindowCounter> entry : segment.snapshot()) {
+                if (!entry.getKey().rule.equals(rule)) {
+                    continue;
+                }
+                WindowState state = entry.getValue().state.get();
+                long count = Math.round(state.estimate(now));
+                if (count == 0) {
+                    continue;
+                }
+                CacheInfo<String, Long> cacheInfo = new CacheInfo<>();
+                cacheInfo.setKey(entry.getKey().key);
+                cacheInfo.setValue(count);
+                cacheInfo.setTtl(state.windowMillis);
+                cacheInfo.setExpiredTime(new Date((state.windowIndex + 1) * state.windowMillis));
+                cacheInfoList.add(cacheInfo);
+            }
+        }
+        return cacheInfoList;
+    }
+
+    private Segment segmentFor(CounterKey counterKey) {
+        int hash = counterKey.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * 计数分段, 按访问顺序淘汰最久未使用的计数器.
+     */
+    private static class Segment {
+
+        private final LinkedHashMap<CounterKey, SlidingWindowCounter> counterMap;
+
+        private Segment(int maxEntries) {
+            this.counterMap = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CounterKey, SlidingWindowCounter> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        private synchronized SlidingWindowCounter getOrCreate(CounterKey counterKey) {
+            return counterMap.computeIfAbsent(counterKey, k -> new SlidingWindowCounter());
+        }
+
+        private synchronized List<Map.Entry<CounterKey, SlidingWindowCounter>> snapshot() {
+            return new ArrayList<>(counterMap.entrySet());
+        }
+
+    }
+
+    /**
+     * 滑动窗口计数器, 状态不可变, 通过 CAS 整体替换.
+     */
+    private static class SlidingWindowCounter {
+
+        private final AtomicReference<WindowState> state = new AtomicReference<>(WindowState.EMPTY);
+
+        private boolean tryAcquire(long limit, long windowMillis, long now) {
+            long windowIndex = now / windowMillis;
+            while (true) {
+                WindowState current = state.get();
+                WindowState rolled = current.roll(windowIndex, windowMillis);
+                if (rolled.estimate(now) >= limit) {
+                    return false;
+                }
+                WindowState next = new WindowState(windowIndex, windowMillis, rolled.previousCount, rolled.currentCount + 1);
+                if (state.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+
+    }
+
+    private static class WindowState {
+
+        private static final WindowState EMPTY = new WindowState(0, 0, 0, 0);
+
+        private final long windowIndex;
+
+        private final long windowMillis;
+
+        private final long previousCount;
+
+        private final long currentCount;
+
+        private WindowState(long windowIndex, long windowMillis, long previousCount, long currentCount) {
+            this.windowIndex = windowIndex;
+            this.windowMillis = windowMillis;
+            this.previousCount = previousCount;
+            this.currentCount = currentCount;
+        }
+
+        /**
+         * 滚动到指定窗口, 窗口时长变化时重新计数.
+         */
+        private WindowState roll(long targetWindowIndex, long targetWindowMillis) {
+            if (windowMillis != targetWindowMillis) {
+                return new WindowState(targetWindowIndex, targetWindowMillis, 0, 0);
+            }
+            // 时钟回拨或并发请求的时间稍早时, 仍使用当前窗口计数.
+            if (windowIndex >= targetWindowIndex) {
+                return this;
+            }
+            long previous = windowIndex == targetWindowIndex - 1 ? currentCount : 0;
+            return new WindowState(targetWindowIndex, targetWindowMillis, previous, 0);
+        }
+
+        /**
+         * 估算截止到 now 的一个窗口时长内的访问次数.
+         */
+        private double estimate(long now) {
+            if (windowMillis == 0) {
+                return 0;
+            }
+            WindowState rolled = roll(now / windowMillis, windowMillis);
+            double previousWeight = 1 - (double) (now % windowMillis) / windowMillis;
+            return rolled.previousCount * previousWeight + rolled.currentCount;
+        }
+
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class CounterKey {
+
+        private final String rule;
+
+        private final String key;
+
+    }
+
+}
@@ -0,0 +1,63 @@
+package im.zhaojun.zfile.core.ratelimit;
+
+import im.zhaojun.zfile.module.link.model.dto.CacheInfo;
+import im.zhaojun.zfile.module.link.model.result.RateLimitStatsResult;
+
+import java.util.List;
+
+/**
+ * 访问频率限制器, 使用滑动窗口计数: 按当前窗口计数 + 上一窗口计数 * 上一窗口在滑动窗口中的剩余占比 估算最近一个窗口内的请求数.
+ * <br>
+ * 同一规则下不同 key (如不同 IP) 分别计数, 被拒绝的请求不计入窗口.
+ *
+ * @author zhaojun
+ */
+public interface RateLimiter {
+
+    /**
+     * 直链/短链访问频率限制规则名称
+     */
+    String LINK_RULE = "link";
+
+    /**
+     * 接口访问频率限制规则名称前缀, 后接类名和方法名.
+     */
+    String API_RULE_PREFIX = "api:";
+
+    /**
+     * 尝试获取一次访问许可
+     *
+     * @param   rule
+     *          规则名称, 用于区分不同的限制规则和统计
+     *
+     * @param   key
+     *          限制对象, 如客户端 IP
+     *
+     * @param   limit
+     *          窗口内允许的最大访问次数
+     *
+     * @param   windowMillis
+     *          窗口时长, 单位: 毫秒
+     *
+     * @return  是否允许访问
+     */
+    boolean tryAcquire(String rule, String key, long limit, long windowMillis);
+
+    /**
+     * 获取指定规则下当前的计数信息, 用于管理员查看.
+     *
+     * @param   rule
+     *          规则名称
+     *
+     * @return  计数信息, key 为限制对象, value 为估算的窗口内访问次数.
+     */
+    List<CacheInfo<String, Long>> getCacheInfo(String rule);
+
+    /**
+     * 获取各规则的允许/拒绝次数统计
+     *
+     * @return  统计信息
+     */
+    List<RateLimitStatsResult> getStats();
+
+}
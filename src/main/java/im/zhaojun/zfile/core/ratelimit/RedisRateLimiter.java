@@ -0,0 +1,129 @@
+package im.zhaojun.zfile.core.ratelimit;
+
+import im.zhaojun.zfile.module.link.model.dto.CacheInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 基于 Redis 的访问频率限制器, 多个节点共享计数, 适用于多节点部署.
+ * <br>
+ * 每个窗口的计数保存在 {prefix}{rule}:{windowMillis}:{key}:{windowIndex} 中, 通过 Lua 脚本原子地检查并递增, 计数在两个窗口后自动过期.
+ * Redis 不可用时降级为单机计数, 避免因 Redis 故障导致所有请求被拒绝.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public class RedisRateLimiter extends AbstractRateLimiter {
+
+    /**
+     * 最多返回的计数信息条数
+     */
+    private static final int MAX_CACHE_INFO_SIZE = 1000;
+
+    /**
+     * KEYS[1]: 当前窗口计数 key, KEYS[2]: 上一窗口计数 key
+     * ARGV[1]: 最大访问次数, ARGV[2]: 上一窗口的权重, ARGV[3]: 计数过期时间 (毫秒)
+     */
+    private static final RedisScript<Long> SLIDING_WINDOW_SCRIPT = new DefaultRedisScript<>("""
+            local current = tonumber(redis.call('GET', KEYS[1]) or '0')
+            local previous = tonumber(redis.call('GET', KEYS[2]) or '0')
+            if previous * tonumber(ARGV[2]) + current >= tonumber(ARGV[1]) then
+                return 0
+            end
+            redis.call('INCR', KEYS[1])
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final String keyPrefix;
+
+    private final LocalRateLimiter fallbackRateLimiter;
+
+    public RedisRateLimiter(StringRedisTemplate stringRedisTemplate, String keyPrefix, LocalRateLimiter fallbackRateLimiter) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.keyPrefix = keyPrefix;
+        this.fallbackRateLimiter = fallbackRateLimiter;
+    }
+
+    @Override
+    protected boolean doTryAcquire(String rule, String key, long limit, long windowMillis) {
+        long now = System.currentTimeMillis();
+        long windowIndex = now / windowMillis;
+        double previousWeight = 1 - (double) (now % windowMillis) / windowMillis;
+        String counterKey = getCounterKey(rule, key, windowMillis);
+        try {
+            Long result = stringRedisTemplate.execute(SLIDING_WINDOW_SCRIPT,
+                    List.of(counterKey + ":" + windowIndex, counterKey + ":" + (windowIndex - 1)),
+                    String.valueOf(limit), String.valueOf(previousWeight), String.valueOf(windowMillis * 2));
+            return Objects.equals(result, 1L);
+        } catch (Exception e) {
+            log.warn("Redis 访问频率限制计数失败, 降级为单机计数, rule: {}, key: {}, 原因: {}", rule, key, e.getMessage());
+            return fallbackRateLimiter.doTryAcquire(rule, key, limit, windowMillis);
+        }
+    }
+
+    @Override
+    public List<CacheInfo<String, Long>> getCacheInfo(String rule) {
+        List<CacheInfo<String, Long>> cacheInfoList = new ArrayList<>();
+        String rulePrefix = keyPrefix + rule + ":";
+        ScanOptions scanOptions = ScanOptions.scanOptions().match(rulePrefix + "*").count(MAX_CACHE_INFO_SIZE).build();
+        long now = System.currentTimeMillis();
+        try (Cursor<String> cursor = stringRedisTemplate.scan(scanOptions)) {
+            while (cursor.hasNext() && cacheInfoList.size() < MAX_CACHE_INFO_SIZE) {
+                // key 格式: {prefix}{rule}:{windowMillis}:{key}:{windowIndex}, key (如 IPV6) 中可能包含冒号.
+                String redisKey = cursor.next();
+                String rest = redisKey.substring(rulePrefix.length());
+                int firstColonIndex = rest.indexOf(':');
+                int lastColonIndex = rest.lastIndexOf(':');
+                if (firstColonIndex == -1 || firstColonIndex == lastColonIndex) {
+                    continue;
+                }
+                long windowMillis;
+                long windowIndex;
+                try {
+                    windowMillis = Long.parseLong(rest.substring(0, firstColonIndex));
+                    windowIndex = Long.parseLong(rest.substring(lastColonIndex + 1));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                // 只展示当前窗口的计数
+                if (windowMillis <= 0 || windowIndex != now / windowMillis) {
+                    continue;
+                }
+                String value = stringRedisTemplate.opsForValue().get(redisKey);
+                if (value == null) {
+                    continue;
+                }
+                CacheInfo<String, Long> cacheInfo = new CacheInfo<>();
+                cacheInfo.setKey(rest.substring(firstColonIndex + 1, lastColonIndex));
+                cacheInfo.setValue(Long.parseLong(value));
+                cacheInfo.setTtl(windowMillis);
+                cacheInfo.setExpiredTime(new Date((windowIndex + 1) * windowMillis));
+                cacheInfoList.add(cacheInfo);
+            }
+        } catch (Exception e) {
+            log.warn("获取 Redis 访问频率限制计数信息失败, rule: {}", rule, e);
+            return fallbackRateLimiter.getCacheInfo(rule);
+        }
+        return cacheInfoList;
+    }
+
+    /**
+     * 计数 key 中包含窗口时长, 修改限制时长后使用新的计数.
+     */
+    private String getCounterKey(String rule, String key, long windowMillis) {
+        return keyPrefix + rule + ":" + windowMillis + ":" + key;
+    }
+
+}
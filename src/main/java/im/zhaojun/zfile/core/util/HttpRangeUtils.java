@@ -0,0 +1,201 @@
+package im.zhaojun.zfile.core.util;
+
+import cn.hutool.core.util.IdUtil;
+import im.zhaojun.zfile.core.exception.ErrorCode;
+import im.zhaojun.zfile.core.exception.core.BizException;
+import im.zhaojun.zfile.core.exception.core.SystemException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * HTTP Range 工具类
+ *
+ * @author zhaojun
+ */
+public class HttpRangeUtils {
+
+    private static final String CRLF = "\r\n";
+
+    /**
+     * 校验并合并请求的 Range: 按起始位置排序, 合并重叠或相邻的区间.
+     * <br>
+     * 多个 Range 请求的总字节数超过文件大小时视为无效 (与 Spring 处理静态资源时的限制一致),
+     * 防止通过大量重叠的区间放大下载流量.
+     *
+     * @param   httpRanges
+     *          请求的 Range 列表
+     *
+     * @param   fileSize
+     *          文件大小
+     *
+     * @return  合并后按起始位置排序的 Range 列表
+     *
+     * @throws  IllegalArgumentException    存在无法满足的区间, 或总字节数超过文件大小时抛出
+     */
+    public static List<HttpRange> mergeRanges(List<HttpRange> httpRanges, long fileSize) {
+        if (httpRanges.isEmpty()) {
+            return httpRanges;
+        }
+
+        List<long[]> rangeList = new ArrayList<>(httpRanges.size());
+        long total = 0;
+        for (HttpRange httpRange : httpRanges) {
+            // 起始位置超出文件大小时会抛出异常, 对于空文件, 后缀区间的起始位置会大于结束位置.
+            long start = httpRange.getRangeStart(fileSize);
+            long end = httpRange.getRangeEnd(fileSize);
+            if (start >= fileSize || start > end) {
+                throw new IllegalArgumentException("Range not satisfiable: " + httpRange);
+            }
+            rangeList.add(new long[]{start, end});
+            total += end - start + 1;
+        }
+        if (httpRanges.size() > 1 && total > fileSize) {
+            throw new IllegalArgumentException("The sum of all ranges (" + total + ") exceeds the file size (" + fileSize + ")");
+        }
+
+        rangeList.sort(Comparator.comparingLong(range -> range[0]));
+        List<HttpRange> result = new ArrayList<>(rangeList.size());
+        long[] current = rangeList.get(0);
+        for (int i = 1; i < rangeList.size(); i++) {
+            long[] next = rangeList.get(i);
+            if (next[0] <= current[1] + 1) {
+                current[1] = Math.max(current[1], next[1]);
+            } else {
+                result.add(HttpRange.createByteRange(current[0], current[1]));
+                current = next;
+            }
+        }
+        result.add(HttpRange.createByteRange(current[0], current[1]));
+        return result;
+    }
+
+
+    /**
+     * 以 multipart/byteranges 格式写入多段 Range 响应, 包括状态码、Content-Type 及 Content-Length 响应头.
+     * <br>
+     * 每段都通过 rangeInputStreamSupplier 获取从该段开始位置的输入流, 只读取该段的字节, 读取完后关闭.
+     *
+     * @param   response
+     *          响应对象
+     *
+     * @param   httpRanges
+     *          合并后的 Range 列表, 见 {@link #mergeRanges(List, long)}
+     *
+     * @param   fileSize
+     *          文件大小
+     *
+     * @param   contentType
+     *          每段的 Content-Type
+     *
+     * @param   headRequest
+     *          是否为 HEAD 请求, 是则只写入响应头
+     *
+     * @param   rangeInputStreamSupplier
+     *          根据开始位置获取输入流
+     */
+    public static void writeMultipartRanges(HttpServletResponse response, List<HttpRange> httpRanges, long fileSize, String contentType,
+                                            boolean headRequest, RangeInputStreamSupplier rangeInputStreamSupplier) throws IOException {
+        String boundary = IdUtil.fastSimpleUUID();
+
+        // 预先生成每段的头部, 以便计算完整的响应长度.
+        List<byte[]> partHeaderList = new ArrayList<>(httpRanges.size());
+        long contentLength = 0;
+        for (HttpRange httpRange : httpRanges) {
+            long start = httpRange.getRangeStart(fileSize);
+            long end = httpRange.getRangeEnd(fileSize);
+            String partHeader = CRLF + "--" + boundary + CRLF
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + CRLF
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + StringUtils.SLASH + fileSize + CRLF
+                    + CRLF;
+            byte[] partHeaderBytes = partHeader.getBytes(StandardCharsets.US_ASCII);
+            partHeaderList.add(partHeaderBytes);
+            contentLength += partHeaderBytes.length + (end - start + 1);
+        }
+        byte[] endBoundary = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        contentLength += endBoundary.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (headRequest) {
+            return;
+        }
+
+        OutputStream outputStream = response.getOutputStream();
+        for (int i = 0; i < httpRanges.size(); i++) {
+            HttpRange httpRange = httpRanges.get(i);
+            outputStream.write(partHeaderList.get(i));
+            copyRange(rangeInputStreamSupplier, outputStream, httpRange.getRangeStart(fileSize), httpRange.getRangeEnd(fileSize));
+        }
+        outputStream.write(endBoundary);
+        outputStream.flush();
+    }
+
+
+    /**
+     * 将文件指定区间的内容写入输出流, 输入流读取完后关闭.
+     *
+     * @param   rangeInputStreamSupplier
+     *          根据开始位置获取输入流
+     *
+     * @param   outputStream
+     *          输出流
+     *
+     * @param   startPos
+     *          开始位置 (包含)
+     *
+     * @param   endPos
+     *          结束位置 (包含)
+     *
+     * @throws  IOException    写入失败, 或文件内容不足 (如在下载过程中被修改) 时抛出
+     */
+    public static void copyRange(RangeInputStreamSupplier rangeInputStreamSupplier, OutputStream outputStream, long startPos, long endPos) throws IOException {
+        InputStream inputStream;
+        try {
+            inputStream = rangeInputStreamSupplier.open(startPos);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SystemException(e);
+        }
+        if (inputStream == null) {
+            throw new BizException(ErrorCode.BIZ_FILE_NOT_EXIST);
+        }
+        try (inputStream) {
+            long length = endPos - startPos + 1;
+            if (StreamUtils.copyRange(inputStream, outputStream, 0, length - 1) < length) {
+                throw new IOException("文件内容不足, 可能在下载过程中被修改");
+            }
+        }
+    }
+
+
+    /**
+     * 从指定位置开始获取文件输入流
+     */
+    @FunctionalInterface
+    public interface RangeInputStreamSupplier {
+
+        /**
+         * 获取从指定位置开始到文件末尾的输入流
+         *
+         * @param   start
+         *          开始位置 (字节)
+         *
+         * @return  输入流
+         */
+        InputStream open(long start) throws Exception;
+
+    }
+
+}
@@ -1,15 +1,12 @@
 package im.zhaojun.zfile.core.util;
 
+import cn.hutool.http.HttpResponse;
 import im.zhaojun.zfile.core.constant.ZFileConstant;
 import im.zhaojun.zfile.core.exception.ErrorCode;
 import im.zhaojun.zfile.core.exception.biz.GetPreviewTextContentBizException;
 import im.zhaojun.zfile.core.exception.core.BizException;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.IOException;
-import java.net.URL;
-import java.net.URLConnection;
-
 /**
  * 网络相关工具
  *
@@ -19,7 +16,7 @@ import java.net.URLConnection;
 public class HttpUtil {
 
     /**
-     * 获取 URL 对应的文件内容
+     * 获取 URL 对应的文件内容, 根据响应头中的文件大小判断是否超出限制, 只发送一次请求.
      *
      * @param   url
      *          文件 URL
@@ -29,13 +26,14 @@ public class HttpUtil {
     public static String getTextContent(String url) {
         long maxFileSize = 1024 * ZFileConstant.TEXT_MAX_FILE_SIZE_KB;
 
-        if (getRemoteFileSize(url) > maxFileSize) {
-            throw new BizException(ErrorCode.BIZ_PREVIEW_FILE_SIZE_EXCEED);
-        }
-
         String result;
-        try {
-            result = cn.hutool.http.HttpUtil.get(url);
+        try (HttpResponse response = cn.hutool.http.HttpUtil.createGet(url).executeAsync()) {
+            if (response.contentLength() > maxFileSize) {
+                throw new BizException(ErrorCode.BIZ_PREVIEW_FILE_SIZE_EXCEED);
+            }
+            result = response.body();
+        } catch (BizException e) {
+            throw e;
         } catch (Exception e) {
             throw new GetPreviewTextContentBizException(url, e);
         }
@@ -43,27 +41,4 @@ public class HttpUtil {
         return result == null ? "" : result;
     }
 
-
-    /**
-     * 获取远程文件大小
-     *
-     * @param   url
-     *          文件 URL
-     *
-     * @return  文件大小
-     */
-    public static Long getRemoteFileSize(String url) {
-        long size = 0;
-        URL urlObject;
-        try {
-            urlObject = new URL(url);
-            URLConnection conn = urlObject.openConnection();
-            size = conn.getContentLength();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        return size;
-    }
-
-}
\ No newline at end of file
+}
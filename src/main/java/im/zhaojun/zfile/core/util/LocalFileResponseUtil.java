@@ -0,0 +1,231 @@
+package im.zhaojun.zfile.core.util;
+
+import im.zhaojun.zfile.core.exception.ErrorCode;
+import im.zhaojun.zfile.core.exception.core.SystemException;
+import im.zhaojun.zfile.core.exception.status.NotFoundAccessException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+/**
+ * 本地文件下载输出工具类, 支持断点续传 (包括多段 Range, 重叠或相邻的区间会被合并), 条件请求 (ETag / Last-Modified / If-Range).
+ * <br>
+ * 容器支持 sendfile 时 (如 Tomcat NIO 且未启用 SSL), 单段或完整文件下载交由容器通过 sendfile 发送, 不经过用户态复制;
+ * 否则通过 {@link FileChannel#transferTo} 写入响应流. 多段 Range 通过 {@link HttpRangeUtils#writeMultipartRanges} 写入.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public class LocalFileResponseUtil {
+
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * 使用 sendfile 的最小文件大小, 小文件直接写入响应流开销更小. (与 Tomcat DefaultServlet 的默认值一致)
+     */
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    /**
+     * 一次 transferTo 最多传输的字节数
+     */
+    private static final long TRANSFER_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * 将本地文件写入当前请求的响应中.
+     *
+     * @param   path
+     *          本地文件路径
+     *
+     * @param   forceDownload
+     *          是否强制下载
+     */
+    public static void writeFile(Path path, boolean forceDownload) {
+        HttpServletRequest request = RequestHolder.getRequest();
+        HttpServletResponse response = RequestHolder.getResponse();
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new NotFoundAccessException(ErrorCode.BIZ_FILE_NOT_EXIST);
+        } catch (IOException e) {
+            throw new SystemException(e);
+        }
+        if (attributes.isDirectory()) {
+            throw new NotFoundAccessException(ErrorCode.BIZ_FILE_NOT_EXIST);
+        }
+
+        long fileSize = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(fileSize) + "\"";
+
+        // 处理 If-None-Match / If-Modified-Since / If-Match / If-Unmodified-Since, 并写入 ETag 和 Last-Modified 响应头.
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        String fileName = path.getFileName().toString();
+        MediaType mediaType = forceDownload ? MediaType.APPLICATION_OCTET_STREAM
+                : MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        ContentDisposition contentDisposition = ContentDisposition
+                .builder(MediaType.APPLICATION_OCTET_STREAM.equals(mediaType) ? "attachment" : "inline")
+                .filename(fileName, StandardCharsets.UTF_8)
+                .build();
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition.toString());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        List<HttpRange> httpRanges;
+        try {
+            httpRanges = HttpRangeUtils.mergeRanges(getRequestRanges(request, etag, lastModified), fileSize);
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        boolean headRequest = HttpMethod.HEAD.matches(request.getMethod());
+        try {
+            if (httpRanges.isEmpty()) {
+                response.setContentType(mediaType.toString());
+                response.setContentLengthLong(fileSize);
+                if (!headRequest && fileSize > 0) {
+                    writeRange(request, response, path, 0, fileSize - 1);
+                }
+            } else if (httpRanges.size() == 1) {
+                HttpRange httpRange = httpRanges.get(0);
+                long start = httpRange.getRangeStart(fileSize);
+                long end = httpRange.getRangeEnd(fileSize);
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setContentType(mediaType.toString());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + StringUtils.SLASH + fileSize);
+                response.setContentLengthLong(end - start + 1);
+                if (!headRequest) {
+                    writeRange(request, response, path, start, end);
+                }
+            } else {
+                HttpRangeUtils.writeMultipartRanges(response, httpRanges, fileSize, mediaType.toString(), headRequest,
+                        start -> newInputStream(path, start));
+            }
+        } catch (IOException e) {
+            String message = e.getMessage();
+            if (message != null && (message.contains("Broken pipe") || message.contains("Connection reset by peer"))) {
+                if (log.isDebugEnabled()) {
+                    log.debug("skip IOException: {}", message);
+                }
+            } else {
+                throw new SystemException(e);
+            }
+        }
+    }
+
+
+    /**
+     * 获取请求的 Range, 如果没有 Range 请求头, 或 If-Range 条件不满足 (文件已变化), 则返回空集合, 表示返回完整文件.
+     */
+    private static List<HttpRange> getRequestRanges(HttpServletRequest request, String etag, long lastModified) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (StringUtils.isBlank(range)) {
+            return List.of();
+        }
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (StringUtils.isNotBlank(ifRange)) {
+            boolean matched;
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                // If-Range 只能使用强校验, 弱 ETag 始终视为不匹配.
+                matched = ifRange.equals(etag);
+            } else {
+                long ifRangeTime;
+                try {
+                    ifRangeTime = request.getDateHeader(HttpHeaders.IF_RANGE);
+                } catch (IllegalArgumentException e) {
+                    ifRangeTime = -1;
+                }
+                matched = ifRangeTime != -1 && lastModified / 1000 == ifRangeTime / 1000;
+            }
+            if (!matched) {
+                return List.of();
+            }
+        }
+
+        return HttpRange.parseRanges(range);
+    }
+
+
+    /**
+     * 写入文件的指定区间, 容器支持 sendfile 且文件足够大时交由容器发送, 否则通过 {@link FileChannel#transferTo} 写入响应流.
+     */
+    private static void writeRange(HttpServletRequest request, HttpServletResponse response, Path path, long start, long end) throws IOException {
+        long length = end - start + 1;
+        if (length >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end + 1);
+            return;
+        }
+
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            OutputStream outputStream = response.getOutputStream();
+            transfer(fileChannel, Channels.newChannel(outputStream), start, length);
+            outputStream.flush();
+        }
+    }
+
+
+    /**
+     * 从文件的指定位置开始获取输入流, 用于写入多段 Range 响应.
+     */
+    private static InputStream newInputStream(Path path, long start) throws IOException {
+        FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return Channels.newInputStream(fileChannel.position(start));
+        } catch (IOException | RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * 从文件的指定位置开始, 传输指定长度的内容到目标通道.
+     */
+    private static void transfer(FileChannel fileChannel, WritableByteChannel target, long position, long length) throws IOException {
+        long end = position + length;
+        while (position < end) {
+            long transferred = fileChannel.transferTo(position, Math.min(end - position, TRANSFER_CHUNK_SIZE), target);
+            if (transferred <= 0) {
+                // 文件在传输过程中被截断
+                throw new IOException("文件内容不足, 可能在下载过程中被修改");
+            }
+            position += transferred;
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package im.zhaojun.zfile.core.util;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.crypto.SecureUtil;
+import cn.hutool.extra.spring.SpringUtil;
+import im.zhaojun.zfile.core.exception.ErrorCode;
+import im.zhaojun.zfile.core.exception.core.BizException;
+import im.zhaojun.zfile.module.config.service.SystemConfigService;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * 分页标识签名工具类.
+ * <br>
+ * 存储源原始的分页标识 (如 Graph API 的下一页地址) 返回给前端前, 使用系统设置中的 AES 密钥对
+ * 存储源 ID + 文件夹完整路径 + 原始分页标识计算 HMAC, 请求下一页时校验, 防止客户端伪造分页标识或将其用于其他文件夹.
+ *
+ * @author zhaojun
+ */
+public class PageTokenUtils {
+
+	private static SystemConfigService systemConfigService;
+
+	private static final String TOKEN_DELIMITER = ".";
+
+	private static final String CONTENT_DELIMITER = "\n";
+
+	/**
+	 * 对原始分页标识签名
+	 *
+	 * @param 	storageId
+	 * 			存储源 ID
+	 *
+	 * @param 	folderPath
+	 * 			文件夹完整路径 (包含用户基础路径)
+	 *
+	 * @param 	rawToken
+	 * 			原始分页标识, 为空时返回 null.
+	 *
+	 * @return	签名后的分页标识
+	 */
+	public static String sign(Integer storageId, String folderPath, String rawToken) {
+		if (StringUtils.isEmpty(rawToken)) {
+			return null;
+		}
+		return Base64.encodeUrlSafe(rawToken) + TOKEN_DELIMITER + hmac(storageId, folderPath, rawToken);
+	}
+
+	/**
+	 * 校验签名后的分页标识, 返回原始分页标识
+	 *
+	 * @param 	storageId
+	 * 			存储源 ID
+	 *
+	 * @param 	folderPath
+	 * 			文件夹完整路径 (包含用户基础路径)
+	 *
+	 * @param 	pageToken
+	 * 			签名后的分页标识, 为空时返回 null.
+	 *
+	 * @return	原始分页标识
+	 *
+	 * @throws  BizException	分页标识格式错误、被篡改或不属于该文件夹时抛出
+	 */
+	public static String verify(Integer storageId, String folderPath, String pageToken) {
+		if (StringUtils.isEmpty(pageToken)) {
+			return null;
+		}
+		int index = pageToken.lastIndexOf(TOKEN_DELIMITER);
+		if (index <= 0) {
+			throw new BizException(ErrorCode.BIZ_INVALID_PAGE_TOKEN);
+		}
+		String rawToken;
+		try {
+			rawToken = Base64.decodeStr(pageToken.substring(0, index), StandardCharsets.UTF_8);
+		} catch (Exception e) {
+			throw new BizException(ErrorCode.BIZ_INVALID_PAGE_TOKEN);
+		}
+		byte[] expected = hmac(storageId, folderPath, rawToken).getBytes(StandardCharsets.UTF_8);
+		byte[] actual = pageToken.substring(index + 1).getBytes(StandardCharsets.UTF_8);
+		if (!MessageDigest.isEqual(expected, actual)) {
+			throw new BizException(ErrorCode.BIZ_INVALID_PAGE_TOKEN);
+		}
+		return rawToken;
+	}
+
+	private static String hmac(Integer storageId, String folderPath, String rawToken) {
+		if (systemConfigService == null) {
+			systemConfigService = SpringUtil.getBean(SystemConfigService.class);
+		}
+		byte[] key = HexUtil.decodeHex(systemConfigService.getAesHexKeyOrGenerate());
+		String content = storageId + CONTENT_DELIMITER + StringUtils.concat(folderPath) + CONTENT_DELIMITER + rawToken;
+		return SecureUtil.hmacSha256(key).digestHex(content);
+	}
+
+}
@@ -1,20 +1,41 @@
 package im.zhaojun.zfile.core.util;
 
-import java.nio.file.FileSystems;
-import java.nio.file.PathMatcher;
-import java.nio.file.Paths;
-import java.util.HashMap;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * 规则表达式工具类
  *
  * @author zhaojun
  */
+@Slf4j
 public class PatternMatcherUtils {
-	
-	private static final Map<String, PathMatcher> PATH_MATCHER_MAP = new HashMap<>();
-	
+
+	/**
+	 * 最多缓存的规则表达式数量, 超过后清空重新缓存, 防止内存溢出.
+	 */
+	private static final int MAX_CACHE_SIZE = 1024;
+
+	private static final String REGEX_META_CHARS = ".^$+{[]|()";
+
+	private static final String GLOB_META_CHARS = "\\*?[{";
+
+	private static final char EOL = 0;
+
+	/**
+	 * 缓存已编译的规则表达式, key 为原始规则表达式.
+	 */
+	private static final Map<String, CompiledGlobPattern> COMPILED_PATTERN_MAP = new ConcurrentHashMap<>();
+
 	/**
 	 * 兼容模式的 glob 表达式匹配.
 	 * 默认的 glob 表达式是不支持以下情况的:<br>
@@ -35,35 +56,390 @@ public class PatternMatcherUtils {
 	 * @return 	是否匹配.
 	 */
 	public static boolean testCompatibilityGlobPattern(String pattern, String test) {
-		// 如果规则表达式最开始没有 /, 则兼容在最前方加上 /.
-		if (!StringUtils.startWith(pattern, StringUtils.SLASH)) {
-			pattern = StringUtils.SLASH + pattern;
-		}
-		
+		CompiledGlobPattern compiledGlobPattern = getCompiledPattern(pattern);
+
 		// 兼容性处理.
 		test = StringUtils.concat(test, StringUtils.SLASH);
-		if (StringUtils.endWith(pattern, "/**") || StringUtils.endWith(pattern, "/*")) {
+		if (compiledGlobPattern.appendSuffix) {
 			test += "xxx";
 		}
-		return testGlobPattern(pattern, test);
+		return compiledGlobPattern.matches(test, normalizePath(test));
 	}
-	
-	
+
+
 	/**
-	 * 测试密码规则表达式和文件路径是否匹配
+	 * 将多个 glob 表达式编译为一个兼容模式的规则集合, 用于对大量测试字符串批量匹配.
+	 * 空表达式会被忽略, 语法错误的表达式会记录日志并跳过.
+	 *
+	 * @param 	patterns
+	 *			glob 规则表达式列表
+	 *
+	 * @return	编译后的规则集合
+	 */
+	public static CompatibilityGlobPatternSet compileCompatibilityGlobPatternSet(Collection<String> patterns) {
+		Set<String> literalPatterns = new HashSet<>();
+		List<CompiledGlobPattern> globPatterns = new ArrayList<>();
+		for (String pattern : patterns) {
+			if (StringUtils.isEmpty(pattern)) {
+				continue;
+			}
+			try {
+				CompiledGlobPattern compiledGlobPattern = getCompiledPattern(pattern);
+				if (compiledGlobPattern.literal) {
+					literalPatterns.add(compiledGlobPattern.pattern);
+				} else {
+					globPatterns.add(compiledGlobPattern);
+				}
+			} catch (Exception e) {
+				log.error("编译规则表达式 {} 异常，跳过该规则.", pattern, e);
+			}
+		}
+		return new CompatibilityGlobPatternSet(literalPatterns, globPatterns);
+	}
+
+
+	/**
+	 * 清空已编译的规则表达式缓存, 在保存或删除过滤规则、密码规则时调用.
+	 */
+	public static void clearCache() {
+		COMPILED_PATTERN_MAP.clear();
+	}
+
+
+	/**
+	 * 从缓存中获取编译后的规则表达式, 不存在则编译并写入缓存.
 	 *
 	 * @param 	pattern
 	 *			glob 规则表达式
 	 *
-	 * @param 	test
-	 *			测试字符串
+	 * @return	编译后的规则表达式
 	 */
-	private static boolean testGlobPattern(String pattern, String test) {
-		// 从缓存取出 PathMatcher, 防止重复初始化
-		PathMatcher pathMatcher = PATH_MATCHER_MAP.getOrDefault(pattern, FileSystems.getDefault().getPathMatcher("glob:" + pattern));
-		PATH_MATCHER_MAP.put(pattern, pathMatcher);
-		
-		return pathMatcher.matches(Paths.get(test)) || StringUtils.equals(pattern, test);
+	private static CompiledGlobPattern getCompiledPattern(String pattern) {
+		CompiledGlobPattern compiledGlobPattern = COMPILED_PATTERN_MAP.get(pattern);
+		if (compiledGlobPattern != null) {
+			return compiledGlobPattern;
+		}
+
+		if (COMPILED_PATTERN_MAP.size() >= MAX_CACHE_SIZE) {
+			COMPILED_PATTERN_MAP.clear();
+		}
+		return COMPILED_PATTERN_MAP.computeIfAbsent(pattern, CompiledGlobPattern::new);
 	}
-	
-}
\ No newline at end of file
+
+
+	/**
+	 * 按 Unix 路径规则标准化测试字符串: 去除重复的 '/' 和结尾的 '/', 与 {@link java.nio.file.Path} 的处理方式一致.
+	 * 已是标准格式时直接返回原字符串, 不产生新对象.
+	 */
+	private static String normalizePath(String path) {
+		int length = path.length();
+		boolean needNormalize = length > 1 && path.charAt(length - 1) == '/';
+		for (int i = 1; !needNormalize && i < length; i++) {
+			needNormalize = path.charAt(i) == '/' && path.charAt(i - 1) == '/';
+		}
+		if (!needNormalize) {
+			return path;
+		}
+
+		StringBuilder sb = new StringBuilder(length);
+		char prevChar = EOL;
+		for (int i = 0; i < length; i++) {
+			char c = path.charAt(i);
+			if (c == '/' && prevChar == '/') {
+				continue;
+			}
+			sb.append(c);
+			prevChar = c;
+		}
+		if (sb.length() > 1 && sb.charAt(sb.length() - 1) == '/') {
+			sb.setLength(sb.length() - 1);
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * 将 glob 表达式转换为正则表达式, 转换规则与 JDK 默认 (Unix) 文件系统的 glob 语法一致.
+	 *
+	 * @param 	globPattern
+	 *			glob 规则表达式
+	 *
+	 * @return	正则表达式
+	 */
+	private static String toRegexPattern(String globPattern) {
+		boolean inGroup = false;
+		StringBuilder regex = new StringBuilder("^");
+
+		int i = 0;
+		while (i < globPattern.length()) {
+			char c = globPattern.charAt(i++);
+			switch (c) {
+				case '\\':
+					// 转义字符
+					if (i == globPattern.length()) {
+						throw new PatternSyntaxException("No character to escape", globPattern, i - 1);
+					}
+					char next = globPattern.charAt(i++);
+					if (isGlobMeta(next) || isRegexMeta(next)) {
+						regex.append('\\');
+					}
+					regex.append(next);
+					break;
+				case '/':
+					regex.append(c);
+					break;
+				case '[':
+					// 字符集合不匹配路径分隔符
+					regex.append("[[^/]&&[");
+					if (next(globPattern, i) == '^') {
+						regex.append("\\^");
+						i++;
+					} else {
+						if (next(globPattern, i) == '!') {
+							regex.append('^');
+							i++;
+						}
+						if (next(globPattern, i) == '-') {
+							regex.append('-');
+							i++;
+						}
+					}
+					boolean hasRangeStart = false;
+					char last = 0;
+					while (i < globPattern.length()) {
+						c = globPattern.charAt(i++);
+						if (c == ']') {
+							break;
+						}
+						if (c == '/') {
+							throw new PatternSyntaxException("Explicit 'name separator' in class", globPattern, i - 1);
+						}
+						if (c == '\\' || c == '[' || c == '&' && next(globPattern, i) == '&') {
+							regex.append('\\');
+						}
+						regex.append(c);
+
+						if (c == '-') {
+							if (!hasRangeStart) {
+								throw new PatternSyntaxException("Invalid range", globPattern, i - 1);
+							}
+							if ((c = next(globPattern, i++)) == EOL || c == ']') {
+								break;
+							}
+							if (c < last) {
+								throw new PatternSyntaxException("Invalid range", globPattern, i - 3);
+							}
+							regex.append(c);
+							hasRangeStart = false;
+						} else {
+							hasRangeStart = true;
+							last = c;
+						}
+					}
+					if (c != ']') {
+						throw new PatternSyntaxException("Missing ']", globPattern, i - 1);
+					}
+					regex.append("]]");
+					break;
+				case '{':
+					if (inGroup) {
+						throw new PatternSyntaxException("Cannot nest groups", globPattern, i - 1);
+					}
+					regex.append("(?:(?:");
+					inGroup = true;
+					break;
+				case '}':
+					if (inGroup) {
+						regex.append("))");
+						inGroup = false;
+					} else {
+						regex.append('}');
+					}
+					break;
+				case ',':
+					if (inGroup) {
+						regex.append(")|(?:");
+					} else {
+						regex.append(',');
+					}
+					break;
+				case '*':
+					if (next(globPattern, i) == '*') {
+						// ** 可跨越目录
+						regex.append(".*");
+						i++;
+					} else {
+						// * 不跨越目录
+						regex.append("[^/]*");
+					}
+					break;
+				case '?':
+					regex.append("[^/]");
+					break;
+				default:
+					if (isRegexMeta(c)) {
+						regex.append('\\');
+					}
+					regex.append(c);
+			}
+		}
+
+		if (inGroup) {
+			throw new PatternSyntaxException("Missing '}", globPattern, i - 1);
+		}
+
+		return regex.append('$').toString();
+	}
+
+	private static boolean isRegexMeta(char c) {
+		return REGEX_META_CHARS.indexOf(c) != -1;
+	}
+
+	private static boolean isGlobMeta(char c) {
+		return GLOB_META_CHARS.indexOf(c) != -1;
+	}
+
+	private static char next(String globPattern, int i) {
+		if (i < globPattern.length()) {
+			return globPattern.charAt(i);
+		}
+		return EOL;
+	}
+
+	/**
+	 * 获取 glob 表达式中第一个通配符之前的固定前缀.
+	 */
+	private static String getLiteralPrefix(String globPattern) {
+		for (int i = 0; i < globPattern.length(); i++) {
+			if (isGlobMeta(globPattern.charAt(i))) {
+				return globPattern.substring(0, i);
+			}
+		}
+		return globPattern;
+	}
+
+
+	/**
+	 * 编译后的兼容模式 glob 规则集合, 不可变, 可在多线程间共享.
+	 * <br>
+	 * 不含通配符的规则直接通过哈希表匹配, 其他规则先比较固定前缀, 前缀相同时才进行正则匹配.
+	 */
+	public static class CompatibilityGlobPatternSet {
+
+		private final Set<String> literalPatterns;
+
+		private final List<CompiledGlobPattern> globPatterns;
+
+		/**
+		 * 是否有以 /** 或 /* 结尾的规则
+		 */
+		private final boolean hasAppendSuffixPattern;
+
+		private CompatibilityGlobPatternSet(Set<String> literalPatterns, List<CompiledGlobPattern> globPatterns) {
+			this.literalPatterns = Set.copyOf(literalPatterns);
+			this.globPatterns = List.copyOf(globPatterns);
+			this.hasAppendSuffixPattern = globPatterns.stream().anyMatch(globPattern -> globPattern.appendSuffix);
+		}
+
+		/**
+		 * 规则集合是否为空
+		 */
+		public boolean isEmpty() {
+			return literalPatterns.isEmpty() && globPatterns.isEmpty();
+		}
+
+		/**
+		 * 测试字符串是否与任意一条规则匹配, 匹配规则同 {@link #testCompatibilityGlobPattern(String, String)}.
+		 *
+		 * @param 	test
+		 *			匹配内容
+		 *
+		 * @return	是否匹配
+		 */
+		public boolean matchesAny(String test) {
+			String compatibilityTest = StringUtils.concat(test, StringUtils.SLASH);
+			String normalizedTest = normalizePath(compatibilityTest);
+			if (literalPatterns.contains(normalizedTest) || literalPatterns.contains(compatibilityTest)) {
+				return true;
+			}
+
+			String suffixTest = null;
+			String normalizedSuffixTest = null;
+			if (hasAppendSuffixPattern) {
+				suffixTest = compatibilityTest + "xxx";
+				normalizedSuffixTest = normalizePath(suffixTest);
+			}
+
+			for (CompiledGlobPattern globPattern : globPatterns) {
+				boolean match = globPattern.appendSuffix
+						? globPattern.matches(suffixTest, normalizedSuffixTest)
+						: globPattern.matches(compatibilityTest, normalizedTest);
+				if (match) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
+
+	/**
+	 * 编译后的兼容模式 glob 规则表达式
+	 */
+	private static class CompiledGlobPattern {
+
+		/**
+		 * 兼容处理后的规则表达式 (以 / 开头)
+		 */
+		private final String pattern;
+
+		/**
+		 * 规则表达式是否以 /** 或 /* 结尾, 如果是, 测试字符串需拼接后缀才能匹配.
+		 */
+		private final boolean appendSuffix;
+
+		/**
+		 * 规则表达式是否不包含任何通配符
+		 */
+		private final boolean literal;
+
+		/**
+		 * 规则表达式第一个通配符之前的固定前缀, 匹配的路径必然以此开头.
+		 */
+		private final String literalPrefix;
+
+		private final Pattern regexPattern;
+
+		CompiledGlobPattern(String pattern) {
+			// 如果规则表达式最开始没有 /, 则兼容在最前方加上 /.
+			if (!StringUtils.startWith(pattern, StringUtils.SLASH)) {
+				pattern = StringUtils.SLASH + pattern;
+			}
+			this.pattern = pattern;
+			this.appendSuffix = StringUtils.endWith(pattern, "/**") || StringUtils.endWith(pattern, "/*");
+			this.regexPattern = Pattern.compile(toRegexPattern(pattern));
+			this.literalPrefix = getLiteralPrefix(pattern);
+			this.literal = literalPrefix.length() == pattern.length();
+		}
+
+		/**
+		 * @param 	test
+		 *			兼容处理后的测试字符串
+		 *
+		 * @param 	normalizedTest
+		 *			标准化后的测试字符串
+		 */
+		boolean matches(String test, String normalizedTest) {
+			boolean match;
+			if (literal) {
+				match = normalizedTest.equals(pattern);
+			} else {
+				match = normalizedTest.startsWith(literalPrefix) && regexPattern.matcher(normalizedTest).matches();
+			}
+			return match || StringUtils.equals(pattern, test);
+		}
+
+	}
+
+}
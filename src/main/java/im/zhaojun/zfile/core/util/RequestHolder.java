@@ -137,6 +137,82 @@ public class RequestHolder {
         }
     }
 
+    /**
+     * 向 response 写入文件, 支持请求头中的单个或多个 Range (多个 Range 时以 multipart/byteranges 格式返回).
+     * <br>
+     * 每个 Range 都通过 rangeInputStreamSupplier 从存储源获取从该 Range 开始位置的输入流, 只读取需要的字节, 读取完后关闭.
+     * 重叠或相邻的 Range 会被合并, Range 无效或多个 Range 的总字节数超过文件大小时返回 416 状态码.
+     *
+     * @param   fileName
+     *          文件名称
+     *
+     * @param   fileSize
+     *          文件大小
+     *
+     * @param   forceDownload
+     *          是否强制下载
+     *
+     * @param   rangeInputStreamSupplier
+     *          根据开始位置获取输入流
+     */
+    public static void writeFileRanges(String fileName, long fileSize, boolean forceDownload, HttpRangeUtils.RangeInputStreamSupplier rangeInputStreamSupplier) {
+        HttpServletResponse response = RequestHolder.getResponse();
+
+        ContentDisposition contentDisposition = ContentDisposition
+                .builder(forceDownload ? "attachment" : "inline")
+                .filename(fileName, StandardCharsets.UTF_8)
+                .build();
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition.toString());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        String contentType = forceDownload ? MediaType.APPLICATION_OCTET_STREAM_VALUE
+                : MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+
+        List<HttpRange> httpRanges;
+        try {
+            httpRanges = fileSize > 0 ? HttpRangeUtils.mergeRanges(HttpRange.parseRanges(RequestHolder.getRequest().getHeader(HttpHeaders.RANGE)), fileSize) : Collections.emptyList();
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize);
+            return;
+        }
+
+        OutputStream outputStream = null;
+        try {
+            if (httpRanges.size() <= 1) {
+                response.setContentType(contentType);
+                long startPos = 0;
+                long endPos = fileSize - 1;
+                if (httpRanges.size() == 1) {
+                    HttpRange httpRange = httpRanges.get(0);
+                    startPos = httpRange.getRangeStart(fileSize);
+                    endPos = httpRange.getRangeEnd(fileSize);
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + startPos + "-" + endPos + StringUtils.SLASH + fileSize);
+                }
+                response.setContentLengthLong(Math.max(endPos - startPos + 1, 0));
+                outputStream = response.getOutputStream();
+                if (fileSize > 0) {
+                    HttpRangeUtils.copyRange(rangeInputStreamSupplier, outputStream, startPos, endPos);
+                }
+                return;
+            }
+
+            outputStream = response.getOutputStream();
+            HttpRangeUtils.writeMultipartRanges(response, httpRanges, fileSize, contentType, false, rangeInputStreamSupplier);
+        } catch (IOException e) {
+            String message = Objects.toString(e.getMessage(), "");
+            if (message.contains("Broken pipe") || message.contains("Connection reset by peer")) {
+                if (log.isDebugEnabled()) {
+                    log.debug("skip IOException: {}", e.getMessage());
+                }
+            } else {
+                throw new SystemException(e);
+            }
+        } finally {
+            IOUtils.closeQuietly(outputStream);
+        }
+    }
+
     public static boolean isAxiosRequest() {
         HttpServletRequest request = RequestHolder.getRequest();
         String axiosRequest = JakartaServletUtil.getHeaderIgnoreCase(request, ZFileHttpHeaderConstant.AXIOS_REQUEST);
@@ -3,6 +3,7 @@ package im.zhaojun.zfile.core.util;
 import cn.dev33.satoken.stp.StpUtil;
 import cn.hutool.extra.spring.SpringUtil;
 import im.zhaojun.zfile.module.share.context.ShareAccessContext;
+import im.zhaojun.zfile.module.user.context.RequestAccessContext;
 import im.zhaojun.zfile.module.user.model.constant.UserConstant;
 import im.zhaojun.zfile.module.user.model.entity.User;
 import im.zhaojun.zfile.module.user.service.UserService;
@@ -21,13 +22,12 @@ public class ZFileAuthUtil {
 			userService = SpringUtil.getBean(UserService.class);
 		}
 
-        // 检查是否为分享访问，如果是则返回分享者用户 ID
-        if (ShareAccessContext.isShareAccess()) {
-            Integer shareUserId = ShareAccessContext.getShareUserId();
-            return userService.getById(shareUserId);
+        Integer userId = getCurrentUserId();
+        RequestAccessContext requestAccessContext = RequestAccessContext.current();
+        if (requestAccessContext == null) {
+            return userService.getById(userId);
         }
-
-        return userService.getById(StpUtil.getLoginId(UserConstant.ANONYMOUS_ID));
+        return requestAccessContext.getUser(userId, userService::getById);
 	}
 
 	public static Integer getCurrentUserId() {
@@ -40,6 +40,15 @@ public class ZFileAuthUtil {
             return ShareAccessContext.getShareUserId();
         }
 
+        // 同一请求内只解析一次登录状态
+        RequestAccessContext requestAccessContext = RequestAccessContext.current();
+        if (requestAccessContext == null) {
+            return getLoginUserId();
+        }
+        return requestAccessContext.getLoginUserId(ZFileAuthUtil::getLoginUserId);
+	}
+
+	private static Integer getLoginUserId() {
         try {
 			return StpUtil.getLoginId(UserConstant.ANONYMOUS_ID);
 		} catch (Exception e) {
@@ -0,0 +1,200 @@
+package im.zhaojun.zfile.core.util.matcher;
+
+import com.google.common.net.InetAddresses;
+import im.zhaojun.zfile.core.util.StringUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.Collection;
+
+/**
+ * IP 规则前缀树 (二进制 CIDR 树), 用于在大量 IP 规则中快速匹配, 同时支持 IPV4 和 IPV6.
+ * <br>
+ * 规则格式同 {@link im.zhaojun.zfile.core.util.matcher.impl.IpRuleMatcher}, 支持完整 IP (如 127.0.0.1) 或 IP 段 (如 192.168.0.0/24).
+ * 匹配时按 IP 的二进制位逐位查找, 时间复杂度只与前缀长度有关 (IPV4 最多 32 次, IPV6 最多 128 次), 与规则数量无关.
+ * <br>
+ * 创建后不可变, 可在多线程间共享, 规则变更时整体重建.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public class IpCidrTrie {
+
+    private static final int IPV4_BIT_LENGTH = 32;
+
+    private static final int IPV6_BIT_LENGTH = 128;
+
+    private final Node ipv4Root = new Node();
+
+    private final Node ipv6Root = new Node();
+
+    private int size;
+
+    private IpCidrTrie() {
+    }
+
+    /**
+     * 编译 IP 规则, 无法解析的规则会被忽略.
+     *
+     * @param   ruleExpressionList
+     *          规则表达式列表
+     *
+     * @return  IP 规则前缀树
+     */
+    public static IpCidrTrie compile(Collection<String> ruleExpressionList) {
+        IpCidrTrie trie = new IpCidrTrie();
+        if (ruleExpressionList == null) {
+            return trie;
+        }
+        for (String ruleExpression : ruleExpressionList) {
+            String rule = StringUtils.trim(ruleExpression);
+            if (StringUtils.isEmpty(rule)) {
+                continue;
+            }
+            if (!trie.add(rule)) {
+                log.warn("无效的 IP 规则, 已忽略: {}", rule);
+            }
+        }
+        return trie;
+    }
+
+    /**
+     * 规则数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 规则是否为空
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 测试 IP 是否匹配任意一条规则, 只接受 IP 字面量, 不会进行域名解析.
+     *
+     * @param   ip
+     *          IP 地址
+     *
+     * @return  是否匹配
+     */
+    public boolean matches(String ip) {
+        return matchesReturnRule(ip) != null;
+    }
+
+    /**
+     * 测试 IP 是否匹配任意一条规则, 匹配成功时返回匹配到的规则 (前缀最短的规则).
+     *
+     * @param   ip
+     *          IP 地址
+     *
+     * @return  匹配到的规则, 未匹配时返回 null.
+     */
+    public String matchesReturnRule(String ip) {
+        if (size == 0 || StringUtils.isEmpty(ip)) {
+            return null;
+        }
+        InetAddress inetAddress = parseAddress(ip.trim());
+        if (inetAddress == null) {
+            return null;
+        }
+
+        byte[] address = inetAddress.getAddress();
+        Node node = inetAddress instanceof Inet4Address ? ipv4Root : ipv6Root;
+        int bitLength = address.length * 8;
+        for (int i = 0; ; i++) {
+            if (node.rule != null) {
+                return node.rule;
+            }
+            if (i == bitLength) {
+                return null;
+            }
+            node = node.children[bit(address, i)];
+            if (node == null) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 添加一条规则
+     *
+     * @return  是否添加成功, 规则格式无效时返回 false.
+     */
+    private boolean add(String rule) {
+        String addressPart = rule;
+        Integer prefixLength = null;
+        int slashIndex = rule.indexOf('/');
+        if (slashIndex != -1) {
+            addressPart = rule.substring(0, slashIndex);
+            try {
+                prefixLength = Integer.parseInt(rule.substring(slashIndex + 1));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        InetAddress inetAddress = parseAddress(addressPart);
+        if (inetAddress == null) {
+            return false;
+        }
+
+        boolean ipv4 = inetAddress instanceof Inet4Address;
+        int bitLength = ipv4 ? IPV4_BIT_LENGTH : IPV6_BIT_LENGTH;
+        if (prefixLength == null) {
+            prefixLength = bitLength;
+        } else if (prefixLength < 0 || prefixLength > bitLength) {
+            return false;
+        }
+
+        byte[] address = inetAddress.getAddress();
+        Node node = ipv4 ? ipv4Root : ipv6Root;
+        for (int i = 0; i < prefixLength; i++) {
+            // 已有更短的前缀覆盖此规则, 无需继续添加.
+            if (node.rule != null) {
+                size++;
+                return true;
+            }
+            int bit = bit(address, i);
+            if (node.children[bit] == null) {
+                node.children[bit] = new Node();
+            }
+            node = node.children[bit];
+        }
+        // 更短的前缀覆盖了所有子节点, 子节点不再需要.
+        node.rule = rule;
+        node.children[0] = null;
+        node.children[1] = null;
+        size++;
+        return true;
+    }
+
+    /**
+     * 解析 IP 字面量, 不是合法的 IP 时返回 null.
+     */
+    private static InetAddress parseAddress(String ip) {
+        if (!InetAddresses.isInetAddress(ip)) {
+            return null;
+        }
+        return InetAddresses.forString(ip);
+    }
+
+    private static int bit(byte[] address, int index) {
+        return (address[index >>> 3] >>> (7 - (index & 7))) & 1;
+    }
+
+    private static class Node {
+
+        private final Node[] children = new Node[2];
+
+        /**
+         * 在此节点结束的规则, 不为 null 时表示此前缀下的所有 IP 都匹配.
+         */
+        private String rule;
+
+    }
+
+}
@@ -0,0 +1,158 @@
+package im.zhaojun.zfile.core.util.matcher;
+
+import im.zhaojun.zfile.core.util.StringUtils;
+import org.springframework.util.PatternMatchUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 预编译的简单通配符规则集合, 匹配规则同 {@link PatternMatchUtils#simpleMatch(String, String)} (只支持 * 通配符).
+ * <br>
+ * 根据规则的形式分类: 不含通配符的规则通过哈希表匹配, xxx*、*xxx、*xxx* 形式的规则直接比较前缀、后缀或包含关系,
+ * 其他规则才逐条调用 {@link PatternMatchUtils#simpleMatch(String, String)}.
+ * <br>
+ * 创建后不可变, 可在多线程间共享, 规则变更时整体重建.
+ *
+ * @author zhaojun
+ */
+public class SimpleMatchPatternSet {
+
+    private static final String WILDCARD = "*";
+
+    private final Set<String> literalPatterns = new HashSet<>();
+
+    private final List<String> prefixPatterns = new ArrayList<>();
+
+    private final List<String> suffixPatterns = new ArrayList<>();
+
+    private final List<String> containsPatterns = new ArrayList<>();
+
+    private final List<String> otherPatterns = new ArrayList<>();
+
+    /**
+     * 是否有 * 规则 (匹配任意内容)
+     */
+    private boolean matchAll;
+
+    private int size;
+
+    private SimpleMatchPatternSet() {
+    }
+
+    /**
+     * 编译规则, 空白规则会被忽略.
+     *
+     * @param   patternList
+     *          规则列表
+     *
+     * @return  规则集合
+     */
+    public static SimpleMatchPatternSet compile(Collection<String> patternList) {
+        SimpleMatchPatternSet patternSet = new SimpleMatchPatternSet();
+        if (patternList == null) {
+            return patternSet;
+        }
+        for (String pattern : patternList) {
+            if (StringUtils.isBlank(pattern)) {
+                continue;
+            }
+            patternSet.add(StringUtils.trim(pattern));
+        }
+        return patternSet;
+    }
+
+    /**
+     * 规则是否为空
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 规则数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 测试字符串是否与任意一条规则匹配
+     *
+     * @param   test
+     *          匹配内容
+     *
+     * @return  是否匹配
+     */
+    public boolean matchesAny(String test) {
+        if (test == null || size == 0) {
+            return false;
+        }
+        if (matchAll || literalPatterns.contains(test)) {
+            return true;
+        }
+        for (String prefix : prefixPatterns) {
+            if (test.startsWith(prefix)) {
+                return true;
+            }
+        }
+        for (String suffix : suffixPatterns) {
+            if (test.endsWith(suffix)) {
+                return true;
+            }
+        }
+        for (String contains : containsPatterns) {
+            if (test.contains(contains)) {
+                return true;
+            }
+        }
+        for (String pattern : otherPatterns) {
+            if (PatternMatchUtils.simpleMatch(pattern, test)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(String pattern) {
+        size++;
+        int firstIndex = pattern.indexOf('*');
+        if (firstIndex == -1) {
+            literalPatterns.add(pattern);
+            return;
+        }
+
+        // 连续的 * 等同于一个 *
+        String normalizedPattern = pattern.replaceAll("\\*{2,}", WILDCARD);
+        if (WILDCARD.equals(normalizedPattern)) {
+            matchAll = true;
+            return;
+        }
+
+        String body;
+        if (normalizedPattern.startsWith(WILDCARD) && normalizedPattern.endsWith(WILDCARD)) {
+            body = normalizedPattern.substring(1, normalizedPattern.length() - 1);
+            if (!body.contains(WILDCARD)) {
+                containsPatterns.add(body);
+                return;
+            }
+        } else if (normalizedPattern.startsWith(WILDCARD)) {
+            body = normalizedPattern.substring(1);
+            if (!body.contains(WILDCARD)) {
+                suffixPatterns.add(body);
+                return;
+            }
+        } else if (normalizedPattern.endsWith(WILDCARD)) {
+            body = normalizedPattern.substring(0, normalizedPattern.length() - 1);
+            if (!body.contains(WILDCARD)) {
+                prefixPatterns.add(body);
+                return;
+            }
+        }
+        otherPatterns.add(normalizedPattern);
+    }
+
+}
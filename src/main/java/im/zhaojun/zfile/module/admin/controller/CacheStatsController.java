@@ -0,0 +1,36 @@
+package im.zhaojun.zfile.module.admin.controller;
+
+import im.zhaojun.zfile.core.cache.TwoLevelCacheManager;
+import im.zhaojun.zfile.core.util.AjaxJson;
+import im.zhaojun.zfile.module.admin.model.result.CacheStatsResult;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.Resource;
+import org.springframework.cache.CacheManager;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * @author zhaojun
+ */
+@Tag(name = "系统缓存 Controller")
+@RequestMapping("/admin")
+@RestController
+public class CacheStatsController {
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @GetMapping("/cache/stats")
+    @Operation(summary = "获取系统缓存统计信息", description = "获取各缓存的本机/Redis 命中、未命中、淘汰次数等统计信息, 未启用缓存时返回空列表")
+    public AjaxJson<List<CacheStatsResult>> cacheStats() {
+        if (cacheManager instanceof TwoLevelCacheManager twoLevelCacheManager) {
+            return AjaxJson.getSuccessData(twoLevelCacheManager.getStats());
+        }
+        return AjaxJson.getSuccessData(List.of());
+    }
+
+}
@@ -0,0 +1,48 @@
+package im.zhaojun.zfile.module.admin.model.result;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 系统缓存统计信息结果类
+ *
+ * @author zhaojun
+ */
+@Data
+@Schema(description = "系统缓存统计信息结果类")
+public class CacheStatsResult {
+
+	@Schema(title = "缓存名称", example = "storageSource")
+	private String name;
+
+	@Schema(title = "本机缓存条目数", example = "10")
+	private Integer size;
+
+	@Schema(title = "本机缓存最大条目数", example = "1000")
+	private Integer maxEntries;
+
+	@Schema(title = "本机缓存过期时间, 单位: 秒", example = "600")
+	private Long ttl;
+
+	@Schema(title = "是否启用 Redis 二级缓存", example = "false")
+	private Boolean remoteEnabled;
+
+	@Schema(title = "本机缓存命中次数", example = "100")
+	private Long localHitCount;
+
+	@Schema(title = "Redis 缓存命中次数", example = "10")
+	private Long remoteHitCount;
+
+	@Schema(title = "未命中次数", example = "10")
+	private Long missCount;
+
+	@Schema(title = "因容量限制淘汰次数", example = "0")
+	private Long evictionCount;
+
+	@Schema(title = "过期淘汰次数", example = "5")
+	private Long expiredCount;
+
+	@Schema(title = "收到其他节点失效通知的次数", example = "2")
+	private Long remoteInvalidateCount;
+
+}
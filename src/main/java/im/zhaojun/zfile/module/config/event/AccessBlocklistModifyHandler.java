@@ -0,0 +1,38 @@
+package im.zhaojun.zfile.module.config.event;
+
+import im.zhaojun.zfile.module.config.model.entity.SystemConfig;
+import im.zhaojun.zfile.module.config.service.AccessBlocklistService;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 接收系统设置修改事件, 修改访问 IP / UA 黑名单时, 重新编译黑名单规则.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+@Component
+public class AccessBlocklistModifyHandler implements ISystemConfigModifyHandler {
+
+    @Resource
+    private AccessBlocklistService accessBlocklistService;
+
+    @Override
+    public void modify(SystemConfig originalSystemConfig, SystemConfig newSystemConfig) {
+        if (SystemConfig.ACCESS_IP_BLOCKLIST_NAME.equals(newSystemConfig.getName())) {
+            accessBlocklistService.refreshIpBlocklist(newSystemConfig.getValue());
+        } else {
+            accessBlocklistService.refreshUaBlocklist(newSystemConfig.getValue());
+        }
+        accessBlocklistService.publishModify();
+        log.info("检测到修改了访问黑名单 {}, 已重新加载.", newSystemConfig.getName());
+    }
+
+    @Override
+    public boolean matches(String name) {
+        return SystemConfig.ACCESS_IP_BLOCKLIST_NAME.equals(name)
+                || SystemConfig.ACCESS_UA_BLOCKLIST_NAME.equals(name);
+    }
+
+}
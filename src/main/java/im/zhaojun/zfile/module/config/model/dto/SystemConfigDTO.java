@@ -107,6 +107,9 @@ public class SystemConfigDTO implements Serializable {
     @Schema(title = "是否记录下载日志", example = "true")
     private Boolean recordDownloadLog;
 
+    @Schema(title = "下载日志保留天数, 0 表示永久保留", example = "30")
+    private Integer downloadLogRetentionDays;
+
     @Schema(title = "直链 Referer 是否允许为空")
     private Boolean refererAllowEmpty;
 
@@ -23,6 +23,10 @@ public class SystemConfig implements Serializable {
 
     public static final String SECURE_LOGIN_ENTRY_NAME = "secureLoginEntry";
 
+    public static final String ACCESS_IP_BLOCKLIST_NAME = "accessIpBlocklist";
+
+    public static final String ACCESS_UA_BLOCKLIST_NAME = "accessUaBlocklist";
+
     private static final long serialVersionUID = 1L;
 
     @TableId(value = "id", type = IdType.AUTO)
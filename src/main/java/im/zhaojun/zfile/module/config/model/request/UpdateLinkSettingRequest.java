@@ -3,6 +3,7 @@ package im.zhaojun.zfile.module.config.model.request;
 import im.zhaojun.zfile.module.config.model.dto.LinkExpireDTO;
 import im.zhaojun.zfile.module.link.model.enums.RefererTypeEnum;
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 
@@ -20,6 +21,10 @@ public class UpdateLinkSettingRequest {
 	@Schema(title = "是否记录下载日志", example = "true")
 	private Boolean recordDownloadLog;
 
+	@Schema(title = "下载日志保留天数, 0 表示永久保留", example = "30")
+	@Min(value = 0, message = "下载日志保留天数不能小于 0")
+	private Integer downloadLogRetentionDays;
+
 	@Schema(title = "直链 Referer 防盗链类型")
 	private RefererTypeEnum refererType;
 
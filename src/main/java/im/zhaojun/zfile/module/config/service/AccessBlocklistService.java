@@ -0,0 +1,171 @@
+package im.zhaojun.zfile.module.config.service;
+
+import im.zhaojun.zfile.core.cache.LocalCacheInvalidationHandler;
+import im.zhaojun.zfile.core.cache.LocalCacheInvalidator;
+import im.zhaojun.zfile.core.util.StringUtils;
+import im.zhaojun.zfile.core.util.matcher.IpCidrTrie;
+import im.zhaojun.zfile.core.util.matcher.SimpleMatchPatternSet;
+import im.zhaojun.zfile.module.config.model.dto.SystemConfigDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 访问黑名单 Service, 持有预编译的 IP 黑名单 (CIDR 前缀树) 和 UA 黑名单 (通配符规则集合).
+ * <br>
+ * 首次使用时根据系统设置编译, 之后只在系统设置中的黑名单被修改时重新编译, 避免每次请求都解析规则.
+ * 多节点部署时, 修改黑名单的节点会通知其他节点重新加载.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+@Service
+public class AccessBlocklistService {
+
+    @Lazy
+    @Resource
+    private SystemConfigService systemConfigService;
+
+    /**
+     * 本机缓存名称, 用于通知其他节点重新加载黑名单.
+     */
+    public static final String CACHE_NAME = "accessBlocklist";
+
+    @Resource
+    private LocalCacheInvalidator localCacheInvalidator;
+
+    private volatile IpCidrTrie ipBlocklist;
+
+    private volatile SimpleMatchPatternSet uaBlocklist;
+
+    @PostConstruct
+    public void init() {
+        localCacheInvalidator.register(CACHE_NAME, new LocalCacheInvalidationHandler() {
+            @Override
+            public void evict(String key) {
+                clear();
+            }
+
+            @Override
+            public void clear() {
+                resetBlocklist();
+            }
+        });
+    }
+
+    /**
+     * 判断 IP 是否在访问黑名单中
+     *
+     * @param   ip
+     *          IP 地址
+     *
+     * @return  是否在黑名单中
+     */
+    public boolean isBlockedIp(String ip) {
+        IpCidrTrie trie = ipBlocklist;
+        if (trie == null) {
+            trie = initIpBlocklist();
+        }
+        String matchedRule = trie.matchesReturnRule(ip);
+        if (matchedRule != null && log.isDebugEnabled()) {
+            log.debug("IP {} 命中访问黑名单规则: {}", ip, matchedRule);
+        }
+        return matchedRule != null;
+    }
+
+    /**
+     * 判断 User-Agent 是否在访问黑名单中
+     *
+     * @param   userAgent
+     *          User-Agent
+     *
+     * @return  是否在黑名单中
+     */
+    public boolean isBlockedUa(String userAgent) {
+        SimpleMatchPatternSet patternSet = uaBlocklist;
+        if (patternSet == null) {
+            patternSet = initUaBlocklist();
+        }
+        return patternSet.matchesAny(userAgent);
+    }
+
+    /**
+     * 根据新的 IP 黑名单配置重新编译
+     *
+     * @param   accessIpBlocklist
+     *          IP 黑名单, 每行一条规则
+     *
+     * @return  编译后的 IP 黑名单
+     */
+    public synchronized IpCidrTrie refreshIpBlocklist(String accessIpBlocklist) {
+        IpCidrTrie trie = IpCidrTrie.compile(splitLines(accessIpBlocklist));
+        ipBlocklist = trie;
+        log.info("已加载访问 IP 黑名单, 共 {} 条规则.", trie.size());
+        return trie;
+    }
+
+    /**
+     * 根据新的 UA 黑名单配置重新编译
+     *
+     * @param   accessUaBlocklist
+     *          UA 黑名单, 每行一条规则
+     *
+     * @return  编译后的 UA 黑名单
+     */
+    public synchronized SimpleMatchPatternSet refreshUaBlocklist(String accessUaBlocklist) {
+        SimpleMatchPatternSet patternSet = SimpleMatchPatternSet.compile(splitLines(accessUaBlocklist));
+        uaBlocklist = patternSet;
+        log.info("已加载访问 UA 黑名单, 共 {} 条规则.", patternSet.size());
+        return patternSet;
+    }
+
+    /**
+     * 其他节点修改了黑名单, 丢弃本机已编译的黑名单, 下次使用时根据系统设置重新编译.
+     */
+    public synchronized void resetBlocklist() {
+        ipBlocklist = null;
+        uaBlocklist = null;
+        log.info("其他节点修改了访问黑名单, 将重新加载.");
+    }
+
+    /**
+     * 通知其他节点黑名单已修改, 在系统设置事务提交后发送.
+     */
+    public void publishModify() {
+        localCacheInvalidator.publishEvictAfterCommit(CACHE_NAME, CACHE_NAME);
+    }
+
+    /**
+     * 首次使用时根据系统设置编译 IP 黑名单, 如果已被修改事件编译过, 则直接使用.
+     */
+    private synchronized IpCidrTrie initIpBlocklist() {
+        if (ipBlocklist != null) {
+            return ipBlocklist;
+        }
+        SystemConfigDTO systemConfig = systemConfigService.getSystemConfig();
+        return refreshIpBlocklist(systemConfig.getAccessIpBlocklist());
+    }
+
+    /**
+     * 首次使用时根据系统设置编译 UA 黑名单, 如果已被修改事件编译过, 则直接使用.
+     */
+    private synchronized SimpleMatchPatternSet initUaBlocklist() {
+        if (uaBlocklist != null) {
+            return uaBlocklist;
+        }
+        SystemConfigDTO systemConfig = systemConfigService.getSystemConfig();
+        return refreshUaBlocklist(systemConfig.getAccessUaBlocklist());
+    }
+
+    private static List<String> splitLines(String value) {
+        if (StringUtils.isBlank(value)) {
+            return List.of();
+        }
+        return StringUtils.split(value, StringUtils.LF);
+    }
+
+}
@@ -0,0 +1,54 @@
+package im.zhaojun.zfile.module.filter.model.bo;
+
+import im.zhaojun.zfile.core.util.PatternMatcherUtils;
+import im.zhaojun.zfile.core.util.PatternMatcherUtils.CompatibilityGlobPatternSet;
+import im.zhaojun.zfile.module.filter.model.entity.FilterConfig;
+import im.zhaojun.zfile.module.filter.model.enums.FilterConfigHiddenModeEnum;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 存储源预编译的过滤规则集合, 创建后不可变, 过滤规则变更时整体重建.
+ *
+ * @author zhaojun
+ */
+@Getter
+public class FilterRuleSet {
+
+    private final Integer storageId;
+
+    /**
+     * 隐藏规则 (所有模式的规则都会隐藏文件)
+     */
+    private final CompatibilityGlobPatternSet hiddenPatternSet;
+
+    /**
+     * 不可访问规则
+     */
+    private final CompatibilityGlobPatternSet inaccessiblePatternSet;
+
+    /**
+     * 不可下载规则
+     */
+    private final CompatibilityGlobPatternSet disableDownloadPatternSet;
+
+    public FilterRuleSet(Integer storageId, List<FilterConfig> filterConfigList) {
+        this.storageId = storageId;
+        this.hiddenPatternSet = compile(filterConfigList, null);
+        this.inaccessiblePatternSet = compile(filterConfigList, FilterConfigHiddenModeEnum.INACCESSIBLE);
+        this.disableDownloadPatternSet = compile(filterConfigList, FilterConfigHiddenModeEnum.DISABLE_DOWNLOAD);
+    }
+
+    /**
+     * 编译指定模式的过滤规则, mode 为 null 时编译所有规则.
+     */
+    private static CompatibilityGlobPatternSet compile(List<FilterConfig> filterConfigList, FilterConfigHiddenModeEnum mode) {
+        List<String> expressionList = filterConfigList.stream()
+                .filter(filterConfig -> mode == null || mode == filterConfig.getMode())
+                .map(FilterConfig::getExpression)
+                .toList();
+        return PatternMatcherUtils.compileCompatibilityGlobPatternSet(expressionList);
+    }
+
+}
@@ -1,15 +1,20 @@
 package im.zhaojun.zfile.module.filter.service;
 
-import im.zhaojun.zfile.core.util.CollectionUtils;
+import im.zhaojun.zfile.core.cache.LocalCacheInvalidationHandler;
+import im.zhaojun.zfile.core.cache.LocalCacheInvalidator;
 import im.zhaojun.zfile.core.util.FileUtils;
 import im.zhaojun.zfile.core.util.PatternMatcherUtils;
+import im.zhaojun.zfile.core.util.PatternMatcherUtils.CompatibilityGlobPatternSet;
 import im.zhaojun.zfile.core.util.StringUtils;
 import im.zhaojun.zfile.module.filter.mapper.FilterConfigMapper;
+import im.zhaojun.zfile.module.filter.model.bo.FilterRuleSet;
 import im.zhaojun.zfile.module.filter.model.entity.FilterConfig;
 import im.zhaojun.zfile.module.storage.event.StorageSourceCopyEvent;
 import im.zhaojun.zfile.module.storage.event.StorageSourceDeleteEvent;
 import im.zhaojun.zfile.module.storage.model.enums.FileOperatorTypeEnum;
+import im.zhaojun.zfile.module.storage.model.result.FileItemResult;
 import im.zhaojun.zfile.module.user.service.UserStorageSourceService;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.aop.framework.AopContext;
@@ -23,6 +28,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 /**
  * 存储源过滤规则 Service
@@ -34,12 +43,48 @@ import java.util.List;
 @CacheConfig(cacheNames = "filterConfig")
 public class FilterConfigService {
 
+    /**
+     * 预编译的过滤规则集合的本机缓存名称, 用于通知其他节点.
+     */
+    private static final String FILTER_RULE_SET_CACHE_NAME = "filterRuleSet";
+
     @Resource
     private FilterConfigMapper filterConfigMapper;
 
     @Resource
     private UserStorageSourceService userStorageSourceService;
 
+    @Resource
+    private LocalCacheInvalidator localCacheInvalidator;
+
+    /**
+     * Map<存储源 ID, 预编译的过滤规则集合>
+     */
+    private final Map<Integer, FilterRuleSet> filterRuleSetMap = new ConcurrentHashMap<>();
+
+    /**
+     * 过滤规则集合的清除次数, 每次清除前递增, 用于判断编译期间缓存是否被清除过.
+     */
+    private final AtomicLong filterRuleSetEvictCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        localCacheInvalidator.register(FILTER_RULE_SET_CACHE_NAME, new LocalCacheInvalidationHandler() {
+            @Override
+            public void evict(String key) {
+                evictFilterRuleSet(Integer.valueOf(key));
+                PatternMatcherUtils.clearCache();
+            }
+
+            @Override
+            public void clear() {
+                filterRuleSetEvictCount.incrementAndGet();
+                filterRuleSetMap.clear();
+                PatternMatcherUtils.clearCache();
+            }
+        });
+    }
+
     /**
      * 根据存储源 ID 获取存储源配置列表
      *
@@ -127,6 +172,12 @@ public class FilterConfigService {
     public int deleteByStorageId(Integer storageId) {
         int deleteSize = filterConfigMapper.deleteByStorageId(storageId);
         log.info("删除存储源 ID 为 {} 的过滤规则 {} 条", storageId, deleteSize);
+        // 在事务提交且上面的 Spring 缓存删除完成后再清除, 避免提交前重新编译时读到旧的过滤规则.
+        localCacheInvalidator.runAfterCommit(() -> {
+            evictFilterRuleSet(storageId);
+            PatternMatcherUtils.clearCache();
+            localCacheInvalidator.publishEvict(FILTER_RULE_SET_CACHE_NAME, storageId);
+        });
         return deleteSize;
     }
 
@@ -150,6 +201,46 @@ public class FilterConfigService {
 
     }
 
+    /**
+     * 获取存储源预编译的过滤规则集合, 不存在则根据过滤规则编译并缓存, 过滤规则变更时会被清除.
+     *
+     * @param   storageId
+     *          存储源 ID
+     *
+     * @return  过滤规则集合
+     */
+    public FilterRuleSet getFilterRuleSet(Integer storageId) {
+        FilterRuleSet filterRuleSet = filterRuleSetMap.get(storageId);
+        if (filterRuleSet != null) {
+            return filterRuleSet;
+        }
+        // 在 ConcurrentHashMap 的锁外查询数据库并编译, 避免阻塞同一分段的其他存储源.
+        long evictCount = filterRuleSetEvictCount.get();
+        filterRuleSet = new FilterRuleSet(storageId, ((FilterConfigService) AopContext.currentProxy()).findByStorageId(storageId));
+        FilterRuleSet existFilterRuleSet = filterRuleSetMap.putIfAbsent(storageId, filterRuleSet);
+        if (existFilterRuleSet != null) {
+            return existFilterRuleSet;
+        }
+        // 编译期间缓存被清除过, 本次结果可能由旧规则编译, 不保留在缓存中.
+        if (filterRuleSetEvictCount.get() != evictCount) {
+            filterRuleSetMap.remove(storageId, filterRuleSet);
+        }
+        return filterRuleSet;
+    }
+
+
+    /**
+     * 清除存储源预编译的过滤规则集合.
+     *
+     * @param   storageId
+     *          存储源 ID
+     */
+    private void evictFilterRuleSet(Integer storageId) {
+        filterRuleSetEvictCount.incrementAndGet();
+        filterRuleSetMap.remove(storageId);
+    }
+
+
     /**
      * 判断访问的路径是否是不允许访问的
      *
@@ -161,8 +252,8 @@ public class FilterConfigService {
      *
      */
     public boolean checkFileIsInaccessible(Integer storageId, String path) {
-        List<FilterConfig> filterConfigList = ((FilterConfigService) AopContext.currentProxy()).findByStorageIdAndInaccessible(storageId);
-        return testPattern(storageId, filterConfigList, path);
+        CompatibilityGlobPatternSet patternSet = getFilterRuleSet(storageId).getInaccessiblePatternSet();
+        return !isIgnoreHidden(storageId, patternSet) && testPattern(storageId, patternSet, path);
     }
 
 
@@ -178,8 +269,31 @@ public class FilterConfigService {
      * @return  是否是隐藏文件夹
      */
     public boolean checkFileIsHidden(Integer storageId, String fileName) {
-        List<FilterConfig> filterConfigList = ((FilterConfigService) AopContext.currentProxy()).findByStorageId(storageId);
-        return testPattern(storageId, filterConfigList, fileName);
+        CompatibilityGlobPatternSet patternSet = getFilterRuleSet(storageId).getHiddenPatternSet();
+        return !isIgnoreHidden(storageId, patternSet) && testPattern(storageId, patternSet, fileName);
+    }
+
+
+    /**
+     * 过滤文件列表中被隐藏的文件, 仅校验一次当前用户是否有忽略隐藏的权限, 然后一次性匹配整个文件列表.
+     *
+     * @param   storageId
+     *          存储源 ID
+     *
+     * @param   fileItemList
+     *          文件列表
+     *
+     * @return  过滤后的文件列表, 无需过滤时返回原列表
+     */
+    public List<FileItemResult> filterHiddenFile(Integer storageId, List<FileItemResult> fileItemList) {
+        CompatibilityGlobPatternSet patternSet = getFilterRuleSet(storageId).getHiddenPatternSet();
+        if (isIgnoreHidden(storageId, patternSet)) {
+            return fileItemList;
+        }
+
+        return fileItemList.stream()
+                .filter(fileItem -> !testPattern(storageId, patternSet, fileItem.getFullPath()))
+                .collect(Collectors.toList());
     }
 
 
@@ -195,73 +309,65 @@ public class FilterConfigService {
      * @return  是否显示
      */
     public boolean checkFileIsDisableDownload(Integer storageId, String fileName) {
-        List<FilterConfig> filterConfigList = ((FilterConfigService) AopContext.currentProxy()).findByStorageIdAndDisableDownload(storageId);
+        CompatibilityGlobPatternSet patternSet = getFilterRuleSet(storageId).getDisableDownloadPatternSet();
+        if (isIgnoreHidden(storageId, patternSet)) {
+            return false;
+        }
         String filePath = FileUtils.getParentPath(fileName);
         if (StringUtils.isEmpty(filePath)) {
-            return testPattern(storageId, filterConfigList, fileName);
+            return testPattern(storageId, patternSet, fileName);
         } else {
-            return testPattern(storageId, filterConfigList, fileName) || testPattern(storageId, filterConfigList, filePath);
+            return testPattern(storageId, patternSet, fileName) || testPattern(storageId, patternSet, filePath);
         }
     }
 
 
     /**
-     * 根据规则表达式和测试字符串进行匹配，如测试字符串和其中一个规则匹配上，则返回 true，反之返回 false。
+     * 判断是否不需要进行过滤: 规则为空或当前用户有忽略隐藏的权限时不需要过滤.
      *
-     * @param   patternList
-     *          规则列表
-     *
-     * @param   test
+     * @param   storageId
+     *          存储源 ID
      *
-     *          测试字符串
+     * @param   patternSet
+     *          过滤规则集合
      *
-     * @return  是否显示
+     * @return  是否不需要进行过滤
      */
-    private boolean testPattern(Integer storageId, List<FilterConfig> patternList, String test) {
-        // 如果规则列表为空, 则表示不需要过滤, 直接返回 false
-        if (CollectionUtils.isEmpty(patternList)) {
+    private boolean isIgnoreHidden(Integer storageId, CompatibilityGlobPatternSet patternSet) {
+        // 如果规则列表为空, 则表示不需要过滤
+        if (patternSet.isEmpty()) {
             if (log.isDebugEnabled()) {
-                log.debug("过滤规则列表为空, 存储源 ID: {}, 测试字符串: {}", storageId, test);
+                log.debug("过滤规则列表为空, 存储源 ID: {}", storageId);
             }
-            return false;
+            return true;
         }
 
         // 判断是否需要忽略文件隐藏校验
         boolean isIgnoreHidden = userStorageSourceService.hasCurrentUserStorageOperatorPermission(storageId, FileOperatorTypeEnum.IGNORE_HIDDEN);
-        if (isIgnoreHidden) {
-            if (log.isDebugEnabled()) {
-                log.debug("权限配置忽略过滤规则, 存储源 ID: {}, 测试字符串: {}", storageId, test);
-            }
-            return false;
+        if (isIgnoreHidden && log.isDebugEnabled()) {
+            log.debug("权限配置忽略过滤规则, 存储源 ID: {}", storageId);
         }
+        return isIgnoreHidden;
+    }
 
-        // 校验表达式
-        for (FilterConfig filterConfig : patternList) {
-            String expression = filterConfig.getExpression();
-
-            if (StringUtils.isEmpty(expression)) {
-                if (log.isDebugEnabled()) {
-                    log.debug("存储源 {} 过滤文件测试表达式: {}, 测试字符串: {}, 表达式为空，跳过该规则校验", storageId, expression, test);
-                }
-                continue;
-            }
-
-            try {
-                boolean match = PatternMatcherUtils.testCompatibilityGlobPattern(expression, test);
-
-                if (log.isDebugEnabled()) {
-                    log.debug("存储源 {} 过滤文件测试表达式: {}, 测试字符串: {}, 匹配结果: {}", storageId, expression, test, match);
-                }
 
-                if (match) {
-                    return true;
-                }
-            } catch (Exception e) {
-                log.error("存储源 {} 过滤文件测试表达式: {}, 测试字符串: {}, 匹配异常，跳过该规则.", storageId, expression, test, e);
-            }
+    /**
+     * 根据规则集合和测试字符串进行匹配，如测试字符串和其中一个规则匹配上，则返回 true，反之返回 false。
+     *
+     * @param   patternSet
+     *          规则集合
+     *
+     * @param   test
+     *          测试字符串
+     *
+     * @return  是否匹配
+     */
+    private boolean testPattern(Integer storageId, CompatibilityGlobPatternSet patternSet, String test) {
+        boolean match = patternSet.matchesAny(test);
+        if (log.isDebugEnabled()) {
+            log.debug("存储源 {} 过滤文件测试字符串: {}, 匹配结果: {}", storageId, test, match);
         }
-
-        return false;
+        return match;
     }
 
     /**
@@ -284,6 +390,7 @@ public class FilterConfigService {
             newFilterConfig.setStorageId(newId);
             filterConfigMapper.insert(newFilterConfig);
         });
+        evictFilterRuleSet(newId);
 
         log.info("复制存储源 ID 为 {} 的存储源过滤条件设置到存储源 ID 为 {} 成功, 共 {} 条", fromId, newId, filterConfigList.size());
     }
@@ -3,9 +3,9 @@ package im.zhaojun.zfile.module.link.aspect;
 import cn.hutool.extra.servlet.JakartaServletUtil;
 import im.zhaojun.zfile.core.exception.ErrorCode;
 import im.zhaojun.zfile.core.exception.core.BizException;
+import im.zhaojun.zfile.core.ratelimit.RateLimiter;
 import im.zhaojun.zfile.module.config.model.dto.SystemConfigDTO;
 import im.zhaojun.zfile.module.config.service.SystemConfigService;
-import im.zhaojun.zfile.module.link.cache.LinkRateLimiterCache;
 import im.zhaojun.zfile.module.storage.annotation.LinkRateLimiter;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
@@ -15,8 +15,6 @@ import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.atomic.AtomicInteger;
-
 /**
  * 校验直链访问频率.
  * <p>
@@ -36,7 +34,7 @@ public class LinkRateLimiterAspect {
 	private SystemConfigService systemConfigService;
 
 	@Resource
-	private LinkRateLimiterCache linkRateLimiterCache;
+	private RateLimiter rateLimiter;
 
 	/**
 	 * 校验直链访问频率.
@@ -57,13 +55,8 @@ public class LinkRateLimiterAspect {
 		}
 
 		String clientIP = JakartaServletUtil.getClientIP(httpServletRequest);
-		if (linkRateLimiterCache.containsKey(clientIP)) {
-			AtomicInteger atomicInteger = linkRateLimiterCache.get(clientIP, false);
-			if (atomicInteger.incrementAndGet() > linkDownloadLimit) {
-				throw new BizException(ErrorCode.BIZ_ACCESS_TOO_FREQUENT);
-			}
-		} else {
-			linkRateLimiterCache.put(clientIP, new AtomicInteger(1), linkLimitSecond * 1000);
+		if (!rateLimiter.tryAcquire(RateLimiter.LINK_RULE, clientIP, linkDownloadLimit, linkLimitSecond * 1000L)) {
+			throw new BizException(ErrorCode.BIZ_ACCESS_TOO_FREQUENT);
 		}
 
 		return point.proceed();
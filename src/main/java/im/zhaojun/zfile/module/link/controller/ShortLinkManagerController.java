@@ -10,16 +10,17 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.github.xiaoymin.knife4j.annotations.ApiOperationSupport;
 import com.github.xiaoymin.knife4j.annotations.ApiSort;
 import im.zhaojun.zfile.core.annotation.DemoDisable;
+import im.zhaojun.zfile.core.ratelimit.RateLimiter;
 import im.zhaojun.zfile.core.util.AjaxJson;
 import im.zhaojun.zfile.core.util.StringUtils;
 import im.zhaojun.zfile.module.config.service.SystemConfigService;
-import im.zhaojun.zfile.module.link.cache.LinkRateLimiterCache;
 import im.zhaojun.zfile.module.link.convert.ShortLinkConvert;
 import im.zhaojun.zfile.module.link.model.dto.CacheInfo;
 import im.zhaojun.zfile.module.link.model.entity.ShortLink;
 import im.zhaojun.zfile.module.link.model.request.BatchDeleteRequest;
 import im.zhaojun.zfile.module.link.model.request.QueryShortLinkLogRequest;
 import im.zhaojun.zfile.module.link.model.request.ShortLinkResult;
+import im.zhaojun.zfile.module.link.model.result.RateLimitStatsResult;
 import im.zhaojun.zfile.module.link.service.ShortLinkService;
 import im.zhaojun.zfile.module.storage.model.entity.StorageSource;
 import im.zhaojun.zfile.module.storage.service.StorageSourceService;
@@ -41,7 +42,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -69,7 +69,7 @@ public class ShortLinkManagerController {
     private ShortLinkConvert shortLinkConvert;
 
     @Resource
-    private LinkRateLimiterCache linkRateLimiterCache;
+    private RateLimiter rateLimiter;
 
 
     @ApiOperationSupport(order = 1)
@@ -150,8 +150,16 @@ public class ShortLinkManagerController {
     @GetMapping("/link/limit/info")
     @ResponseBody
     @Operation(summary = "获取直链访问限制信息")
-    public AjaxJson<List<CacheInfo<String, AtomicInteger>>> getLinkLimitInfo() {
-        return AjaxJson.getSuccessData(linkRateLimiterCache.getCacheInfo());
+    public AjaxJson<List<CacheInfo<String, Long>>> getLinkLimitInfo() {
+        return AjaxJson.getSuccessData(rateLimiter.getCacheInfo(RateLimiter.LINK_RULE));
+    }
+
+    @ApiOperationSupport(order = 7)
+    @GetMapping("/link/limit/stats")
+    @ResponseBody
+    @Operation(summary = "获取访问频率限制统计")
+    public AjaxJson<List<RateLimitStatsResult>> getLinkLimitStats() {
+        return AjaxJson.getSuccessData(rateLimiter.getStats());
     }
 
     @NotNull
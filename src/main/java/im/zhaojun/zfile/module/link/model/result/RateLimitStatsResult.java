@@ -0,0 +1,24 @@
+package im.zhaojun.zfile.module.link.model.result;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 访问频率限制统计信息结果类
+ *
+ * @author zhaojun
+ */
+@Data
+@Schema(description = "访问频率限制统计信息结果类")
+public class RateLimitStatsResult {
+
+	@Schema(title = "规则名称", example = "link")
+	private String rule;
+
+	@Schema(title = "累计允许的请求数", example = "1000")
+	private Long allowedCount;
+
+	@Schema(title = "累计拒绝的请求数", example = "10")
+	private Long rejectedCount;
+
+}
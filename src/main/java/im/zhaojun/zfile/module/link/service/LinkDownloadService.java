@@ -176,7 +176,7 @@ public class LinkDownloadService {
         Boolean recordDownloadLog = systemConfig.getRecordDownloadLog();
         if (BooleanUtils.isTrue(recordDownloadLog)) {
             DownloadLog downloadLog = new DownloadLog(downloadType, filePath, storageKey, shortKey);
-            downloadLogService.save(downloadLog);
+            downloadLogService.saveAsync(downloadLog);
         }
 
         // 判断下载链接是否为 m3u8 格式, 如果是则返回 m3u8 内容.
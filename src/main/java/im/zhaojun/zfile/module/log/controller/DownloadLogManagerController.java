@@ -16,6 +16,7 @@ import im.zhaojun.zfile.module.link.model.request.QueryDownloadLogRequest;
 import im.zhaojun.zfile.module.log.convert.DownloadLogConvert;
 import im.zhaojun.zfile.module.log.model.entity.DownloadLog;
 import im.zhaojun.zfile.module.log.model.result.DownloadLogResult;
+import im.zhaojun.zfile.module.log.model.result.DownloadLogWriterStatsResult;
 import im.zhaojun.zfile.module.log.service.DownloadLogService;
 import im.zhaojun.zfile.module.storage.model.entity.StorageSource;
 import im.zhaojun.zfile.module.storage.service.StorageSourceService;
@@ -150,4 +151,21 @@ public class DownloadLogManagerController {
         return AjaxJson.getSuccess();
     }
 
-}
\ No newline at end of file
+    @ApiOperationSupport(order = 5)
+    @GetMapping("/writer/stats")
+    @Operation(summary = "下载日志异步写入统计信息")
+    @ResponseBody
+    public AjaxJson<DownloadLogWriterStatsResult> writerStats() {
+        return AjaxJson.getSuccessData(downloadLogService.getWriterStats());
+    }
+
+    @ApiOperationSupport(order = 6)
+    @DeleteMapping("/deleteExpireLog")
+    @Operation(summary = "删除超过保留天数的下载日志", description = "根据直链设置中的下载日志保留天数删除, 未设置保留天数时不删除")
+    @ResponseBody
+    @DemoDisable
+    public AjaxJson<Integer> deleteExpireLog() {
+        return AjaxJson.getSuccessData(downloadLogService.deleteExpireLogByRetention());
+    }
+
+}
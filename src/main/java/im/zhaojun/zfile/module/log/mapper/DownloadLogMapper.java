@@ -3,6 +3,10 @@ package im.zhaojun.zfile.module.log.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import im.zhaojun.zfile.module.log.model.entity.DownloadLog;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
 
 /**
  * 下载日志 Mapper 接口
@@ -22,10 +26,38 @@ public interface DownloadLogMapper extends BaseMapper<DownloadLog> {
 
 
 	/**
-	 * 删除过期的短链下载日志
+	 * 查询过期短链的下载日志 ID
+	 *
+	 * @param 	limit
+	 * 			最多返回的条数
+	 *
+	 * @return	下载日志 ID 列表
+	 */
+	List<Integer> selectExpireShortLinkLogIds(@Param("limit") int limit);
+
+
+	/**
+	 * 查询指定时间之前的下载日志 ID
+	 *
+	 * @param 	createTime
+	 * 			访问时间
+	 *
+	 * @param 	limit
+	 * 			最多返回的条数
+	 *
+	 * @return	下载日志 ID 列表
+	 */
+	List<Integer> selectIdsBeforeCreateTime(@Param("createTime") Date createTime, @Param("limit") int limit);
+
+
+	/**
+	 * 批量插入下载日志
+	 *
+	 * @param 	list
+	 * 			下载日志列表
 	 *
-	 * @return	删除的行数
+	 * @return	插入的行数
 	 */
-	int deleteExpireShortLinkLog();
+	int insertList(@Param("list") List<DownloadLog> list);
 	
 }
\ No newline at end of file
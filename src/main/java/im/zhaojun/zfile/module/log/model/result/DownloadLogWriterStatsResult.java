@@ -0,0 +1,33 @@
+package im.zhaojun.zfile.module.log.model.result;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 下载日志异步写入统计信息结果类
+ *
+ * @author zhaojun
+ */
+@Data
+@Schema(description = "下载日志异步写入统计信息结果类")
+public class DownloadLogWriterStatsResult {
+
+	@Schema(title = "当前等待写入的日志数", example = "10")
+	private Integer pendingCount;
+
+	@Schema(title = "队列容量", example = "10000")
+	private Integer queueCapacity;
+
+	@Schema(title = "累计进入队列的日志数", example = "1000")
+	private Long queuedCount;
+
+	@Schema(title = "累计写入数据库的日志数", example = "990")
+	private Long writtenCount;
+
+	@Schema(title = "累计因队列已满丢弃的日志数", example = "0")
+	private Long droppedCount;
+
+	@Schema(title = "累计写入数据库失败的日志数", example = "0")
+	private Long failedCount;
+
+}
@@ -2,10 +2,15 @@ package im.zhaojun.zfile.module.log.service;
 
 import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import im.zhaojun.zfile.core.config.ZFileProperties;
+import im.zhaojun.zfile.module.config.service.SystemConfigService;
 import im.zhaojun.zfile.module.link.event.DeleteExpireLinkEvent;
 import im.zhaojun.zfile.module.log.mapper.DownloadLogMapper;
 import im.zhaojun.zfile.module.log.model.entity.DownloadLog;
+import im.zhaojun.zfile.module.log.model.result.DownloadLogWriterStatsResult;
 import im.zhaojun.zfile.module.storage.event.StorageSourceDeleteEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.aop.framework.AopContext;
@@ -13,7 +18,15 @@ import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 下载日志 Service
@@ -27,10 +40,180 @@ public class DownloadLogService {
 	@Resource
 	private DownloadLogMapper downloadLogMapper;
 
+	@Resource
+	private ZFileProperties zFileProperties;
+
+	@Resource
+	private SystemConfigService systemConfigService;
+
+	/**
+	 * 等待写入数据库的下载日志队列
+	 */
+	private BlockingQueue<DownloadLog> pendingQueue;
+
+	private Thread writerThread;
+
+	private volatile boolean running;
+
+	private final LongAdder queuedCount = new LongAdder();
+
+	private final LongAdder writtenCount = new LongAdder();
+
+	private final LongAdder droppedCount = new LongAdder();
+
+	private final LongAdder failedCount = new LongAdder();
+
+	/**
+	 * 按保留天数清理下载日志的定时任务
+	 */
+	private ScheduledExecutorService retentionScheduler;
+
+	@PostConstruct
+	public void initWriter() {
+		pendingQueue = new ArrayBlockingQueue<>(Math.max(zFileProperties.getDownloadLog().getQueueCapacity(), 1));
+		running = true;
+		writerThread = new Thread(this::writeLoop, "download-log-writer");
+		writerThread.setDaemon(true);
+		writerThread.start();
+
+		long retentionCheckInterval = Math.max(zFileProperties.getDownloadLog().getRetentionCheckInterval(), 1);
+		retentionScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "download-log-retention");
+			thread.setDaemon(true);
+			return thread;
+		});
+		retentionScheduler.scheduleWithFixedDelay(this::deleteExpireLogByRetentionSafely,
+				retentionCheckInterval, retentionCheckInterval, TimeUnit.MINUTES);
+	}
+
+	@PreDestroy
+	public void shutdownWriter() {
+		if (retentionScheduler != null) {
+			retentionScheduler.shutdownNow();
+		}
+		// 不中断写入线程, 避免中断正在进行的数据库写入, 写入线程最多等待一个写入间隔后退出.
+		running = false;
+		if (writerThread != null) {
+			try {
+				writerThread.join(TimeUnit.SECONDS.toMillis(5));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		// 写入线程退出后, 将队列中剩余的日志全部写入数据库.
+		List<DownloadLog> remainingList = new ArrayList<>();
+		pendingQueue.drainTo(remainingList);
+		int batchSize = getBatchSize();
+		for (int i = 0; i < remainingList.size(); i += batchSize) {
+			writeBatch(remainingList.subList(i, Math.min(i + batchSize, remainingList.size())));
+		}
+	}
+
 	public void save(DownloadLog downloadLog) {
 		downloadLogMapper.insert(downloadLog);
 	}
 
+	/**
+	 * 异步保存下载日志, 日志会先放入队列, 由后台线程批量写入数据库.
+	 * <br>
+	 * 队列已满时, 根据配置的策略直接丢弃, 或阻塞等待一段时间后丢弃.
+	 *
+	 * @param   downloadLog
+	 *          下载日志
+	 */
+	public void saveAsync(DownloadLog downloadLog) {
+		ZFileProperties.DownloadLogProperties properties = zFileProperties.getDownloadLog();
+		boolean offered;
+		if (properties.getOverflowPolicy() == ZFileProperties.DownloadLogProperties.OverflowPolicy.BLOCK) {
+			try {
+				offered = pendingQueue.offer(downloadLog, properties.getBlockTimeout(), TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				offered = false;
+			}
+		} else {
+			offered = pendingQueue.offer(downloadLog);
+		}
+
+		if (offered) {
+			queuedCount.increment();
+		} else {
+			droppedCount.increment();
+			if (log.isDebugEnabled()) {
+				log.debug("下载日志队列已满, 丢弃日志: {}", downloadLog.getPath());
+			}
+		}
+	}
+
+	/**
+	 * 获取下载日志异步写入统计信息
+	 *
+	 * @return  统计信息
+	 */
+	public DownloadLogWriterStatsResult getWriterStats() {
+		DownloadLogWriterStatsResult result = new DownloadLogWriterStatsResult();
+		result.setPendingCount(pendingQueue.size());
+		result.setQueueCapacity(pendingQueue.size() + pendingQueue.remainingCapacity());
+		result.setQueuedCount(queuedCount.sum());
+		result.setWrittenCount(writtenCount.sum());
+		result.setDroppedCount(droppedCount.sum());
+		result.setFailedCount(failedCount.sum());
+		return result;
+	}
+
+	/**
+	 * 后台写入线程, 队列中有日志时, 等待凑满一批或达到写入间隔后批量写入.
+	 */
+	private void writeLoop() {
+		long flushInterval = Math.max(zFileProperties.getDownloadLog().getFlushInterval(), 1);
+		int batchSize = getBatchSize();
+		List<DownloadLog> batchList = new ArrayList<>(batchSize);
+		while (running) {
+			try {
+				DownloadLog first = pendingQueue.poll(flushInterval, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batchList.add(first);
+				long deadline = System.currentTimeMillis() + flushInterval;
+				while (batchList.size() < batchSize) {
+					pendingQueue.drainTo(batchList, batchSize - batchList.size());
+					long waitMillis = deadline - System.currentTimeMillis();
+					if (batchList.size() >= batchSize || waitMillis <= 0) {
+						break;
+					}
+					DownloadLog next = pendingQueue.poll(waitMillis, TimeUnit.MILLISECONDS);
+					if (next == null) {
+						break;
+					}
+					batchList.add(next);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				running = false;
+			}
+			writeBatch(batchList);
+			batchList.clear();
+		}
+	}
+
+	private void writeBatch(List<DownloadLog> batchList) {
+		if (batchList.isEmpty()) {
+			return;
+		}
+		try {
+			downloadLogMapper.insertList(batchList);
+			writtenCount.add(batchList.size());
+		} catch (Exception e) {
+			failedCount.add(batchList.size());
+			log.warn("批量写入下载日志失败, 丢弃 {} 条日志.", batchList.size(), e);
+		}
+	}
+
+	private int getBatchSize() {
+		return Math.max(zFileProperties.getDownloadLog().getBatchSize(), 1);
+	}
+
 	public Page<DownloadLog> selectPage(Page<DownloadLog> pages, Wrapper<DownloadLog> queryWrapper) {
 		return downloadLogMapper.selectPage(pages, queryWrapper);
 	}
@@ -75,12 +258,23 @@ public class DownloadLogService {
 	}
 
 	/**
-	 * 删除过期下载日志
+	 * 删除过期短链的下载日志, 先通过关联查询找出一批日志 ID, 再按 ID 删除, 直到没有需要删除的日志.
+	 * <br>
+	 * 每批单独提交, 避免一次删除大量数据时长时间锁表.
 	 *
 	 * @return  删除的条数
 	 */
 	public int deleteExpireShortLinkLog() {
-		return downloadLogMapper.deleteExpireShortLinkLog();
+		int batchSize = getPurgeBatchSize();
+		int deleteSize = 0;
+		List<Integer> ids;
+		do {
+			ids = downloadLogMapper.selectExpireShortLinkLogIds(batchSize);
+			if (!ids.isEmpty()) {
+				deleteSize += downloadLogMapper.deleteBatchIds(ids);
+			}
+		} while (ids.size() >= batchSize);
+		return deleteSize;
 	}
 
 	@EventListener(classes = DeleteExpireLinkEvent.class)
@@ -89,4 +283,44 @@ public class DownloadLogService {
 		log.info("删除过期短链关联删除日志 {} 条", updateRows);
 	}
 
+	/**
+	 * 根据系统设置中的下载日志保留天数, 分批删除超过保留天数的下载日志.
+	 *
+	 * @return  删除的条数, 未设置保留天数时返回 0.
+	 */
+	public int deleteExpireLogByRetention() {
+		Integer retentionDays = systemConfigService.getSystemConfig().getDownloadLogRetentionDays();
+		if (retentionDays == null || retentionDays <= 0) {
+			return 0;
+		}
+
+		Date expireTime = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays));
+		int batchSize = getPurgeBatchSize();
+		int deleteSize = 0;
+		List<Integer> ids;
+		do {
+			ids = downloadLogMapper.selectIdsBeforeCreateTime(expireTime, batchSize);
+			if (!ids.isEmpty()) {
+				deleteSize += downloadLogMapper.deleteBatchIds(ids);
+			}
+		} while (ids.size() >= batchSize && !Thread.currentThread().isInterrupted());
+
+		if (deleteSize > 0) {
+			log.info("删除超过保留天数 {} 天的下载日志 {} 条", retentionDays, deleteSize);
+		}
+		return deleteSize;
+	}
+
+	private void deleteExpireLogByRetentionSafely() {
+		try {
+			deleteExpireLogByRetention();
+		} catch (Exception e) {
+			log.error("按保留天数清理下载日志失败", e);
+		}
+	}
+
+	private int getPurgeBatchSize() {
+		return Math.max(zFileProperties.getDownloadLog().getPurgeBatchSize(), 1);
+	}
+
 }
\ No newline at end of file
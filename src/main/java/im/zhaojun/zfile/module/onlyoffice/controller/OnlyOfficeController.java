@@ -21,6 +21,7 @@ import im.zhaojun.zfile.module.storage.model.result.FileItemResult;
 import im.zhaojun.zfile.module.storage.service.StorageSourceService;
 import im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService;
 import im.zhaojun.zfile.module.storage.service.base.AbstractProxyTransferService;
+import im.zhaojun.zfile.module.user.context.RequestAccessContext;
 import im.zhaojun.zfile.module.user.model.entity.User;
 import im.zhaojun.zfile.module.user.service.UserStorageSourceService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -200,6 +201,7 @@ public class OnlyOfficeController {
                 String userId = CollUtil.getFirst(onlyOfficeCallback.getUsers());
                 if (StringUtils.isNotBlank(userId)) {
                     StpUtil.login(userId);
+                    RequestAccessContext.resetLoginUser();
                 }
 
                 log.debug("开始保存 OnlyOffice 文件: {}, {}", onlyOfficeFile.getStorageKey(), onlyOfficeFile.getPathAndName());
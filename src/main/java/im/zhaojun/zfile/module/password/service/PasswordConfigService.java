@@ -96,6 +96,7 @@ public class PasswordConfigService {
     public int deleteByStorageId(Integer storageId) {
         int deleteSize = passwordConfigMapper.deleteByStorageId(storageId);
         log.info("删除存储源 ID 为 {} 的密码规则 {} 条", storageId, deleteSize);
+        PatternMatcherUtils.clearCache();
         return deleteSize;
     }
 
@@ -19,6 +19,7 @@ import im.zhaojun.zfile.module.sso.mapper.SsoConfigMapper;
 import im.zhaojun.zfile.module.sso.model.entity.SsoConfig;
 import im.zhaojun.zfile.module.sso.model.response.SsoLoginItemResponse;
 import im.zhaojun.zfile.module.sso.model.response.TokenResponse;
+import im.zhaojun.zfile.module.user.context.RequestAccessContext;
 import im.zhaojun.zfile.module.user.model.constant.UserConstant;
 import im.zhaojun.zfile.module.user.model.entity.User;
 import im.zhaojun.zfile.module.user.model.request.CopyUserRequest;
@@ -214,6 +215,7 @@ public class SsoService {
         }
 
         StpUtil.login(user.getId());
+        RequestAccessContext.resetLoginUser();
         String axiosFromDomainOrSetting = systemConfigService.getAxiosFromDomainOrSetting();
         String frontDomain = systemConfigService.getFrontDomain();
 
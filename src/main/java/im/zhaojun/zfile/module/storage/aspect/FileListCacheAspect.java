@@ -0,0 +1,203 @@
+package im.zhaojun.zfile.module.storage.aspect;
+
+import im.zhaojun.zfile.core.util.FileUtils;
+import im.zhaojun.zfile.core.util.StringUtils;
+import im.zhaojun.zfile.module.config.service.SystemConfigService;
+import im.zhaojun.zfile.module.storage.model.result.FileItemResult;
+import im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService;
+import im.zhaojun.zfile.module.storage.support.FileListCache;
+import im.zhaojun.zfile.module.storage.support.FileListCacheSynchronizer;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.List;
+
+/**
+ * 文件列表缓存切面, 读取文件列表时优先从缓存获取, 文件操作成功后使相关文件夹的缓存失效 (并通知其他节点).
+ * <br>
+ * 优先级低于 {@link FileOperatorCheckAspect}, 保证命中缓存时仍会先进行权限校验.
+ *
+ * @author zhaojun
+ */
+@Aspect
+@Component
+@Slf4j
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class FileListCacheAspect {
+
+	@Resource
+	private SystemConfigService systemConfigService;
+
+	@Resource
+	private FileListCacheSynchronizer fileListCacheSynchronizer;
+
+	/**
+	 * 获取文件列表时, 优先从缓存中获取, 未命中则调用存储源获取并写入缓存.
+	 *
+	 * @param   point
+	 *          连接点
+	 *
+	 * @return  文件列表
+	 */
+	@Around("execution(public * im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService.fileList(..))")
+	public Object fileListAround(ProceedingJoinPoint point) throws Throwable {
+		AbstractBaseFileService<?> targetService = (AbstractBaseFileService<?>) point.getTarget();
+		FileListCache fileListCache = targetService.getFileListCache();
+		// 未开启缓存或非 web 请求 (无法获取到后端地址) 时不使用缓存
+		if (fileListCache == null || RequestContextHolder.getRequestAttributes() == null) {
+			return point.proceed();
+		}
+
+		String folderPath = (String) point.getArgs()[0];
+		String backendAddress = systemConfigService.getAxiosFromDomainOrSetting();
+		String basePath = targetService.getCurrentUserBasePath();
+
+		List<FileItemResult> cacheResult = fileListCache.get(backendAddress, basePath, folderPath);
+		if (cacheResult != null) {
+			return cacheResult;
+		}
+
+		long loadVersion = fileListCache.currentVersion();
+		@SuppressWarnings("unchecked")
+		List<FileItemResult> result = (List<FileItemResult>) point.proceed();
+		fileListCache.put(loadVersion, backendAddress, basePath, folderPath, result);
+		return result;
+	}
+
+	/**
+	 * 新建文件夹后, 使所在文件夹的缓存失效.
+	 *
+	 * @param   point
+	 *          连接点
+	 *
+	 * @return  方法运行结果
+	 */
+	@Around("execution(public * im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService.newFolder(..))")
+	public Object newFolderAround(ProceedingJoinPoint point) throws Throwable {
+		Object result = point.proceed();
+		invalidate(point, (String) point.getArgs()[0], null);
+		return result;
+	}
+
+	/**
+	 * 删除文件/文件夹后, 使所在文件夹的缓存失效, 如果删除的是文件夹, 则同时使其子文件夹的缓存失效.
+	 *
+	 * @param   point
+	 *          连接点
+	 *
+	 * @return  方法运行结果
+	 */
+	@Around("execution(public * im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService.delete*(..))")
+	public Object deleteAround(ProceedingJoinPoint point) throws Throwable {
+		Object result = point.proceed();
+		Object[] args = point.getArgs();
+		invalidate(point, (String) args[0], getFolderName(point, "deleteFolder", (String) args[1]));
+		return result;
+	}
+
+	/**
+	 * 重命名文件/文件夹后, 使所在文件夹的缓存失效, 如果重命名的是文件夹, 则同时使原文件夹及其子文件夹的缓存失效.
+	 *
+	 * @param   point
+	 *          连接点
+	 *
+	 * @return  方法运行结果
+	 */
+	@Around("execution(public * im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService.rename*(..))")
+	public Object renameAround(ProceedingJoinPoint point) throws Throwable {
+		Object result = point.proceed();
+		Object[] args = point.getArgs();
+		invalidate(point, (String) args[0], getFolderName(point, "renameFolder", (String) args[1]));
+		invalidate(point, (String) args[0], getFolderName(point, "renameFolder", (String) args[2]));
+		return result;
+	}
+
+	/**
+	 * 移动/复制文件或文件夹后, 使源文件夹和目标文件夹的缓存失效, 如果操作的是文件夹, 则同时使其子文件夹的缓存失效.
+	 *
+	 * @param   point
+	 *          连接点
+	 *
+	 * @return  方法运行结果
+	 */
+	@Around("execution(public * im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService.move*(..)) || " +
+			"execution(public * im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService.copy*(..))")
+	public Object moveOrCopyAround(ProceedingJoinPoint point) throws Throwable {
+		Object result = point.proceed();
+		Object[] args = point.getArgs();
+		String methodName = point.getSignature().getName();
+		boolean isFolder = methodName.endsWith("Folder");
+		invalidate(point, (String) args[0], isFolder && methodName.startsWith("move") ? (String) args[1] : null);
+		invalidate(point, (String) args[2], isFolder ? (String) args[3] : null);
+		return result;
+	}
+
+	/**
+	 * 上传文件后 (或获取上传地址时), 使所在文件夹及其上级文件夹的缓存失效, 因为部分存储源上传时会自动创建不存在的上级文件夹.
+	 *
+	 * @param   point
+	 *          连接点
+	 *
+	 * @return  方法运行结果
+	 */
+	@Around("execution(public * im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService.getUploadUrl(..)) || " +
+			"execution(public * im.zhaojun.zfile.module.storage.service.base.AbstractProxyTransferService.uploadFile(..))")
+	public Object uploadAround(ProceedingJoinPoint point) throws Throwable {
+		Object result = point.proceed();
+
+		AbstractBaseFileService<?> targetService = (AbstractBaseFileService<?>) point.getTarget();
+		if (targetService.getFileListCache() == null) {
+			return result;
+		}
+
+		Object[] args = point.getArgs();
+		String folderPath;
+		if ("getUploadUrl".equals(point.getSignature().getName())) {
+			folderPath = (String) args[0];
+		} else {
+			folderPath = FileUtils.getParentPath((String) args[0]);
+		}
+		fileListCacheSynchronizer.invalidateWithParents(targetService, StringUtils.concat(targetService.getCurrentUserBasePath(), folderPath));
+		return result;
+	}
+
+	/**
+	 * 使指定文件夹的缓存失效.
+	 *
+	 * @param   point
+	 *          连接点
+	 *
+	 * @param   path
+	 *          文件夹路径 (不包含用户基础路径)
+	 *
+	 * @param   folderName
+	 *          被操作的子文件夹名称, 不为空时同时使该子文件夹及其下级文件夹的缓存失效.
+	 */
+	private void invalidate(ProceedingJoinPoint point, String path, String folderName) {
+		AbstractBaseFileService<?> targetService = (AbstractBaseFileService<?>) point.getTarget();
+		if (targetService.getFileListCache() == null) {
+			return;
+		}
+
+		String currentUserBasePath = targetService.getCurrentUserBasePath();
+		fileListCacheSynchronizer.invalidate(targetService, StringUtils.concat(currentUserBasePath, path), false);
+		if (StringUtils.isNotEmpty(folderName)) {
+			fileListCacheSynchronizer.invalidate(targetService, StringUtils.concat(currentUserBasePath, path, folderName), true);
+		}
+	}
+
+	/**
+	 * 如果当前执行的是指定的文件夹操作方法, 则返回文件夹名称, 否则返回 null.
+	 */
+	private String getFolderName(ProceedingJoinPoint point, String folderMethodName, String name) {
+		return folderMethodName.equals(point.getSignature().getName()) ? name : null;
+	}
+
+}
@@ -11,8 +11,8 @@ import im.zhaojun.zfile.module.storage.annotation.StoragePermissionCheck;
 import im.zhaojun.zfile.module.storage.model.enums.FileOperatorTypeEnum;
 import im.zhaojun.zfile.module.storage.service.StorageSourceService;
 import im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService;
+import im.zhaojun.zfile.module.user.context.RequestAccessContext;
 import im.zhaojun.zfile.module.user.model.entity.User;
-import im.zhaojun.zfile.module.user.model.entity.UserStorageSource;
 import im.zhaojun.zfile.module.user.service.UserStorageSourceService;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
@@ -20,11 +20,12 @@ import org.apache.commons.lang3.BooleanUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 
 /**
  * 根据权限设置, 校验文件操作权限
@@ -34,6 +35,7 @@ import java.util.Set;
 @Aspect
 @Component
 @Slf4j
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
 public class FileOperatorCheckAspect {
 
 	@Resource
@@ -83,6 +85,7 @@ public class FileOperatorCheckAspect {
 	 * @return  方法运行结果
 	 */
 	@Around("execution(public * im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService.fileList(..)) || " +
+			"execution(public * im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService.fileListPage(..)) || " +
 			"execution(public * im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService.getFileItem(..))")
 	public Object availableAround(ProceedingJoinPoint point) throws Throwable {
 		checkPermission(point, FileOperatorTypeEnum.AVAILABLE);
@@ -254,11 +257,10 @@ public class FileOperatorCheckAspect {
 			return false;
 		}
 
-		UserStorageSource userStorageSource = userStorageSourceService.getByUserIdAndStorageId(ZFileAuthUtil.getCurrentUserId(), storageId);
+		RequestAccessContext.StorageAccess storageAccess = userStorageSourceService.getStorageAccess(ZFileAuthUtil.getCurrentUserId(), storageId);
 
 		// 如果未授权该存储源，则默认禁止所有类型的操作
-		Boolean enable = userStorageSource.getEnable();
-		if (enable == null || !enable) {
+		if (!storageAccess.isEnable()) {
 			return false;
 		}
 
@@ -266,8 +268,7 @@ public class FileOperatorCheckAspect {
 			return true;
 		}
 
-		Set<String> permissions = userStorageSource.getPermissions();
-		return permissions.contains(fileOperatorType.getValue());
+		return storageAccess.hasPermission(fileOperatorType);
 	}
 
 	/**
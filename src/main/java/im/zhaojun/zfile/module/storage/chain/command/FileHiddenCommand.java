@@ -10,7 +10,6 @@ import org.springframework.stereotype.Service;
 
 import jakarta.annotation.Resource;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * 文件隐藏责任链 command 命令
@@ -42,11 +41,7 @@ public class FileHiddenCommand implements Command {
 			return false;
 		}
 
-		List<FileItemResult> result = fileItemList.stream()
-				.filter(fileItem -> !filterConfigService.checkFileIsHidden(storageId, fileItem.getFullPath()))
-				.collect(Collectors.toList());
-		
-		fileContext.setFileItemList(result);
+		fileContext.setFileItemList(filterConfigService.filterHiddenFile(storageId, fileItemList));
 		return false;
 	}
 
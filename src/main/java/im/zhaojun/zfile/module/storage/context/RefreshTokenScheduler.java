@@ -0,0 +1,302 @@
+package im.zhaojun.zfile.module.storage.context;
+
+import im.zhaojun.zfile.core.config.ZFileProperties;
+import im.zhaojun.zfile.core.exception.core.SystemException;
+import im.zhaojun.zfile.module.storage.model.bo.RefreshTokenCacheBO;
+import im.zhaojun.zfile.module.storage.model.result.RefreshTokenStateResult;
+import im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService;
+import im.zhaojun.zfile.module.storage.service.base.RefreshTokenService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 存储源令牌刷新调度器.
+ * <br>
+ * 后台定时检查所有已初始化的 {@link RefreshTokenService} 存储源, 在令牌过期前 {@link ZFileProperties.TokenRefreshProperties#getRefreshAhead()}
+ * (减去随机抖动) 刷新, 刷新失败时按指数退避重试, 期间继续使用未过期的旧令牌. 请求线程获取令牌时只有在令牌已不可用时才会同步等待刷新,
+ * 令牌即将过期时只触发后台刷新, 不阻塞请求.
+ * <br>
+ * 同一存储源同一时间只会有一个线程在刷新令牌.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+@Component
+public class RefreshTokenScheduler {
+
+    @Resource
+    private ZFileProperties zFileProperties;
+
+    /**
+     * Map<存储源 ID, 刷新状态>
+     */
+    private final Map<Integer, RefreshState> stateMap = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService checkScheduler;
+
+    private ExecutorService refreshExecutor;
+
+    @PostConstruct
+    public void init() {
+        ZFileProperties.TokenRefreshProperties tokenRefreshProperties = zFileProperties.getTokenRefresh();
+        AtomicInteger threadNumber = new AtomicInteger();
+        refreshExecutor = Executors.newFixedThreadPool(Math.max(1, tokenRefreshProperties.getConcurrency()), r -> {
+            Thread thread = new Thread(r, "storage-token-refresh-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (!tokenRefreshProperties.isEnable()) {
+            return;
+        }
+        long checkInterval = Math.max(1, tokenRefreshProperties.getCheckInterval());
+        checkScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "storage-token-refresh-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkScheduler.scheduleWithFixedDelay(this::checkAllSafely, checkInterval, checkInterval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (checkScheduler != null) {
+            checkScheduler.shutdownNow();
+        }
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 获取存储源当前可用的令牌信息.
+     * <br>
+     * 令牌未即将过期时直接返回; 即将过期或上次刷新失败但仍可使用时, 触发后台刷新并返回当前令牌;
+     * 已不可用时同步刷新, 刷新后仍不可用则抛出异常.
+     *
+     * @param   storageId
+     *          存储源 ID
+     *
+     * @param   refreshTokenService
+     *          存储源
+     *
+     * @return  令牌信息
+     */
+    public RefreshTokenCacheBO.RefreshTokenInfo getRefreshTokenInfo(Integer storageId, RefreshTokenService refreshTokenService) {
+        RefreshTokenCacheBO.RefreshTokenInfo refreshTokenInfo = RefreshTokenCacheBO.getRefreshTokenInfo(storageId);
+        if (refreshTokenInfo != null && !refreshTokenInfo.isExpired()) {
+            return refreshTokenInfo;
+        }
+
+        if (refreshTokenInfo != null && refreshTokenInfo.isUsable()) {
+            refreshAsync(storageId, refreshTokenService);
+            return refreshTokenInfo;
+        }
+
+        RefreshState state = getState(storageId);
+        synchronized (state) {
+            // 双重检查，再次从缓存中获取，确认是否其他线程已经刷新过
+            refreshTokenInfo = RefreshTokenCacheBO.getRefreshTokenInfo(storageId);
+            if (refreshTokenInfo == null || !refreshTokenInfo.isUsable()) {
+                // 处于失败重试等待期间时不再请求, 避免每个请求都去刷新
+                if (System.currentTimeMillis() < state.retryTime) {
+                    throw new SystemException("存储源 " + storageId + " AccessToken 刷新失败: " + state.lastErrorMsg);
+                }
+                log.info("存储源 {} 令牌未获取或已过期, 尝试刷新: {}", storageId, refreshTokenInfo);
+                refresh(storageId, refreshTokenService);
+                refreshTokenInfo = RefreshTokenCacheBO.getRefreshTokenInfo(storageId);
+            }
+        }
+
+        if (refreshTokenInfo == null || refreshTokenInfo.getData() == null) {
+            throw new SystemException("存储源 " + storageId + " AccessToken 刷新失败: " +
+                    (refreshTokenInfo == null ? "未找到刷新令牌信息." : refreshTokenInfo.getMsg()));
+        }
+
+        return refreshTokenInfo;
+    }
+
+    /**
+     * 在后台刷新存储源的令牌, 已在刷新或未到刷新时间 (如处于失败重试等待期间) 时忽略.
+     *
+     * @param   storageId
+     *          存储源 ID
+     *
+     * @param   refreshTokenService
+     *          存储源
+     */
+    public void refreshAsync(Integer storageId, RefreshTokenService refreshTokenService) {
+        RefreshState state = getState(storageId);
+        if (!state.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    synchronized (state) {
+                        if (System.currentTimeMillis() >= getNextRefreshTime(storageId, state)) {
+                            refresh(storageId, refreshTokenService);
+                        }
+                    }
+                } catch (Exception e) {
+                    log.warn("存储源 {} 后台刷新令牌失败, 连续失败 {} 次, {} 秒后重试: {}", storageId, state.consecutiveFailures,
+                            (state.retryTime - System.currentTimeMillis()) / 1000, e.getMessage());
+                } finally {
+                    state.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            state.refreshing.set(false);
+        }
+    }
+
+    /**
+     * 获取所有已初始化的存储源的令牌刷新状态
+     */
+    public List<RefreshTokenStateResult> getStates() {
+        List<RefreshTokenStateResult> result = new ArrayList<>();
+        StorageSourceContext.getAllRefreshTokenStorageSource().forEach((storageId, refreshTokenService) -> {
+            RefreshState state = getState(storageId);
+            RefreshTokenCacheBO.RefreshTokenInfo refreshTokenInfo = RefreshTokenCacheBO.getRefreshTokenInfo(storageId);
+
+            RefreshTokenStateResult stateResult = new RefreshTokenStateResult();
+            stateResult.setStorageId(storageId);
+            if (refreshTokenService instanceof AbstractBaseFileService<?> baseFileService) {
+                stateResult.setStorageName(baseFileService.getName());
+            }
+            if (refreshTokenInfo != null && refreshTokenInfo.getData() != null) {
+                stateResult.setExpiredAt(refreshTokenInfo.getData().getExpiredAtDate());
+            }
+            if (zFileProperties.getTokenRefresh().isEnable()) {
+                stateResult.setNextRefreshTime(new Date(Math.max(getNextRefreshTime(storageId, state), System.currentTimeMillis())));
+            }
+            stateResult.setLastRefreshTime(state.lastRefreshTime);
+            stateResult.setLastRefreshSuccess(state.lastRefreshSuccess);
+            stateResult.setLastErrorMsg(state.lastErrorMsg);
+            stateResult.setConsecutiveFailures(state.consecutiveFailures);
+            stateResult.setRefreshCount(state.refreshCount);
+            stateResult.setFailureCount(state.failureCount);
+            stateResult.setRefreshing(state.refreshing.get());
+            result.add(stateResult);
+        });
+        result.sort(Comparator.comparing(RefreshTokenStateResult::getStorageId));
+        return result;
+    }
+
+    private void checkAllSafely() {
+        try {
+            Map<Integer, RefreshTokenService> refreshTokenServiceMap = StorageSourceContext.getAllRefreshTokenStorageSource();
+            // 移除已删除的存储源的刷新状态
+            stateMap.keySet().retainAll(refreshTokenServiceMap.keySet());
+            long now = System.currentTimeMillis();
+            refreshTokenServiceMap.forEach((storageId, refreshTokenService) -> {
+                if (now >= getNextRefreshTime(storageId, getState(storageId))) {
+                    refreshAsync(storageId, refreshTokenService);
+                }
+            });
+        } catch (Exception e) {
+            log.error("检查存储源令牌过期时间失败.", e);
+        }
+    }
+
+    /**
+     * 刷新令牌并记录结果, 调用方需持有存储源状态的锁.
+     */
+    private void refresh(Integer storageId, RefreshTokenService refreshTokenService) {
+        RefreshState state = getState(storageId);
+        state.lastRefreshTime = new Date();
+        state.refreshCount++;
+        try {
+            refreshTokenService.refreshAccessToken();
+            state.lastRefreshSuccess = true;
+            state.lastErrorMsg = null;
+            state.consecutiveFailures = 0;
+            state.retryTime = 0;
+            state.jitterMillis = randomJitterMillis();
+        } catch (Exception e) {
+            ZFileProperties.TokenRefreshProperties tokenRefreshProperties = zFileProperties.getTokenRefresh();
+            state.lastRefreshSuccess = false;
+            state.lastErrorMsg = e.getMessage();
+            state.failureCount++;
+            state.consecutiveFailures++;
+            long retryInterval = Math.min(tokenRefreshProperties.getRetryInitialInterval() << Math.min(state.consecutiveFailures - 1, 20),
+                    tokenRefreshProperties.getRetryMaxInterval());
+            state.retryTime = System.currentTimeMillis() + retryInterval * 1000;
+            if (e instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new SystemException("存储源 " + storageId + " 刷新令牌失败.", e);
+        }
+    }
+
+    /**
+     * 获取存储源下次需要刷新令牌的时间: 令牌过期时间减去提前刷新时间及随机抖动, 令牌不存在或刷新失败时为当前时间,
+     * 处于失败重试等待期间时不早于重试时间.
+     */
+    private long getNextRefreshTime(Integer storageId, RefreshState state) {
+        long refreshTime = 0;
+        RefreshTokenCacheBO.RefreshTokenInfo refreshTokenInfo = RefreshTokenCacheBO.getRefreshTokenInfo(storageId);
+        if (refreshTokenInfo != null && refreshTokenInfo.isSuccess()
+                && refreshTokenInfo.getData() != null && refreshTokenInfo.getData().getExpiredAt() != null) {
+            refreshTime = refreshTokenInfo.getData().getExpiredAt() * 1000L
+                    - zFileProperties.getTokenRefresh().getRefreshAhead() * 1000 - state.jitterMillis;
+        }
+        return Math.max(refreshTime, state.retryTime);
+    }
+
+    private RefreshState getState(Integer storageId) {
+        return stateMap.computeIfAbsent(storageId, key -> {
+            RefreshState state = new RefreshState();
+            state.jitterMillis = randomJitterMillis();
+            return state;
+        });
+    }
+
+    private long randomJitterMillis() {
+        long jitter = zFileProperties.getTokenRefresh().getJitter();
+        return jitter <= 0 ? 0 : ThreadLocalRandom.current().nextLong(jitter * 1000 + 1);
+    }
+
+    /**
+     * 单个存储源的令牌刷新状态, 除 refreshing 外均在持有此对象锁时修改.
+     */
+    private static class RefreshState {
+
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private volatile long jitterMillis;
+
+        private volatile long retryTime;
+
+        private volatile Date lastRefreshTime;
+
+        private volatile Boolean lastRefreshSuccess;
+
+        private volatile String lastErrorMsg;
+
+        private volatile int consecutiveFailures;
+
+        private volatile long refreshCount;
+
+        private volatile long failureCount;
+
+    }
+
+}
@@ -2,6 +2,9 @@ package im.zhaojun.zfile.module.storage.context;
 
 import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.extra.spring.SpringUtil;
+import im.zhaojun.zfile.core.config.ZFileProperties;
+import im.zhaojun.zfile.core.exception.ErrorCode;
+import im.zhaojun.zfile.core.exception.core.BizException;
 import im.zhaojun.zfile.core.exception.biz.InvalidStorageSourceBizException;
 import im.zhaojun.zfile.core.util.ClassUtils;
 import im.zhaojun.zfile.core.util.StringUtils;
@@ -12,8 +15,16 @@ import im.zhaojun.zfile.module.storage.model.entity.StorageSource;
 import im.zhaojun.zfile.module.storage.model.entity.StorageSourceConfig;
 import im.zhaojun.zfile.module.storage.model.enums.StorageTypeEnum;
 import im.zhaojun.zfile.module.storage.model.param.IStorageParam;
+import im.zhaojun.zfile.module.storage.model.result.ConnectionPoolStatsResult;
+import im.zhaojun.zfile.module.storage.model.result.FileListCacheStatsResult;
+import im.zhaojun.zfile.module.storage.model.result.HttpClientStatsResult;
+import im.zhaojun.zfile.module.storage.model.result.UploadSessionStatsResult;
 import im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService;
+import im.zhaojun.zfile.module.storage.service.base.AbstractMicrosoftDriveService;
+import im.zhaojun.zfile.module.storage.service.base.ConnectionPoolService;
+import im.zhaojun.zfile.module.storage.service.base.HttpClientService;
 import im.zhaojun.zfile.module.storage.service.base.RefreshTokenService;
+import im.zhaojun.zfile.module.storage.support.FileListCache;
 import im.zhaojun.zfile.module.storage.support.StorageSourceSupport;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.BooleanUtils;
@@ -22,6 +33,7 @@ import org.springframework.aop.support.AopUtils;
 import java.lang.reflect.Field;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -49,6 +61,34 @@ public class StorageSourceContext {
     private static final Map<String, Integer> STORAGE_KEY_ID_MAP = new ConcurrentHashMap<>();
 
 
+    /**
+     * Map<String, Integer>
+     * Map<正在初始化的存储源 Key, 存储源 ID>
+     */
+    private static final Map<String, Integer> INITIALIZING_STORAGE_KEY_ID_MAP = new ConcurrentHashMap<>();
+
+
+    /**
+     * 正在初始化的存储源 ID 集合
+     */
+    private static final Set<Integer> INITIALIZING_STORAGE_ID_SET = ConcurrentHashMap.newKeySet();
+
+
+    /**
+     * Map<存储源 ID, 最新的初始化代次>.
+     * <br>
+     * 每次初始化或销毁存储源时生成新的代次, 初始化完成后只有代次仍是最新时才会发布到上下文中. 避免初始化缓慢 (如启动时超时)
+     * 的旧初始化在完成后覆盖管理员重新保存的存储源, 或恢复已被删除的存储源. 发布及销毁均在此 Map 的锁内进行.
+     */
+    private static final Map<Integer, Long> STORAGE_GENERATION_MAP = new HashMap<>();
+
+
+    /**
+     * 初始化代次序列
+     */
+    private static final AtomicLong GENERATION_SEQUENCE = new AtomicLong();
+
+
     /**
      * Map<存储源类型的bean名称, 存储源 Service>
      */
@@ -62,7 +102,7 @@ public class StorageSourceContext {
     /**
      * 缓存每个存储源参数的字段列表.
      */
-    private static final Map<Class<?>, Map<String, Field>> PARAM_CLASS_FIELD_NAME_MAP_CACHE = new HashMap<>();
+    private static final Map<Class<?>, Map<String, Field>> PARAM_CLASS_FIELD_NAME_MAP_CACHE = new ConcurrentHashMap<>();
 
     /**
      * 项目启动时, 自动调用数据库已存储的所有存储源进行初始化.
@@ -86,6 +126,9 @@ public class StorageSourceContext {
     public static AbstractBaseFileService<IStorageParam> getByStorageId(Integer storageId) {
         AbstractBaseFileService<IStorageParam> abstractBaseFileService = DRIVES_SERVICE_MAP.get(storageId);
         if (abstractBaseFileService == null) {
+            if (INITIALIZING_STORAGE_ID_SET.contains(storageId)) {
+                throw new BizException(ErrorCode.BIZ_STORAGE_INITIALIZING);
+            }
             throw new InvalidStorageSourceBizException(storageId);
         }
         return abstractBaseFileService;
@@ -102,6 +145,9 @@ public class StorageSourceContext {
      */
     public static AbstractBaseFileService<?> getByStorageKey(String key) {
         Integer storageId = STORAGE_KEY_ID_MAP.get(key);
+        if (storageId == null) {
+            storageId = INITIALIZING_STORAGE_KEY_ID_MAP.get(key);
+        }
         if (storageId == null) {
             return null;
         }
@@ -109,6 +155,30 @@ public class StorageSourceContext {
     }
 
 
+    /**
+     * 标记存储源为初始化中, 此时访问该存储源会提示正在初始化, 而不是存储源不存在.
+     *
+     * @param   storageSource
+     *          存储源
+     */
+    static void markInitializing(StorageSource storageSource) {
+        INITIALIZING_STORAGE_ID_SET.add(storageSource.getId());
+        INITIALIZING_STORAGE_KEY_ID_MAP.put(storageSource.getKey(), storageSource.getId());
+    }
+
+
+    /**
+     * 清除存储源的初始化中标记, 无论初始化成功或失败都应调用.
+     *
+     * @param   storageSource
+     *          存储源
+     */
+    static void clearInitializing(StorageSource storageSource) {
+        INITIALIZING_STORAGE_ID_SET.remove(storageSource.getId());
+        INITIALIZING_STORAGE_KEY_ID_MAP.remove(storageSource.getKey());
+    }
+
+
     /**
      * 根据存储源类型获取对应的 Service.
      *
@@ -149,6 +219,40 @@ public class StorageSourceContext {
      *          存储源初始化对象
      */
     public static void init(StorageSourceInitDTO storageSourceInitDTO) {
+        init(storageSourceInitDTO, newGeneration(storageSourceInitDTO.getId()));
+    }
+
+
+    /**
+     * 生成存储源新的初始化代次, 之前代次的初始化完成后不会再发布到上下文中.
+     *
+     * @param   storageId
+     *          存储源 ID
+     *
+     * @return  新的初始化代次
+     */
+    static long newGeneration(Integer storageId) {
+        long generation = GENERATION_SEQUENCE.incrementAndGet();
+        synchronized (STORAGE_GENERATION_MAP) {
+            STORAGE_GENERATION_MAP.put(storageId, generation);
+        }
+        return generation;
+    }
+
+
+    /**
+     * 按指定代次初始化存储源的 Service, 初始化完成时代次仍是最新的才添加到上下文环境中, 否则销毁本次初始化的 Service.
+     * 被替换的旧 Service 也会被销毁.
+     *
+     * @param   storageSourceInitDTO
+     *          存储源初始化对象
+     *
+     * @param   generation
+     *          初始化代次, 见 {@link #newGeneration(Integer)}
+     *
+     * @return  是否已添加到上下文环境中
+     */
+    static boolean init(StorageSourceInitDTO storageSourceInitDTO, long generation) {
         Integer storageId = storageSourceInitDTO.getId();
         String storageName = storageSourceInitDTO.getName();
         String key = storageSourceInitDTO.getKey();
@@ -162,12 +266,50 @@ public class StorageSourceContext {
         // 填充初始化参数
         IStorageParam initParam = getInitParam(baseFileService, storageSourceInitDTO.getStorageSourceConfigList());
 
-        // 进行初始化并测试连接
-        baseFileService.init(storageName, storageId, initParam);
-        baseFileService.testConnection();
+        // 进行初始化并测试连接, 失败时销毁已创建的连接池等资源.
+        try {
+            baseFileService.init(storageName, storageId, initParam);
+            baseFileService.testConnection();
+        } catch (RuntimeException e) {
+            destroyQuietly(baseFileService);
+            throw e;
+        }
+
+        // 根据全局配置或存储源设置开启文件列表缓存
+        ZFileProperties.FileListCacheProperties fileListCacheProperties = SpringUtil.getBean(ZFileProperties.class).getFileListCache();
+        if (fileListCacheProperties.isEnable() || BooleanUtils.isTrue(storageSourceInitDTO.getEnableCache())) {
+            baseFileService.enableFileListCache(fileListCacheProperties);
+        }
 
-        DRIVES_SERVICE_MAP.put(storageId, baseFileService);
-        STORAGE_KEY_ID_MAP.put(key, storageId);
+        // 发布时代次已不是最新的, 销毁本次初始化的 Service, 否则销毁被替换的旧 Service.
+        boolean published;
+        AbstractBaseFileService<IStorageParam> discardFileService;
+        synchronized (STORAGE_GENERATION_MAP) {
+            published = Objects.equals(STORAGE_GENERATION_MAP.get(storageId), generation);
+            if (published) {
+                discardFileService = DRIVES_SERVICE_MAP.put(storageId, baseFileService);
+                STORAGE_KEY_ID_MAP.put(key, storageId);
+            } else {
+                discardFileService = baseFileService;
+            }
+        }
+
+        if (!published) {
+            log.warn("存储源 {} 初始化期间已被重新保存或删除, 丢弃本次初始化结果, 存储源名称: {}", storageId, storageName);
+        }
+        if (discardFileService != null) {
+            destroyQuietly(discardFileService);
+        }
+        return published;
+    }
+
+
+    private static void destroyQuietly(AbstractBaseFileService<?> baseFileService) {
+        try {
+            baseFileService.destroy();
+        } catch (Exception e) {
+            log.warn("销毁存储源 {} 的 Service 失败", baseFileService.getStorageId(), e);
+        }
     }
 
 
@@ -303,6 +445,98 @@ public class StorageSourceContext {
     }
 
 
+    /**
+     * 获取所有已开启文件列表缓存的存储源的缓存统计信息.
+     *
+     * @return  缓存统计信息列表
+     */
+    public static List<FileListCacheStatsResult> getAllFileListCacheStats() {
+        List<FileListCacheStatsResult> result = new ArrayList<>();
+        for (AbstractBaseFileService<IStorageParam> baseFileService : DRIVES_SERVICE_MAP.values()) {
+            FileListCache fileListCache = baseFileService.getFileListCache();
+            if (fileListCache == null) {
+                continue;
+            }
+            FileListCacheStatsResult stats = fileListCache.getStats();
+            stats.setStorageId(baseFileService.getStorageId());
+            stats.setStorageName(baseFileService.getName());
+            result.add(stats);
+        }
+        result.sort(Comparator.comparing(FileListCacheStatsResult::getStorageId));
+        return result;
+    }
+
+
+    /**
+     * 获取所有使用连接池的存储源的连接池统计信息.
+     *
+     * @return  连接池统计信息列表
+     */
+    public static List<ConnectionPoolStatsResult> getAllConnectionPoolStats() {
+        List<ConnectionPoolStatsResult> result = new ArrayList<>();
+        for (AbstractBaseFileService<IStorageParam> baseFileService : DRIVES_SERVICE_MAP.values()) {
+            if (BooleanUtils.isNotTrue(baseFileService.isInitialized()) || !(baseFileService instanceof ConnectionPoolService connectionPoolService)) {
+                continue;
+            }
+            for (ConnectionPoolStatsResult stats : connectionPoolService.getConnectionPoolStats()) {
+                stats.setStorageId(baseFileService.getStorageId());
+                stats.setStorageName(baseFileService.getName());
+                result.add(stats);
+            }
+        }
+        result.sort(Comparator.comparing(ConnectionPoolStatsResult::getStorageId));
+        return result;
+    }
+
+
+    /**
+     * 获取所有进行过代理上传的 OneDrive / SharePoint 类存储源的上传会话统计信息.
+     *
+     * @return  上传会话统计信息列表
+     */
+    public static List<UploadSessionStatsResult> getAllUploadSessionStats() {
+        List<UploadSessionStatsResult> result = new ArrayList<>();
+        for (AbstractBaseFileService<IStorageParam> baseFileService : DRIVES_SERVICE_MAP.values()) {
+            if (!(baseFileService instanceof AbstractMicrosoftDriveService<?> microsoftDriveService)) {
+                continue;
+            }
+            UploadSessionStatsResult stats = microsoftDriveService.getUploadSessionStats();
+            if (stats == null) {
+                continue;
+            }
+            stats.setStorageId(baseFileService.getStorageId());
+            stats.setStorageName(baseFileService.getName());
+            result.add(stats);
+        }
+        result.sort(Comparator.comparing(UploadSessionStatsResult::getStorageId));
+        return result;
+    }
+
+
+    /**
+     * 获取所有基于 HTTP 接口的存储源的 HTTP 客户端统计信息.
+     *
+     * @return  HTTP 客户端统计信息列表
+     */
+    public static List<HttpClientStatsResult> getAllHttpClientStats() {
+        List<HttpClientStatsResult> result = new ArrayList<>();
+        for (AbstractBaseFileService<IStorageParam> baseFileService : DRIVES_SERVICE_MAP.values()) {
+            if (!(baseFileService instanceof HttpClientService httpClientService)) {
+                continue;
+            }
+            HttpClientStatsResult stats = httpClientService.getHttpClientStats();
+            if (stats == null) {
+                continue;
+            }
+            stats.setStorageId(baseFileService.getStorageId());
+            stats.setStorageName(baseFileService.getName());
+            result.add(stats);
+        }
+        result.sort(Comparator.comparing(HttpClientStatsResult::getStorageId));
+        return result;
+    }
+
+
     /**
      * 销毁指定存储源的 Service.
      *
@@ -313,12 +547,19 @@ public class StorageSourceContext {
         Integer id = storageSource.getId();
         String key = storageSource.getKey();
         log.info("清理存储源上下文对象, storageId: {}, storageKey: {}", id, key);
-        AbstractBaseFileService<IStorageParam> abstractBaseFileService = DRIVES_SERVICE_MAP.remove(id);
+        AbstractBaseFileService<IStorageParam> abstractBaseFileService;
+        // 生成新的代次, 使正在进行中的初始化完成后不再发布.
+        long generation = GENERATION_SEQUENCE.incrementAndGet();
+        synchronized (STORAGE_GENERATION_MAP) {
+            STORAGE_GENERATION_MAP.put(id, generation);
+            abstractBaseFileService = DRIVES_SERVICE_MAP.remove(id);
+            STORAGE_KEY_ID_MAP.remove(key);
+        }
+        // 已删除的存储源不应再提示正在初始化.
+        clearInitializing(storageSource);
         if (abstractBaseFileService != null) {
             abstractBaseFileService.destroy();
         }
-
-        STORAGE_KEY_ID_MAP.remove(key);
     }
 
 
@@ -1,8 +1,11 @@
 package im.zhaojun.zfile.module.storage.context;
 
+import im.zhaojun.zfile.core.config.ZFileProperties;
 import im.zhaojun.zfile.module.storage.model.dto.StorageSourceInitDTO;
 import im.zhaojun.zfile.module.storage.model.entity.StorageSource;
 import im.zhaojun.zfile.module.storage.model.entity.StorageSourceConfig;
+import im.zhaojun.zfile.module.storage.model.enums.StorageSourceInitStatusEnum;
+import im.zhaojun.zfile.module.storage.model.result.StorageSourceInitResult;
 import im.zhaojun.zfile.module.storage.service.StorageSourceConfigService;
 import im.zhaojun.zfile.module.storage.service.StorageSourceService;
 import im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService;
@@ -15,10 +18,27 @@ import org.springframework.context.annotation.DependsOn;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
 
 /**
+ * 启动时初始化所有存储源.
+ * <br>
+ * 每个存储源在独立的虚拟线程中初始化, 同时初始化的数量由 {@link ZFileProperties.StorageInitProperties#getConcurrency()} 限制,
+ * 单个存储源超过 {@link ZFileProperties.StorageInitProperties#getTimeout()} 仍未完成时会被中断并标记为超时,
+ * 避免某个存储源连接缓慢拖慢整个启动过程. 初始化期间已完成的存储源可正常访问, 未完成的存储源会提示正在初始化.
+ * <br>
+ * 多数存储源的网络 I/O 不响应中断, 超时后初始化线程可能仍在运行, 所以其占用的并发许可及初始化中标记在线程实际结束后才释放.
+ * 每次初始化带有代次 (见 {@link StorageSourceContext#newGeneration}), 如果初始化期间存储源已被重新保存或删除, 完成后丢弃并销毁本次初始化结果.
+ *
  * @author zhaojun
  */
 @Slf4j
@@ -33,6 +53,14 @@ public class StorageSourceInitializer implements ApplicationContextAware {
     @Resource
     private StorageSourceConfigService storageSourceConfigService;
 
+    @Resource
+    private ZFileProperties zFileProperties;
+
+    /**
+     * Map<存储源 ID, 初始化结果>, 按存储源排序顺序保存.
+     */
+    private final Map<Integer, StorageSourceInitResult> initResultMap = Collections.synchronizedMap(new LinkedHashMap<>());
+
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
         try {
@@ -44,18 +72,187 @@ public class StorageSourceInitializer implements ApplicationContextAware {
         }
 
         List<StorageSource> list = storageSourceService.findAllOrderByOrderNum();
+        if (list.isEmpty()) {
+            return;
+        }
+
+        ZFileProperties.StorageInitProperties storageInitProperties = zFileProperties.getStorageInit();
+        Semaphore semaphore = new Semaphore(Math.max(1, storageInitProperties.getConcurrency()));
+        long timeoutMillis = storageInitProperties.getTimeout() * 1000;
+        CountDownLatch countDownLatch = new CountDownLatch(list.size());
+        long startTime = System.currentTimeMillis();
+
         for (StorageSource storageSource : list) {
+            StorageSourceInitDTO storageSourceInitDTO;
             try {
                 List<StorageSourceConfig> storageSourceConfigList = storageSourceConfigService.selectStorageConfigByStorageId(storageSource.getId());
-                StorageSourceInitDTO storageSourceInitDTO = StorageSourceInitDTO.convert(storageSource, storageSourceConfigList);
-                StorageSourceContext.init(storageSourceInitDTO);
-                log.info("启动时初始化存储源成功, 存储源 id: [{}], 存储源类型: [{}], 存储源名称: [{}]",
-                        storageSource.getId(), storageSource.getType().getDescription(), storageSource.getName());
+                storageSourceInitDTO = StorageSourceInitDTO.convert(storageSource, storageSourceConfigList);
             } catch (Exception e) {
-                log.error("启动时初始化存储源失败, 存储源 id: {}, 存储源类型: {}, 存储源名称: {}",
+                log.error("启动时读取存储源配置失败, 存储源 id: {}, 存储源类型: {}, 存储源名称: {}",
                         storageSource.getId(), storageSource.getType().getDescription(), storageSource.getName(), e);
+                updateInitResult(storageSource, StorageSourceInitStatusEnum.FAILED, null, null, e.getMessage());
+                countDownLatch.countDown();
+                continue;
+            }
+
+            StorageSourceContext.markInitializing(storageSource);
+            long generation = StorageSourceContext.newGeneration(storageSource.getId());
+            updateInitResult(storageSource, StorageSourceInitStatusEnum.WAITING, null, null, null);
+            Thread.ofVirtual().name("storage-init-" + storageSource.getId()).start(() -> {
+                try {
+                    semaphore.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    StorageSourceContext.clearInitializing(storageSource);
+                    countDownLatch.countDown();
+                    return;
+                }
+                // 超时后初始化线程可能仍在运行, 由初始化线程结束时释放许可并清除初始化中标记.
+                Runnable onInitThreadExit = () -> {
+                    StorageSourceContext.clearInitializing(storageSource);
+                    semaphore.release();
+                };
+                try {
+                    initWithTimeout(storageSource, storageSourceInitDTO, generation, timeoutMillis, onInitThreadExit);
+                } finally {
+                    countDownLatch.countDown();
+                }
+            });
+        }
+
+        Thread.ofVirtual().name("storage-init-report").start(() -> {
+            try {
+                countDownLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            logInitReport(System.currentTimeMillis() - startTime);
+        });
+    }
+
+
+    /**
+     * 获取存储源启动初始化结果.
+     *
+     * @return  每个存储源的初始化状态及耗时
+     */
+    public List<StorageSourceInitResult> getInitReport() {
+        synchronized (initResultMap) {
+            return new ArrayList<>(initResultMap.values());
+        }
+    }
+
+
+    /**
+     * 在独立线程中初始化存储源, 并等待其完成, 超时则中断初始化线程并标记为超时.
+     *
+     * @param   onInitThreadExit
+     *          初始化线程结束时执行, 超时返回时初始化线程可能仍在运行.
+     */
+    private void initWithTimeout(StorageSource storageSource, StorageSourceInitDTO storageSourceInitDTO, long generation,
+                                 long timeoutMillis, Runnable onInitThreadExit) {
+        Date startDate = new Date();
+        updateInitResult(storageSource, StorageSourceInitStatusEnum.INITIALIZING, startDate, null, null);
+
+        Thread initThread;
+        try {
+            initThread = Thread.ofVirtual()
+                    .name("storage-init-worker-" + storageSource.getId())
+                    .start(() -> {
+                        try {
+                            doInit(storageSource, storageSourceInitDTO, generation, startDate);
+                        } finally {
+                            onInitThreadExit.run();
+                        }
+                    });
+        } catch (RuntimeException | Error e) {
+            onInitThreadExit.run();
+            throw e;
+        }
+        try {
+            boolean finished;
+            if (timeoutMillis > 0) {
+                finished = initThread.join(Duration.ofMillis(timeoutMillis));
+            } else {
+                initThread.join();
+                finished = true;
+            }
+
+            if (!finished) {
+                initThread.interrupt();
+                initResultMap.computeIfPresent(storageSource.getId(), (id, result) ->
+                        result.getStatus() == StorageSourceInitStatusEnum.INITIALIZING
+                                ? buildInitResult(storageSource, StorageSourceInitStatusEnum.TIMEOUT, startDate, timeoutMillis, "初始化超时")
+                                : result);
+                log.error("启动时初始化存储源超时, 存储源 id: {}, 存储源类型: {}, 存储源名称: {}, 超时时间: {}ms",
+                        storageSource.getId(), storageSource.getType().getDescription(), storageSource.getName(), timeoutMillis);
             }
+        } catch (InterruptedException e) {
+            initThread.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * 初始化存储源并记录结果, 如果已被标记为超时但最终仍初始化成功, 则以成功结果覆盖.
+     */
+    private void doInit(StorageSource storageSource, StorageSourceInitDTO storageSourceInitDTO, long generation, Date startDate) {
+        try {
+            boolean published = StorageSourceContext.init(storageSourceInitDTO, generation);
+            long costMillis = System.currentTimeMillis() - startDate.getTime();
+            if (!published) {
+                updateInitResult(storageSource, StorageSourceInitStatusEnum.FAILED, startDate, costMillis, "初始化期间存储源已被重新保存或删除, 已丢弃本次初始化结果");
+                return;
+            }
+            updateInitResult(storageSource, StorageSourceInitStatusEnum.SUCCESS, startDate, costMillis, null);
+            log.info("启动时初始化存储源成功, 存储源 id: [{}], 存储源类型: [{}], 存储源名称: [{}], 耗时: [{}ms]",
+                    storageSource.getId(), storageSource.getType().getDescription(), storageSource.getName(), costMillis);
+        } catch (Exception e) {
+            long costMillis = System.currentTimeMillis() - startDate.getTime();
+            initResultMap.computeIfPresent(storageSource.getId(), (id, result) ->
+                    result.getStatus() == StorageSourceInitStatusEnum.TIMEOUT
+                            ? result
+                            : buildInitResult(storageSource, StorageSourceInitStatusEnum.FAILED, startDate, costMillis, e.getMessage()));
+            log.error("启动时初始化存储源失败, 存储源 id: {}, 存储源类型: {}, 存储源名称: {}",
+                    storageSource.getId(), storageSource.getType().getDescription(), storageSource.getName(), e);
         }
     }
 
+
+    /**
+     * 输出启动初始化耗时报告, 按耗时倒序排列, 便于排查拖慢启动的存储源.
+     */
+    private void logInitReport(long totalCostMillis) {
+        List<StorageSourceInitResult> initReport = getInitReport();
+        long successCount = initReport.stream().filter(result -> result.getStatus() == StorageSourceInitStatusEnum.SUCCESS).count();
+        log.info("存储源启动初始化完成, 共 {} 个, 成功 {} 个, 失败或超时 {} 个, 总耗时 {}ms",
+                initReport.size(), successCount, initReport.size() - successCount, totalCostMillis);
+
+        initReport.sort(Comparator.comparing(StorageSourceInitResult::getCostMillis, Comparator.nullsLast(Comparator.reverseOrder())));
+        for (StorageSourceInitResult result : initReport) {
+            log.info("存储源初始化耗时: [{}ms], 状态: [{}], 存储源 id: [{}], 存储源名称: [{}]",
+                    result.getCostMillis(), result.getStatus().getValue(), result.getStorageId(), result.getStorageName());
+        }
+    }
+
+
+    private void updateInitResult(StorageSource storageSource, StorageSourceInitStatusEnum status, Date startTime, Long costMillis, String errorMsg) {
+        initResultMap.put(storageSource.getId(), buildInitResult(storageSource, status, startTime, costMillis, errorMsg));
+    }
+
+
+    private StorageSourceInitResult buildInitResult(StorageSource storageSource, StorageSourceInitStatusEnum status, Date startTime, Long costMillis, String errorMsg) {
+        StorageSourceInitResult result = new StorageSourceInitResult();
+        result.setStorageId(storageSource.getId());
+        result.setStorageName(storageSource.getName());
+        result.setStorageType(storageSource.getType());
+        result.setStatus(status);
+        result.setStartTime(startTime);
+        result.setCostMillis(costMillis);
+        result.setErrorMsg(errorMsg);
+        return result;
+    }
+
 }
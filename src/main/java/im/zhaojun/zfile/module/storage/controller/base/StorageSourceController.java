@@ -4,6 +4,9 @@ import com.github.xiaoymin.knife4j.annotations.ApiOperationSupport;
 import com.github.xiaoymin.knife4j.annotations.ApiSort;
 import im.zhaojun.zfile.core.annotation.DemoDisable;
 import im.zhaojun.zfile.core.util.AjaxJson;
+import im.zhaojun.zfile.module.storage.context.RefreshTokenScheduler;
+import im.zhaojun.zfile.module.storage.context.StorageSourceContext;
+import im.zhaojun.zfile.module.storage.context.StorageSourceInitializer;
 import im.zhaojun.zfile.module.storage.convert.StorageSourceConvert;
 import im.zhaojun.zfile.module.storage.model.bo.RefreshTokenCacheBO;
 import im.zhaojun.zfile.module.storage.model.dto.StorageSourceDTO;
@@ -11,8 +14,15 @@ import im.zhaojun.zfile.module.storage.model.entity.StorageSource;
 import im.zhaojun.zfile.module.storage.model.request.admin.CopyStorageSourceRequest;
 import im.zhaojun.zfile.module.storage.model.request.admin.UpdateStorageSortRequest;
 import im.zhaojun.zfile.module.storage.model.request.base.SaveStorageSourceRequest;
+import im.zhaojun.zfile.module.storage.model.result.ConnectionPoolStatsResult;
+import im.zhaojun.zfile.module.storage.model.result.FileListCacheStatsResult;
+import im.zhaojun.zfile.module.storage.model.result.HttpClientStatsResult;
 import im.zhaojun.zfile.module.storage.model.result.StorageSourceAdminResult;
+import im.zhaojun.zfile.module.storage.model.result.RefreshTokenStateResult;
+import im.zhaojun.zfile.module.storage.model.result.StorageSourceInitResult;
+import im.zhaojun.zfile.module.storage.model.result.UploadSessionStatsResult;
 import im.zhaojun.zfile.module.storage.service.StorageSourceService;
+import im.zhaojun.zfile.module.storage.support.FileListCacheSynchronizer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Parameters;
@@ -39,9 +49,18 @@ public class StorageSourceController {
     @Resource
     private StorageSourceService storageSourceService;
 
+    @Resource
+    private StorageSourceInitializer storageSourceInitializer;
+
     @Resource
     private StorageSourceConvert storageSourceConvert;
 
+    @Resource
+    private RefreshTokenScheduler refreshTokenScheduler;
+
+    @Resource
+    private FileListCacheSynchronizer fileListCacheSynchronizer;
+
 
     @ApiOperationSupport(order = 1)
     @Operation(summary = "获取所有存储源列表", description ="获取所有添加的存储源列表，按照排序值由小到大排序")
@@ -159,4 +178,63 @@ public class StorageSourceController {
         Integer id = storageSourceService.copy(copyStorageSourceRequest);
         return AjaxJson.getSuccessData(id);
     }
-}
\ No newline at end of file
+
+
+    @ApiOperationSupport(order = 11)
+    @Operation(summary = "获取文件列表缓存统计信息", description ="获取所有已开启文件列表缓存的存储源的命中、未命中、淘汰次数等统计信息")
+    @GetMapping("/storage/cache/stats")
+    public AjaxJson<List<FileListCacheStatsResult>> fileListCacheStats() {
+        return AjaxJson.getSuccessData(StorageSourceContext.getAllFileListCacheStats());
+    }
+
+
+    @ApiOperationSupport(order = 12)
+    @Operation(summary = "清空文件列表缓存", description ="清空指定存储源的文件列表缓存")
+    @Parameter(in = ParameterIn.PATH, name = "storageId", description = "存储源 id", required = true, schema = @Schema(type = "integer"))
+    @DeleteMapping("/storage/{storageId}/cache")
+    public AjaxJson<Void> clearFileListCache(@PathVariable Integer storageId) {
+        fileListCacheSynchronizer.clear(StorageSourceContext.getByStorageId(storageId));
+        return AjaxJson.getSuccess();
+    }
+
+
+    @ApiOperationSupport(order = 13)
+    @Operation(summary = "获取存储源启动初始化报告", description ="获取启动时每个存储源的初始化状态及耗时")
+    @GetMapping("/storage/init/report")
+    public AjaxJson<List<StorageSourceInitResult>> storageInitReport() {
+        return AjaxJson.getSuccessData(storageSourceInitializer.getInitReport());
+    }
+
+
+    @ApiOperationSupport(order = 14)
+    @Operation(summary = "获取存储源连接池统计信息", description ="获取所有使用连接池的存储源 (如 FTP) 的活跃、空闲连接数及等待时间等统计信息")
+    @GetMapping("/storage/pool/stats")
+    public AjaxJson<List<ConnectionPoolStatsResult>> connectionPoolStats() {
+        return AjaxJson.getSuccessData(StorageSourceContext.getAllConnectionPoolStats());
+    }
+
+
+    @ApiOperationSupport(order = 15)
+    @Operation(summary = "获取存储源上传会话统计信息", description ="获取 OneDrive / SharePoint 类存储源代理上传的上传次数、重试次数、续传次数及平均上传速度等统计信息")
+    @GetMapping("/storage/upload/stats")
+    public AjaxJson<List<UploadSessionStatsResult>> uploadSessionStats() {
+        return AjaxJson.getSuccessData(StorageSourceContext.getAllUploadSessionStats());
+    }
+
+
+    @ApiOperationSupport(order = 16)
+    @Operation(summary = "获取存储源 HTTP 客户端统计信息", description ="获取基于 HTTP 接口的存储源 (如 OneDrive, Google Drive, 115) 的连接池使用情况、请求数、失败数及响应时间等统计信息")
+    @GetMapping("/storage/http/stats")
+    public AjaxJson<List<HttpClientStatsResult>> httpClientStats() {
+        return AjaxJson.getSuccessData(StorageSourceContext.getAllHttpClientStats());
+    }
+
+
+    @ApiOperationSupport(order = 17)
+    @Operation(summary = "获取存储源令牌刷新状态", description ="获取需要刷新令牌的存储源 (如 OneDrive, Google Drive, 115, 多吉云) 的令牌过期时间、下次刷新时间及最近的刷新结果")
+    @GetMapping("/storage/token/stats")
+    public AjaxJson<List<RefreshTokenStateResult>> refreshTokenStats() {
+        return AjaxJson.getSuccessData(refreshTokenScheduler.getStates());
+    }
+
+}
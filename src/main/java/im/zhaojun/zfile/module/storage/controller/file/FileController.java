@@ -1,11 +1,16 @@
 package im.zhaojun.zfile.module.storage.controller.file;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.xiaoymin.knife4j.annotations.ApiOperationSupport;
 import com.github.xiaoymin.knife4j.annotations.ApiSort;
+import im.zhaojun.zfile.core.constant.MdcConstant;
 import im.zhaojun.zfile.core.exception.ErrorCode;
 import im.zhaojun.zfile.core.exception.biz.InvalidStorageSourceBizException;
 import im.zhaojun.zfile.core.exception.core.BizException;
 import im.zhaojun.zfile.core.util.AjaxJson;
+import im.zhaojun.zfile.core.util.StringUtils;
 import im.zhaojun.zfile.core.util.ZFileAuthUtil;
 import im.zhaojun.zfile.module.storage.annotation.CheckPassword;
 import im.zhaojun.zfile.module.storage.annotation.ProCheck;
@@ -13,22 +18,29 @@ import im.zhaojun.zfile.module.storage.chain.FileChain;
 import im.zhaojun.zfile.module.storage.chain.FileContext;
 import im.zhaojun.zfile.module.storage.context.StorageSourceContext;
 import im.zhaojun.zfile.module.storage.convert.StorageSourceConvert;
+import im.zhaojun.zfile.module.storage.model.bo.FileListPage;
 import im.zhaojun.zfile.module.storage.model.entity.StorageSource;
 import im.zhaojun.zfile.module.storage.model.request.base.FileItemRequest;
+import im.zhaojun.zfile.module.storage.model.request.base.FileListPageRequest;
 import im.zhaojun.zfile.module.storage.model.request.base.FileListRequest;
 import im.zhaojun.zfile.module.storage.model.request.base.SearchStorageRequest;
 import im.zhaojun.zfile.module.storage.model.result.FileInfoResult;
 import im.zhaojun.zfile.module.storage.model.result.FileItemResult;
+import im.zhaojun.zfile.module.storage.model.result.FileListPageResult;
 import im.zhaojun.zfile.module.storage.model.result.StorageSourceResult;
 import im.zhaojun.zfile.module.storage.service.StorageSourceService;
 import im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
@@ -52,6 +64,9 @@ public class FileController {
 	@Resource
 	private StorageSourceConvert storageSourceConvert;
 	
+	@Resource
+	private ObjectMapper objectMapper;
+	
 	
 	@ApiOperationSupport(order = 1)
 	@Operation(summary = "获取存储源列表", description = "获取所有已启用的存储源, 并且按照后台顺序排序")
@@ -125,4 +140,96 @@ public class FileController {
 		return AjaxJson.getSuccessData(fileItemResult);
 	}
 	
-}
\ No newline at end of file
+	
+	@ApiOperationSupport(order = 4)
+	@Operation(summary = "分页获取文件列表", description = "分页获取某个存储源下, 指定路径的文件&文件夹列表, 支持的存储源会直接透传存储源自身的分页标识. 文件按存储源返回的顺序输出, 不支持排序, 会忽略排序字段.")
+	@PostMapping("/files/page")
+	public AjaxJson<FileListPageResult> listPage(@Valid @RequestBody FileListPageRequest fileListPageRequest) throws Exception {
+		Integer storageId = getStorageIdByKey(fileListPageRequest.getStorageKey());
+		
+		// 处理请求参数默认值
+		fileListPageRequest.handleDefaultValue();
+		
+		// 获取当前页文件列表
+		AbstractBaseFileService<?> fileService = StorageSourceContext.getByStorageId(storageId);
+		FileListPage fileListPage = fileService.fileListPage(fileListPageRequest.getPath(),
+				fileListPageRequest.getPageToken(), fileListPageRequest.getPageSize());
+		
+		// 执行责任链
+		FileContext fileContext = executeFileChain(storageId, fileListPageRequest, fileService, fileListPage.getFileItemList());
+		
+		return AjaxJson.getSuccessData(new FileListPageResult(fileContext.getFileItemList(),
+				fileContext.getPasswordPattern(), fileListPage.getNextPageToken()));
+	}
+	
+	
+	@ApiOperationSupport(order = 5)
+	@Operation(summary = "流式获取文件列表", description = "逐页读取某个存储源下指定路径的文件列表, 并逐页写出 JSON, 适用于超大文件夹, 内存占用与文件夹大小无关. 不支持排序, 返回格式同获取文件列表接口.")
+	@PostMapping("/files/stream")
+	public void listStream(@Valid @RequestBody FileListPageRequest fileListPageRequest, HttpServletResponse response) throws Exception {
+		Integer storageId = getStorageIdByKey(fileListPageRequest.getStorageKey());
+		
+		// 处理请求参数默认值, 与分页获取相同, 不支持排序.
+		fileListPageRequest.handleDefaultValue();
+		
+		String path = fileListPageRequest.getPath();
+		Integer pageSize = fileListPageRequest.getPageSize();
+		AbstractBaseFileService<?> fileService = StorageSourceContext.getByStorageId(storageId);
+		
+		// 在写出响应前先获取并处理第一页, 使权限、密码校验等异常可以按正常的错误格式返回.
+		FileListPage fileListPage = fileService.fileListPage(path, fileListPageRequest.getPageToken(), pageSize);
+		FileContext fileContext = executeFileChain(storageId, fileListPageRequest, fileService, fileListPage.getFileItemList());
+		
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		
+		// 响应已开始写出后再发生异常时, 只能中断输出, 客户端会收到不完整的 JSON.
+		try (JsonGenerator jsonGenerator = objectMapper.createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+			jsonGenerator.writeStartObject();
+			jsonGenerator.writeStringField("code", AjaxJson.CODE_SUCCESS);
+			jsonGenerator.writeStringField("msg", "ok");
+			jsonGenerator.writeObjectFieldStart("data");
+			jsonGenerator.writeStringField("passwordPattern", fileContext.getPasswordPattern());
+			jsonGenerator.writeArrayFieldStart("files");
+			while (true) {
+				for (FileItemResult fileItemResult : fileContext.getFileItemList()) {
+					jsonGenerator.writeObject(fileItemResult);
+				}
+				jsonGenerator.flush();
+				
+				String nextPageToken = fileListPage.getNextPageToken();
+				if (StringUtils.isEmpty(nextPageToken)) {
+					break;
+				}
+				fileListPage = fileService.fileListPage(path, nextPageToken, pageSize);
+				fileContext = executeFileChain(storageId, fileListPageRequest, fileService, fileListPage.getFileItemList());
+			}
+			jsonGenerator.writeEndArray();
+			jsonGenerator.writeEndObject();
+			jsonGenerator.writeStringField("traceId", MDC.get(MdcConstant.TRACE_ID));
+			jsonGenerator.writeEndObject();
+		}
+	}
+	
+	
+	private Integer getStorageIdByKey(String storageKey) {
+		Integer storageId = storageSourceService.findIdByKey(storageKey);
+		if (storageId == null) {
+			throw new InvalidStorageSourceBizException(storageKey);
+		}
+		return storageId;
+	}
+	
+	
+	private FileContext executeFileChain(Integer storageId, FileListPageRequest fileListPageRequest,
+										 AbstractBaseFileService<?> fileService, List<FileItemResult> fileItemList) throws Exception {
+		FileContext fileContext = FileContext.builder()
+				.storageId(storageId)
+				.fileListRequest(fileListPageRequest)
+				.fileItemList(fileItemList)
+				.fileService(fileService)
+				.build();
+		return fileChain.execute(fileContext);
+	}
+	
+}
@@ -1,29 +1,50 @@
 package im.zhaojun.zfile.module.storage.controller.proxy;
 
+import cn.hutool.core.util.HexUtil;
+import im.zhaojun.zfile.core.constant.ZFileHttpHeaderConstant;
 import im.zhaojun.zfile.core.exception.ErrorCode;
 import im.zhaojun.zfile.core.exception.core.BizException;
+import im.zhaojun.zfile.core.io.UploadVerifyInputStream;
 import im.zhaojun.zfile.core.util.AjaxJson;
+import im.zhaojun.zfile.core.util.FileUtils;
 import im.zhaojun.zfile.core.util.StringUtils;
 import im.zhaojun.zfile.core.util.SpringMvcUtils;
 import im.zhaojun.zfile.module.storage.context.StorageSourceContext;
 import im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService;
 import im.zhaojun.zfile.module.storage.service.base.AbstractProxyTransferService;
+import im.zhaojun.zfile.module.storage.support.FileListCacheSynchronizer;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.beans.Beans;
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.security.MessageDigest;
 
 /**
  * 服务端代理上传 Controller
  *
  * @author zhaojun
  */
+@Slf4j
 @Tag(name = "服务端代理上传")
 @RestController
 public class ProxyUploadController {
 
-	@PutMapping("/file/upload/{storageKey}/**")
+	/**
+	 * 流式上传时请求体的读取缓冲区大小
+	 */
+	private static final int STREAM_UPLOAD_BUFFER_SIZE = 64 * 1024;
+
+	@Resource
+	private FileListCacheSynchronizer fileListCacheSynchronizer;
+
+	@PutMapping(value = "/file/upload/{storageKey}/**", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
 	@ResponseBody
 	public AjaxJson<?> upload(@RequestParam MultipartFile file, @PathVariable("storageKey") String storageKey, @RequestParam(value = "filename", required = false) String filename) throws Exception {
 		if (file == null) {
@@ -31,20 +52,111 @@ public class ProxyUploadController {
 		}
 
 		// 获取上传路径
-		String filePath = SpringMvcUtils.getExtractPathWithinPattern();
-		filePath = filename != null ? filePath + StringUtils.SLASH + filename : filePath;
+		String filePath = getUploadFilePath(filename);
 
-		AbstractBaseFileService<?> storageServiceByKey = StorageSourceContext.getByStorageKey(storageKey);
+		AbstractProxyTransferService<?> proxyUploadService = getProxyUploadService(storageKey);
 
 		// 如果不是 ProxyTransferService, 则返回错误信息.
-		if (storageServiceByKey == null || !Beans.isInstanceOf(storageServiceByKey, AbstractProxyTransferService.class)) {
+		if (proxyUploadService == null) {
 			return AjaxJson.getError("存储类型异常，不支持上传.");
 		}
 
 		// 进行上传.
-		AbstractProxyTransferService<?> proxyUploadService = (AbstractProxyTransferService<?>) storageServiceByKey;
 		proxyUploadService.uploadFile(filePath, file.getInputStream(), file.getSize());
 		return AjaxJson.getSuccess();
 	}
 
-}
\ No newline at end of file
+
+	/**
+	 * 流式上传, 请求体即为文件内容 (非 multipart 请求), 直接将请求输入流交给存储源上传, 不会先缓存到临时文件.
+	 * <br>
+	 * 必须指定 Content-Length, 可以通过 {@link ZFileHttpHeaderConstant#UPLOAD_CHECKSUM_SHA256} 请求头指定文件的 SHA-256 校验值,
+	 * 上传过程中会校验实际接收的大小和校验值, 不一致时上传失败, 并清理已写入存储源的文件.
+	 */
+	@PutMapping("/file/upload/{storageKey}/**")
+	@ResponseBody
+	public AjaxJson<?> streamUpload(HttpServletRequest request, @PathVariable("storageKey") String storageKey, @RequestParam(value = "filename", required = false) String filename) throws Exception {
+		long contentLength = request.getContentLengthLong();
+		if (contentLength < 0) {
+			throw new BizException(ErrorCode.BIZ_UPLOAD_CONTENT_LENGTH_REQUIRED);
+		}
+
+		byte[] expectedDigest = null;
+		String checksum = request.getHeader(ZFileHttpHeaderConstant.UPLOAD_CHECKSUM_SHA256);
+		if (StringUtils.isNotBlank(checksum)) {
+			if (!checksum.matches("[0-9a-fA-F]{64}")) {
+				throw new BizException(ErrorCode.BIZ_UPLOAD_CHECKSUM_INVALID);
+			}
+			expectedDigest = HexUtil.decodeHex(checksum);
+		}
+
+		// 获取上传路径
+		String filePath = getUploadFilePath(filename);
+
+		AbstractProxyTransferService<?> proxyUploadService = getProxyUploadService(storageKey);
+
+		// 如果不是 ProxyTransferService, 则返回错误信息.
+		if (proxyUploadService == null) {
+			return AjaxJson.getError("存储类型异常，不支持上传.");
+		}
+
+		UploadVerifyInputStream verifyInputStream = new UploadVerifyInputStream(request.getInputStream(), filePath, contentLength,
+				expectedDigest == null ? null : MessageDigest.getInstance("SHA-256"), expectedDigest);
+
+		// 进行上传.
+		try (InputStream inputStream = new BufferedInputStream(verifyInputStream, STREAM_UPLOAD_BUFFER_SIZE)) {
+			proxyUploadService.uploadFile(filePath, inputStream, contentLength);
+		} catch (Exception e) {
+			// 上传过程中校验失败导致的异常, 返回校验失败的原因.
+			if (verifyInputStream.getFailure() != null) {
+				log.warn("流式上传 {} 校验失败: {}, 已接收 {} 字节", filePath, verifyInputStream.getFailure().getMessage(), verifyInputStream.getTransferredBytes());
+				discardFailedUpload(proxyUploadService, filePath, false);
+				throw new BizException(verifyInputStream.getFailure());
+			}
+			throw e;
+		}
+
+		// 存储源可能没有读取到流末尾, 上传完成后进行最终校验, 校验失败时删除已上传的文件.
+		ErrorCode failure = verifyInputStream.verify();
+		if (failure != null) {
+			log.warn("流式上传 {} 校验失败: {}, 已接收 {} 字节, 将删除已上传的文件.", filePath, failure.getMessage(), verifyInputStream.getTransferredBytes());
+			discardFailedUpload(proxyUploadService, filePath, true);
+			throw new BizException(failure);
+		}
+		return AjaxJson.getSuccess();
+	}
+
+
+	/**
+	 * 清理校验失败的上传已写入存储源的文件 (不经过删除权限校验, 见 {@link AbstractProxyTransferService#discardFailedUpload}),
+	 * 并使所在文件夹的文件列表缓存失效.
+	 */
+	private void discardFailedUpload(AbstractProxyTransferService<?> proxyUploadService, String filePath, boolean uploadCompleted) {
+		if (proxyUploadService.discardFailedUpload(filePath, uploadCompleted)) {
+			fileListCacheSynchronizer.invalidateWithParents(proxyUploadService,
+					StringUtils.concat(proxyUploadService.getCurrentUserBasePath(), FileUtils.getParentPath(filePath)));
+		}
+	}
+
+
+	/**
+	 * 获取上传文件路径, 以 . 开头的文件名通过 filename 参数传递.
+	 */
+	private String getUploadFilePath(String filename) {
+		String filePath = SpringMvcUtils.getExtractPathWithinPattern();
+		return filename != null ? filePath + StringUtils.SLASH + filename : filePath;
+	}
+
+
+	/**
+	 * 获取支持代理上传的存储源, 不存在或不支持代理上传时返回 null.
+	 */
+	private AbstractProxyTransferService<?> getProxyUploadService(String storageKey) {
+		AbstractBaseFileService<?> storageServiceByKey = StorageSourceContext.getByStorageKey(storageKey);
+		if (storageServiceByKey == null || !Beans.isInstanceOf(storageServiceByKey, AbstractProxyTransferService.class)) {
+			return null;
+		}
+		return (AbstractProxyTransferService<?>) storageServiceByKey;
+	}
+
+}
@@ -0,0 +1,28 @@
+package im.zhaojun.zfile.module.storage.model.bo;
+
+import im.zhaojun.zfile.module.storage.model.result.FileItemResult;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 分页获取的文件列表
+ *
+ * @author zhaojun
+ */
+@Data
+@AllArgsConstructor
+public class FileListPage {
+
+	/**
+	 * 当前页的文件列表
+	 */
+	private List<FileItemResult> fileItemList;
+
+	/**
+	 * 下一页的分页标识, 为空表示没有下一页.
+	 */
+	private String nextPageToken;
+
+}
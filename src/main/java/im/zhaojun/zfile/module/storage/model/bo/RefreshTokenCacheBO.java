@@ -18,8 +18,22 @@ public class RefreshTokenCacheBO {
 
 	private static final Cache<Integer, RefreshTokenInfo> REFRESH_TOKEN_INFO_CACHE = CacheUtil.newFIFOCache(1024);
 
+	/**
+	 * 令牌剩余有效期小于此值时视为不可用, 单位: 毫秒.
+	 */
+	private static final long USABLE_MIN_REMAINING_MILLIS = 30 * 1000L;
+
+	/**
+	 * 写入刷新令牌信息. 写入刷新失败的信息时, 如果之前的令牌仍可用, 则保留之前的令牌, 在其过期前继续使用.
+	 */
 	public static void putRefreshTokenInfo(Integer storageId, RefreshTokenInfo refreshTokenInfo) {
 		refreshTokenInfo.setStorageId(storageId);
+		if (!refreshTokenInfo.isSuccess() && refreshTokenInfo.getData() == null) {
+			RefreshTokenInfo oldRefreshTokenInfo = REFRESH_TOKEN_INFO_CACHE.get(storageId);
+			if (oldRefreshTokenInfo != null && oldRefreshTokenInfo.isUsable()) {
+				refreshTokenInfo.setData(oldRefreshTokenInfo.getData());
+			}
+		}
 		REFRESH_TOKEN_INFO_CACHE.put(storageId, refreshTokenInfo);
 	}
 
@@ -75,6 +89,17 @@ public class RefreshTokenCacheBO {
 			return timeDiff < 5 * 60 * 1000L;
 		}
 
+		/**
+		 * 令牌是否仍可使用, 即使刷新失败或即将过期 ({@link #isExpired()}), 只要未到过期时间仍可继续使用.
+		 */
+		public boolean isUsable() {
+			if (data == null || data.getExpiredAt() == null) {
+				return false;
+			}
+
+			return data.getExpiredAt() * 1000L - System.currentTimeMillis() > USABLE_MIN_REMAINING_MILLIS;
+		}
+
 	}
 
 }
\ No newline at end of file
@@ -155,6 +155,21 @@ public class StorageSourceAllParamDTO implements Serializable {
     @Schema(title = "最大连接数", example = "8")
     private Integer maxConnections;
 
+    @Schema(title = "下载最大连接数", example = "16")
+    private Integer maxDownloadConnections;
+
+    @Schema(title = "下载预读请求数", example = "64")
+    private Integer readAheadRequests;
+
+    @Schema(title = "最小空闲连接数", example = "0")
+    private Integer minIdle;
+
+    @Schema(title = "空闲连接回收时间(秒)", example = "300")
+    private Integer maxIdleTime;
+
+    @Schema(title = "保活检测间隔(秒)", example = "60")
+    private Integer keepAliveInterval;
+
     @Schema(title = "下载链接强制下载", example = "true")
     private boolean proxyLinkForceDownload;
 
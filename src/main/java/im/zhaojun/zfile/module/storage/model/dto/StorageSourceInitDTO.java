@@ -23,6 +23,9 @@ public class StorageSourceInitDTO {
     @Schema(title = "存储源类型", example = "ftp")
     private StorageTypeEnum type;
 
+    @Schema(title = "是否开启缓存", example = "true")
+    private Boolean enableCache;
+
     @Schema(title = "存储源参数")
     List<StorageSourceConfig> storageSourceConfigList;
 
@@ -32,6 +35,7 @@ public class StorageSourceInitDTO {
         storageSourceInitDTO.setType(storageSource.getType());
         storageSourceInitDTO.setName(storageSource.getName());
         storageSourceInitDTO.setKey(storageSource.getKey());
+        storageSourceInitDTO.setEnableCache(storageSource.getEnableCache());
         storageSourceInitDTO.setStorageSourceConfigList(storageSourceConfigList);
         return storageSourceInitDTO;
     }
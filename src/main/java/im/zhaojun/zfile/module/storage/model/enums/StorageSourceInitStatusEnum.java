@@ -0,0 +1,44 @@
+package im.zhaojun.zfile.module.storage.model.enums;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 存储源启动初始化状态枚举
+ *
+ * @author zhaojun
+ */
+@Getter
+@AllArgsConstructor
+public enum StorageSourceInitStatusEnum {
+
+	/**
+	 * 等待初始化 (等待可用的初始化线程)
+	 */
+	WAITING("waiting"),
+
+	/**
+	 * 初始化中
+	 */
+	INITIALIZING("initializing"),
+
+	/**
+	 * 初始化成功
+	 */
+	SUCCESS("success"),
+
+	/**
+	 * 初始化失败
+	 */
+	FAILED("failed"),
+
+	/**
+	 * 初始化超时
+	 */
+	TIMEOUT("timeout");
+
+	@JsonValue
+	private final String value;
+
+}
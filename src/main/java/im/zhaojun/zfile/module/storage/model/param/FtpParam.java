@@ -56,4 +56,19 @@ public class FtpParam extends ProxyTransferParam {
 	@StorageParamItem(name = "支持 Range", condition = "domain==", type = StorageParamTypeEnum.SWITCH, defaultValue = "false", description = "启用后会支持多线程下载、断点续传、下载显示进度，但会对 FTP 服务端带来更大压力", order = 9)
 	private boolean enableRange;
 
+	@StorageParamItem(name = "最大连接数", defaultValue = "16", description = "用于浏览、上传、文件操作的最大连接数，要确保 FTP 服务端允许的单用户连接数大于这个值与下载最大连接数之和.", order = 10)
+	private Integer maxConnections;
+
+	@StorageParamItem(name = "下载最大连接数", condition = "domain==", defaultValue = "16", description = "代理下载使用独立的连接，下载时间较长时不会占用浏览和文件操作的连接.", order = 11)
+	private Integer maxDownloadConnections;
+
+	@StorageParamItem(name = "最小空闲连接数", defaultValue = "0", description = "始终保持的空闲连接数，可减少建立连接的耗时.", order = 12)
+	private Integer minIdle;
+
+	@StorageParamItem(name = "空闲连接回收时间（秒）", defaultValue = "300", description = "超过最小空闲连接数的连接，空闲超过该时间后会被关闭.", order = 13)
+	private Integer maxIdleTime;
+
+	@StorageParamItem(name = "保活检测间隔（秒）", defaultValue = "60", description = "每隔该时间向空闲连接发送 NOOP 命令检测连接是否可用，同时避免连接因空闲被服务端断开，应小于服务端的空闲超时时间.", order = 14)
+	private Integer keepAliveInterval;
+
 }
\ No newline at end of file
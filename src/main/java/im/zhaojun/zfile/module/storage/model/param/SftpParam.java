@@ -44,4 +44,10 @@ public class SftpParam extends ProxyTransferParam {
     @StorageParamItem(name = "最大连接数", defaultValue = "8", description = "要确保你服务器 SSH 的可用连接数大于这个值，不然可能会报错 channel is not opened.", order = 9)
     private Integer maxConnections;
 
+    @StorageParamItem(name = "下载最大连接数", condition = "domain==", defaultValue = "8", description = "代理下载使用独立的连接，下载时间较长时不会占用浏览和文件操作的连接. 同样需要确保服务器 SSH 的可用连接数足够.", order = 11)
+    private Integer maxDownloadConnections;
+
+    @StorageParamItem(name = "下载预读请求数", condition = "domain==", defaultValue = "64", description = "下载时同时发出的读取请求数 (每个请求约 32KB)，服务器延迟较高时增大该值可提高下载速度，但会占用更多内存.", order = 12)
+    private Integer readAheadRequests;
+
 }
\ No newline at end of file
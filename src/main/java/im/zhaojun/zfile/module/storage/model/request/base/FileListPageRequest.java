@@ -0,0 +1,52 @@
+package im.zhaojun.zfile.module.storage.model.request.base;
+
+import im.zhaojun.zfile.core.util.StringUtils;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 分页获取文件夹下文件列表请求参数
+ *
+ * @author zhaojun
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Schema(description = "分页获取文件夹下文件列表请求类")
+public class FileListPageRequest extends FileListRequest {
+
+	/**
+	 * 默认每页条数
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 200;
+
+	@Schema(title = "分页标识, 获取第一页时为空, 之后传入上一页返回的 nextPageToken", example = "1GZhbGwxMDA=")
+	private String pageToken;
+
+	@Schema(title = "每页条数, 默认 200, 最大 1000. 部分存储源每页实际返回的条数可能少于此值.", example = "200")
+	@Min(value = 1, message = "每页条数不能小于 1")
+	@Max(value = 1000, message = "每页条数不能大于 1000")
+	private Integer pageSize;
+
+	/**
+	 * 处理默认值, 与 {@link FileListRequest#handleDefaultValue()} 不同的是, 分页获取时忽略排序字段, 文件按存储源返回的顺序输出.
+	 * 每页单独排序无法得到整体有序的结果, 需要排序时由客户端在获取全部文件后排序, 或使用获取完整文件列表的接口.
+	 */
+	@Override
+	public void handleDefaultValue() {
+		if (StringUtils.isEmpty(getPath())) {
+			setPath("/");
+		}
+		setOrderBy(null);
+		setOrderDirection(null);
+		if (pageSize == null) {
+			pageSize = DEFAULT_PAGE_SIZE;
+		}
+
+		// 自动补全路径, 如 a 补全为 /a/
+		setPath(StringUtils.concat(getPath()));
+	}
+
+}
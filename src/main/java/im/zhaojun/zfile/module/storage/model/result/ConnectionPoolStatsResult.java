@@ -0,0 +1,60 @@
+package im.zhaojun.zfile.module.storage.model.result;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 存储源连接池统计信息结果类
+ *
+ * @author zhaojun
+ */
+@Data
+@Schema(description = "存储源连接池统计信息结果类")
+public class ConnectionPoolStatsResult {
+
+	@Schema(title = "存储源 ID", example = "1")
+	private Integer storageId;
+
+	@Schema(title = "存储源名称", example = "FTP 存储")
+	private String storageName;
+
+	@Schema(title = "连接池名称", example = "download")
+	private String poolName;
+
+	@Schema(title = "最大连接数", example = "16")
+	private Integer maxTotal;
+
+	@Schema(title = "最小空闲连接数", example = "0")
+	private Integer minIdle;
+
+	@Schema(title = "使用中的连接数", example = "2")
+	private Integer active;
+
+	@Schema(title = "空闲连接数", example = "3")
+	private Integer idle;
+
+	@Schema(title = "等待获取连接的线程数", example = "0")
+	private Integer waiters;
+
+	@Schema(title = "累计借出次数", example = "100")
+	private Long borrowedCount;
+
+	@Schema(title = "累计创建连接数", example = "5")
+	private Long createdCount;
+
+	@Schema(title = "累计销毁连接数", example = "1")
+	private Long destroyedCount;
+
+	@Schema(title = "因空闲被回收的连接数", example = "1")
+	private Long destroyedByEvictorCount;
+
+	@Schema(title = "最近借出连接的平均等待时间, 单位: 毫秒", example = "0")
+	private Long meanBorrowWaitMillis;
+
+	@Schema(title = "借出连接的最长等待时间, 单位: 毫秒", example = "10")
+	private Long maxBorrowWaitMillis;
+
+	@Schema(title = "最近连接的平均使用时间, 单位: 毫秒", example = "50")
+	private Long meanActiveMillis;
+
+}
@@ -0,0 +1,51 @@
+package im.zhaojun.zfile.module.storage.model.result;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 存储源文件列表缓存统计信息结果类
+ *
+ * @author zhaojun
+ */
+@Data
+@Schema(description = "存储源文件列表缓存统计信息结果类")
+public class FileListCacheStatsResult {
+
+	@Schema(title = "存储源 ID", example = "1")
+	private Integer storageId;
+
+	@Schema(title = "存储源名称", example = "阿里云 OSS 存储")
+	private String storageName;
+
+	@Schema(title = "当前缓存文件夹数", example = "10")
+	private Integer size;
+
+	@Schema(title = "当前缓存占用字节数 (估算值)", example = "10240")
+	private Long bytes;
+
+	@Schema(title = "最大缓存文件夹数", example = "1000")
+	private Integer maxEntries;
+
+	@Schema(title = "最大缓存占用字节数", example = "67108864")
+	private Long maxBytes;
+
+	@Schema(title = "缓存过期时间, 单位: 秒", example = "60")
+	private Long ttl;
+
+	@Schema(title = "命中次数", example = "100")
+	private Long hitCount;
+
+	@Schema(title = "未命中次数", example = "10")
+	private Long missCount;
+
+	@Schema(title = "因容量限制淘汰次数", example = "0")
+	private Long evictionCount;
+
+	@Schema(title = "过期淘汰次数", example = "5")
+	private Long expiredCount;
+
+	@Schema(title = "因文件操作失效次数", example = "2")
+	private Long invalidateCount;
+
+}
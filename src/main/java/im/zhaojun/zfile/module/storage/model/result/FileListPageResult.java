@@ -0,0 +1,28 @@
+package im.zhaojun.zfile.module.storage.model.result;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 分页文件列表信息结果类
+ *
+ * @author zhaojun
+ */
+@Data
+@Schema(title="分页文件列表信息结果类")
+@AllArgsConstructor
+public class FileListPageResult {
+
+	@Schema(title="当前页文件列表")
+	private List<FileItemResult> files;
+
+	@Schema(title="当前目录密码路径表达式")
+	private String passwordPattern;
+
+	@Schema(title="下一页的分页标识, 为空表示没有下一页", example = "1GZhbGwxMDA=")
+	private String nextPageToken;
+
+}
@@ -0,0 +1,54 @@
+package im.zhaojun.zfile.module.storage.model.result;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 存储源 HTTP 客户端统计信息结果类
+ *
+ * @author zhaojun
+ */
+@Data
+@Schema(description = "存储源 HTTP 客户端统计信息结果类")
+public class HttpClientStatsResult {
+
+	@Schema(title = "存储源 ID", example = "1")
+	private Integer storageId;
+
+	@Schema(title = "存储源名称", example = "OneDrive 存储")
+	private String storageName;
+
+	@Schema(title = "最大连接数", example = "200")
+	private Integer maxConnections;
+
+	@Schema(title = "每个目标主机的最大连接数", example = "50")
+	private Integer maxConnectionsPerRoute;
+
+	@Schema(title = "使用中的连接数", example = "2")
+	private Integer leased;
+
+	@Schema(title = "空闲连接数", example = "3")
+	private Integer available;
+
+	@Schema(title = "等待获取连接的请求数", example = "0")
+	private Integer pending;
+
+	@Schema(title = "累计请求数", example = "100")
+	private Long requestCount;
+
+	@Schema(title = "累计失败请求数 (网络异常或 5xx 响应)", example = "1")
+	private Long errorCount;
+
+	@Schema(title = "累计被限流的请求数 (429 响应)", example = "0")
+	private Long throttledCount;
+
+	@Schema(title = "平均响应时间 (收到响应头的时间), 单位: 毫秒", example = "120")
+	private Long meanLatencyMillis;
+
+	@Schema(title = "最长响应时间 (收到响应头的时间), 单位: 毫秒", example = "1500")
+	private Long maxLatencyMillis;
+
+	@Schema(title = "代理下载连接池统计信息, 未进行过代理下载或不支持时为空")
+	private HttpClientStatsResult downloadStats;
+
+}
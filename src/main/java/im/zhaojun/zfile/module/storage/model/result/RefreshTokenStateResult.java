@@ -0,0 +1,50 @@
+package im.zhaojun.zfile.module.storage.model.result;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 存储源令牌刷新状态结果类
+ *
+ * @author zhaojun
+ */
+@Data
+@Schema(description = "存储源令牌刷新状态结果类")
+public class RefreshTokenStateResult {
+
+	@Schema(title = "存储源 ID", example = "1")
+	private Integer storageId;
+
+	@Schema(title = "存储源名称", example = "OneDrive 存储")
+	private String storageName;
+
+	@Schema(title = "当前令牌过期时间")
+	private Date expiredAt;
+
+	@Schema(title = "下次后台刷新时间, 未启用后台刷新时为空")
+	private Date nextRefreshTime;
+
+	@Schema(title = "最后一次刷新时间")
+	private Date lastRefreshTime;
+
+	@Schema(title = "最后一次刷新是否成功", example = "true")
+	private Boolean lastRefreshSuccess;
+
+	@Schema(title = "最后一次刷新失败的原因")
+	private String lastErrorMsg;
+
+	@Schema(title = "连续刷新失败次数", example = "0")
+	private Integer consecutiveFailures;
+
+	@Schema(title = "累计刷新次数", example = "10")
+	private Long refreshCount;
+
+	@Schema(title = "累计刷新失败次数", example = "0")
+	private Long failureCount;
+
+	@Schema(title = "是否正在刷新", example = "false")
+	private Boolean refreshing;
+
+}
@@ -0,0 +1,42 @@
+package im.zhaojun.zfile.module.storage.model.result;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import im.zhaojun.zfile.module.storage.model.enums.StorageSourceInitStatusEnum;
+import im.zhaojun.zfile.module.storage.model.enums.StorageTypeEnum;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 存储源启动初始化结果类
+ *
+ * @author zhaojun
+ */
+@Data
+@Schema(description = "存储源启动初始化结果类")
+public class StorageSourceInitResult {
+
+	@Schema(title = "存储源 ID", example = "1")
+	private Integer storageId;
+
+	@Schema(title = "存储源名称", example = "阿里云 OSS 存储")
+	private String storageName;
+
+	@Schema(title = "存储源类型")
+	private StorageTypeEnum storageType;
+
+	@Schema(title = "初始化状态", example = "success")
+	private StorageSourceInitStatusEnum status;
+
+	@Schema(title = "开始初始化时间", example = "2022-01-01 12:00:00")
+	@JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+	private Date startTime;
+
+	@Schema(title = "初始化耗时, 单位: 毫秒", example = "1200")
+	private Long costMillis;
+
+	@Schema(title = "失败原因", example = "连接超时")
+	private String errorMsg;
+
+}
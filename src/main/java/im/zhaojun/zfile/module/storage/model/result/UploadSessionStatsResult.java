@@ -0,0 +1,60 @@
+package im.zhaojun.zfile.module.storage.model.result;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 存储源上传会话统计信息结果类
+ *
+ * @author zhaojun
+ */
+@Data
+@Schema(description = "存储源上传会话统计信息结果类")
+public class UploadSessionStatsResult {
+
+	@Schema(title = "存储源 ID", example = "1")
+	private Integer storageId;
+
+	@Schema(title = "存储源名称", example = "OneDrive 存储")
+	private String storageName;
+
+	@Schema(title = "分片大小, 单位: 字节", example = "10485760")
+	private Long fragmentSize;
+
+	@Schema(title = "可用的分片缓冲区数量", example = "6")
+	private Integer availableBuffers;
+
+	@Schema(title = "上传中的文件数", example = "1")
+	private Integer activeUploads;
+
+	@Schema(title = "等待续传的上传会话数", example = "0")
+	private Integer pendingSessions;
+
+	@Schema(title = "累计上传文件数", example = "100")
+	private Long uploadCount;
+
+	@Schema(title = "累计上传成功文件数", example = "98")
+	private Long successCount;
+
+	@Schema(title = "累计上传失败文件数", example = "2")
+	private Long failCount;
+
+	@Schema(title = "累计续传文件数", example = "1")
+	private Long resumeCount;
+
+	@Schema(title = "累计上传分片数", example = "1000")
+	private Long fragmentCount;
+
+	@Schema(title = "累计分片重试次数", example = "3")
+	private Long retryCount;
+
+	@Schema(title = "累计上传字节数", example = "10485760000")
+	private Long uploadedBytes;
+
+	@Schema(title = "续传时跳过的已上传字节数", example = "0")
+	private Long skippedBytes;
+
+	@Schema(title = "平均上传速度, 单位: 字节/秒", example = "10485760")
+	private Long throughput;
+
+}
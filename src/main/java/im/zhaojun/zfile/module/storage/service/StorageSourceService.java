@@ -288,31 +288,73 @@ public class StorageSourceService {
 
 
     /**
-     * 保存存储源基本信息及其对应的参数设置
+     * 保存存储源基本信息及其对应的参数设置, 并根据参数初始化存储源.
+     * <br>
+     * 初始化存储源时会请求远程存储 (测试连接等), 耗时不可控, 所以不放在数据库事务中执行, 避免长时间占用数据库写锁.
+     * 数据库保存成功后再进行初始化, 如果初始化失败: 新增的存储源会被删除, 修改的存储源会恢复为修改前的信息及参数, 与保存失败时的效果一致.
      *
      * @param   saveStorageSourceRequest
      *          存储源 DTO 对象
      */
-    @Transactional(rollbackFor = Exception.class)
     public Integer saveStorageSource(SaveStorageSourceRequest saveStorageSourceRequest) {
+        StorageSourceService proxy = (StorageSourceService) AopContext.currentProxy();
         boolean isSave = ObjUtil.isEmpty(saveStorageSourceRequest.getId());
 
         log.info("尝试保存存储源, id: {}, name: {}, key: {}, type: {}",
                 saveStorageSourceRequest.getId(), saveStorageSourceRequest.getName(),
                 saveStorageSourceRequest.getKey(), saveStorageSourceRequest.getType().getDescription());
 
-        // 转换为存储源 entity 对象
-        StorageSource storageSource = storageSourceConvert.saveRequestToEntity(saveStorageSourceRequest);
-        storageSource.setSearchMode(SearchModeEnum.SEARCH_ALL_MODE);
-
-        // 如果是更新，则销毁之前的存储源上下文
+        // 如果是更新，则记录修改前的信息用于初始化失败时恢复，并销毁之前的存储源上下文
+        StorageSource originStorageSource = null;
+        List<StorageSourceConfig> originConfigList = null;
         if (!isSave) {
-            StorageSource dbStorageSource = ((StorageSourceService) AopContext.currentProxy()).findById(saveStorageSourceRequest.getId());
+            StorageSource dbStorageSource = proxy.findById(saveStorageSourceRequest.getId());
             if (dbStorageSource != null) {
+                originStorageSource = new StorageSource();
+                BeanUtils.copyProperties(dbStorageSource, originStorageSource);
+                originConfigList = copyConfigList(storageSourceConfigService.selectStorageConfigByStorageId(dbStorageSource.getId()));
                 StorageSourceContext.destroy(dbStorageSource);
             }
         }
 
+        StorageSourceInitDTO storageSourceInitDTO = proxy.saveStorageSourceAndConfig(saveStorageSourceRequest);
+        Integer storageId = storageSourceInitDTO.getId();
+
+        // 初始化并检查是否可用
+        try {
+            StorageSourceContext.init(storageSourceInitDTO);
+        } catch (Exception e) {
+            log.warn("根据参数初始化存储源失败, 撤销本次保存, id: {}, name: {}", storageId, storageSourceInitDTO.getName());
+            if (isSave) {
+                proxy.deleteById(storageId);
+            } else if (originStorageSource != null) {
+                restoreStorageSource(proxy, originStorageSource, originConfigList);
+            }
+            throw e;
+        }
+        log.info("根据参数初始化存储源成功, id: {}, name: {}, config size: {}",
+                storageId, storageSourceInitDTO.getName(), storageSourceInitDTO.getStorageSourceConfigList().size());
+
+        return storageId;
+    }
+
+
+    /**
+     * 在事务中保存存储源基本信息及其对应的参数设置, 新增存储源时根据用户设置为用户添加默认权限.
+     *
+     * @param   saveStorageSourceRequest
+     *          存储源 DTO 对象
+     *
+     * @return  存储源初始化对象
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public StorageSourceInitDTO saveStorageSourceAndConfig(SaveStorageSourceRequest saveStorageSourceRequest) {
+        boolean isSave = ObjUtil.isEmpty(saveStorageSourceRequest.getId());
+
+        // 转换为存储源 entity 对象
+        StorageSource storageSource = storageSourceConvert.saveRequestToEntity(saveStorageSourceRequest);
+        storageSource.setSearchMode(SearchModeEnum.SEARCH_ALL_MODE);
+
         // 保存或更新存储源
         StorageSource dbSaveResult = ((StorageSourceService)AopContext.currentProxy()).saveOrUpdate(storageSource);
 
@@ -329,22 +371,62 @@ public class StorageSourceService {
                                                                     dbSaveResult.getType(),
                                                                     saveStorageSourceRequest.getStorageSourceAllParam());
         storageSourceConfigService.saveBatch(storageId, storageSourceConfigList);
-        log.info("保存存储源参数成功，尝试根据参数初始化存储源, id: {}, name: {}, config size: {}",
+        log.info("保存存储源参数成功, id: {}, name: {}, config size: {}",
                 dbSaveResult.getId(), dbSaveResult.getName(), storageSourceConfigList.size());
 
-        // 初始化并检查是否可用
-        StorageSourceInitDTO storageSourceInitDTO = StorageSourceInitDTO.convert(dbSaveResult, storageSourceConfigList);
-        StorageSourceContext.init(storageSourceInitDTO);
-        log.info("根据参数初始化存储源成功, id: {}, name: {}, config size: {}",
-                dbSaveResult.getId(), dbSaveResult.getName(), storageSourceConfigList.size());
-
-
         // 如果是新增存储源，根据用户设置为用户添加默认权限
         if (isSave) {
             userStorageSourceService.addDefaultPermissionsForAllUsersInStorageSource(storageId);
         }
 
-        return storageId;
+        return StorageSourceInitDTO.convert(dbSaveResult, storageSourceConfigList);
+    }
+
+
+    /**
+     * 在事务中恢复存储源基本信息及其对应的参数设置.
+     *
+     * @param   storageSource
+     *          存储源对象
+     *
+     * @param   storageSourceConfigList
+     *          存储源参数列表
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void restoreStorageSourceAndConfig(StorageSource storageSource, List<StorageSourceConfig> storageSourceConfigList) {
+        ((StorageSourceService)AopContext.currentProxy()).saveOrUpdate(storageSource);
+        storageSourceConfigService.saveBatch(storageSource.getId(), storageSourceConfigList);
+    }
+
+
+    /**
+     * 恢复存储源为修改前的信息及参数, 并尝试按原参数重新初始化. 恢复失败时只记录日志, 不影响原异常的抛出.
+     */
+    private void restoreStorageSource(StorageSourceService proxy, StorageSource originStorageSource, List<StorageSourceConfig> originConfigList) {
+        try {
+            proxy.restoreStorageSourceAndConfig(originStorageSource, originConfigList);
+            StorageSourceContext.init(StorageSourceInitDTO.convert(originStorageSource, originConfigList));
+        } catch (Exception e) {
+            log.error("恢复存储源修改前的配置失败, id: {}, name: {}", originStorageSource.getId(), originStorageSource.getName(), e);
+        }
+    }
+
+
+    /**
+     * 复制存储源参数列表并清空 id, 避免修改缓存中的对象, 且可重新插入.
+     */
+    private List<StorageSourceConfig> copyConfigList(List<StorageSourceConfig> storageSourceConfigList) {
+        List<StorageSourceConfig> result = new ArrayList<>();
+        if (storageSourceConfigList == null) {
+            return result;
+        }
+        for (StorageSourceConfig storageSourceConfig : storageSourceConfigList) {
+            StorageSourceConfig copy = new StorageSourceConfig();
+            BeanUtils.copyProperties(storageSourceConfig, copy);
+            copy.setId(null);
+            result.add(copy);
+        }
+        return result;
     }
 
 
@@ -1,27 +1,39 @@
 package im.zhaojun.zfile.module.storage.service.base;
 
 import cn.hutool.core.util.ObjUtil;
+import im.zhaojun.zfile.core.config.ZFileProperties;
 import im.zhaojun.zfile.core.exception.ErrorCode;
 import im.zhaojun.zfile.core.exception.biz.InitializeStorageSourceBizException;
-import im.zhaojun.zfile.core.util.StrPool;
+import im.zhaojun.zfile.core.exception.core.BizException;
 import im.zhaojun.zfile.core.util.StringUtils;
 import im.zhaojun.zfile.core.util.ZFileAuthUtil;
 import im.zhaojun.zfile.module.share.context.ShareAccessContext;
+import im.zhaojun.zfile.module.storage.model.bo.FileListPage;
 import im.zhaojun.zfile.module.storage.model.bo.StorageSourceMetadata;
 import im.zhaojun.zfile.module.storage.model.param.IStorageParam;
+import im.zhaojun.zfile.module.storage.model.result.FileItemResult;
+import im.zhaojun.zfile.module.storage.support.FileListCache;
+import im.zhaojun.zfile.module.storage.support.FileListPageSnapshotCache;
 import im.zhaojun.zfile.module.user.model.constant.UserConstant;
-import im.zhaojun.zfile.module.user.model.entity.UserStorageSource;
 import im.zhaojun.zfile.module.user.service.UserStorageSourceService;
 import jakarta.annotation.Resource;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author zhaojun
  */
 @Slf4j
 public abstract class AbstractBaseFileService<P extends IStorageParam> implements BaseFileService {
 
+    /**
+     * 默认分页实现的分页标识中, 快照 ID 与偏移量的分隔符
+     */
+    private static final String SNAPSHOT_PAGE_TOKEN_DELIMITER = ":";
+
     @Resource
     private UserStorageSourceService userStorageSourceService;
 
@@ -49,6 +61,17 @@ public abstract class AbstractBaseFileService<P extends IStorageParam> implement
     @Getter
     private String name;
 
+    /**
+     * 文件列表缓存, 未开启缓存时为 null.
+     */
+    @Getter
+    private FileListCache fileListCache;
+
+    /**
+     * 默认分页实现使用的文件列表快照
+     */
+    private final FileListPageSnapshotCache fileListPageSnapshotCache = new FileListPageSnapshotCache();
+
     public void init(String name, Integer storageId, P param) {
         if (!ObjUtil.hasNull(this.name, this.storageId, this.param)) {
             throw new IllegalStateException("请勿重复初始化");
@@ -67,6 +90,95 @@ public abstract class AbstractBaseFileService<P extends IStorageParam> implement
      */
     public abstract void init();
 
+    /**
+     * 开启文件列表缓存, 需在 {@link #testConnection()} 之后调用, 避免缓存测试连接时获取的文件列表.
+     *
+     * @param   fileListCacheProperties
+     *          文件列表缓存配置
+     */
+    public void enableFileListCache(ZFileProperties.FileListCacheProperties fileListCacheProperties) {
+        this.fileListCache = new FileListCache(fileListCacheProperties.getTtl(),
+                fileListCacheProperties.getMaxEntries(),
+                fileListCacheProperties.getMaxBytes());
+    }
+
+    /**
+     * 分页获取指定文件夹下的文件列表.
+     * <br>
+     * 默认实现会获取完整的文件列表后按偏移量截取, 并将完整列表保存为快照, 后续页从快照中截取, 不再重复获取.
+     * 分页标识格式为 快照 ID:偏移量. 支持服务端分页的存储源应重写此方法, 直接透传存储源的分页标识,
+     * 避免超大文件夹一次性加载到内存中.
+     *
+     * @param   folderPath
+     *          文件夹路径
+     *
+     * @param   pageToken
+     *          分页标识, 获取第一页时为空
+     *
+     * @param   pageSize
+     *          每页条数 (存储源实际返回的条数可能少于此值)
+     *
+     * @return  当前页的文件列表及下一页的分页标识
+     */
+    public FileListPage fileListPage(String folderPath, String pageToken, int pageSize) throws Exception {
+        String fullPath = StringUtils.concat(getCurrentUserBasePath(), folderPath);
+        String snapshotId = null;
+        int offset = 0;
+        if (StringUtils.isNotEmpty(pageToken)) {
+            int index = pageToken.indexOf(SNAPSHOT_PAGE_TOKEN_DELIMITER);
+            if (index <= 0) {
+                throw new BizException(ErrorCode.BIZ_INVALID_PAGE_TOKEN);
+            }
+            snapshotId = pageToken.substring(0, index);
+            offset = parseOffsetPageToken(pageToken.substring(index + 1));
+        }
+
+        // 多取一条, 用于判断是否还有下一页.
+        List<FileItemResult> pageItemList = snapshotId == null ? null
+                : fileListPageSnapshotCache.getRange(snapshotId, fullPath, offset, offset + pageSize + 1);
+
+        // 第一页, 或快照已过期被淘汰时, 获取完整列表并保存快照.
+        if (pageItemList == null) {
+            List<FileItemResult> fileItemList = fileList(folderPath);
+            snapshotId = null;
+            if (fileItemList.size() > offset + pageSize) {
+                snapshotId = fileListPageSnapshotCache.put(fullPath, fileItemList);
+            }
+            int size = fileItemList.size();
+            pageItemList = new ArrayList<>(fileItemList.subList(Math.min(offset, size), Math.min(offset + pageSize + 1, size)));
+        }
+
+        if (pageItemList.size() <= pageSize) {
+            return new FileListPage(pageItemList, null);
+        }
+        pageItemList.remove(pageItemList.size() - 1);
+        String nextPageToken = snapshotId + SNAPSHOT_PAGE_TOKEN_DELIMITER + (offset + pageSize);
+        return new FileListPage(pageItemList, nextPageToken);
+    }
+
+    /**
+     * 解析以偏移量作为分页标识的 pageToken, 为空时表示第一页.
+     *
+     * @param   pageToken
+     *          分页标识
+     *
+     * @return  偏移量
+     */
+    protected int parseOffsetPageToken(String pageToken) {
+        if (StringUtils.isEmpty(pageToken)) {
+            return 0;
+        }
+        try {
+            int offset = Integer.parseInt(pageToken);
+            if (offset < 0) {
+                throw new BizException(ErrorCode.BIZ_INVALID_PAGE_TOKEN);
+            }
+            return offset;
+        } catch (NumberFormatException e) {
+            throw new BizException(ErrorCode.BIZ_INVALID_PAGE_TOKEN);
+        }
+    }
+
     /**
      * 测试是否连接成功, 会尝试取调用获取根路径的文件, 如果没有抛出异常, 则认为连接成功.
      */
@@ -92,17 +204,12 @@ public abstract class AbstractBaseFileService<P extends IStorageParam> implement
             return ShareAccessContext.getShareBasePath();
         }
         
-        // 原有逻辑保持不变
+        // 原有逻辑保持不变, 同一请求内只查询一次
         Integer userId = ZFileAuthUtil.getCurrentUserId();
         if (!this.isInitialized) {
             userId = UserConstant.ADMIN_ID;
         }
-        UserStorageSource userStorageSource = userStorageSourceService.getByUserIdAndStorageId(userId, storageId);
-        if (userStorageSource == null || StringUtils.isEmpty(userStorageSource.getRootPath())) {
-            return StrPool.SLASH;
-        } else {
-            return userStorageSource.getRootPath();
-        }
+        return userStorageSourceService.getStorageAccess(userId, storageId).getBasePath();
     }
 
 
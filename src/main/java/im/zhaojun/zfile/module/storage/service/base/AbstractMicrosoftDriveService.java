@@ -10,15 +10,20 @@ import cn.hutool.jwt.JWTPayload;
 import cn.hutool.jwt.JWTUtil;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
+import im.zhaojun.zfile.core.config.ZFileProperties;
+import im.zhaojun.zfile.core.constant.ZFileHttpHeaderConstant;
 import im.zhaojun.zfile.core.exception.ErrorCode;
 import im.zhaojun.zfile.core.exception.core.BizException;
 import im.zhaojun.zfile.core.exception.core.SystemException;
 import im.zhaojun.zfile.core.exception.status.NotFoundAccessException;
 import im.zhaojun.zfile.core.exception.system.UploadFileFailSystemException;
 import im.zhaojun.zfile.core.util.FileUtils;
+import im.zhaojun.zfile.core.util.PageTokenUtils;
 import im.zhaojun.zfile.core.util.RequestHolder;
 import im.zhaojun.zfile.core.util.StringUtils;
 import im.zhaojun.zfile.module.storage.constant.StorageConfigConstant;
+import im.zhaojun.zfile.module.storage.context.RefreshTokenScheduler;
+import im.zhaojun.zfile.module.storage.model.bo.FileListPage;
 import im.zhaojun.zfile.module.storage.model.bo.RefreshTokenCacheBO;
 import im.zhaojun.zfile.module.storage.model.bo.StorageSourceMetadata;
 import im.zhaojun.zfile.module.storage.model.dto.RefreshTokenInfoDTO;
@@ -26,21 +31,21 @@ import im.zhaojun.zfile.module.storage.model.entity.StorageSourceConfig;
 import im.zhaojun.zfile.module.storage.model.enums.FileTypeEnum;
 import im.zhaojun.zfile.module.storage.model.param.MicrosoftDriveParam;
 import im.zhaojun.zfile.module.storage.model.result.FileItemResult;
+import im.zhaojun.zfile.module.storage.model.result.HttpClientStatsResult;
+import im.zhaojun.zfile.module.storage.model.result.UploadSessionStatsResult;
 import im.zhaojun.zfile.module.storage.oauth2.service.IOAuth2Service;
 import im.zhaojun.zfile.module.storage.service.StorageSourceConfigService;
+import im.zhaojun.zfile.module.storage.support.DownloadUrlCache;
+import im.zhaojun.zfile.module.storage.support.http.StorageHttpClient;
+import im.zhaojun.zfile.module.storage.support.microsoft.MicrosoftUploadSessionUploader;
 import jakarta.annotation.Nullable;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.hc.client5.http.classic.HttpClient;
-import org.apache.hc.client5.http.config.RequestConfig;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
-import org.apache.hc.core5.util.Timeout;
 import org.springframework.http.*;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
-import org.springframework.util.StreamUtils;
 import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -50,11 +55,17 @@ import java.util.*;
  * @author zhaojun
  */
 @Slf4j
-public abstract class AbstractMicrosoftDriveService<P extends MicrosoftDriveParam> extends AbstractProxyTransferService<P> implements RefreshTokenService {
+public abstract class AbstractMicrosoftDriveService<P extends MicrosoftDriveParam> extends AbstractProxyTransferService<P> implements RefreshTokenService, HttpClientService {
 
     @Resource
     private StorageSourceConfigService storageSourceConfigService;
 
+    @Resource
+    private ZFileProperties zFileProperties;
+
+    @Resource
+    private RefreshTokenScheduler refreshTokenScheduler;
+
     /**
      * 获取根文件 API URI
      */
@@ -85,6 +96,11 @@ public abstract class AbstractMicrosoftDriveService<P extends MicrosoftDrivePara
      */
     protected static final String CREATE_UPLOAD_SESSION_URL = "https://{graphEndPoint}/v1.0/{type}/drive/root:{path}:/createUploadSession";
 
+    /**
+     * 上传小文件 API, 用于上传空文件 (上传会话不支持空文件).
+     */
+    protected static final String DRIVER_ITEM_CONTENT_URL = "https://{graphEndPoint}/v1.0/{type}/drive/root:{path}:/content";
+
     /**
      * 复制文件 API
      */
@@ -96,10 +112,25 @@ public abstract class AbstractMicrosoftDriveService<P extends MicrosoftDrivePara
     private static final String ONE_DRIVE_FILE_FLAG = "file";
 
     /*
-     * 设置 RestTemplate 使用 Netty 底层实现，默认的实现不支持 PATCH 请求
+     * 设置 RestTemplate 使用 HttpClient 连接池实现，默认的实现不支持 PATCH 请求
      */
     private volatile RestTemplate restTemplate;
 
+    /**
+     * 当前存储源的 HTTP 连接池
+     */
+    private volatile StorageHttpClient storageHttpClient;
+
+    /**
+     * 代理上传时使用的上传会话上传器
+     */
+    private volatile MicrosoftUploadSessionUploader uploadSessionUploader;
+
+    /**
+     * 直链下载地址缓存
+     */
+    private volatile DownloadUrlCache downloadUrlCache;
+
     @Override
     public void init() {
         Integer refreshTokenExpiredAt = param.getRefreshTokenExpiredAt();
@@ -129,12 +160,9 @@ public abstract class AbstractMicrosoftDriveService<P extends MicrosoftDrivePara
         if (restTemplate == null) {
             synchronized (this) {
                 if (restTemplate == null) {
-                    restTemplate = new RestTemplate();
                     int timeoutSecond = param.getProxyUploadTimeoutSecond() == null ? 0 : param.getProxyUploadTimeoutSecond();
-                    RequestConfig requestConfig = RequestConfig.custom().setResponseTimeout(Timeout.ofSeconds(timeoutSecond)).build();
-                    HttpClient httpClient = HttpClientBuilder.create().setDefaultRequestConfig((requestConfig)).build();
-                    HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
-                    restTemplate.setRequestFactory(requestFactory);
+                    storageHttpClient = new StorageHttpClient(zFileProperties.getHttpClient(), timeoutSecond);
+                    restTemplate = new RestTemplate(storageHttpClient.getRequestFactory());
                 }
             }
         }
@@ -150,40 +178,95 @@ public abstract class AbstractMicrosoftDriveService<P extends MicrosoftDrivePara
         String nextPageLink = null;
 
         do {
-            String requestUrl;
-
-            // 如果有下一页链接，则优先取下一页
-            // 如果没有则判断是根目录还是子目录
-            if (nextPageLink != null) {
-                nextPageLink = nextPageLink.replace("+", "%2B");
-                requestUrl = URLUtil.decode(nextPageLink);
-            } else if (StringUtils.SLASH.equalsIgnoreCase(fullPath) || "".equalsIgnoreCase(fullPath)) {
-                requestUrl = DRIVER_ROOT_URL;
-            } else {
-                requestUrl = DRIVER_ITEMS_URL;
-            }
-
-            HttpEntity<Object> entity = getAuthorizationHttpEntity();
-            JSONObject root = getRestTemplate().exchange(requestUrl, HttpMethod.GET, entity, JSONObject.class, getGraphEndPoint(), getType(), fullPath).getBody();
-            if (root == null) {
-                return Collections.emptyList();
-            }
-
-            JSONArray fileList = root.getJSONArray("value");
-            for (int i = 0; i < fileList.size(); i++) {
-                JSONObject fileItem = fileList.getJSONObject(i);
-                FileItemResult fileItemResult = jsonToFileItem(fileItem, folderPath);
-                if (param.isEnableProxyDownload() && StringUtils.isEmpty(param.getProxyDomain())) {
-                    fileItemResult.setUrl(getProxyDownloadUrl(StringUtils.concat(getCurrentUserBasePath(), folderPath, fileItemResult.getName())));
-                }
-                result.add(fileItemResult);
-            }
-    
-            nextPageLink = root.getString("@odata.nextLink");
+            FileListPage fileListPage = requestFileListPage(fullPath, folderPath, nextPageLink, null);
+            result.addAll(fileListPage.getFileItemList());
+            nextPageLink = fileListPage.getNextPageToken();
         } while (nextPageLink != null);
     
         return result;
     }
+
+
+    /**
+     * 分页获取文件列表, 使用签名后的 Graph API @odata.nextLink 作为分页标识.
+     * <br>
+     * 下一页地址中包含文件夹信息, 签名绑定了存储源和当前文件夹的完整路径, 防止客户端伪造地址请求其他文件夹或任意地址,
+     * 绕过基础路径、密码文件夹及过滤规则的校验.
+     */
+    @Override
+    public FileListPage fileListPage(String folderPath, String pageToken, int pageSize) {
+        String fullPath = StringUtils.concatTrimEndSlashes(param.getBasePath(), getCurrentUserBasePath(), folderPath);
+        String nextPageLink = PageTokenUtils.verify(storageId, fullPath, pageToken);
+        // 签名密钥泄露时的兜底校验, 下一页地址只能是当前 Graph API 地址.
+        if (nextPageLink != null && !StringUtils.startWith(nextPageLink, "https://" + getGraphEndPoint() + "/")) {
+            throw new BizException(ErrorCode.BIZ_INVALID_PAGE_TOKEN);
+        }
+
+        FileListPage fileListPage = requestFileListPage(fullPath, folderPath, nextPageLink, pageSize);
+        fileListPage.setNextPageToken(PageTokenUtils.sign(storageId, fullPath, fileListPage.getNextPageToken()));
+        return fileListPage;
+    }
+
+
+    /**
+     * 请求一页文件列表
+     *
+     * @param   fullPath
+     *          文件夹完整路径 (包含存储源基础路径和用户基础路径)
+     *
+     * @param   folderPath
+     *          文件夹路径
+     *
+     * @param   nextPageLink
+     *          下一页地址, 为空时请求第一页
+     *
+     * @param   pageSize
+     *          每页条数, 为空时使用 Graph API 默认值, 仅请求第一页时有效, 之后的分页地址中已包含此参数.
+     *
+     * @return  当前页的文件列表及下一页地址
+     */
+    private FileListPage requestFileListPage(String fullPath, String folderPath, String nextPageLink, Integer pageSize) {
+        String requestUrl;
+
+        // 如果有下一页链接，则优先取下一页
+        // 如果没有则判断是根目录还是子目录
+        if (nextPageLink != null) {
+            nextPageLink = nextPageLink.replace("+", "%2B");
+            requestUrl = URLUtil.decode(nextPageLink);
+        } else if (StringUtils.SLASH.equalsIgnoreCase(fullPath) || "".equalsIgnoreCase(fullPath)) {
+            requestUrl = DRIVER_ROOT_URL;
+        } else {
+            requestUrl = DRIVER_ITEMS_URL;
+        }
+
+        if (nextPageLink == null && pageSize != null) {
+            requestUrl += "&$top=" + pageSize;
+        }
+
+        DownloadUrlCache urlCache = getDownloadUrlCache();
+        long urlCacheVersion = urlCache == null ? 0 : urlCache.getInvalidateVersion();
+
+        HttpEntity<Object> entity = getAuthorizationHttpEntity();
+        JSONObject root = getRestTemplate().exchange(requestUrl, HttpMethod.GET, entity, JSONObject.class, getGraphEndPoint(), getType(), fullPath).getBody();
+        if (root == null) {
+            return new FileListPage(new ArrayList<>(), null);
+        }
+
+        List<FileItemResult> result = new ArrayList<>();
+        JSONArray fileList = root.getJSONArray("value");
+        for (int i = 0; i < fileList.size(); i++) {
+            JSONObject fileItem = fileList.getJSONObject(i);
+            FileItemResult fileItemResult = jsonToFileItem(fileItem, folderPath);
+            if (param.isEnableProxyDownload() && StringUtils.isEmpty(param.getProxyDomain())) {
+                fileItemResult.setUrl(getProxyDownloadUrl(StringUtils.concat(getCurrentUserBasePath(), folderPath, fileItemResult.getName())));
+            } else if (urlCache != null && fileItemResult.getType() == FileTypeEnum.FILE) {
+                urlCache.put(StringUtils.concat(fullPath, fileItemResult.getName()), fileItemResult.getUrl(), urlCacheVersion);
+            }
+            result.add(fileItemResult);
+        }
+
+        return new FileListPage(result, root.getString("@odata.nextLink"));
+    }
     
     @Override
     public FileItemResult getFileItem(String pathAndName) {
@@ -196,11 +279,18 @@ public abstract class AbstractMicrosoftDriveService<P extends MicrosoftDrivePara
      * 获取原始的 FileItem 信息，尚未按照存储源参数设置代理下载地址
      */
     public FileItemResult getOriginFileItem(String pathAndName) {
+        DownloadUrlCache urlCache = getDownloadUrlCache();
+        long urlCacheVersion = urlCache == null ? 0 : urlCache.getInvalidateVersion();
+
         JSONObject fileItem = getFileOriginInfo(pathAndName);
         if (fileItem == null) return null;
 
         String folderPath = FileUtils.getParentPath(pathAndName);
-        return jsonToFileItem(fileItem, folderPath);
+        FileItemResult fileItemResult = jsonToFileItem(fileItem, folderPath);
+        if (urlCache != null && fileItemResult.getType() == FileTypeEnum.FILE) {
+            urlCache.put(StringUtils.concat(param.getBasePath(), pathAndName), fileItemResult.getUrl(), urlCacheVersion);
+        }
+        return fileItemResult;
     }
 
     @Nullable
@@ -231,6 +321,8 @@ public abstract class AbstractMicrosoftDriveService<P extends MicrosoftDrivePara
 
         HttpEntity<HashMap<Object, Object>> entity = getAuthorizationHttpEntity(data);
         ResponseEntity<JSONObject> responseEntity = getRestTemplate().exchange(requestUrl, HttpMethod.POST, entity, JSONObject.class, getGraphEndPoint(), getType(), fullPath);
+        // 同名文件会被替换为文件夹
+        invalidateDownloadUrl(StringUtils.concat(fullPath, name));
         return responseEntity.getStatusCode().is2xxSuccessful();
     }
 
@@ -245,6 +337,7 @@ public abstract class AbstractMicrosoftDriveService<P extends MicrosoftDrivePara
 
         HttpEntity<Object> entity = getAuthorizationHttpEntity();
         ResponseEntity<JSONObject> responseEntity = getRestTemplate().exchange(DRIVER_ITEM_OPERATOR_URL, HttpMethod.DELETE, entity, JSONObject.class, getGraphEndPoint(), getType(), fullPath);
+        invalidateDownloadUrl(fullPath);
         return responseEntity.getStatusCode().is2xxSuccessful();
     }
 
@@ -256,6 +349,8 @@ public abstract class AbstractMicrosoftDriveService<P extends MicrosoftDrivePara
 
         HttpEntity<Object> entity = getAuthorizationHttpEntity(jsonObject);
         ResponseEntity<JSONObject> responseEntity = getRestTemplate().exchange(DRIVER_ITEM_OPERATOR_URL, HttpMethod.PATCH, entity, JSONObject.class, getGraphEndPoint(), getType(), fullPath);
+        invalidateDownloadUrl(fullPath);
+        invalidateDownloadUrl(StringUtils.concat(param.getBasePath(), getCurrentUserBasePath(), path, newName));
         return responseEntity.getStatusCode().is2xxSuccessful();
     }
 
@@ -269,6 +364,8 @@ public abstract class AbstractMicrosoftDriveService<P extends MicrosoftDrivePara
         if (param.isEnableProxyUpload()) {
             return super.getProxyUploadUrl(path, name);
         }
+        // 由浏览器直接上传到 OneDrive, 无法得知上传完成的时间, 在获取上传地址时删除缓存.
+        invalidateDownloadUrl(StringUtils.concat(param.getBasePath(), getCurrentUserBasePath(), path, name));
         return getOneDriveUploadUrl(StringUtils.concat(getCurrentUserBasePath(), path), name);
     }
 
@@ -292,34 +389,46 @@ public abstract class AbstractMicrosoftDriveService<P extends MicrosoftDrivePara
         String fullPath = StringUtils.concat(getCurrentUserBasePath(), pathAndName);
         String folderPath = FileUtils.getParentPath(fullPath);
         String fileName = FileUtils.getName(fullPath);
-        String uploadUrl = getOneDriveUploadUrl(folderPath, fileName);
 
         try {
-            getRestTemplate().execute(uploadUrl, HttpMethod.PUT, request -> {
-                HttpHeaders headers = request.getHeaders();
-                headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-                headers.setContentLength(size);
-                headers.set(HttpHeaders.CONTENT_RANGE, "bytes 0-" + (size - 1) + StringUtils.SLASH + size);
-                StreamUtils.copy(inputStream, request.getBody());
-            }, clientHttpResponse -> {
-                if (!clientHttpResponse.getStatusCode().is2xxSuccessful()) {
-                    throw new UploadFileFailSystemException(this.getStorageTypeEnum(), pathAndName, size,
-                            clientHttpResponse.getStatusCode().value(), clientHttpResponse.getStatusText());
-                }
-                return null;
-            });
+            if (size == 0) {
+                HttpEntity<byte[]> entity = getAuthorizationHttpEntity(new byte[0]);
+                getRestTemplate().exchange(DRIVER_ITEM_CONTENT_URL, HttpMethod.PUT, entity, JSONObject.class,
+                        getGraphEndPoint(), getType(), StringUtils.concat(param.getBasePath(), fullPath));
+                return;
+            }
+            // 只有客户端提供了文件校验值时才可续传, 避免将不同内容的同名同大小文件续传到之前的上传会话中.
+            String checksum = getUploadChecksum();
+            String sessionKey = checksum == null ? null : StringUtils.concat(param.getBasePath(), fullPath) + ":" + size + ":" + checksum;
+            getUploadSessionUploader().upload(sessionKey, () -> getOneDriveUploadUrl(folderPath, fileName), inputStream, size);
+        } catch (RestClientResponseException e) {
+            throw new UploadFileFailSystemException(this.getStorageTypeEnum(), pathAndName, size,
+                    e.getStatusCode().value(), e.getResponseBodyAsString(), e);
         } catch (Exception e) {
             if (e instanceof ResourceAccessException && e.getMessage() != null && e.getMessage().contains("Timeout on")) {
                 throw new BizException(ErrorCode.BIZ_UPLOAD_FILE_TIMEOUT_ERROR);
             }
             throw new UploadFileFailSystemException(this.getStorageTypeEnum(), pathAndName, size, 500, e.getMessage(), e);
+        } finally {
+            invalidateDownloadUrl(StringUtils.concat(param.getBasePath(), fullPath));
         }
     }
+
     @Override
     public String getDownloadUrl(String pathAndName) {
         if (param.isEnableProxyDownload() && StringUtils.isEmpty(param.getProxyDomain())) {
             return getProxyDownloadUrl(pathAndName);
         }
+        DownloadUrlCache urlCache = getDownloadUrlCache();
+        if (urlCache == null) {
+            return loadDownloadUrl(pathAndName);
+        }
+        // 文件列表和文件信息中返回的下载地址会写入缓存, 未命中时同一文件只请求一次文件信息.
+        String fullPath = StringUtils.concat(param.getBasePath(), getCurrentUserBasePath(), pathAndName);
+        return urlCache.get(fullPath, () -> loadDownloadUrl(pathAndName));
+    }
+
+    private String loadDownloadUrl(String pathAndName) {
         FileItemResult fileItem = getFileItem(pathAndName);
         if (fileItem == null) {
             throw new NotFoundAccessException(ErrorCode.BIZ_FILE_NOT_EXIST);
@@ -370,6 +479,7 @@ public abstract class AbstractMicrosoftDriveService<P extends MicrosoftDrivePara
                                                                                     getGraphEndPoint(),
                                                                                     getType(),
                                                                                     fullPath);
+        invalidateDownloadUrl(StringUtils.concat(param.getBasePath(), targetFullPath, targetName));
         return responseEntity.getStatusCode().is2xxSuccessful();
     }
 
@@ -403,6 +513,8 @@ public abstract class AbstractMicrosoftDriveService<P extends MicrosoftDrivePara
                                                                                     getGraphEndPoint(),
                                                                                     getType(),
                                                                                     fullPath);
+        invalidateDownloadUrl(fullPath);
+        invalidateDownloadUrl(StringUtils.concat(param.getBasePath(), targetFullPath, targetName));
         return responseEntity.getStatusCode().is2xxSuccessful();
     }
 
@@ -596,43 +708,93 @@ public abstract class AbstractMicrosoftDriveService<P extends MicrosoftDrivePara
         return RefreshTokenInfoDTO.success(accessToken, refreshToken, expiresIn);
     }
 
-    @Override
-    public void destroy() {
-        if (restTemplate != null && restTemplate.getRequestFactory() instanceof CloseableHttpClient) {
-            try {
-                ((CloseableHttpClient) restTemplate.getRequestFactory()).close();
-            } catch (IOException e) {
-                log.error("关闭 {} 的 HTTP 客户端失败.", getStorageSimpleInfo(), e);
+    /**
+     * 获取流式上传时客户端通过请求头提供的文件 SHA-256 校验值, 未提供时返回 null.
+     */
+    private static String getUploadChecksum() {
+        if (RequestContextHolder.getRequestAttributes() == null) {
+            return null;
+        }
+        String checksum = RequestHolder.getRequest().getHeader(ZFileHttpHeaderConstant.UPLOAD_CHECKSUM_SHA256);
+        return StringUtils.isBlank(checksum) ? null : checksum.toLowerCase();
+    }
+
+    private MicrosoftUploadSessionUploader getUploadSessionUploader() {
+        if (uploadSessionUploader == null) {
+            synchronized (this) {
+                if (uploadSessionUploader == null) {
+                    uploadSessionUploader = new MicrosoftUploadSessionUploader(getRestTemplate(), zFileProperties.getMicrosoftUploadSession());
+                }
             }
         }
+        return uploadSessionUploader;
     }
 
     /**
-     * 检查 AccessToken 是否过期，如果过期则刷新 AccessToken 并返回新的 AccessToken。
+     * 获取直链下载地址缓存, 未启用时返回 null.
      */
-    private String checkExpiredAndGetAccessToken() {
-        RefreshTokenCacheBO.RefreshTokenInfo refreshTokenInfo = RefreshTokenCacheBO.getRefreshTokenInfo(storageId);
-
-        if (refreshTokenInfo == null || refreshTokenInfo.isExpired()) {
-            // 使用双重检查锁定机制，确保同一个 storageId 只会有一个线程在刷新 AccessToken
-            synchronized (("storage-refresh-" + storageId).intern()) {
-                // 双重检查，再次从缓存中获取，确认是否其他线程已经刷新过
-                refreshTokenInfo = RefreshTokenCacheBO.getRefreshTokenInfo(storageId);
-                if (refreshTokenInfo == null || refreshTokenInfo.isExpired()) {
-                    if (refreshTokenInfo == null || refreshTokenInfo.isExpired()) {
-                        log.info("{} AccessToken 未获取或已过期, 尝试刷新: {}", getStorageSimpleInfo(), refreshTokenInfo);
-                        refreshAccessToken();
-                        refreshTokenInfo = RefreshTokenCacheBO.getRefreshTokenInfo(storageId);
-                    }
+    private DownloadUrlCache getDownloadUrlCache() {
+        ZFileProperties.DownloadUrlCacheProperties downloadUrlCacheProperties = zFileProperties.getDownloadUrlCache();
+        if (!downloadUrlCacheProperties.isEnable()) {
+            return null;
+        }
+        if (downloadUrlCache == null) {
+            synchronized (this) {
+                if (downloadUrlCache == null) {
+                    downloadUrlCache = new DownloadUrlCache(downloadUrlCacheProperties);
                 }
             }
         }
+        return downloadUrlCache;
+    }
+
+    /**
+     * 删除文件或文件夹 (包含其下所有文件) 的直链下载地址缓存
+     *
+     * @param   fullPath
+     *          完整路径 (包含存储源基础路径和用户基础路径)
+     */
+    private void invalidateDownloadUrl(String fullPath) {
+        DownloadUrlCache urlCache = this.downloadUrlCache;
+        if (urlCache != null) {
+            urlCache.invalidate(fullPath);
+        }
+    }
+
+    /**
+     * 获取代理上传的上传会话统计信息
+     *
+     * @return  上传会话统计信息, 未进行过代理上传时返回 null.
+     */
+    public UploadSessionStatsResult getUploadSessionStats() {
+        MicrosoftUploadSessionUploader uploader = this.uploadSessionUploader;
+        return uploader == null ? null : uploader.getStats();
+    }
 
-        if (refreshTokenInfo == null) {
-            throw new SystemException("存储源 " + storageId + " AccessToken 刷新失败: 未找到刷新令牌信息.");
+    @Override
+    public HttpClientStatsResult getHttpClientStats() {
+        StorageHttpClient httpClient = this.storageHttpClient;
+        return httpClient == null ? null : httpClient.getStats();
+    }
+
+    @Override
+    public void destroy() {
+        if (uploadSessionUploader != null) {
+            uploadSessionUploader.cancelAll();
         }
+        if (downloadUrlCache != null) {
+            downloadUrlCache.clear();
+        }
+        if (storageHttpClient != null) {
+            storageHttpClient.close();
+        }
+    }
 
-        return refreshTokenInfo.getData().getAccessToken();
+    /**
+     * 获取可用的 AccessToken, 即将过期时触发后台刷新, 已过期时同步刷新, 见 {@link RefreshTokenScheduler}.
+     */
+    private String checkExpiredAndGetAccessToken() {
+        return refreshTokenScheduler.getRefreshTokenInfo(storageId, this).getData().getAccessToken();
     }
 
 }
\ No newline at end of file
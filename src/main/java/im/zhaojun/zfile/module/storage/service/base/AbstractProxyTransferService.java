@@ -8,6 +8,7 @@ import im.zhaojun.zfile.module.config.service.SystemConfigService;
 import im.zhaojun.zfile.module.storage.model.param.ProxyTransferParam;
 import im.zhaojun.zfile.module.storage.service.StorageSourceService;
 import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 
 import java.io.InputStream;
@@ -17,6 +18,7 @@ import java.io.InputStream;
  *
  * @author zhaojun
  */
+@Slf4j
 public abstract class AbstractProxyTransferService<P extends ProxyTransferParam> extends AbstractBaseFileService<P>{
 
 
@@ -64,6 +66,45 @@ public abstract class AbstractProxyTransferService<P extends ProxyTransferParam>
 	 * @return  默认的代理下载 URL
 	 */
 	public String getProxyDownloadUrl(String pathAndName, boolean useParamDomain) {
+		String urlPrefix;
+
+		// 如果未填写下载域名，则默认使用带来下载地址.
+		if (!useParamDomain || StringUtils.isEmpty(param.getDomain())) {
+			urlPrefix = getProxyDownloadUrlPrefix();
+		} else {
+			urlPrefix = param.getDomain();
+		}
+
+		return getProxyDownloadUrlByPrefix(urlPrefix, pathAndName);
+	}
+
+
+	/**
+	 * 获取默认代理下载 URL 的前缀, 即 系统域名 + {@link #PROXY_DOWNLOAD_LINK_PREFIX} + 存储源 key.
+	 * <br>
+	 * 批量生成下载地址 (如获取文件列表) 时, 可先获取前缀, 再调用 {@link #getProxyDownloadUrlByPrefix(String, String)}, 避免每个文件都重复查询.
+	 *
+	 * @return  默认代理下载 URL 的前缀
+	 */
+	protected String getProxyDownloadUrlPrefix() {
+		String domain = systemConfigService.getAxiosFromDomainOrSetting();
+		String storageKey = storageSourceService.findStorageKeyById(storageId);
+		return StringUtils.concat(domain, PROXY_DOWNLOAD_LINK_PREFIX, storageKey);
+	}
+
+
+	/**
+	 * 根据下载地址前缀获取代理下载 URL.
+	 *
+	 * @param   urlPrefix
+	 *          下载地址前缀
+	 *
+	 * @param   pathAndName
+	 *          文件路径及文件名称
+	 *
+	 * @return  代理下载 URL
+	 */
+	protected String getProxyDownloadUrlByPrefix(String urlPrefix, String pathAndName) {
 		String path = pathAndName;
 
 		UrlBuilder urlBuilder = UrlBuilder.of();
@@ -77,16 +118,7 @@ public abstract class AbstractProxyTransferService<P extends ProxyTransferParam>
 			urlBuilder.addQuery("signature", ProxyDownloadUrlUtils.generatorSignature(storageId, pathAndName, param.getProxyTokenTime()));
 		}
 
-		String url;
-
-		// 如果未填写下载域名，则默认使用带来下载地址.
-		if (!useParamDomain || StringUtils.isEmpty(param.getDomain())) {
-			String domain = systemConfigService.getAxiosFromDomainOrSetting();
-			String storageKey = storageSourceService.findStorageKeyById(storageId);
-			url = StringUtils.concat(domain, PROXY_DOWNLOAD_LINK_PREFIX, storageKey, StringUtils.encodeAllIgnoreSlashes(path));
-		} else {
-			url = StringUtils.concat(param.getDomain(), StringUtils.encodeAllIgnoreSlashes(path));
-		}
+		String url = StringUtils.concat(urlPrefix, StringUtils.encodeAllIgnoreSlashes(path));
 
 		if (StringUtils.isNotEmpty(urlBuilder.getQueryStr())) {
 			url = url + "?" + urlBuilder.getQueryStr();
@@ -154,6 +186,44 @@ public abstract class AbstractProxyTransferService<P extends ProxyTransferParam>
 	 */
 	public abstract ResponseEntity<org.springframework.core.io.Resource> downloadToStream(String pathAndName) throws Exception;
 
+
+	/**
+	 * 清理上传失败 (如流式上传校验失败) 时已写入存储源的文件.
+	 * <br>
+	 * 上传前已校验过上传权限, 这里在存储源内部直接调用删除实现, 不经过删除权限校验的切面, 只有上传权限的用户上传失败时也能清理.
+	 * 上传中途失败时, 只有 {@link #isPartialFileLeftOnUploadFailure()} 为 true 的存储源才会删除, 其他存储源的原文件 (如果存在) 不受影响.
+	 *
+	 * @param   pathAndName
+	 *          文件上传路径
+	 *
+	 * @param   uploadCompleted
+	 *          上传是否已完成 (完成后校验失败), 为 false 表示上传中途失败.
+	 *
+	 * @return  是否删除了文件
+	 */
+	public boolean discardFailedUpload(String pathAndName, boolean uploadCompleted) {
+		if (!uploadCompleted && !isPartialFileLeftOnUploadFailure()) {
+			return false;
+		}
+		try {
+			return deleteFile(FileUtils.getParentPath(pathAndName), FileUtils.getName(pathAndName));
+		} catch (Exception e) {
+			log.error("存储源 {} 清理上传失败的文件 {} 失败.", getStorageId(), pathAndName, e);
+			return false;
+		}
+	}
+
+
+	/**
+	 * 上传中途失败时, 存储源中是否会留下不完整的文件. 直接写入目标文件的存储源 (如 FTP, SFTP) 应返回 true,
+	 * 分片上传失败会中止、或请求失败不会生成文件的存储源返回 false.
+	 *
+	 * @return  是否会留下不完整的文件
+	 */
+	protected boolean isPartialFileLeftOnUploadFailure() {
+		return false;
+	}
+
     protected SystemConfigService getSystemConfigService() {
         return systemConfigService;
     }
@@ -2,6 +2,7 @@ package im.zhaojun.zfile.module.storage.service.base;
 
 import cn.hutool.core.convert.Convert;
 import com.alibaba.fastjson2.JSON;
+import im.zhaojun.zfile.core.config.ZFileProperties;
 import im.zhaojun.zfile.core.exception.ErrorCode;
 import im.zhaojun.zfile.core.exception.biz.CorsBizException;
 import im.zhaojun.zfile.core.exception.core.BizException;
@@ -10,12 +11,16 @@ import im.zhaojun.zfile.core.util.RequestHolder;
 import im.zhaojun.zfile.core.util.RequestUtils;
 import im.zhaojun.zfile.core.util.StringUtils;
 import im.zhaojun.zfile.module.storage.constant.StorageSourceConnectionProperties;
+import im.zhaojun.zfile.module.storage.model.bo.FileListPage;
 import im.zhaojun.zfile.module.storage.model.bo.StorageSourceMetadata;
 import im.zhaojun.zfile.module.storage.model.dto.ZFileCORSRule;
 import im.zhaojun.zfile.module.storage.model.enums.FileTypeEnum;
 import im.zhaojun.zfile.module.storage.model.param.S3BaseParam;
 import im.zhaojun.zfile.module.storage.model.result.FileItemResult;
 import im.zhaojun.zfile.module.storage.service.impl.S3ServiceImpl;
+import im.zhaojun.zfile.module.storage.support.s3.S3FolderOperator;
+import im.zhaojun.zfile.module.storage.support.s3.S3MultipartUploader;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.BooleanUtils;
 import org.springframework.http.HttpRange;
@@ -61,6 +66,14 @@ public abstract class AbstractS3BaseFileService<P extends S3BaseParam> extends A
 
     Consumer<AwsRequestOverrideConfiguration.Builder> unlimitTimeoutBuilderConsumer = builder -> builder.apiCallTimeout(Duration.ofDays(30)).build();
 
+    @Resource
+    private ZFileProperties zFileProperties;
+
+    /**
+     * 分片上传器, 首次代理上传时创建.
+     */
+    private volatile S3MultipartUploader multipartUploader;
+
     @Override
     public List<FileItemResult> fileList(String folderPath) {
         return s3FileList(folderPath);
@@ -138,37 +151,100 @@ public abstract class AbstractS3BaseFileService<P extends S3BaseParam> extends A
                 .build();
         ListObjectsV2Iterable listObjectsV2Iterable = s3ClientNew.listObjectsV2Paginator(listObjectsV2Request);
         for (S3Object s : listObjectsV2Iterable.contents()) {
-            FileItemResult fileItemResult = new FileItemResult();
-            if (s.key().equals(fullPath)) {
-                continue;
+            FileItemResult fileItemResult = s3ObjectToFileItem(s, fullPath, path);
+            if (fileItemResult != null) {
+                fileItemList.add(fileItemResult);
             }
-            fileItemResult.setName(s.key().substring(fullPath.length()));
-            fileItemResult.setSize(s.size());
-            fileItemResult.setTime(Date.from(s.lastModified()));
-            fileItemResult.setType(FileTypeEnum.FILE);
-            fileItemResult.setPath(path);
+        }
 
-            String fullPathAndName = StringUtils.concat(getCurrentUserBasePath(), path, fileItemResult.getName());
-            fileItemResult.setUrl(getDownloadUrl(fullPathAndName));
+        for (CommonPrefix commonPrefix : listObjectsV2Iterable.commonPrefixes()) {
+            FileItemResult fileItemResult = commonPrefixToFileItem(commonPrefix, fullPath, path);
+            if (fileItemResult != null) {
+                fileItemList.add(fileItemResult);
+            }
+        }
 
-            fileItemList.add(fileItemResult);
+        return fileItemList;
+    }
+
+    /**
+     * 分页获取 S3 指定目录下的对象列表, 直接使用 S3 的 ContinuationToken 作为分页标识.
+     */
+    @Override
+    public FileListPage fileListPage(String folderPath, String pageToken, int pageSize) {
+        String fullPath = StringUtils.concatTrimStartSlashes(param.getBasePath(), getCurrentUserBasePath(), folderPath, StringUtils.SLASH);
+
+        ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
+                .bucket(param.getBucketName())
+                .prefix(fullPath)
+                .maxKeys(pageSize)
+                .delimiter(StringUtils.SLASH)
+                .continuationToken(StringUtils.isEmpty(pageToken) ? null : pageToken)
+                .build();
+
+        ListObjectsV2Response listObjectsV2Response;
+        try {
+            listObjectsV2Response = s3ClientNew.listObjectsV2(listObjectsV2Request);
+        } catch (S3Exception e) {
+            // 无效的 ContinuationToken 会返回 400 错误
+            if (StringUtils.isNotEmpty(pageToken) && e.statusCode() == 400) {
+                throw new BizException(ErrorCode.BIZ_INVALID_PAGE_TOKEN);
+            }
+            throw e;
         }
 
-        for (CommonPrefix commonPrefix : listObjectsV2Iterable.commonPrefixes()) {
-            String commonPrefixStr = commonPrefix.prefix();
-            FileItemResult fileItemResult = new FileItemResult();
-            fileItemResult.setName(commonPrefixStr.substring(fullPath.length(), commonPrefixStr.length() - 1));
-            String name = fileItemResult.getName();
-            if (StringUtils.isEmpty(name) || StringUtils.equals(name, StringUtils.SLASH)) {
-                continue;
+        List<FileItemResult> fileItemList = new ArrayList<>();
+        for (S3Object s : listObjectsV2Response.contents()) {
+            FileItemResult fileItemResult = s3ObjectToFileItem(s, fullPath, folderPath);
+            if (fileItemResult != null) {
+                fileItemList.add(fileItemResult);
+            }
+        }
+        for (CommonPrefix commonPrefix : listObjectsV2Response.commonPrefixes()) {
+            FileItemResult fileItemResult = commonPrefixToFileItem(commonPrefix, fullPath, folderPath);
+            if (fileItemResult != null) {
+                fileItemList.add(fileItemResult);
             }
+        }
 
-            fileItemResult.setType(FileTypeEnum.FOLDER);
-            fileItemResult.setPath(path);
-            fileItemList.add(fileItemResult);
+        String nextPageToken = BooleanUtils.isTrue(listObjectsV2Response.isTruncated()) ? listObjectsV2Response.nextContinuationToken() : null;
+        return new FileListPage(fileItemList, nextPageToken);
+    }
+
+    /**
+     * 将 S3 对象转换为文件信息, 如果是目录本身则返回 null.
+     */
+    private FileItemResult s3ObjectToFileItem(S3Object s, String fullPath, String path) {
+        if (s.key().equals(fullPath)) {
+            return null;
         }
+        FileItemResult fileItemResult = new FileItemResult();
+        fileItemResult.setName(s.key().substring(fullPath.length()));
+        fileItemResult.setSize(s.size());
+        fileItemResult.setTime(Date.from(s.lastModified()));
+        fileItemResult.setType(FileTypeEnum.FILE);
+        fileItemResult.setPath(path);
 
-        return fileItemList;
+        String fullPathAndName = StringUtils.concat(getCurrentUserBasePath(), path, fileItemResult.getName());
+        fileItemResult.setUrl(getDownloadUrl(fullPathAndName));
+        return fileItemResult;
+    }
+
+    /**
+     * 将 S3 公共前缀转换为文件夹信息, 如果文件夹名称为空则返回 null.
+     */
+    private FileItemResult commonPrefixToFileItem(CommonPrefix commonPrefix, String fullPath, String path) {
+        String commonPrefixStr = commonPrefix.prefix();
+        FileItemResult fileItemResult = new FileItemResult();
+        fileItemResult.setName(commonPrefixStr.substring(fullPath.length(), commonPrefixStr.length() - 1));
+        String name = fileItemResult.getName();
+        if (StringUtils.isEmpty(name) || StringUtils.equals(name, StringUtils.SLASH)) {
+            return null;
+        }
+
+        fileItemResult.setType(FileTypeEnum.FOLDER);
+        fileItemResult.setPath(path);
+        return fileItemResult;
     }
 
     @Override
@@ -218,9 +294,19 @@ public abstract class AbstractS3BaseFileService<P extends S3BaseParam> extends A
         return deleteObjectResponse != null && deleteObjectResponse.sdkHttpResponse().isSuccessful();
     }
 
+    /**
+     * 删除文件夹, 会删除文件夹下的所有对象.
+     */
     @Override
     public boolean deleteFolder(String path, String name) {
-        return deleteFile(path, name + StringUtils.SLASH);
+        // 文件夹名称为空时前缀为所在文件夹, 会删除所在文件夹下的所有对象.
+        if (StringUtils.isBlank(StringUtils.trimStartSlashes(StringUtils.trimEndSlashes(name)))) {
+            throw new BizException(ErrorCode.BIZ_INVALID_FILE_NAME);
+        }
+        String prefix = StringUtils.concatTrimStartSlashes(param.getBasePath(), getCurrentUserBasePath(), path, name, StringUtils.SLASH);
+        S3FolderOperator.FolderOperationResult result = getFolderOperator().deleteFolder(prefix);
+        checkFolderOperationResult(result, "删除");
+        return true;
     }
 
     @Override
@@ -232,7 +318,7 @@ public abstract class AbstractS3BaseFileService<P extends S3BaseParam> extends A
 
     @Override
     public boolean renameFolder(String path, String name, String newName) {
-        throw new BizException(ErrorCode.BIZ_STORAGE_NOT_SUPPORT_OPERATION);
+        return moveFolder(path, name, path, newName);
     }
 
     @Override
@@ -281,9 +367,12 @@ public abstract class AbstractS3BaseFileService<P extends S3BaseParam> extends A
         return copyObjectResponse != null && copyObjectResponse.sdkHttpResponse().isSuccessful();
     }
 
+    /**
+     * 复制文件夹, 会在服务端复制文件夹下的所有对象.
+     */
     @Override
     public boolean copyFolder(String path, String name, String targetPath, String targetName) {
-        throw new BizException(ErrorCode.BIZ_STORAGE_NOT_SUPPORT_OPERATION);
+        return copyOrMoveFolder(path, name, targetPath, targetName, false);
     }
 
     @Override
@@ -293,9 +382,38 @@ public abstract class AbstractS3BaseFileService<P extends S3BaseParam> extends A
         return true;
     }
 
+    /**
+     * 移动文件夹, 在服务端复制文件夹下的所有对象后, 删除复制成功的源对象.
+     */
     @Override
     public boolean moveFolder(String path, String name, String targetPath, String targetName) {
-        throw new BizException(ErrorCode.BIZ_STORAGE_NOT_SUPPORT_OPERATION);
+        return copyOrMoveFolder(path, name, targetPath, targetName, true);
+    }
+
+    private boolean copyOrMoveFolder(String path, String name, String targetPath, String targetName, boolean deleteSource) {
+        String srcPrefix = StringUtils.concatTrimStartSlashes(param.getBasePath(), getCurrentUserBasePath(), path, name, StringUtils.SLASH);
+        String targetPrefix = StringUtils.concatTrimStartSlashes(param.getBasePath(), getCurrentUserBasePath(), targetPath, targetName, StringUtils.SLASH);
+        // 复制/移动到自身或子文件夹时, 列出源对象的同时会写入新对象, 会无限复制或删除刚复制的对象.
+        if (StringUtils.isBlank(StringUtils.trimStartSlashes(StringUtils.trimEndSlashes(name))) || targetPrefix.startsWith(srcPrefix)) {
+            throw new BizException(ErrorCode.BIZ_FOLDER_TARGET_INVALID);
+        }
+        S3FolderOperator.FolderOperationResult result = getFolderOperator().copyFolder(srcPrefix, targetPrefix, deleteSource);
+        checkFolderOperationResult(result, deleteSource ? "移动" : "复制");
+        return true;
+    }
+
+    private S3FolderOperator getFolderOperator() {
+        return new S3FolderOperator(s3ClientNew, param.getBucketName(), unlimitTimeoutBuilderConsumer);
+    }
+
+    /**
+     * 文件夹操作部分失败时, 抛出包含失败信息的异常.
+     */
+    private void checkFolderOperationResult(S3FolderOperator.FolderOperationResult result, String operatorName) {
+        if (!result.isSuccess()) {
+            throw new BizException(ErrorCode.BIZ_FOLDER_OPERATION_PARTIAL_FAILED.getCode(),
+                    operatorName + "文件夹部分失败, " + result.getSummary());
+        }
     }
 
     protected void setUploadCors() {
@@ -323,6 +441,12 @@ public abstract class AbstractS3BaseFileService<P extends S3BaseParam> extends A
 
         String trimStartPath = StringUtils.concatTrimStartSlashes(param.getBasePath(), getCurrentUserBasePath(), pathAndName);
 
+        S3MultipartUploader multipartUploader = getMultipartUploader();
+        if (multipartUploader.shouldMultipartUpload(size)) {
+            multipartUploader.upload(param.getBucketName(), trimStartPath, contentType, inputStream, size);
+            return;
+        }
+
         s3ClientNew.putObject(PutObjectRequest.builder()
                         .overrideConfiguration(unlimitTimeoutBuilderConsumer)
                         .bucket(param.getBucketName())
@@ -366,10 +490,6 @@ public abstract class AbstractS3BaseFileService<P extends S3BaseParam> extends A
         } else {
             storageSourceMetadata.setUploadType(StorageSourceMetadata.UploadType.S3);
         }
-        storageSourceMetadata.setSupportRenameFolder(false);
-        storageSourceMetadata.setSupportMoveFolder(false);
-        storageSourceMetadata.setSupportCopyFolder(false);
-        storageSourceMetadata.setSupportDeleteNotEmptyFolder(false);
         storageSourceMetadata.setNeedCreateFolderBeforeUpload(false);
         return storageSourceMetadata;
     }
@@ -382,8 +502,25 @@ public abstract class AbstractS3BaseFileService<P extends S3BaseParam> extends A
         return contentType;
     }
 
+    /**
+     * 获取分片上传器, 不存在时创建.
+     */
+    private S3MultipartUploader getMultipartUploader() {
+        if (multipartUploader == null) {
+            synchronized (this) {
+                if (multipartUploader == null) {
+                    multipartUploader = new S3MultipartUploader(s3ClientNew, zFileProperties.getS3MultipartUpload(), unlimitTimeoutBuilderConsumer);
+                }
+            }
+        }
+        return multipartUploader;
+    }
+
     @Override
     public void destroy() {
+        if (this.multipartUploader != null) {
+            this.multipartUploader.abortAll();
+        }
         if (this.s3ClientNew != null) {
             this.s3ClientNew.close();
         }
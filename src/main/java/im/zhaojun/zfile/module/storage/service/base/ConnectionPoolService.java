@@ -0,0 +1,21 @@
+package im.zhaojun.zfile.module.storage.service.base;
+
+import im.zhaojun.zfile.module.storage.model.result.ConnectionPoolStatsResult;
+
+import java.util.List;
+
+/**
+ * 使用连接池的存储源
+ *
+ * @author zhaojun
+ */
+public interface ConnectionPoolService extends BaseFileService {
+
+	/**
+	 * 获取该存储源所有连接池的统计信息
+	 *
+	 * @return	连接池统计信息列表
+	 */
+	List<ConnectionPoolStatsResult> getConnectionPoolStats();
+
+}
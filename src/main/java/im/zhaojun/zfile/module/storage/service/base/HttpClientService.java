@@ -0,0 +1,19 @@
+package im.zhaojun.zfile.module.storage.service.base;
+
+import im.zhaojun.zfile.module.storage.model.result.HttpClientStatsResult;
+
+/**
+ * 使用 HTTP 连接池 ({@link im.zhaojun.zfile.module.storage.support.http.StorageHttpClient}) 的存储源
+ *
+ * @author zhaojun
+ */
+public interface HttpClientService extends BaseFileService {
+
+	/**
+	 * 获取该存储源 HTTP 客户端的统计信息
+	 *
+	 * @return	HTTP 客户端统计信息, 尚未发送过请求时返回 null.
+	 */
+	HttpClientStatsResult getHttpClientStats();
+
+}
@@ -8,12 +8,14 @@ import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
 import im.zhaojun.zfile.core.exception.core.BizException;
 import im.zhaojun.zfile.core.exception.core.SystemException;
+import im.zhaojun.zfile.module.storage.context.RefreshTokenScheduler;
 import im.zhaojun.zfile.module.storage.model.bo.RefreshTokenCacheBO;
 import im.zhaojun.zfile.module.storage.model.dto.RefreshTokenInfoDTO;
 import im.zhaojun.zfile.module.storage.model.enums.StorageTypeEnum;
 import im.zhaojun.zfile.module.storage.model.param.DogeCloudParam;
 import im.zhaojun.zfile.module.storage.service.base.AbstractS3BaseFileService;
 import im.zhaojun.zfile.module.storage.service.base.RefreshTokenService;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
@@ -34,6 +36,9 @@ import java.net.URI;
 @Slf4j
 public class DogeCloudServiceImpl extends AbstractS3BaseFileService<DogeCloudParam> implements RefreshTokenService {
 
+    @Resource
+    private RefreshTokenScheduler refreshTokenScheduler;
+
     private AwsCredentials awsCredentials;
 
     @Override
@@ -127,28 +132,10 @@ public class DogeCloudServiceImpl extends AbstractS3BaseFileService<DogeCloudPar
     }
 
     /**
-     * 检查 AccessToken 是否过期，并获取最新的 AwsCredentials。
+     * 获取可用的 AwsCredentials, 即将过期时触发后台刷新, 已过期时同步刷新, 见 {@link RefreshTokenScheduler}.
      */
     private AwsCredentials checkExpiredAndGetAwsCredentials() {
-        RefreshTokenCacheBO.RefreshTokenInfo refreshTokenInfo = RefreshTokenCacheBO.getRefreshTokenInfo(storageId);
-
-        if (refreshTokenInfo == null || refreshTokenInfo.isExpired()) {
-            // 使用双重检查锁定机制，确保同一个 storageId 只会有一个线程在刷新 AccessToken
-            synchronized (("storage-refresh-" + storageId).intern()) {
-                // 双重检查，再次从缓存中获取，确认是否其他线程已经刷新过
-                refreshTokenInfo = RefreshTokenCacheBO.getRefreshTokenInfo(storageId);
-                if (refreshTokenInfo == null || refreshTokenInfo.isExpired()) {
-                    log.info("{} S3 临时密钥未获取或已过期, 尝试刷新.", getStorageSimpleInfo());
-                    refreshAccessToken();
-                    refreshTokenInfo = RefreshTokenCacheBO.getRefreshTokenInfo(storageId);
-                }
-            }
-        }
-
-        if (refreshTokenInfo == null) {
-            throw new SystemException("存储源 " + storageId + " AccessToken 刷新失败: 未找到刷新令牌信息.");
-        }
-
+        refreshTokenScheduler.getRefreshTokenInfo(storageId, this);
         return awsCredentials;
     }
 
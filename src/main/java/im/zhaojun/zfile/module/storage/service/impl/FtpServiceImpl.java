@@ -13,8 +13,10 @@ import im.zhaojun.zfile.module.storage.model.bo.StorageSourceMetadata;
 import im.zhaojun.zfile.module.storage.model.enums.FileTypeEnum;
 import im.zhaojun.zfile.module.storage.model.enums.StorageTypeEnum;
 import im.zhaojun.zfile.module.storage.model.param.FtpParam;
+import im.zhaojun.zfile.module.storage.model.result.ConnectionPoolStatsResult;
 import im.zhaojun.zfile.module.storage.model.result.FileItemResult;
 import im.zhaojun.zfile.module.storage.service.base.AbstractProxyTransferService;
+import im.zhaojun.zfile.module.storage.service.base.ConnectionPoolService;
 import im.zhaojun.zfile.module.storage.support.ftp.FtpClientFactory;
 import im.zhaojun.zfile.module.storage.support.ftp.FtpClientPool;
 import lombok.extern.slf4j.Slf4j;
@@ -38,10 +40,18 @@ import java.util.*;
 @Service
 @Slf4j
 @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
-public class FtpServiceImpl extends AbstractProxyTransferService<FtpParam> {
+public class FtpServiceImpl extends AbstractProxyTransferService<FtpParam> implements ConnectionPoolService {
 
+    /**
+     * 用于浏览、上传和文件操作的连接池
+     */
     private FtpClientPool ftpClientPool;
 
+    /**
+     * 用于代理下载的连接池, 下载可能长时间占用连接, 与其他操作分开, 避免下载较多时无法浏览文件.
+     */
+    private FtpClientPool downloadClientPool;
+
     public static final String FTP_MODE_ACTIVE = "active";
 
     public static final String FTP_MODE_PASSIVE = "passive";
@@ -50,15 +60,44 @@ public class FtpServiceImpl extends AbstractProxyTransferService<FtpParam> {
     public void init() {
         Charset charset = Charset.forName(param.getEncoding());
         FtpClientFactory factory = new FtpClientFactory(param.getHost(), param.getPort(), param.getUsername(), param.getPassword(), charset, param.getFtpMode());
-        GenericObjectPoolConfig<FtpClientFactory> config = new GenericObjectPoolConfig<>();
-        config.setTestOnBorrow(true);
+        ftpClientPool = new FtpClientPool("default", factory, createPoolConfig(param.getMaxConnections(), param.getMinIdle()));
+        downloadClientPool = new FtpClientPool("download", factory, createPoolConfig(param.getMaxDownloadConnections(), 0));
+    }
+
+    /**
+     * 创建连接池配置, 借出时不检测连接 (只检查本地连接状态), 由后台定时向空闲连接发送 NOOP 检测并保活,
+     * 超过最小空闲连接数的连接空闲超时后关闭.
+     */
+    private GenericObjectPoolConfig<Ftp> createPoolConfig(Integer maxTotal, Integer minIdle) {
+        int maxTotalValue = positiveOrDefault(maxTotal, 8);
+        GenericObjectPoolConfig<Ftp> config = new GenericObjectPoolConfig<>();
+        config.setMaxTotal(maxTotalValue);
+        config.setMaxIdle(maxTotalValue);
+        config.setMinIdle(minIdle == null ? 0 : Math.min(Math.max(minIdle, 0), maxTotalValue));
+        config.setTestOnBorrow(false);
+        config.setTestWhileIdle(true);
+        config.setTimeBetweenEvictionRuns(Duration.ofSeconds(positiveOrDefault(param.getKeepAliveInterval(), 60)));
+        // 每次检测所有空闲连接
+        config.setNumTestsPerEvictionRun(-1);
+        config.setSoftMinEvictableIdleDuration(Duration.ofSeconds(positiveOrDefault(param.getMaxIdleTime(), 300)));
+        // 最小空闲连接数以内的连接不因空闲时间回收, 只在 NOOP 检测失败时回收
+        config.setMinEvictableIdleDuration(Duration.ofMillis(-1));
         config.setMaxWait(Duration.ofSeconds(15));
-        ftpClientPool = new FtpClientPool(factory, config);
+        config.setJmxEnabled(false);
+        return config;
+    }
+
+    private static int positiveOrDefault(Integer value, int defaultValue) {
+        return value == null || value <= 0 ? defaultValue : value;
     }
 
     public Ftp getClientFromPool() {
+        return getClientFromPool(ftpClientPool);
+    }
+
+    private Ftp getClientFromPool(FtpClientPool pool) {
         try {
-            return ftpClientPool.borrowObject();
+            return pool.borrowObject();
         } catch (NoSuchElementException e) {
             throw new BizException(ErrorCode.BIZ_FTP_CLIENT_POOL_FULL);
         } catch (Exception e) {
@@ -190,23 +229,31 @@ public class FtpServiceImpl extends AbstractProxyTransferService<FtpParam> {
 
     @Override
     public ResponseEntity<Resource> downloadToStream(String pathAndName) throws IOException {
-        Ftp ftp = null;
-        try {
-            ftp = getClientFromPool();
-            // 如果配置了域名，还访问代理下载 URL, 则抛出异常进行提示.
-            if (StringUtils.isNotEmpty(param.getDomain())) {
-                throw new BizException(ErrorCode.BIZ_UNSUPPORTED_PROXY_DOWNLOAD);
-            }
+        // 如果配置了域名，还访问代理下载 URL, 则抛出异常进行提示.
+        if (StringUtils.isNotEmpty(param.getDomain())) {
+            throw new BizException(ErrorCode.BIZ_UNSUPPORTED_PROXY_DOWNLOAD);
+        }
 
+        Ftp ftp = getClientFromPool(downloadClientPool);
+        boolean reusable = false;
+        try {
             pathAndName = StringUtils.concat(param.getBasePath(), pathAndName);
             String fileName = FileUtils.getName(pathAndName);
             Long fileSize = param.isEnableRange() ? Convert.toLong(ftp.getClient().getSize(pathAndName),0L) : null;
 
             InputStream inputStream = ftp.getClient().retrieveFileStream(pathAndName);
+            if (inputStream == null) {
+                reusable = true;
+            }
             RequestHolder.writeFile(inputStream, fileName, fileSize, false, param.isProxyLinkForceDownload());
+            // 数据连接关闭后需读取服务端的传输完成响应, 否则连接归还后下一个命令会读到这次传输的响应.
+            ftp.getClient().completePendingCommand();
+            reusable = true;
         } finally {
-            if (ftp != null) {
-                ftpClientPool.returnObject(ftp);
+            if (reusable) {
+                downloadClientPool.returnObject(ftp);
+            } else {
+                downloadClientPool.invalidate(ftp);
             }
         }
         return null;
@@ -219,6 +266,14 @@ public class FtpServiceImpl extends AbstractProxyTransferService<FtpParam> {
     }
 
 
+    /**
+     * 直接写入目标文件, 上传中途失败时会留下不完整的文件.
+     */
+    @Override
+    protected boolean isPartialFileLeftOnUploadFailure() {
+        return true;
+    }
+
     @Override
     public void uploadFile(String pathAndName, InputStream inputStream, Long size) {
         String fullPath = StringUtils.concat(param.getBasePath(), getCurrentUserBasePath(), pathAndName);
@@ -294,11 +349,25 @@ public class FtpServiceImpl extends AbstractProxyTransferService<FtpParam> {
         return StorageTypeEnum.FTP;
     }
 
+    @Override
+    public List<ConnectionPoolStatsResult> getConnectionPoolStats() {
+        List<ConnectionPoolStatsResult> result = new ArrayList<>();
+        for (FtpClientPool pool : Arrays.asList(ftpClientPool, downloadClientPool)) {
+            if (pool != null) {
+                result.add(pool.getStats());
+            }
+        }
+        return result;
+    }
+
     @Override
     public void destroy() {
         if (ftpClientPool != null) {
             ftpClientPool.close();
         }
+        if (downloadClientPool != null) {
+            downloadClientPool.close();
+        }
     }
 
 }
\ No newline at end of file
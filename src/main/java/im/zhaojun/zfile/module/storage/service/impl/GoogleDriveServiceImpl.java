@@ -9,19 +9,19 @@ import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.http.HttpRequest;
 import cn.hutool.http.HttpResponse;
 import cn.hutool.http.HttpUtil;
-import cn.hutool.http.Method;
 import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
+import im.zhaojun.zfile.core.config.ZFileProperties;
 import im.zhaojun.zfile.core.exception.ErrorCode;
 import im.zhaojun.zfile.core.exception.core.BizException;
 import im.zhaojun.zfile.core.exception.core.SystemException;
-import im.zhaojun.zfile.core.util.CollectionUtils;
 import im.zhaojun.zfile.core.util.FileUtils;
 import im.zhaojun.zfile.core.util.RequestHolder;
 import im.zhaojun.zfile.core.util.StringUtils;
 import im.zhaojun.zfile.module.storage.constant.StorageConfigConstant;
-import im.zhaojun.zfile.module.storage.constant.StorageSourceConnectionProperties;
+import im.zhaojun.zfile.module.storage.context.RefreshTokenScheduler;
+import im.zhaojun.zfile.module.storage.model.bo.FileListPage;
 import im.zhaojun.zfile.module.storage.model.bo.RefreshTokenCacheBO;
 import im.zhaojun.zfile.module.storage.model.bo.StorageSourceMetadata;
 import im.zhaojun.zfile.module.storage.model.dto.RefreshTokenInfoDTO;
@@ -30,24 +30,27 @@ import im.zhaojun.zfile.module.storage.model.enums.FileTypeEnum;
 import im.zhaojun.zfile.module.storage.model.enums.StorageTypeEnum;
 import im.zhaojun.zfile.module.storage.model.param.GoogleDriveParam;
 import im.zhaojun.zfile.module.storage.model.result.FileItemResult;
+import im.zhaojun.zfile.module.storage.model.result.HttpClientStatsResult;
 import im.zhaojun.zfile.module.storage.oauth2.service.IOAuth2Service;
 import im.zhaojun.zfile.module.storage.service.StorageSourceConfigService;
 import im.zhaojun.zfile.module.storage.service.base.AbstractProxyTransferService;
+import im.zhaojun.zfile.module.storage.service.base.HttpClientService;
 import im.zhaojun.zfile.module.storage.service.base.RefreshTokenService;
+import im.zhaojun.zfile.module.storage.support.PathIdCache;
+import im.zhaojun.zfile.module.storage.support.http.StorageHttpClient;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpHeaders;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.client.methods.RequestBuilder;
-import org.apache.http.entity.ContentType;
-import org.apache.http.entity.mime.MultipartEntityBuilder;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
+import org.apache.hc.client5.http.classic.methods.*;
+import org.apache.hc.client5.http.entity.mime.MultipartEntityBuilder;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.core.io.Resource;
@@ -70,7 +73,7 @@ import java.util.*;
 @Service
 @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 @Slf4j
-public class GoogleDriveServiceImpl extends AbstractProxyTransferService<GoogleDriveParam> implements RefreshTokenService {
+public class GoogleDriveServiceImpl extends AbstractProxyTransferService<GoogleDriveParam> implements RefreshTokenService, HttpClientService {
 
 	/**
 	 * 文件类型：文件夹
@@ -98,11 +101,40 @@ public class GoogleDriveServiceImpl extends AbstractProxyTransferService<GoogleD
 	 */
 	private static final String REFRESH_TOKEN_URL = "https://oauth2.googleapis.com/token";
 
+	/**
+	 * 获取完整文件列表时每页请求的条数
+	 */
+	private static final int FILE_LIST_PAGE_SIZE = 1000;
+
 	@jakarta.annotation.Resource
 	private StorageSourceConfigService storageSourceConfigService;
 
+	@jakarta.annotation.Resource
+	private ZFileProperties zFileProperties;
+
+	@jakarta.annotation.Resource
+	private RefreshTokenScheduler refreshTokenScheduler;
+
+	/**
+	 * 完整路径 (含基础路径和用户基础路径) 与文件 id 的映射缓存, 列出文件夹时写入, 通过 ZFile 修改文件后删除.
+	 */
+	private PathIdCache pathIdCache;
+
+	/**
+	 * 当前存储源的 HTTP 连接池
+	 */
+	private volatile StorageHttpClient storageHttpClient;
+
+	/**
+	 * 代理下载使用的 HTTP 连接池, 与接口请求的连接池分开, 避免长时间的下载占满接口请求的连接.
+	 */
+	private volatile StorageHttpClient downloadHttpClient;
+
 	@Override
 	public void init() {
+		ZFileProperties.PathIdCacheProperties pathIdCacheProperties = zFileProperties.getPathIdCache();
+		pathIdCache = new PathIdCache(pathIdCacheProperties.getTtl(), pathIdCacheProperties.getMaxEntries(), pathIdCacheProperties.getMaxBytes());
+
 		Integer refreshTokenExpiredAt = param.getRefreshTokenExpiredAt();
 		if (refreshTokenExpiredAt == null) {
 			refreshAccessToken();
@@ -117,7 +149,7 @@ public class GoogleDriveServiceImpl extends AbstractProxyTransferService<GoogleD
 	}
 
 	/**
-	 * 根据路径获取文件/文件夹 id
+	 * 根据路径获取文件/文件夹 id, 优先从缓存中获取, 未命中时从最近的已缓存的上级目录开始逐级查询, 并缓存查询到的每一级 id.
 	 *
 	 * @param 	path
 	 * 			路径
@@ -130,18 +162,33 @@ public class GoogleDriveServiceImpl extends AbstractProxyTransferService<GoogleD
 			return StringUtils.isEmpty(param.getDriveId()) ? "root" : param.getDriveId();
 		}
 
+		String cachedId = pathIdCache.get(fullPath);
+		if (cachedId != null) {
+			return cachedId;
+		}
+
 		List<String> pathList = StringUtils.split(fullPath, StringUtils.SLASH, false, true);
 
+		// 第一级目录不限制上级目录, 所以只从已缓存的第一级及以下的目录开始查询.
 		String driveId = "";
-		for (String subPath : pathList) {
-			String folderIdParam = new GoogleDriveAPIParam().getDriveIdByPathParam(subPath, driveId);
-			HttpRequest httpRequest = commonHttpRequest(HttpUtil.createGet(DRIVE_FILE_URL + "?" + folderIdParam));
+		int startIndex = 0;
+		for (int i = pathList.size() - 1; i > 0; i--) {
+			String parentId = pathIdCache.get(joinPath(pathList, i));
+			if (parentId != null) {
+				driveId = parentId;
+				startIndex = i;
+				break;
+			}
+		}
 
-			HttpResponse httpResponse = httpRequest.execute();
+		for (int i = startIndex; i < pathList.size(); i++) {
+			String subPath = pathList.get(i);
+			String folderIdParam = new GoogleDriveAPIParam().getDriveIdByPathParam(subPath, driveId);
+			StorageHttpClient.TextResponse httpResponse = executeWithAuth(new HttpGet(DRIVE_FILE_URL + "?" + folderIdParam));
 
 			checkHttpResponseIsError(httpResponse);
 
-			String body = httpResponse.body();
+			String body = httpResponse.getBody();
 
 			JSONObject jsonRoot = JSON.parseObject(body);
 			JSONArray files = jsonRoot.getJSONArray("files");
@@ -156,11 +203,42 @@ public class GoogleDriveServiceImpl extends AbstractProxyTransferService<GoogleD
 			} else {
 				driveId = jsonLastItem.getString("id");
 			}
+			pathIdCache.put(joinPath(pathList, i + 1), driveId);
 		}
 
 		return driveId;
 	}
 
+	/**
+	 * 拼接路径列表中的前 n 级为完整路径
+	 */
+	private String joinPath(List<String> pathList, int n) {
+		return StringUtils.SLASH + String.join(StringUtils.SLASH, pathList.subList(0, n));
+	}
+
+	/**
+	 * 删除路径及其子路径的 id 缓存, 通过 ZFile 修改文件后调用.
+	 *
+	 * @param 	path
+	 * 			路径 (不含基础路径和用户基础路径)
+	 */
+	private void invalidatePathIdCache(String path) {
+		pathIdCache.invalidate(StringUtils.concat(param.getBasePath(), getCurrentUserBasePath(), path));
+	}
+
+	/**
+	 * 缓存文件列表中每个文件的 id, 快捷方式缓存其指向的文件 id.
+	 */
+	private void cachePathIds(JSONArray files, String folderPath) {
+		String folderFullPath = StringUtils.concat(param.getBasePath(), getCurrentUserBasePath(), folderPath);
+		for (int i = 0; i < files.size(); i++) {
+			JSONObject file = files.getJSONObject(i);
+			JSONObject shortcutDetails = file.getJSONObject("shortcutDetails");
+			String id = shortcutDetails != null ? shortcutDetails.getString("targetId") : file.getString("id");
+			pathIdCache.put(StringUtils.concat(folderFullPath, file.getString("name")), id);
+		}
+	}
+
 	@Override
 	public List<FileItemResult> fileList(String folderPath) throws Exception {
 		List<FileItemResult> result = new ArrayList<>();
@@ -168,40 +246,74 @@ public class GoogleDriveServiceImpl extends AbstractProxyTransferService<GoogleD
 		String folderId = getIdByPath(folderPath);
 		String pageToken = "";
 		do {
-			String folderIdParam = new GoogleDriveAPIParam().getFileListParam(folderId, pageToken);
-			HttpRequest httpRequest = commonHttpRequest(HttpUtil.createGet(DRIVE_FILE_URL + "?" + folderIdParam));
-			httpRequest.setConnectionTimeout(StorageSourceConnectionProperties.DEFAULT_CONNECTION_TIMEOUT_MILLIS);
+			FileListPage fileListPage = requestFileListPage(folderId, folderPath, pageToken, FILE_LIST_PAGE_SIZE);
+			result.addAll(fileListPage.getFileItemList());
+			pageToken = fileListPage.getNextPageToken();
+		} while (StringUtils.isNotEmpty(pageToken));
 
-			HttpResponse httpResponse = httpRequest.execute();
+		return result;
+	}
 
-			checkHttpResponseIsError(httpResponse);
 
-			String body = httpResponse.body();
+	/**
+	 * 分页获取文件列表, 直接使用 Google Drive API 返回的 nextPageToken 作为分页标识.
+	 */
+	@Override
+	public FileListPage fileListPage(String folderPath, String pageToken, int pageSize) {
+		String folderId = getIdByPath(folderPath);
+		return requestFileListPage(folderId, folderPath, StringUtils.isEmpty(pageToken) ? "" : pageToken, pageSize);
+	}
 
-			JSONObject jsonObject = JSON.parseObject(body);
-			pageToken = jsonObject.getString("nextPageToken");
-			JSONArray files = jsonObject.getJSONArray("files");
-			result.addAll(jsonArrayToFileList(files, folderPath));
-		} while (StringUtils.isNotEmpty(pageToken));
 
-		return result;
+	/**
+	 * 请求一页文件列表
+	 *
+	 * @param 	folderId
+	 * 			google drive 文件夹 id
+	 *
+	 * @param 	folderPath
+	 * 			文件夹路径
+	 *
+	 * @param 	pageToken
+	 * 			分页 token, 请求第一页时为空字符串
+	 *
+	 * @param 	pageSize
+	 * 			每页条数
+	 *
+	 * @return	当前页的文件列表及下一页的分页 token
+	 */
+	private FileListPage requestFileListPage(String folderId, String folderPath, String pageToken, int pageSize) {
+		String folderIdParam = new GoogleDriveAPIParam().getFileListParam(folderId, pageToken, pageSize);
+		StorageHttpClient.TextResponse httpResponse = executeWithAuth(new HttpGet(DRIVE_FILE_URL + "?" + folderIdParam));
+
+		// 无效的 pageToken 会返回 400 错误
+		if (StringUtils.isNotEmpty(pageToken) && httpResponse.getStatus() == HttpStatus.BAD_REQUEST.value()) {
+			throw new BizException(ErrorCode.BIZ_INVALID_PAGE_TOKEN);
+		}
+		checkHttpResponseIsError(httpResponse);
+
+		String body = httpResponse.getBody();
+
+		JSONObject jsonObject = JSON.parseObject(body);
+		JSONArray files = jsonObject.getJSONArray("files");
+		cachePathIds(files, folderPath);
+		return new FileListPage(jsonArrayToFileList(files, folderPath), jsonObject.getString("nextPageToken"));
 	}
 
 	@Override
 	public FileItemResult getFileItem(String pathAndName) {
 		String fileId = getIdByPath(pathAndName);
 
-		HttpRequest httpRequest = commonHttpRequest(HttpUtil.createGet(DRIVE_FILE_URL + StringUtils.SLASH + fileId));
-		httpRequest.body("fields=id,name,mimeType,shortcutDetails,size,modifiedTime");
-		HttpResponse httpResponse = httpRequest.execute();
+		StorageHttpClient.TextResponse httpResponse = executeWithAuth(new HttpGet(DRIVE_FILE_URL + StringUtils.SLASH + fileId + "?fields=id,name,mimeType,shortcutDetails,size,modifiedTime"));
 
 		if (httpResponse.getStatus() == HttpStatus.NOT_FOUND.value()) {
+			invalidatePathIdCache(pathAndName);
 			return null;
 		}
 
 		checkHttpResponseIsError(httpResponse);
 
-		String body = httpResponse.body();
+		String body = httpResponse.getBody();
 		JSONObject jsonObject = JSON.parseObject(body);
 		String folderPath = FileUtils.getParentPath(pathAndName);
 		return jsonObjectToFileItem(jsonObject, folderPath);
@@ -210,15 +322,15 @@ public class GoogleDriveServiceImpl extends AbstractProxyTransferService<GoogleD
 
 	@Override
 	public boolean newFolder(String path, String name) {
-		HttpResponse httpResponse = commonHttpRequest(HttpUtil.createPost(DRIVE_FILE_URL))
-						.body(new JSONObject()
-						.fluentPut("name", name)
-						.fluentPut("mimeType", FOLDER_MIME_TYPE)
-						.fluentPut("parents", Collections.singletonList(getIdByPath(path)))
-						.toJSONString())
-				.execute();
+		HttpPost httpPost = new HttpPost(DRIVE_FILE_URL);
+		httpPost.setEntity(jsonEntity(new JSONObject()
+				.fluentPut("name", name)
+				.fluentPut("mimeType", FOLDER_MIME_TYPE)
+				.fluentPut("parents", Collections.singletonList(getIdByPath(path)))));
+		StorageHttpClient.TextResponse httpResponse = executeWithAuth(httpPost);
 
 		checkHttpResponseIsError(httpResponse);
+		invalidatePathIdCache(StringUtils.concat(path, name));
 
 		return true;
 	}
@@ -226,10 +338,10 @@ public class GoogleDriveServiceImpl extends AbstractProxyTransferService<GoogleD
 	@Override
 	public boolean deleteFile(String path, String name) {
 		String pathAndName = StringUtils.concat(path, name);
-		HttpResponse httpResponse = commonHttpRequest(HttpUtil.createRequest(Method.DELETE, DRIVE_FILE_URL + StringUtils.SLASH + getIdByPath(pathAndName)))
-				.execute();
+		StorageHttpClient.TextResponse httpResponse = executeWithAuth(new HttpDelete(DRIVE_FILE_URL + StringUtils.SLASH + getIdByPath(pathAndName)));
 
 		checkHttpResponseIsError(httpResponse);
+		invalidatePathIdCache(pathAndName);
 
 		return true;
 	}
@@ -244,13 +356,12 @@ public class GoogleDriveServiceImpl extends AbstractProxyTransferService<GoogleD
 		String pathAndName = StringUtils.concat(path, name);
 		String fileId = getIdByPath(pathAndName);
 
-		HttpResponse httpResponse = commonHttpRequest(HttpUtil.createRequest(Method.PATCH, DRIVE_FILE_URL + StringUtils.SLASH + fileId))
-				.body(new JSONObject()
-						.fluentPut("name", newName)
-						.toJSONString())
-				.execute();
+		HttpPatch httpPatch = new HttpPatch(DRIVE_FILE_URL + StringUtils.SLASH + fileId);
+		httpPatch.setEntity(jsonEntity(new JSONObject().fluentPut("name", newName)));
+		StorageHttpClient.TextResponse httpResponse = executeWithAuth(httpPatch);
 
 		checkHttpResponseIsError(httpResponse);
+		invalidatePathIdCache(pathAndName);
 
 		return true;
 	}
@@ -284,17 +395,11 @@ public class GoogleDriveServiceImpl extends AbstractProxyTransferService<GoogleD
 				.addBinaryBody(boundary, inputStream)
 				.build();
 
-		try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
-			HttpUriRequest httpUriRequest = RequestBuilder.post(DRIVE_FILE_UPLOAD_URL)
-					.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + checkExpiredAndGetAccessToken())
-					.setEntity(entity)
-					.build();
-
-			CloseableHttpResponse response = httpClient.execute(httpUriRequest);
-			checkHttpResponseIsError(response);
-		} catch (IOException e) {
-			throw ExceptionUtil.wrapRuntime(e);
-		}
+		HttpPost httpPost = new HttpPost(DRIVE_FILE_UPLOAD_URL);
+		httpPost.setEntity(entity);
+		StorageHttpClient.TextResponse response = executeWithAuth(httpPost);
+		checkHttpResponseIsError(response);
+		invalidatePathIdCache(pathAndName);
 	}
 
 	@Override
@@ -308,25 +413,33 @@ public class GoogleDriveServiceImpl extends AbstractProxyTransferService<GoogleD
 
 		HttpServletRequest request = RequestHolder.getRequest();
 
-		HttpRequest httpRequest = commonHttpRequest(HttpUtil.createGet(DRIVE_FILE_URL + StringUtils.SLASH + fileId));
-		httpRequest.body("alt=media");
-		httpRequest.header(HttpHeaders.RANGE, request.getHeader(HttpHeaders.RANGE));
-		HttpResponse httpResponse = httpRequest.executeAsync();
-		checkHttpResponseIsError(httpResponse);
-
+		HttpGet httpGet = new HttpGet(DRIVE_FILE_URL + StringUtils.SLASH + fileId + "?alt=media");
+		String range = request.getHeader(HttpHeaders.RANGE);
+		if (StringUtils.isNotEmpty(range)) {
+			httpGet.setHeader(HttpHeaders.RANGE, range);
+		}
+		httpGet.setHeader(HttpHeaders.AUTHORIZATION, "Bearer " + checkExpiredAndGetAccessToken());
 
 		try {
-			HttpServletResponse response = RequestHolder.getResponse();
-			response.setStatus(httpResponse.getStatus());
-			for (Map.Entry<String, List<String>> stringListEntry : httpResponse.headers().entrySet()) {
-				String key = stringListEntry.getKey();
-				List<String> values = stringListEntry.getValue();
-				if (key != null && CollectionUtils.isNotEmpty(values)) {
-					response.setHeader(key, stringListEntry.getValue().get(0));
+			getDownloadHttpClient().getHttpClient().execute(httpGet, httpResponse -> {
+				int statusCode = httpResponse.getCode();
+				if (HttpStatus.valueOf(statusCode).isError()) {
+					String responseBody = httpResponse.getEntity() == null ? null : EntityUtils.toString(httpResponse.getEntity(), StandardCharsets.UTF_8);
+					throw new SystemException(String.format("statusCode: %s, responseBody: %s", statusCode, responseBody));
 				}
-			}
-			OutputStream outputStream = response.getOutputStream();
-			httpResponse.writeBody(outputStream, true, null);
+
+				HttpServletResponse response = RequestHolder.getResponse();
+				response.setStatus(statusCode);
+				for (Header header : httpResponse.getHeaders()) {
+					response.setHeader(header.getName(), header.getValue());
+				}
+				if (httpResponse.getEntity() != null) {
+					OutputStream outputStream = response.getOutputStream();
+					httpResponse.getEntity().writeTo(outputStream);
+					outputStream.flush();
+				}
+				return null;
+			});
 		} catch (IOException e) {
 			throw ExceptionUtil.wrapRuntime(e);
 		}
@@ -338,15 +451,15 @@ public class GoogleDriveServiceImpl extends AbstractProxyTransferService<GoogleD
 		String srcPathAndName = StringUtils.concat(path, name);
 		String srcFileId = getIdByPath(srcPathAndName);
 
-		HttpResponse httpResponse = commonHttpRequest(HttpUtil.createPost(DRIVE_FILE_URL + StringUtils.SLASH + srcFileId + "/copy"))
-				.body(new JSONObject()
-						.fluentPut("name", targetName)
-						.fluentPut("parents", Collections.singletonList(getIdByPath(targetPath)))
-						.fluentPut("supportsAllDrives", true)
-						.toJSONString())
-				.execute();
+		HttpPost httpPost = new HttpPost(DRIVE_FILE_URL + StringUtils.SLASH + srcFileId + "/copy");
+		httpPost.setEntity(jsonEntity(new JSONObject()
+				.fluentPut("name", targetName)
+				.fluentPut("parents", Collections.singletonList(getIdByPath(targetPath)))
+				.fluentPut("supportsAllDrives", true)));
+		StorageHttpClient.TextResponse httpResponse = executeWithAuth(httpPost);
 
 		checkHttpResponseIsError(httpResponse);
+		invalidatePathIdCache(StringUtils.concat(targetPath, targetName));
 
 		return true;
 	}
@@ -361,19 +474,20 @@ public class GoogleDriveServiceImpl extends AbstractProxyTransferService<GoogleD
 		String pathAndName = StringUtils.concat(path, name);
 		String fileId = getIdByPath(pathAndName);
 
-		HttpResponse httpResponse = commonHttpRequest(
-				HttpUtil.createRequest(Method.PATCH,
-						UrlBuilder.of(DRIVE_FILE_URL + StringUtils.SLASH + fileId)
-								.setQuery(UrlQuery.of(new JSONObject()
-												.fluentPut("addParents", getIdByPath(targetPath))
-												.fluentPut("removeParents", getIdByPath(path))
-												.fluentPut("supportsAllDrives", true)
-										)
-								).build()
+		StorageHttpClient.TextResponse httpResponse = executeWithAuth(
+				new HttpPatch(UrlBuilder.of(DRIVE_FILE_URL + StringUtils.SLASH + fileId)
+						.setQuery(UrlQuery.of(new JSONObject()
+										.fluentPut("addParents", getIdByPath(targetPath))
+										.fluentPut("removeParents", getIdByPath(path))
+										.fluentPut("supportsAllDrives", true)
+								)
+						).build()
 				)
-		).execute();
+		);
 
 		checkHttpResponseIsError(httpResponse);
+		invalidatePathIdCache(pathAndName);
+		invalidatePathIdCache(StringUtils.concat(targetPath, targetName));
 
 		return true;
 	}
@@ -582,14 +696,17 @@ public class GoogleDriveServiceImpl extends AbstractProxyTransferService<GoogleD
 		 *
 		 * @param   pageToken
 		 * 			分页 token
+		 *
+		 * @param   pageSize
+		 * 			每页条数
 		 */
-		public String getFileListParam(String folderId, String pageToken) {
+		public String getFileListParam(String folderId, String pageToken, int pageSize) {
 			GoogleDriveAPIParam googleDriveAPIParam = getBasicParam();
 
 			googleDriveAPIParam.setFields("files(id,name,mimeType,shortcutDetails,size,modifiedTime),nextPageToken");
 			googleDriveAPIParam.setQ("'" + folderId + "' in parents and trashed = false");
 			googleDriveAPIParam.setPageToken(pageToken);
-			googleDriveAPIParam.setPageSize(DEFAULT_PAGE_SIZE);
+			googleDriveAPIParam.setPageSize(pageSize);
 			return googleDriveAPIParam.toString();
 		}
 
@@ -684,73 +801,99 @@ public class GoogleDriveServiceImpl extends AbstractProxyTransferService<GoogleD
 
 
 	/**
-	 * 检查 http 响应是否为 5xx, 如果是，则抛出异常
+	 * 检查 http 响应是否为 4xx 或 5xx, 如果是，则抛出异常
 	 *
 	 * @param 	httpResponse
 	 * 			http 响应
 	 */
-	private void checkHttpResponseIsError(HttpResponse httpResponse) {
+	private void checkHttpResponseIsError(StorageHttpClient.TextResponse httpResponse) {
 		if (HttpStatus.valueOf(httpResponse.getStatus()).isError()) {
 			int statusCode = httpResponse.getStatus();
-			String responseBody = httpResponse.body();
+			String responseBody = httpResponse.getBody();
 			String msg = String.format("statusCode: %s, responseBody: %s", statusCode, responseBody);
 			throw new SystemException(msg);
 		}
 	}
 
+	@Override
+	public StorageSourceMetadata getStorageSourceMetadata() {
+		StorageSourceMetadata storageSourceMetadata = new StorageSourceMetadata();
+		storageSourceMetadata.setUploadType(StorageSourceMetadata.UploadType.PROXY);
+		return storageSourceMetadata;
+	}
+
 	/**
-	 * 检查 http 响应是否为 5xx, 如果是，则抛出异常  (http client)
+	 * 使用当前存储源的连接池发送带 AccessToken 的请求, 读取完响应体后连接归还到连接池.
 	 *
-	 * @param 	closeableHttpResponse
-	 * 			http 响应
+	 * @param 	request
+	 * 			请求
+	 *
+	 * @return	响应状态码及响应体
 	 */
-	private void checkHttpResponseIsError(CloseableHttpResponse closeableHttpResponse) throws IOException {
-		int statusCode = closeableHttpResponse.getStatusLine().getStatusCode();
-		if (HttpStatus.valueOf(statusCode).isError()) {
-			HttpEntity responseEntity = closeableHttpResponse.getEntity();
-			String responseBody = EntityUtils.toString(responseEntity, StandardCharsets.UTF_8);
-			String msg = String.format("statusCode: %s, responseBody: %s", statusCode, responseBody);
-			throw new SystemException(msg);
+	private StorageHttpClient.TextResponse executeWithAuth(ClassicHttpRequest request) {
+		request.setHeader(HttpHeaders.AUTHORIZATION, "Bearer " + checkExpiredAndGetAccessToken());
+		try {
+			return getStorageHttpClient().executeForText(request);
+		} catch (IOException e) {
+			throw ExceptionUtil.wrapRuntime(e);
 		}
 	}
 
-	@Override
-	public StorageSourceMetadata getStorageSourceMetadata() {
-		StorageSourceMetadata storageSourceMetadata = new StorageSourceMetadata();
-		storageSourceMetadata.setUploadType(StorageSourceMetadata.UploadType.PROXY);
-		return storageSourceMetadata;
+	private static HttpEntity jsonEntity(JSONObject jsonObject) {
+		return new StringEntity(jsonObject.toJSONString(), ContentType.APPLICATION_JSON);
 	}
 
-	private HttpRequest commonHttpRequest(HttpRequest httpRequest) {
-		String accessToken = checkExpiredAndGetAccessToken();
-		httpRequest.bearerAuth(accessToken);
-		return httpRequest;
+	private StorageHttpClient getStorageHttpClient() {
+		if (storageHttpClient == null) {
+			synchronized (this) {
+				if (storageHttpClient == null) {
+					storageHttpClient = new StorageHttpClient(zFileProperties.getHttpClient());
+				}
+			}
+		}
+		return storageHttpClient;
 	}
 
-	/**
-	 * 检查 AccessToken 是否过期，如果过期则刷新 AccessToken 并返回新的 AccessToken。
-	 */
-	private String checkExpiredAndGetAccessToken() {
-		RefreshTokenCacheBO.RefreshTokenInfo refreshTokenInfo = RefreshTokenCacheBO.getRefreshTokenInfo(storageId);
-
-		if (refreshTokenInfo == null || refreshTokenInfo.isExpired()) {
-			// 使用双重检查锁定机制，确保同一个 storageId 只会有一个线程在刷新 AccessToken
-			synchronized (("storage-refresh-" + storageId).intern()) {
-				// 双重检查，再次从缓存中获取，确认是否其他线程已经刷新过
-				refreshTokenInfo = RefreshTokenCacheBO.getRefreshTokenInfo(storageId);
-				if (refreshTokenInfo == null || refreshTokenInfo.isExpired()) {
-					log.info("{} AccessToken 未获取或已过期, 尝试刷新.", getStorageSimpleInfo());
-					refreshAccessToken();
-					refreshTokenInfo = RefreshTokenCacheBO.getRefreshTokenInfo(storageId);
+	private StorageHttpClient getDownloadHttpClient() {
+		if (downloadHttpClient == null) {
+			synchronized (this) {
+				if (downloadHttpClient == null) {
+					downloadHttpClient = StorageHttpClient.forDownload(zFileProperties.getHttpClient());
 				}
 			}
 		}
+		return downloadHttpClient;
+	}
+
+	@Override
+	public HttpClientStatsResult getHttpClientStats() {
+		StorageHttpClient httpClient = this.storageHttpClient;
+		if (httpClient == null) {
+			return null;
+		}
+		HttpClientStatsResult stats = httpClient.getStats();
+		StorageHttpClient downloadClient = this.downloadHttpClient;
+		if (downloadClient != null) {
+			stats.setDownloadStats(downloadClient.getStats());
+		}
+		return stats;
+	}
 
-		if (refreshTokenInfo == null) {
-			throw new SystemException("存储源 " + storageId + " AccessToken 刷新失败: 未找到刷新令牌信息.");
+	@Override
+	public void destroy() {
+		if (storageHttpClient != null) {
+			storageHttpClient.close();
 		}
+		if (downloadHttpClient != null) {
+			downloadHttpClient.close();
+		}
+	}
 
-		return refreshTokenInfo.getData().getAccessToken();
+	/**
+	 * 获取可用的 AccessToken, 即将过期时触发后台刷新, 已过期时同步刷新, 见 {@link RefreshTokenScheduler}.
+	 */
+	private String checkExpiredAndGetAccessToken() {
+		return refreshTokenScheduler.getRefreshTokenInfo(storageId, this).getData().getAccessToken();
 	}
 
 }
\ No newline at end of file
@@ -3,14 +3,14 @@ package im.zhaojun.zfile.module.storage.service.impl;
 import cn.hutool.core.exceptions.ExceptionUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.io.IoUtil;
-import cn.hutool.core.util.ObjectUtil;
 import im.zhaojun.zfile.core.exception.ErrorCode;
 import im.zhaojun.zfile.core.exception.biz.FilePathSecurityBizException;
 import im.zhaojun.zfile.core.exception.biz.InitializeStorageSourceBizException;
 import im.zhaojun.zfile.core.exception.core.BizException;
-import im.zhaojun.zfile.core.exception.status.NotFoundAccessException;
 import im.zhaojun.zfile.core.util.FileUtils;
+import im.zhaojun.zfile.core.util.LocalFileResponseUtil;
 import im.zhaojun.zfile.core.util.StringUtils;
+import im.zhaojun.zfile.module.storage.model.bo.FileListPage;
 import im.zhaojun.zfile.module.storage.model.bo.StorageSourceMetadata;
 import im.zhaojun.zfile.module.storage.model.enums.FileOperatorTypeEnum;
 import im.zhaojun.zfile.module.storage.model.enums.FileTypeEnum;
@@ -18,23 +18,23 @@ import im.zhaojun.zfile.module.storage.model.enums.StorageTypeEnum;
 import im.zhaojun.zfile.module.storage.model.param.LocalParam;
 import im.zhaojun.zfile.module.storage.model.result.FileItemResult;
 import im.zhaojun.zfile.module.storage.service.base.AbstractProxyTransferService;
+import im.zhaojun.zfile.module.storage.support.local.LocalDirectoryCursorCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
-import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
-import org.springframework.http.ContentDisposition;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -47,6 +47,16 @@ import java.util.List;
 @Slf4j
 public class LocalServiceImpl extends AbstractProxyTransferService<LocalParam> {
 
+    /**
+     * 分页标识中游标 ID 与已读取条数的分隔符
+     */
+    private static final String CURSOR_PAGE_TOKEN_DELIMITER = ":";
+
+    /**
+     * 分页获取文件列表时的目录游标
+     */
+    private final LocalDirectoryCursorCache directoryCursorCache = new LocalDirectoryCursorCache();
+
     @Override
     public void init() {
         // 初始化存储源
@@ -60,29 +70,68 @@ public class LocalServiceImpl extends AbstractProxyTransferService<LocalParam> {
 
 
     @Override
-    public List<FileItemResult> fileList(String folderPath) throws FileNotFoundException {
+    public List<FileItemResult> fileList(String folderPath) throws IOException {
         checkPathSecurity(folderPath);
 
+        String currentUserBasePath = getCurrentUserBasePath();
+        Path folder = getExistFolder(currentUserBasePath, folderPath);
+        String proxyDownloadUrlPrefix = getLocalProxyDownloadUrlPrefix();
+
         List<FileItemResult> fileItemList = new ArrayList<>();
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(folder)) {
+            for (Path path : directoryStream) {
+                fileItemList.add(pathToFileItem(path, folderPath, currentUserBasePath, proxyDownloadUrlPrefix));
+            }
+        }
 
-        String fullPath = StringUtils.concat(param.getFilePath(), getCurrentUserBasePath(), folderPath);
+        return fileItemList;
+    }
 
-        File file = new File(fullPath);
 
-        if (!(file.isDirectory() && file.exists())) {
-            throw new BizException(ErrorCode.BIZ_FOLDER_NOT_EXIST);
+    /**
+     * 分页获取文件列表, 按目录流的顺序返回, 分页标识格式为 游标 ID:已读取条数.
+     * <br>
+     * 每页读取完成后保留打开的目录流 (见 {@link LocalDirectoryCursorCache}), 下一页从上次的位置继续读取,
+     * 逐页读取整个文件夹只遍历一次目录, 仅读取当前页文件的属性, 内存中只保留当前页.
+     */
+    @Override
+    public FileListPage fileListPage(String folderPath, String pageToken, int pageSize) throws IOException {
+        checkPathSecurity(folderPath);
+
+        String cursorId = null;
+        int position = 0;
+        if (StringUtils.isNotEmpty(pageToken)) {
+            int index = pageToken.indexOf(CURSOR_PAGE_TOKEN_DELIMITER);
+            if (index <= 0) {
+                throw new BizException(ErrorCode.BIZ_INVALID_PAGE_TOKEN);
+            }
+            cursorId = pageToken.substring(0, index);
+            position = parseOffsetPageToken(pageToken.substring(index + 1));
         }
 
-        File[] files = file.listFiles();
+        String currentUserBasePath = getCurrentUserBasePath();
+        Path folder = getExistFolder(currentUserBasePath, folderPath);
+        String proxyDownloadUrlPrefix = getLocalProxyDownloadUrlPrefix();
 
-        if (files == null) {
-            return fileItemList;
+        // 游标已被淘汰时, 重新打开目录流并跳过已读取的条数.
+        LocalDirectoryCursorCache.Cursor cursor = cursorId == null ? null : directoryCursorCache.take(cursorId, folder, position);
+        if (cursor == null) {
+            cursor = directoryCursorCache.open(folder, position);
         }
-        for (File f : files) {
-            fileItemList.add(fileToFileItem(f, folderPath));
+
+        List<FileItemResult> fileItemList = new ArrayList<>(pageSize);
+        try {
+            while (fileItemList.size() < pageSize && cursor.hasNext()) {
+                fileItemList.add(pathToFileItem(cursor.next(), folderPath, currentUserBasePath, proxyDownloadUrlPrefix));
+            }
+        } catch (RuntimeException e) {
+            directoryCursorCache.close(cursor);
+            throw e;
         }
 
-        return fileItemList;
+        String nextCursorId = directoryCursorCache.release(cursor);
+        String nextPageToken = nextCursorId == null ? null : nextCursorId + CURSOR_PAGE_TOKEN_DELIMITER + cursor.getPosition();
+        return new FileListPage(fileItemList, nextPageToken);
     }
 
 
@@ -90,16 +139,15 @@ public class LocalServiceImpl extends AbstractProxyTransferService<LocalParam> {
     public FileItemResult getFileItem(String pathAndName) {
         checkPathSecurity(pathAndName);
 
-        String fullPath = StringUtils.concat(param.getFilePath(), getCurrentUserBasePath(), pathAndName);
-
-        File file = new File(fullPath);
+        String currentUserBasePath = getCurrentUserBasePath();
+        Path path = Paths.get(StringUtils.concat(param.getFilePath(), currentUserBasePath, pathAndName));
 
-        if (!file.exists()) {
+        if (!Files.exists(path)) {
             return null;
         }
 
         String folderPath = FileUtils.getParentPath(pathAndName);
-        return fileToFileItem(file, folderPath);
+        return pathToFileItem(path, folderPath, currentUserBasePath, getLocalProxyDownloadUrlPrefix());
     }
 
 
@@ -161,9 +209,17 @@ public class LocalServiceImpl extends AbstractProxyTransferService<LocalParam> {
 
         File uploadToFileObj = new File(uploadPath);
         BufferedOutputStream outputStream = FileUtil.getOutputStream(uploadToFileObj);
-        IoUtil.copy(inputStream, outputStream);
-        IoUtil.close(outputStream);
-        IoUtil.close(inputStream);
+        try {
+            IoUtil.copy(inputStream, outputStream);
+            IoUtil.close(outputStream);
+        } catch (RuntimeException e) {
+            // 上传中断或校验失败时, 删除不完整的文件.
+            IoUtil.close(outputStream);
+            FileUtil.del(uploadToFileObj);
+            throw e;
+        } finally {
+            IoUtil.close(inputStream);
+        }
     }
 
     @Override
@@ -224,59 +280,100 @@ public class LocalServiceImpl extends AbstractProxyTransferService<LocalParam> {
 
     @Override
     public String getDownloadUrl(String pathAndName) {
+        return getDownloadUrl(getLocalProxyDownloadUrlPrefix(), pathAndName);
+    }
+
+
+    /**
+     * 根据预先获取的代理下载地址前缀生成下载地址.
+     *
+     * @param   proxyDownloadUrlPrefix
+     *          代理下载地址前缀, 配置了下载域名时为 null
+     *
+     * @param   pathAndName
+     *          文件路径及文件名称
+     *
+     * @return  下载地址
+     */
+    private String getDownloadUrl(String proxyDownloadUrlPrefix, String pathAndName) {
         if (StringUtils.isNotBlank(param.getDomain())) {
             return StringUtils.concat(param.getDomain(), StringUtils.encodeAllIgnoreSlashes(pathAndName));
         }
-        return super.getProxyDownloadUrl(pathAndName);
+        return getProxyDownloadUrlByPrefix(proxyDownloadUrlPrefix, pathAndName);
+    }
+
+
+    /**
+     * 获取代理下载地址前缀, 配置了下载域名时不使用代理下载, 返回 null.
+     */
+    private String getLocalProxyDownloadUrlPrefix() {
+        return StringUtils.isNotBlank(param.getDomain()) ? null : getProxyDownloadUrlPrefix();
     }
 
 
+    /**
+     * 本地存储源直接将文件写入响应, 支持 sendfile 零拷贝, 多段 Range 及 ETag / Last-Modified 条件请求.
+     */
     @Override
     public ResponseEntity<Resource> downloadToStream(String pathAndName) {
         checkPathSecurity(pathAndName);
 
-        File file = new File(StringUtils.concat(param.getFilePath(), pathAndName));
-        if (!file.exists()) {
-            throw new NotFoundAccessException(ErrorCode.BIZ_FILE_NOT_EXIST);
-        }
+        Path path = Paths.get(StringUtils.concat(param.getFilePath(), pathAndName));
+        LocalFileResponseUtil.writeFile(path, param.isProxyLinkForceDownload());
+        return null;
+    }
 
-        Resource body = new FileSystemResource(file);
 
-        MediaType mimeType;
-        if (param.isProxyLinkForceDownload()) {
-            mimeType = MediaType.APPLICATION_OCTET_STREAM;
-        } else {
-            mimeType = MediaTypeFactory.getMediaType(file.getName()).orElse(MediaType.APPLICATION_OCTET_STREAM);
+    /**
+     * 获取用户目录下的文件夹, 不存在或不是文件夹时抛出异常.
+     */
+    private Path getExistFolder(String currentUserBasePath, String folderPath) {
+        Path folder = Paths.get(StringUtils.concat(param.getFilePath(), currentUserBasePath, folderPath));
+        if (!Files.isDirectory(folder)) {
+            throw new BizException(ErrorCode.BIZ_FOLDER_NOT_EXIST);
         }
-
-        HttpHeaders headers = new HttpHeaders();
-        String fileName = file.getName();
-
-        ContentDisposition contentDisposition = ContentDisposition
-                .builder(ObjectUtil.equals(mimeType, MediaType.APPLICATION_OCTET_STREAM) ? "attachment" : "inline")
-                .filename(fileName, StandardCharsets.UTF_8)
-                .build();
-        headers.setContentDisposition(contentDisposition);
-
-        return ResponseEntity
-                .ok()
-                .headers(headers)
-                .contentLength(file.length())
-                .contentType(mimeType)
-                .body(body);
+        return folder;
     }
 
 
-    private FileItemResult fileToFileItem(File file, String folderPath) {
+    /**
+     * 将文件转换为文件信息, 通过一次系统调用读取文件类型、大小和修改时间.
+     *
+     * @param   path
+     *          文件
+     *
+     * @param   folderPath
+     *          所在文件夹路径 (不包含用户基础路径)
+     *
+     * @param   currentUserBasePath
+     *          当前用户基础路径
+     *
+     * @param   proxyDownloadUrlPrefix
+     *          代理下载地址前缀
+     *
+     * @return  文件信息
+     */
+    private FileItemResult pathToFileItem(Path path, String folderPath, String currentUserBasePath, String proxyDownloadUrlPrefix) {
+        BasicFileAttributes attributes = readAttributes(path);
+        String fileName = path.getFileName().toString();
+
         FileItemResult fileItemResult = new FileItemResult();
-        fileItemResult.setType(file.isDirectory() ? FileTypeEnum.FOLDER : FileTypeEnum.FILE);
-        fileItemResult.setTime(new Date(file.lastModified()));
-        fileItemResult.setSize(file.length());
-        fileItemResult.setName(file.getName());
+        fileItemResult.setName(fileName);
         fileItemResult.setPath(folderPath);
+        if (attributes == null) {
+            // 无法读取属性时 (如失效的软链接), 与原先基于 File 的实现一致 (isDirectory 为 false, lastModified 和 length 为 0),
+            // 视为修改时间为 0、大小为 0 的文件, 不使用软链接自身的属性.
+            fileItemResult.setType(FileTypeEnum.FILE);
+            fileItemResult.setTime(new Date(0));
+            fileItemResult.setSize(0L);
+        } else {
+            fileItemResult.setType(attributes.isDirectory() ? FileTypeEnum.FOLDER : FileTypeEnum.FILE);
+            fileItemResult.setTime(new Date(attributes.lastModifiedTime().toMillis()));
+            fileItemResult.setSize(attributes.size());
+        }
 
         if (fileItemResult.getType() == FileTypeEnum.FILE) {
-            fileItemResult.setUrl(getDownloadUrl(StringUtils.concat(getCurrentUserBasePath(), folderPath, file.getName())));
+            fileItemResult.setUrl(getDownloadUrl(proxyDownloadUrlPrefix, StringUtils.concat(currentUserBasePath, folderPath, fileName)));
         } else {
             fileItemResult.setSize(null);
         }
@@ -284,6 +381,23 @@ public class LocalServiceImpl extends AbstractProxyTransferService<LocalParam> {
     }
 
 
+    /**
+     * 读取文件属性, 软链接读取其指向的文件的属性, 读取失败 (如失效的软链接) 时返回 null.
+     */
+    private BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            if (Files.isSymbolicLink(path)) {
+                log.debug("软链接指向的文件不存在, 视为空文件, 文件: {}", path);
+            } else {
+                log.warn("读取文件属性失败, 文件: {}", path, e);
+            }
+            return null;
+        }
+    }
+
+
     /**
      * 检查路径合法性：
      *  - 只有以 . 开头的允许通过，其他的如 ./ ../ 的都是非法获取上层文件夹内容的路径.
@@ -321,6 +435,11 @@ public class LocalServiceImpl extends AbstractProxyTransferService<LocalParam> {
         }
     }
 
+    @Override
+    public void destroy() {
+        directoryCursorCache.clear();
+    }
+
     @Override
     public StorageSourceMetadata getStorageSourceMetadata() {
         StorageSourceMetadata storageSourceMetadata = new StorageSourceMetadata();
@@ -2,13 +2,11 @@ package im.zhaojun.zfile.module.storage.service.impl;
 
 import cn.hutool.cache.Cache;
 import cn.hutool.cache.CacheUtil;
-import cn.hutool.http.HttpRequest;
-import cn.hutool.http.HttpResponse;
-import cn.hutool.http.HttpUtil;
 import cn.hutool.http.Method;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
 import com.google.common.util.concurrent.RateLimiter;
+import im.zhaojun.zfile.core.config.ZFileProperties;
 import im.zhaojun.zfile.module.storage.controller.helper.Open115UploadUtils;
 import im.zhaojun.zfile.core.exception.ErrorCode;
 import im.zhaojun.zfile.core.exception.core.BizException;
@@ -19,6 +17,7 @@ import im.zhaojun.zfile.core.util.FileUtils;
 import im.zhaojun.zfile.core.util.RequestHolder;
 import im.zhaojun.zfile.core.util.StringUtils;
 import im.zhaojun.zfile.module.storage.constant.StorageConfigConstant;
+import im.zhaojun.zfile.module.storage.context.RefreshTokenScheduler;
 import im.zhaojun.zfile.module.storage.controller.proxy.Open115UrlController;
 import im.zhaojun.zfile.module.storage.model.bo.RefreshTokenCacheBO;
 import im.zhaojun.zfile.module.storage.model.bo.StorageSourceMetadata;
@@ -28,15 +27,23 @@ import im.zhaojun.zfile.module.storage.model.enums.FileTypeEnum;
 import im.zhaojun.zfile.module.storage.model.enums.StorageTypeEnum;
 import im.zhaojun.zfile.module.storage.model.param.Open115Param;
 import im.zhaojun.zfile.module.storage.model.result.FileItemResult;
+import im.zhaojun.zfile.module.storage.model.result.HttpClientStatsResult;
 import im.zhaojun.zfile.module.storage.service.StorageSourceConfigService;
 import im.zhaojun.zfile.module.storage.service.base.AbstractProxyTransferService;
+import im.zhaojun.zfile.module.storage.service.base.HttpClientService;
 import im.zhaojun.zfile.module.storage.service.base.RefreshTokenService;
 import im.zhaojun.zfile.module.storage.support.Open115IdCacheService;
+import im.zhaojun.zfile.module.storage.support.http.StorageHttpClient;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.connector.ClientAbortException;
 import org.apache.commons.io.IOUtils;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.http.HttpHeaders;
@@ -45,18 +52,26 @@ import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @Service
 @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 @Slf4j
-public class Open115ServiceImpl extends AbstractProxyTransferService<Open115Param>  implements RefreshTokenService {
+public class Open115ServiceImpl extends AbstractProxyTransferService<Open115Param>  implements RefreshTokenService, HttpClientService {
 
     @Resource
     private StorageSourceConfigService storageSourceConfigService;
 
+    @Resource
+    private ZFileProperties zFileProperties;
+
+    @Resource
+    private RefreshTokenScheduler refreshTokenScheduler;
+
     /**
      * 默认 User-Agent, 用于获取下载地址时使用.
      */
@@ -102,10 +117,22 @@ public class Open115ServiceImpl extends AbstractProxyTransferService<Open115Para
      */
     private Open115IdCacheService idCacheService;
 
+    /**
+     * 当前存储源的 HTTP 连接池
+     */
+    private StorageHttpClient storageHttpClient;
+
+    /**
+     * 代理下载使用的 HTTP 连接池, 与接口请求的连接池分开, 避免长时间的下载占满接口请求的连接.
+     */
+    private StorageHttpClient downloadHttpClient;
+
     @Override
     public void init() {
         this.rateLimiter = RateLimiter.create(param.getQps());
-        this.idCacheService = new Open115IdCacheService(this::sendGetRequestWithAuth);
+        this.storageHttpClient = new StorageHttpClient(zFileProperties.getHttpClient());
+        this.downloadHttpClient = StorageHttpClient.forDownload(zFileProperties.getHttpClient());
+        this.idCacheService = new Open115IdCacheService(this::sendGetRequestWithAuth, zFileProperties.getPathIdCache());
 
         Integer refreshTokenExpiredAt = param.getRefreshTokenExpiredAt();
         if (refreshTokenExpiredAt == null) {
@@ -136,6 +163,7 @@ public class Open115ServiceImpl extends AbstractProxyTransferService<Open115Para
             String cid = jsonObject.getString("cid");
             if (StringUtils.isNotBlank(pathId) && !Objects.equals(cid, pathId)) {
                 log.warn("请求的路径 ID '{}' 与返回的路径 ID '{}' 不符, 可能是 115 做了兼容处理, 返回了根目录.", pathId, cid);
+                idCacheService.deletePathId(fullPath);
                 throw new NotFoundAccessException(ErrorCode.BIZ_FILE_NOT_EXIST);
             }
 
@@ -162,8 +190,7 @@ public class Open115ServiceImpl extends AbstractProxyTransferService<Open115Para
         }
 
         // https://www.yuque.com/115yun/open/rl8zrhe2nag21dfw
-        JSONObject jsonObject = sendGetRequestWithAuth("https://proapi.115.com/open/folder/get_info", new JSONObject()
-                .fluentPut("file_id", fileId));
+        JSONObject jsonObject = getFileInfoById(fullPath, fileId);
 
         JSONObject fileItem = jsonObject.getJSONObject("data");
         return itemJsonToFileItem(fileItem, FileUtils.getParentPath(pathAndName));
@@ -235,6 +262,8 @@ public class Open115ServiceImpl extends AbstractProxyTransferService<Open115Para
                 .fluentPut("pid", targetPathId)
                 .fluentPut("file_id", srcFileId)
                 .fluentPut("nodupli", 1));
+
+        idCacheService.markFolderChanged(targetFullPath);
         return true;
     }
 
@@ -252,6 +281,7 @@ public class Open115ServiceImpl extends AbstractProxyTransferService<Open115Para
                 .fluentPut("file_id", srcPathId)
                 .fluentPut("nodupli", 1));
 
+        idCacheService.markFolderChanged(targetFullPath);
         return true;
     }
 
@@ -277,8 +307,10 @@ public class Open115ServiceImpl extends AbstractProxyTransferService<Open115Para
     public boolean moveFolder(String path, String name, String targetPath, String targetName) {
         String srcFullPath = StringUtils.concat(param.getBasePath(), getCurrentUserBasePath(), path, name);
 
+        String targetFullPath = StringUtils.concat(param.getBasePath(), getCurrentUserBasePath(), targetPath);
+
         String srcPathId = idCacheService.getPathId(srcFullPath, true);
-        String targetPathId = idCacheService.getPathId(StringUtils.concat(param.getBasePath(), getCurrentUserBasePath(), targetPath), true);
+        String targetPathId = idCacheService.getPathId(targetFullPath, true);
 
         // https://www.yuque.com/115yun/open/vc6fhi2mrkenmav2
         sendPostRequestWithAuth("https://proapi.115.com/open/ufile/move", new JSONObject()
@@ -286,6 +318,7 @@ public class Open115ServiceImpl extends AbstractProxyTransferService<Open115Para
                 .fluentPut("file_ids", srcPathId));
 
         idCacheService.deletePathId(srcFullPath);
+        idCacheService.markFolderChanged(targetFullPath);
         return true;
     }
 
@@ -405,6 +438,7 @@ public class Open115ServiceImpl extends AbstractProxyTransferService<Open115Para
             String pathId = idCacheService.getPathId(folderPath, true);
 
             Open115UploadUtils.uploadFile(tempFile, fileName, pathId, this::checkExpiredAndGetAccessToken);
+            idCacheService.markFolderChanged(folderPath);
         } finally {
             boolean delete = tempFile.delete();
             if (!delete) {
@@ -419,30 +453,38 @@ public class Open115ServiceImpl extends AbstractProxyTransferService<Open115Para
         String fileId = idCacheService.getFileId(fullPath, true);
 
         // https://www.yuque.com/115yun/open/rl8zrhe2nag21dfw
-        JSONObject fileInfoJSONObj = sendGetRequestWithAuth("https://proapi.115.com/open/folder/get_info", new JSONObject().fluentPut("file_id", fileId));
+        JSONObject fileInfoJSONObj = getFileInfoById(fullPath, fileId);
         String pickCode = fileInfoJSONObj.getJSONObject("data").getString("pick_code");
         String originUrl = getOpen115DownloadUrlByPickCode(pickCode);
 
         HttpServletRequest request = RequestHolder.getRequest();
-        HttpRequest httpRequest = HttpUtil.createGet(originUrl);
-        httpRequest.header(HttpHeaders.RANGE, request.getHeader(HttpHeaders.RANGE));
-        httpRequest.header(HttpHeaders.USER_AGENT, RequestHolder.getRequest().getHeader(HttpHeaders.USER_AGENT), true);
-        HttpResponse httpResponse = httpRequest.executeAsync();
+        HttpGet httpGet = new HttpGet(originUrl);
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (StringUtils.isNotEmpty(range)) {
+            httpGet.setHeader(HttpHeaders.RANGE, range);
+        }
+        String userAgent = request.getHeader(HttpHeaders.USER_AGENT);
+        if (StringUtils.isNotEmpty(userAgent)) {
+            httpGet.setHeader(HttpHeaders.USER_AGENT, userAgent);
+        }
 
         try {
-            HttpServletResponse response = RequestHolder.getResponse();
-            response.setStatus(httpResponse.getStatus());
-            OutputStream outputStream = response.getOutputStream();
-
-            Map<String, List<String>> headers = httpResponse.headers();
-            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
-                String key = entry.getKey();
-                List<String> value = entry.getValue();
-                response.setHeader(key, String.join(",", value));
-            }
-            httpResponse.writeBody(outputStream, true, null);
+            downloadHttpClient.getHttpClient().execute(httpGet, httpResponse -> {
+                HttpServletResponse response = RequestHolder.getResponse();
+                response.setStatus(httpResponse.getCode());
+                OutputStream outputStream = response.getOutputStream();
+
+                for (Header header : httpResponse.getHeaders()) {
+                    response.setHeader(header.getName(), header.getValue());
+                }
+                if (httpResponse.getEntity() != null) {
+                    httpResponse.getEntity().writeTo(outputStream);
+                    outputStream.flush();
+                }
+                return null;
+            });
         } catch (Exception e) {
-            if (StringUtils.contains(e.getMessage(), "ClientAbortException")) {
+            if (e instanceof ClientAbortException || StringUtils.contains(e.getMessage(), "ClientAbortException")) {
                 // ignore 客户端中止异常
             } else {
                 throw e;
@@ -452,6 +494,22 @@ public class Open115ServiceImpl extends AbstractProxyTransferService<Open115Para
         return null;
     }
 
+    /**
+     * 根据 ID 获取文件信息, 获取失败时 ID 缓存可能已失效 (如在 115 中删除了文件), 删除该路径的 ID 缓存.
+     *
+     * @param fullPath  文件完整路径
+     * @param fileId    文件 ID
+     * @return          文件信息
+     */
+    private JSONObject getFileInfoById(String fullPath, String fileId) {
+        try {
+            return sendGetRequestWithAuth("https://proapi.115.com/open/folder/get_info", new JSONObject().fluentPut("file_id", fileId));
+        } catch (SystemException e) {
+            idCacheService.deletePathId(fullPath);
+            throw e;
+        }
+    }
+
     @Override
     public void refreshAccessToken() {
         try {
@@ -510,44 +568,39 @@ public class Open115ServiceImpl extends AbstractProxyTransferService<Open115Para
     }
 
     /**
-     * 检查 AccessToken 是否过期，如果过期则刷新 AccessToken 并返回新的 AccessToken。
+     * 获取可用的 AccessToken, 即将过期时触发后台刷新, 已过期时同步刷新, 见 {@link RefreshTokenScheduler}.
      */
     private String checkExpiredAndGetAccessToken() {
-        RefreshTokenCacheBO.RefreshTokenInfo refreshTokenInfo = RefreshTokenCacheBO.getRefreshTokenInfo(storageId);
-
-        if (refreshTokenInfo == null || refreshTokenInfo.isExpired()) {
-            // 使用双重检查锁定机制，确保同一个 storageId 只会有一个线程在刷新 AccessToken
-            synchronized (("storage-refresh-" + storageId).intern()) {
-                // 双重检查，再次从缓存中获取，确认是否其他线程已经刷新过
-                refreshTokenInfo = RefreshTokenCacheBO.getRefreshTokenInfo(storageId);
-                if (refreshTokenInfo == null || refreshTokenInfo.isExpired()) {
-                    log.info("{} AccessToken 未获取或已过期, 尝试刷新.", getStorageSimpleInfo());
-                    refreshAccessToken();
-                    refreshTokenInfo = RefreshTokenCacheBO.getRefreshTokenInfo(storageId);
-                }
-            }
-        }
-
-        if (refreshTokenInfo == null) {
-            throw new SystemException("存储源 " + storageId + " AccessToken 刷新失败: 未找到刷新令牌信息.");
-        }
-
-        return refreshTokenInfo.getData().getAccessToken();
+        return refreshTokenScheduler.getRefreshTokenInfo(storageId, this).getData().getAccessToken();
     }
 
     private JSONObject sendRequest(String url, Method method, boolean withAuth, Map<String, Object> form, Map<String, List<String>> headers) {
         rateLimiter.acquire();
 
-        HttpRequest httpRequest = HttpUtil.createRequest(method, url)
-                .header(headers, true)
-                .form(form);
-
+        // GET 请求的参数拼接到 URL 中, POST 请求的参数以表单形式提交.
+        ClassicRequestBuilder requestBuilder = ClassicRequestBuilder.create(method.name())
+                .setUri(url)
+                .setCharset(StandardCharsets.UTF_8);
+        if (form != null) {
+            form.forEach((key, value) -> {
+                if (value != null) {
+                    requestBuilder.addParameter(key, String.valueOf(value));
+                }
+            });
+        }
+        if (headers != null) {
+            headers.forEach((key, values) -> values.forEach(value -> requestBuilder.addHeader(key, value)));
+        }
         if (withAuth) {
-            httpRequest.bearerAuth(checkExpiredAndGetAccessToken());
+            requestBuilder.setHeader(HttpHeaders.AUTHORIZATION, "Bearer " + checkExpiredAndGetAccessToken());
         }
 
-        HttpResponse httpResponse = httpRequest.execute();
-        return handleEntity(httpResponse);
+        ClassicHttpRequest httpRequest = requestBuilder.build();
+        try {
+            return handleEntity(storageHttpClient.executeForText(httpRequest));
+        } catch (IOException e) {
+            throw new SystemException("请求失败: " + e.getMessage(), e);
+        }
     }
 
     private JSONObject sendPostRequestWithAuth(String url, Map<String, Object> form) {
@@ -558,12 +611,12 @@ public class Open115ServiceImpl extends AbstractProxyTransferService<Open115Para
         return sendRequest(url, Method.GET, true, form, null);
     }
 
-    private static JSONObject handleEntity(HttpResponse httpResponse) {
+    private static JSONObject handleEntity(StorageHttpClient.TextResponse httpResponse) {
         if (!httpResponse.isOk()) {
-            throw new SystemException("请求失败, 状态码: " + httpResponse.getStatus() + ", 响应体: " + httpResponse.body());
+            throw new SystemException("请求失败, 状态码: " + httpResponse.getStatus() + ", 响应体: " + httpResponse.getBody());
         }
 
-        String responseBody = httpResponse.body();
+        String responseBody = httpResponse.getBody();
         JSONObject jsonObject = JSONObject.parseObject(responseBody);
         if (jsonObject == null) {
             throw new SystemException("请求失败, 响应体解析失败: " + responseBody);
@@ -636,4 +689,28 @@ public class Open115ServiceImpl extends AbstractProxyTransferService<Open115Para
         return fileItemResult;
     }
 
+    @Override
+    public HttpClientStatsResult getHttpClientStats() {
+        StorageHttpClient httpClient = this.storageHttpClient;
+        if (httpClient == null) {
+            return null;
+        }
+        HttpClientStatsResult stats = httpClient.getStats();
+        StorageHttpClient downloadClient = this.downloadHttpClient;
+        if (downloadClient != null) {
+            stats.setDownloadStats(downloadClient.getStats());
+        }
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        if (storageHttpClient != null) {
+            storageHttpClient.close();
+        }
+        if (downloadHttpClient != null) {
+            downloadHttpClient.close();
+        }
+    }
+
 }
\ No newline at end of file
@@ -13,8 +13,10 @@ import im.zhaojun.zfile.module.storage.model.bo.StorageSourceMetadata;
 import im.zhaojun.zfile.module.storage.model.enums.FileTypeEnum;
 import im.zhaojun.zfile.module.storage.model.enums.StorageTypeEnum;
 import im.zhaojun.zfile.module.storage.model.param.SftpParam;
+import im.zhaojun.zfile.module.storage.model.result.ConnectionPoolStatsResult;
 import im.zhaojun.zfile.module.storage.model.result.FileItemResult;
 import im.zhaojun.zfile.module.storage.service.base.AbstractProxyTransferService;
+import im.zhaojun.zfile.module.storage.service.base.ConnectionPoolService;
 import im.zhaojun.zfile.module.storage.support.ftp.FtpClientFactory;
 import im.zhaojun.zfile.module.storage.support.sftp.SFtpClientFactory;
 import im.zhaojun.zfile.module.storage.support.sftp.SFtpClientPool;
@@ -23,7 +25,6 @@ import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.core.io.Resource;
-import org.springframework.http.HttpRange;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
@@ -31,6 +32,7 @@ import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
 
@@ -40,10 +42,18 @@ import java.util.NoSuchElementException;
 @Service
 @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 @Slf4j
-public class SftpServiceImpl extends AbstractProxyTransferService<SftpParam> {
+public class SftpServiceImpl extends AbstractProxyTransferService<SftpParam> implements ConnectionPoolService {
 
+	/**
+	 * 用于浏览、上传和文件操作的连接池
+	 */
 	private SFtpClientPool sftpClientPool;
 
+	/**
+	 * 用于代理下载的连接池, 下载可能长时间占用连接, 与其他操作分开, 避免下载较多时无法浏览文件.
+	 */
+	private SFtpClientPool downloadClientPool;
+
 	@Override
 	public void init() {
 		Charset charset = Charset.forName(param.getEncoding());
@@ -54,12 +64,20 @@ public class SftpServiceImpl extends AbstractProxyTransferService<SftpParam> {
 		// 2 分钟没有使用则进行回收
 		config.setMinEvictableIdleDuration(Duration.ofMinutes(2));
 		config.setMaxWait(Duration.ofSeconds(15));
-		sftpClientPool = new SFtpClientPool(factory, config);
+		sftpClientPool = new SFtpClientPool("default", factory, config);
+
+		GenericObjectPoolConfig<FtpClientFactory> downloadConfig = config.clone();
+		downloadConfig.setMaxTotal(param.getMaxDownloadConnections() == null || param.getMaxDownloadConnections() <= 0 ? 8 : param.getMaxDownloadConnections());
+		downloadClientPool = new SFtpClientPool("download", factory, downloadConfig);
 	}
 
 	public Sftp getClientFromPool() {
+		return getClientFromPool(sftpClientPool);
+	}
+
+	private Sftp getClientFromPool(SFtpClientPool pool) {
 		try {
-			return sftpClientPool.borrowObject();
+			return pool.borrowObject();
 		} catch (NoSuchElementException e) {
 			throw new BizException(ErrorCode.BIZ_SFTP_CLIENT_POOL_FULL);
 		} catch (Exception e) {
@@ -239,25 +257,24 @@ public class SftpServiceImpl extends AbstractProxyTransferService<SftpParam> {
 		}
 
 		long fileSize = fileItem.getSize();
-		pathAndName = StringUtils.concat(param.getBasePath(), pathAndName);
-		String fileName = FileUtils.getName(pathAndName);
+		String fullPath = StringUtils.concat(param.getBasePath(), pathAndName);
+		String fileName = FileUtils.getName(fullPath);
 
-		// 根据请求头中的 Range 参数, 获取要跳过的字节数.
-		long skip = 0;
-		HttpRange requestRange = RequestUtils.getRequestRange(RequestHolder.getRequest());
-		if (requestRange != null) {
-			skip = (int) requestRange.getRangeStart(fileSize);
-		}
-
-		Sftp sftp = null;
+		Sftp sftp = getClientFromPool(downloadClientPool);
+		boolean reusable = false;
 		try {
-			sftp = getClientFromPool();
-			InputStream inputStream = sftp.getClient().get(pathAndName, null, skip);
-			RequestHolder.writeFile(inputStream, fileName, fileSize, true, param.isProxyLinkForceDownload());
+			ChannelSftp channelSftp = sftp.getClient();
+			// 同时发出多个读取请求, 减少高延迟网络下等待响应的时间.
+			channelSftp.setBulkRequests(param.getReadAheadRequests() == null || param.getReadAheadRequests() <= 0 ? 64 : param.getReadAheadRequests());
+			RequestHolder.writeFileRanges(fileName, fileSize, param.isProxyLinkForceDownload(),
+					start -> channelSftp.get(fullPath, null, start));
+			reusable = true;
 			return null;
 		} finally {
-			if (sftp != null) {
-				sftpClientPool.returnObject(sftp);
+			if (reusable) {
+				downloadClientPool.returnObject(sftp);
+			} else {
+				downloadClientPool.invalidate(sftp);
 			}
 		}
 	}
@@ -277,6 +294,14 @@ public class SftpServiceImpl extends AbstractProxyTransferService<SftpParam> {
 		return super.getProxyDownloadUrl(pathAndName);
 	}
 
+	/**
+	 * 直接写入目标文件, 上传中途失败时会留下不完整的文件.
+	 */
+	@Override
+	protected boolean isPartialFileLeftOnUploadFailure() {
+		return true;
+	}
+
 	@Override
 	public void uploadFile(String pathAndName, InputStream inputStream, Long size) {
 		String fullPath = StringUtils.concat(param.getBasePath(), getCurrentUserBasePath(), pathAndName);
@@ -314,10 +339,24 @@ public class SftpServiceImpl extends AbstractProxyTransferService<SftpParam> {
 		return storageSourceMetadata;
 	}
 
+	@Override
+	public List<ConnectionPoolStatsResult> getConnectionPoolStats() {
+		List<ConnectionPoolStatsResult> result = new ArrayList<>();
+		for (SFtpClientPool pool : Arrays.asList(sftpClientPool, downloadClientPool)) {
+			if (pool != null) {
+				result.add(pool.getStats());
+			}
+		}
+		return result;
+	}
+
 	@Override
 	public void destroy() {
 		if (sftpClientPool != null) {
 			sftpClientPool.close();
 		}
+		if (downloadClientPool != null) {
+			downloadClientPool.close();
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package im.zhaojun.zfile.module.storage.support;
+
+import im.zhaojun.zfile.core.config.ZFileProperties;
+import im.zhaojun.zfile.core.util.StringUtils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 存储源文件路径与预授权下载地址的缓存.
+ * <p>
+ * 适用于下载地址自带授权且有一定有效期的存储源 (如 OneDrive, SharePoint), 避免每次直链下载时都请求一次文件信息.
+ * 每个存储源实例持有一个此类的实例, 底层使用 {@link PathIdCache} 存储, 过期时间需小于下载地址本身的有效期.
+ * <p>
+ * 缓存未命中时, 同一路径同一时间只会有一个线程去加载, 其他线程等待其结果.
+ *
+ * @author zhaojun
+ */
+public class DownloadUrlCache {
+
+    private final PathIdCache cache;
+
+    /**
+     * 正在加载的路径
+     */
+    private final Map<String, CompletableFuture<String>> loadingPaths = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存失效次数, 加载期间发生过失效时, 不写入加载结果, 避免写入已被修改的文件的旧地址.
+     */
+    private final AtomicLong invalidateVersion = new AtomicLong();
+
+    public DownloadUrlCache(ZFileProperties.DownloadUrlCacheProperties downloadUrlCacheProperties) {
+        this.cache = new PathIdCache(downloadUrlCacheProperties.getTtl(), downloadUrlCacheProperties.getMaxEntries(), downloadUrlCacheProperties.getMaxBytes());
+    }
+
+    /**
+     * 获取路径对应的下载地址, 缓存中不存在时通过 loader 加载.
+     *
+     * @param   path
+     *          文件完整路径
+     *
+     * @param   loader
+     *          下载地址加载函数, 返回 null 时不缓存.
+     *
+     * @return  下载地址
+     */
+    public String get(String path, Supplier<String> loader) {
+        String url = cache.get(path);
+        if (url != null) {
+            return url;
+        }
+
+        String key = StringUtils.concatTrimEndSlashes(path);
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> loadingFuture = loadingPaths.putIfAbsent(key, future);
+        if (loadingFuture != null) {
+            try {
+                return loadingFuture.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+        }
+
+        try {
+            long version = invalidateVersion.get();
+            url = loader.get();
+            put(path, url, version);
+            future.complete(url);
+            return url;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadingPaths.remove(key, future);
+        }
+    }
+
+    /**
+     * 获取当前的缓存失效次数, 在请求文件信息前获取, 写入缓存时传入.
+     *
+     * @return  缓存失效次数
+     */
+    public long getInvalidateVersion() {
+        return invalidateVersion.get();
+    }
+
+    /**
+     * 写入路径对应的下载地址, 如从文件列表中获取到的下载地址.
+     *
+     * @param   path
+     *          文件完整路径
+     *
+     * @param   url
+     *          下载地址
+     *
+     * @param   version
+     *          请求文件信息前的缓存失效次数, 之后发生过失效时不写入.
+     */
+    public void put(String path, String url, long version) {
+        synchronized (cache) {
+            if (invalidateVersion.get() == version) {
+                cache.put(path, url);
+            }
+        }
+    }
+
+    /**
+     * 删除路径及其所有子路径的下载地址缓存
+     *
+     * @param   path
+     *          文件或文件夹完整路径
+     */
+    public void invalidate(String path) {
+        synchronized (cache) {
+            invalidateVersion.incrementAndGet();
+            cache.invalidate(path);
+        }
+    }
+
+    public void clear() {
+        invalidate(StringUtils.SLASH);
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+}
@@ -0,0 +1,321 @@
+package im.zhaojun.zfile.module.storage.support;
+
+import im.zhaojun.zfile.core.util.FileUtils;
+import im.zhaojun.zfile.core.util.StringUtils;
+import im.zhaojun.zfile.module.storage.model.result.FileItemResult;
+import im.zhaojun.zfile.module.storage.model.result.FileListCacheStatsResult;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 存储源文件列表缓存.
+ * <p>
+ * 每个存储源实例持有一个此类的实例，用于隔离不同存储源的缓存。缓存 key 为 后端地址 + 用户基础路径 + 文件夹路径,
+ * 超过过期时间、最大条目数或最大占用字节数时, 按最近最少使用的顺序淘汰.
+ * <p>
+ * 文件列表中的对象在后续责任链中可能会被修改 (如去除下载地址), 所以写入和读取时都会复制一份, 避免污染缓存.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public class FileListCache {
+
+    /**
+     * 每个缓存条目的固定估算开销 (key, 链表节点, 列表对象等), 单位: 字节
+     */
+    private static final long ENTRY_OVERHEAD_BYTES = 256;
+
+    /**
+     * 每个文件对象的固定估算开销 (对象头, 日期, 枚举引用等), 单位: 字节
+     */
+    private static final long ITEM_OVERHEAD_BYTES = 96;
+
+    private final long ttlMillis;
+
+    private final int maxEntries;
+
+    private final long maxBytes;
+
+    /**
+     * 按访问顺序排列的缓存, 所有读写均在 this 锁内进行.
+     */
+    private final LinkedHashMap<CacheKey, CacheEntry> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 当前缓存占用的估算字节数
+     */
+    private long currentBytes;
+
+    /**
+     * 缓存版本号, 每次失效操作都会递增, 用于丢弃在失效前就已开始加载的文件列表.
+     */
+    private long version;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder expiredCount = new LongAdder();
+
+    private final LongAdder invalidateCount = new LongAdder();
+
+    public FileListCache(long ttlSeconds, int maxEntries, long maxBytes) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 获取缓存的文件列表.
+     *
+     * @param   backendAddress
+     *          后端站点地址, 下载地址中会包含此地址
+     *
+     * @param   basePath
+     *          当前用户基础路径
+     *
+     * @param   folderPath
+     *          文件夹路径
+     *
+     * @return  缓存的文件列表副本, 未命中或已过期时返回 null
+     */
+    public List<FileItemResult> get(String backendAddress, String basePath, String folderPath) {
+        CacheKey key = new CacheKey(backendAddress, basePath, normalizePath(folderPath));
+        CacheEntry entry;
+        synchronized (this) {
+            entry = cache.get(key);
+            if (entry != null && entry.isExpired()) {
+                removeEntry(key);
+                expiredCount.increment();
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return copyList(entry.fileItemList);
+    }
+
+    /**
+     * 获取当前缓存版本号, 应在加载文件列表前获取, 并在写入缓存时传入.
+     *
+     * @return  当前缓存版本号
+     */
+    public synchronized long currentVersion() {
+        return version;
+    }
+
+    /**
+     * 写入文件列表缓存, 如果加载期间发生过失效操作, 则放弃写入, 防止写入过期数据.
+     *
+     * @param   loadVersion
+     *          加载文件列表前获取的缓存版本号
+     *
+     * @param   backendAddress
+     *          后端站点地址
+     *
+     * @param   basePath
+     *          当前用户基础路径
+     *
+     * @param   folderPath
+     *          文件夹路径
+     *
+     * @param   fileItemList
+     *          文件列表
+     */
+    public void put(long loadVersion, String backendAddress, String basePath, String folderPath, List<FileItemResult> fileItemList) {
+        if (fileItemList == null) {
+            return;
+        }
+
+        String normalizedFolderPath = normalizePath(folderPath);
+        CacheKey key = new CacheKey(backendAddress, basePath, normalizedFolderPath);
+        String fullPath = normalizePath(StringUtils.concat(basePath, normalizedFolderPath));
+        List<FileItemResult> copyList = copyList(fileItemList);
+        long bytes = estimateBytes(key, copyList);
+        if (bytes > maxBytes) {
+            log.debug("文件列表 {} 估算大小 {} 字节超过缓存上限, 不进行缓存.", fullPath, bytes);
+            return;
+        }
+
+        synchronized (this) {
+            if (loadVersion != version) {
+                return;
+            }
+            removeEntry(key);
+            cache.put(key, new CacheEntry(fullPath, copyList, bytes, System.currentTimeMillis() + ttlMillis));
+            currentBytes += bytes;
+            evictIfNecessary();
+        }
+    }
+
+    /**
+     * 使指定文件夹的文件列表缓存失效 (所有用户).
+     *
+     * @param   fullPath
+     *          文件夹完整路径 (包含用户基础路径)
+     *
+     * @param   includeChildren
+     *          是否同时使其所有子文件夹的缓存失效
+     */
+    public synchronized void invalidate(String fullPath, boolean includeChildren) {
+        version++;
+        String normalizedPath = normalizePath(fullPath);
+        String childPrefix = StringUtils.SLASH.equals(normalizedPath) ? normalizedPath : normalizedPath + StringUtils.SLASH;
+
+        Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = cache.entrySet().iterator();
+        while (iterator.hasNext()) {
+            CacheEntry entry = iterator.next().getValue();
+            boolean match = entry.fullPath.equals(normalizedPath)
+                    || (includeChildren && entry.fullPath.startsWith(childPrefix));
+            if (match) {
+                iterator.remove();
+                currentBytes -= entry.bytes;
+                invalidateCount.increment();
+            }
+        }
+    }
+
+    /**
+     * 使指定文件夹及其所有上级文件夹的文件列表缓存失效, 用于上传文件时可能会自动创建上级文件夹的情况.
+     *
+     * @param   fullPath
+     *          文件夹完整路径 (包含用户基础路径)
+     */
+    public void invalidateWithParents(String fullPath) {
+        String path = normalizePath(fullPath);
+        while (true) {
+            invalidate(path, false);
+            if (StringUtils.SLASH.equals(path)) {
+                break;
+            }
+            path = normalizePath(FileUtils.getParentPath(path));
+        }
+    }
+
+    /**
+     * 清空所有缓存.
+     */
+    public synchronized void clear() {
+        version++;
+        cache.clear();
+        currentBytes = 0;
+    }
+
+    /**
+     * 获取缓存统计信息.
+     *
+     * @return  缓存统计信息
+     */
+    public FileListCacheStatsResult getStats() {
+        FileListCacheStatsResult result = new FileListCacheStatsResult();
+        synchronized (this) {
+            result.setSize(cache.size());
+            result.setBytes(currentBytes);
+        }
+        result.setMaxEntries(maxEntries);
+        result.setMaxBytes(maxBytes);
+        result.setTtl(ttlMillis / 1000);
+        result.setHitCount(hitCount.sum());
+        result.setMissCount(missCount.sum());
+        result.setEvictionCount(evictionCount.sum());
+        result.setExpiredCount(expiredCount.sum());
+        result.setInvalidateCount(invalidateCount.sum());
+        return result;
+    }
+
+    private void evictIfNecessary() {
+        Iterator<CacheEntry> iterator = cache.values().iterator();
+        while ((cache.size() > maxEntries || currentBytes > maxBytes) && iterator.hasNext()) {
+            CacheEntry eldest = iterator.next();
+            iterator.remove();
+            currentBytes -= eldest.bytes;
+            evictionCount.increment();
+        }
+    }
+
+    private void removeEntry(CacheKey key) {
+        CacheEntry removed = cache.remove(key);
+        if (removed != null) {
+            currentBytes -= removed.bytes;
+        }
+    }
+
+    private static String normalizePath(String path) {
+        String result = StringUtils.trimEndSlashes(StringUtils.concat(path));
+        return StringUtils.isEmpty(result) ? StringUtils.SLASH : result;
+    }
+
+    private static long estimateBytes(CacheKey key, List<FileItemResult> fileItemList) {
+        long bytes = ENTRY_OVERHEAD_BYTES + stringBytes(key.backendAddress) + stringBytes(key.basePath) + stringBytes(key.folderPath);
+        for (FileItemResult fileItemResult : fileItemList) {
+            bytes += ITEM_OVERHEAD_BYTES
+                    + stringBytes(fileItemResult.getName())
+                    + stringBytes(fileItemResult.getPath())
+                    + stringBytes(fileItemResult.getUrl());
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String str) {
+        return str == null ? 0 : 40L + str.length();
+    }
+
+    static List<FileItemResult> copyList(List<FileItemResult> fileItemList) {
+        List<FileItemResult> result = new ArrayList<>(fileItemList.size());
+        for (FileItemResult fileItemResult : fileItemList) {
+            FileItemResult copy = new FileItemResult();
+            copy.setName(fileItemResult.getName());
+            copy.setTime(fileItemResult.getTime());
+            copy.setSize(fileItemResult.getSize());
+            copy.setType(fileItemResult.getType());
+            copy.setPath(fileItemResult.getPath());
+            copy.setUrl(fileItemResult.getUrl());
+            result.add(copy);
+        }
+        return result;
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class CacheKey {
+
+        private String backendAddress;
+
+        private String basePath;
+
+        private String folderPath;
+
+    }
+
+    @AllArgsConstructor
+    private static class CacheEntry {
+
+        private final String fullPath;
+
+        private final List<FileItemResult> fileItemList;
+
+        private final long bytes;
+
+        private final long expireAt;
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expireAt;
+        }
+
+    }
+
+}
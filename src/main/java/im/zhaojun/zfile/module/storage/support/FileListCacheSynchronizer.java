@@ -0,0 +1,134 @@
+package im.zhaojun.zfile.module.storage.support;
+
+import im.zhaojun.zfile.core.cache.LocalCacheInvalidationHandler;
+import im.zhaojun.zfile.core.cache.LocalCacheInvalidator;
+import im.zhaojun.zfile.core.util.StringUtils;
+import im.zhaojun.zfile.module.storage.context.StorageSourceContext;
+import im.zhaojun.zfile.module.storage.service.base.AbstractBaseFileService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文件列表缓存失效同步, 使本机 {@link FileListCache} 失效的同时通知其他节点使各自的缓存失效.
+ * <br>
+ * 通知 key 格式: 操作|存储源 ID|是否包含子文件夹|完整路径, 操作为 I (失效指定文件夹)、P (失效文件夹及上级文件夹)、C (清空).
+ *
+ * @author zhaojun
+ */
+@Slf4j
+@Component
+public class FileListCacheSynchronizer implements LocalCacheInvalidationHandler {
+
+    private static final String CACHE_NAME = "fileList";
+
+    private static final String SEPARATOR = "|";
+
+    private static final String INVALIDATE_ACTION = "I";
+
+    private static final String INVALIDATE_WITH_PARENTS_ACTION = "P";
+
+    private static final String CLEAR_ACTION = "C";
+
+    @Resource
+    private LocalCacheInvalidator localCacheInvalidator;
+
+    @PostConstruct
+    public void init() {
+        localCacheInvalidator.register(CACHE_NAME, this);
+    }
+
+    /**
+     * 使指定文件夹的缓存失效, 并通知其他节点.
+     *
+     * @param   fileService
+     *          存储源 Service
+     *
+     * @param   fullPath
+     *          文件夹完整路径 (包含用户基础路径)
+     *
+     * @param   includeChildren
+     *          是否同时使其下级文件夹的缓存失效
+     */
+    public void invalidate(AbstractBaseFileService<?> fileService, String fullPath, boolean includeChildren) {
+        FileListCache fileListCache = fileService.getFileListCache();
+        if (fileListCache == null) {
+            return;
+        }
+        fileListCache.invalidate(fullPath, includeChildren);
+        publish(INVALIDATE_ACTION, fileService.getStorageId(), includeChildren, fullPath);
+    }
+
+    /**
+     * 使指定文件夹及其上级文件夹的缓存失效, 并通知其他节点.
+     *
+     * @param   fileService
+     *          存储源 Service
+     *
+     * @param   fullPath
+     *          文件夹完整路径 (包含用户基础路径)
+     */
+    public void invalidateWithParents(AbstractBaseFileService<?> fileService, String fullPath) {
+        FileListCache fileListCache = fileService.getFileListCache();
+        if (fileListCache == null) {
+            return;
+        }
+        fileListCache.invalidateWithParents(fullPath);
+        publish(INVALIDATE_WITH_PARENTS_ACTION, fileService.getStorageId(), false, fullPath);
+    }
+
+    /**
+     * 清空存储源的文件列表缓存, 并通知其他节点.
+     *
+     * @param   fileService
+     *          存储源 Service
+     */
+    public void clear(AbstractBaseFileService<?> fileService) {
+        FileListCache fileListCache = fileService.getFileListCache();
+        if (fileListCache == null) {
+            return;
+        }
+        fileListCache.clear();
+        publish(CLEAR_ACTION, fileService.getStorageId(), false, StringUtils.EMPTY);
+    }
+
+    @Override
+    public void evict(String key) {
+        String[] parts = key.split("\\" + SEPARATOR, 4);
+        if (parts.length != 4) {
+            return;
+        }
+        FileListCache fileListCache = findFileListCache(Integer.valueOf(parts[1]));
+        if (fileListCache == null) {
+            return;
+        }
+        switch (parts[0]) {
+            case INVALIDATE_ACTION -> fileListCache.invalidate(parts[3], Boolean.parseBoolean(parts[2]));
+            case INVALIDATE_WITH_PARENTS_ACTION -> fileListCache.invalidateWithParents(parts[3]);
+            case CLEAR_ACTION -> fileListCache.clear();
+            default -> log.warn("未知的文件列表缓存失效通知: {}", key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        // 各存储源的缓存均按存储源单独清空, 不会收到整体清空的通知.
+    }
+
+    private void publish(String action, Integer storageId, boolean includeChildren, String fullPath) {
+        localCacheInvalidator.publishEvict(CACHE_NAME, String.join(SEPARATOR, action, String.valueOf(storageId), String.valueOf(includeChildren), fullPath));
+    }
+
+    /**
+     * 获取本机存储源的文件列表缓存, 存储源在本机未初始化或未开启缓存时返回 null.
+     */
+    private FileListCache findFileListCache(Integer storageId) {
+        try {
+            return StorageSourceContext.getByStorageId(storageId).getFileListCache();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+package im.zhaojun.zfile.module.storage.support;
+
+import cn.hutool.core.util.IdUtil;
+import im.zhaojun.zfile.module.storage.model.result.FileItemResult;
+import lombok.AllArgsConstructor;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 分页获取文件列表时的文件列表快照.
+ * <p>
+ * 不支持服务端分页的存储源只能获取完整的文件列表, 第一页获取后将完整列表保存为快照, 后续页直接从快照中截取,
+ * 避免每一页都重新获取完整列表 (逐页获取整个文件夹的总开销为 O(N²)). 分页标识中包含快照 ID, 快照绑定文件夹完整路径,
+ * 不能用于其他文件夹.
+ * <p>
+ * 快照只在分页期间短暂保留, 超过过期时间、最大快照数或最大文件总数时按最近最少使用的顺序淘汰, 淘汰后的分页标识会重新获取完整列表.
+ * 最新保存的快照不会因超过最大文件总数被淘汰, 超大文件夹也只需获取一次完整列表 (获取时完整列表本就已在内存中), 但会淘汰其他所有快照.
+ *
+ * @author zhaojun
+ */
+public class FileListPageSnapshotCache {
+
+    /**
+     * 快照过期时间, 单位: 毫秒
+     */
+    private static final long TTL_MILLIS = 120_000;
+
+    /**
+     * 最多保留的快照数
+     */
+    private static final int MAX_SNAPSHOTS = 16;
+
+    /**
+     * 所有快照最多保留的文件总数
+     */
+    private static final int MAX_TOTAL_ITEMS = 200_000;
+
+    /**
+     * 按访问顺序排列的快照, 所有读写均在 this 锁内进行.
+     */
+    private final LinkedHashMap<String, Snapshot> snapshotMap = new LinkedHashMap<>(16, 0.75f, true);
+
+    private int totalItems;
+
+    /**
+     * 保存文件列表快照
+     *
+     * @param   fullPath
+     *          文件夹完整路径 (包含用户基础路径)
+     *
+     * @param   fileItemList
+     *          完整的文件列表
+     *
+     * @return  快照 ID
+     */
+    public String put(String fullPath, List<FileItemResult> fileItemList) {
+        String snapshotId = IdUtil.fastSimpleUUID();
+        List<FileItemResult> copyList = FileListCache.copyList(fileItemList);
+        synchronized (this) {
+            snapshotMap.put(snapshotId, new Snapshot(fullPath, copyList, System.currentTimeMillis() + TTL_MILLIS));
+            totalItems += copyList.size();
+            evictIfNecessary(snapshotId);
+        }
+        return snapshotId;
+    }
+
+    /**
+     * 获取文件列表快照中的一段
+     *
+     * @param   snapshotId
+     *          快照 ID
+     *
+     * @param   fullPath
+     *          文件夹完整路径 (包含用户基础路径), 必须与保存快照时一致.
+     *
+     * @param   fromIndex
+     *          起始位置 (包含)
+     *
+     * @param   toIndex
+     *          结束位置 (不包含), 超过列表长度时截取到末尾.
+     *
+     * @return  该段文件列表的副本, 快照不存在、已过期或不属于该文件夹时返回 null.
+     */
+    public List<FileItemResult> getRange(String snapshotId, String fullPath, int fromIndex, int toIndex) {
+        Snapshot snapshot;
+        synchronized (this) {
+            snapshot = snapshotMap.get(snapshotId);
+            if (snapshot != null && snapshot.isExpired()) {
+                removeSnapshot(snapshotId);
+                snapshot = null;
+            }
+        }
+        if (snapshot == null || !Objects.equals(snapshot.fullPath, fullPath)) {
+            return null;
+        }
+        List<FileItemResult> fileItemList = snapshot.fileItemList;
+        int size = fileItemList.size();
+        return FileListCache.copyList(fileItemList.subList(Math.min(fromIndex, size), Math.min(toIndex, size)));
+    }
+
+    /**
+     * 淘汰过期及超出数量限制的快照, 不淘汰刚保存的快照.
+     */
+    private void evictIfNecessary(String newSnapshotId) {
+        Iterator<Map.Entry<String, Snapshot>> iterator = snapshotMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Snapshot> entry = iterator.next();
+            if (entry.getKey().equals(newSnapshotId)) {
+                continue;
+            }
+            Snapshot snapshot = entry.getValue();
+            if (snapshot.isExpired() || snapshotMap.size() > MAX_SNAPSHOTS || totalItems > MAX_TOTAL_ITEMS) {
+                iterator.remove();
+                totalItems -= snapshot.fileItemList.size();
+            }
+        }
+    }
+
+    private void removeSnapshot(String snapshotId) {
+        Snapshot snapshot = snapshotMap.remove(snapshotId);
+        if (snapshot != null) {
+            totalItems -= snapshot.fileItemList.size();
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Snapshot {
+
+        private final String fullPath;
+
+        private final List<FileItemResult> fileItemList;
+
+        private final long expireAt;
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expireAt;
+        }
+
+    }
+
+}
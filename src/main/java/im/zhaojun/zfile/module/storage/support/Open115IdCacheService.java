@@ -2,6 +2,7 @@ package im.zhaojun.zfile.module.storage.support;
 
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
+import im.zhaojun.zfile.core.config.ZFileProperties;
 import im.zhaojun.zfile.core.exception.ErrorCode;
 import im.zhaojun.zfile.core.exception.core.SystemException;
 import im.zhaojun.zfile.core.exception.status.NotFoundAccessException;
@@ -10,6 +11,8 @@ import im.zhaojun.zfile.core.util.StringUtils;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 
@@ -17,6 +20,12 @@ import java.util.function.BiFunction;
  * 115 文件和路径 ID 缓存服务.
  * <p>
  * 每个存储源实例持有一个此类的实例，用于隔离不同存储源的缓存。
+ * 文件 ID 和路径 ID 分别缓存在 {@link PathIdCache} 中, 超过过期时间、最大条目数或最大占用字节数时按最近最少使用的顺序淘汰.
+ * 配置的最大条目数和最大占用字节数是单个存储源的总限制, 由两个缓存平分.
+ * <p>
+ * 缓存未命中时会列出父目录来获取 ID, 同一目录同一时间只会有一个线程在列出, 其他线程等待其结果.
+ * 完整列出过的目录会记录下来, 在不存在结果的缓存时间 ({@link ZFileProperties.PathIdCacheProperties#getNegativeTtl()}) 内
+ * 查找其中不存在的文件时, 直接返回不存在, 不再重复列出. 此时间远短于 ID 的缓存时间, 在 ZFile 外部新增的文件很快即可访问.
  *
  * @author zhaojun
  */
@@ -33,18 +42,45 @@ public class Open115IdCacheService {
      */
     private static final String FC_FILE = "1";
 
+    /**
+     * 根目录 ID
+     */
+    private static final String ROOT_ID = "0";
+
+    /**
+     * 最多记录的已完整列出的目录数
+     */
+    private static final int MAX_LISTED_FOLDERS = 1024;
+
     /**
      * 路径 ID 缓存
      */
-    private final Map<String, String> pathIdMap = new ConcurrentHashMap<>() {{
-        put("/", "0");
-        put("", "0");
-    }};
+    private final PathIdCache pathIdCache;
 
     /**
      * 文件 ID 缓存
      */
-    private final Map<String, String> fileIdMap = new ConcurrentHashMap<>();
+    private final PathIdCache fileIdCache;
+
+    /**
+     * 已完整列出的目录的有效期, 单位: 毫秒
+     */
+    private final long listedFolderTtlMillis;
+
+    /**
+     * 已完整列出的目录, 所有读写均在 listedFolders 锁内进行.
+     */
+    private final LinkedHashMap<String, ListedFolder> listedFolders = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ListedFolder> eldest) {
+            return size() > MAX_LISTED_FOLDERS;
+        }
+    };
+
+    /**
+     * 正在列出的目录
+     */
+    private final Map<String, CompletableFuture<Void>> loadingFolders = new ConcurrentHashMap<>();
 
     /**
      * 发送带认证的 GET 请求的函数.
@@ -55,8 +91,14 @@ public class Open115IdCacheService {
      */
     private final BiFunction<String, Map<String, Object>, JSONObject> sendGetRequestWithAuth;
 
-    public Open115IdCacheService(BiFunction<String, Map<String, Object>, JSONObject> sendGetRequestWithAuth) {
+    public Open115IdCacheService(BiFunction<String, Map<String, Object>, JSONObject> sendGetRequestWithAuth,
+                                 ZFileProperties.PathIdCacheProperties pathIdCacheProperties) {
         this.sendGetRequestWithAuth = sendGetRequestWithAuth;
+        this.listedFolderTtlMillis = Math.min(pathIdCacheProperties.getNegativeTtl(), pathIdCacheProperties.getTtl()) * 1000;
+        int maxEntries = Math.max(1, pathIdCacheProperties.getMaxEntries() / 2);
+        long maxBytes = Math.max(1, pathIdCacheProperties.getMaxBytes() / 2);
+        this.pathIdCache = new PathIdCache(pathIdCacheProperties.getTtl(), maxEntries, maxBytes);
+        this.fileIdCache = new PathIdCache(pathIdCacheProperties.getTtl(), maxEntries, maxBytes);
     }
 
     /**
@@ -67,7 +109,7 @@ public class Open115IdCacheService {
      * @return                  文件 ID
      */
     public String getFileId(String fullPath, boolean throwIfNotFound) {
-        String id = fileIdMap.get(fullPath);
+        String id = fileIdCache.get(fullPath);
         if (id != null) {
             return id;
         }
@@ -77,9 +119,11 @@ public class Open115IdCacheService {
             throw new SystemException("无法解析路径 '" + fullPath + "' 的父路径。");
         }
 
-        cachePathAndFileId(parentPath);
+        if (!isFolderListed(parentPath)) {
+            cachePathAndFileId(parentPath);
+            id = fileIdCache.get(fullPath);
+        }
 
-        id = fileIdMap.get(fullPath);
         if (id == null && throwIfNotFound) {
             throw new NotFoundAccessException(ErrorCode.BIZ_FILE_NOT_EXIST);
         }
@@ -95,7 +139,11 @@ public class Open115IdCacheService {
      */
     public String getPathId(String fullPath, boolean throwIfNotFound) {
         String trimEndSlashes = StringUtils.trimEndSlashes(fullPath);
-        String id = pathIdMap.get(trimEndSlashes);
+        if (StringUtils.isEmpty(trimEndSlashes)) {
+            return ROOT_ID;
+        }
+
+        String id = pathIdCache.get(trimEndSlashes);
         if (id != null) {
             return id;
         }
@@ -105,9 +153,11 @@ public class Open115IdCacheService {
             throw new SystemException("无法解析路径 '" + trimEndSlashes + "' 的父路径。");
         }
 
-        cachePathAndFileId(parentPath);
+        if (!isFolderListed(parentPath)) {
+            cachePathAndFileId(parentPath);
+            id = pathIdCache.get(trimEndSlashes);
+        }
 
-        id = pathIdMap.get(trimEndSlashes);
         if (id == null && throwIfNotFound) {
             throw new NotFoundAccessException(ErrorCode.BIZ_FILE_NOT_EXIST);
         }
@@ -115,12 +165,42 @@ public class Open115IdCacheService {
     }
 
     /**
-     * 缓存指定文件夹下的所有文件和子文件夹的 ID.
+     * 缓存指定文件夹下的所有文件和子文件夹的 ID, 同一文件夹同时只会列出一次, 其他线程等待其完成.
      *
      * @param folderPath 文件夹路径
      */
     private void cachePathAndFileId(String folderPath) {
+        String key = normalize(folderPath);
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture<Void> loadingFuture = loadingFolders.putIfAbsent(key, future);
+        if (loadingFuture != null) {
+            try {
+                loadingFuture.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+            return;
+        }
+
+        try {
+            listFolder(folderPath);
+            future.complete(null);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadingFolders.remove(key, future);
+        }
+    }
+
+    private void listFolder(String folderPath) {
         String pathId = getPathId(folderPath, true);
+        // 过期时间从开始列出时计算, 不晚于本次列出写入的任何条目的过期时间, 避免条目过期后仍被当作已列出而误判为不存在.
+        long startTime = System.currentTimeMillis();
+        long evictionCount = getEvictionCount();
         List<String> idList = new ArrayList<>();
 
         int offset = 0;
@@ -135,6 +215,7 @@ public class Open115IdCacheService {
             String cid = jsonObject.getString("cid");
             if (!Objects.equals(pathId, cid)) {
                 log.warn("请求的路径 ID '{}' 与返回的路径 ID '{}' 不符, 可能是 115 做了兼容处理, 返回了根目录.", pathId, cid);
+                deletePathId(folderPath);
                 throw new NotFoundAccessException(ErrorCode.BIZ_FILE_NOT_EXIST);
             }
 
@@ -147,9 +228,9 @@ public class Open115IdCacheService {
 
                 String fullPath = StringUtils.concat(folderPath, fn);
                 if (Objects.equals(fileItem.getString("fc"), FC_FILE)) {
-                    fileIdMap.put(fullPath, fid);
+                    fileIdCache.put(fullPath, fid);
                 } else {
-                    pathIdMap.put(fullPath, fid);
+                    pathIdCache.put(fullPath, fid);
                 }
                 idList.add(fid);
             }
@@ -157,30 +238,99 @@ public class Open115IdCacheService {
             count = jsonObject.getInteger("count");
             offset += FILE_LIST_LIMIT;
         } while (idList.size() < count);
+
+        synchronized (listedFolders) {
+            listedFolders.put(normalize(folderPath), new ListedFolder(startTime + listedFolderTtlMillis, evictionCount));
+        }
+    }
+
+    /**
+     * 判断文件夹是否在缓存有效期内完整列出过, 且列出后没有淘汰过缓存 (淘汰的条目可能是该文件夹下的).
+     */
+    private boolean isFolderListed(String folderPath) {
+        String key = normalize(folderPath);
+        synchronized (listedFolders) {
+            ListedFolder listedFolder = listedFolders.get(key);
+            if (listedFolder == null) {
+                return false;
+            }
+            if (listedFolder.expireTime < System.currentTimeMillis() || listedFolder.evictionCount != getEvictionCount()) {
+                listedFolders.remove(key);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private long getEvictionCount() {
+        return pathIdCache.getEvictionCount() + fileIdCache.getEvictionCount();
     }
 
     public void putFileId(String fullPath, String id) {
-        fileIdMap.put(fullPath, id);
+        fileIdCache.put(fullPath, id);
     }
 
     public void putPathId(String fullPath, String id) {
-        pathIdMap.put(StringUtils.trimEndSlashes(fullPath), id);
+        pathIdCache.put(fullPath, id);
     }
 
     public void deleteFileId(String fullPath) {
-        fileIdMap.remove(fullPath);
+        fileIdCache.remove(fullPath);
     }
 
+    /**
+     * 删除路径及其下所有文件和文件夹的 ID 缓存.
+     * <p>
+     * 缓存的 ID 失效时 (如在 115 中删除后又创建了同名文件夹) 也会调用此方法, 所以同时清除父目录的已列出记录, 下次查找时重新列出.
+     *
+     * @param fullPath 完整路径
+     */
     public void deletePathId(String fullPath) {
-        String trimmedPath = StringUtils.trimEndSlashes(fullPath);
-        pathIdMap.remove(trimmedPath);
+        pathIdCache.invalidate(fullPath);
+        fileIdCache.invalidate(fullPath);
 
-        pathIdMap.entrySet().removeIf(entry -> entry.getKey().startsWith(trimmedPath));
-        fileIdMap.entrySet().removeIf(entry -> entry.getKey().startsWith(trimmedPath));
+        String key = normalize(fullPath);
+        String parentKey = normalize(FileUtils.getParentPath(key));
+        String childPrefix = StringUtils.concat(key, StringUtils.SLASH);
+        synchronized (listedFolders) {
+            listedFolders.remove(parentKey);
+            listedFolders.keySet().removeIf(folder -> folder.equals(key) || folder.startsWith(childPrefix));
+        }
+    }
+
+    /**
+     * 文件夹下新增了未写入缓存的文件 (如复制、上传), 之后查找其中的文件时需要重新列出.
+     *
+     * @param folderFullPath 文件夹完整路径
+     */
+    public void markFolderChanged(String folderFullPath) {
+        synchronized (listedFolders) {
+            listedFolders.remove(normalize(folderFullPath));
+        }
     }
 
     public String removeFileIdByPath(String fullPath) {
-        return fileIdMap.remove(fullPath);
+        return fileIdCache.remove(fullPath);
+    }
+
+    private static String normalize(String path) {
+        return StringUtils.concatTrimEndSlashes(path);
+    }
+
+    private static class ListedFolder {
+
+        private final long expireTime;
+
+        /**
+         * 开始列出时的缓存淘汰数
+         */
+        private final long evictionCount;
+
+        private ListedFolder(long expireTime, long evictionCount) {
+            this.expireTime = expireTime;
+            this.evictionCount = evictionCount;
+        }
+
     }
 
-}
\ No newline at end of file
+}
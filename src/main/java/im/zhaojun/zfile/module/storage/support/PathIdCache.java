@@ -0,0 +1,219 @@
+package im.zhaojun.zfile.module.storage.support;
+
+import im.zhaojun.zfile.core.util.StringUtils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 存储源路径与文件 id 的映射缓存.
+ * <p>
+ * 适用于只能通过 id 操作文件的存储源 (如 Google Drive, 115), 避免每次访问时都从根目录逐级查询 id.
+ * 每个存储源实例持有一个此类的实例, 超过过期时间、最大条目数或最大占用字节数时, 按最近最少使用的顺序淘汰.
+ * 路径统一去除末尾的 /, 删除某个路径时会同时删除其所有子路径.
+ *
+ * @author zhaojun
+ */
+public class PathIdCache {
+
+    /**
+     * 每个缓存条目的固定估算开销 (两个字符串对象, 链表节点, 条目对象等), 单位: 字节
+     */
+    private static final long ENTRY_OVERHEAD_BYTES = 160;
+
+    private final long ttlMillis;
+
+    private final int maxEntries;
+
+    private final long maxBytes;
+
+    /**
+     * 按访问顺序排列的缓存, 所有读写均在 this 锁内进行.
+     */
+    private final LinkedHashMap<String, CacheEntry> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * 当前缓存占用的估算字节数
+     */
+    private long currentBytes;
+
+    public PathIdCache(long ttlSeconds, int maxEntries, long maxBytes) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 获取路径对应的 id
+     *
+     * @param   path
+     *          路径
+     *
+     * @return  id, 不存在或已过期时返回 null.
+     */
+    public synchronized String get(String path) {
+        String key = normalize(path);
+        CacheEntry entry = cache.get(key);
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        if (entry.isExpired()) {
+            cache.remove(key);
+            currentBytes -= entry.bytes;
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return entry.id;
+    }
+
+    /**
+     * 写入路径对应的 id
+     *
+     * @param   path
+     *          路径
+     *
+     * @param   id
+     *          id
+     */
+    public synchronized void put(String path, String id) {
+        if (StringUtils.isEmpty(id)) {
+            return;
+        }
+        String key = normalize(path);
+        CacheEntry entry = new CacheEntry(id, System.currentTimeMillis() + ttlMillis, estimateBytes(key, id));
+        CacheEntry oldEntry = cache.put(key, entry);
+        if (oldEntry != null) {
+            currentBytes -= oldEntry.bytes;
+        }
+        currentBytes += entry.bytes;
+        if (cache.size() > maxEntries || currentBytes > maxBytes) {
+            removeExpiredOrEldest();
+        }
+    }
+
+    /**
+     * 删除路径及其所有子路径的缓存
+     *
+     * @param   path
+     *          路径
+     */
+    public synchronized void invalidate(String path) {
+        String key = normalize(path);
+        if (StringUtils.equals(key, StringUtils.SLASH)) {
+            clear();
+            return;
+        }
+        String childPrefix = key + StringUtils.SLASH;
+        Iterator<Map.Entry<String, CacheEntry>> iterator = cache.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, CacheEntry> entry = iterator.next();
+            if (entry.getKey().equals(key) || entry.getKey().startsWith(childPrefix)) {
+                iterator.remove();
+                currentBytes -= entry.getValue().bytes;
+            }
+        }
+    }
+
+    /**
+     * 删除路径的缓存 (不包含子路径)
+     *
+     * @param   path
+     *          路径
+     *
+     * @return  删除前缓存的 id, 不存在或已过期时返回 null.
+     */
+    public synchronized String remove(String path) {
+        CacheEntry entry = cache.remove(normalize(path));
+        if (entry == null) {
+            return null;
+        }
+        currentBytes -= entry.bytes;
+        return entry.isExpired() ? null : entry.id;
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public synchronized long getEstimatedBytes() {
+        return currentBytes;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * 超过最大条目数或最大占用字节数时, 优先淘汰已过期的条目, 没有过期条目时淘汰最久未使用的条目.
+     */
+    private void removeExpiredOrEldest() {
+        Iterator<Map.Entry<String, CacheEntry>> iterator = cache.entrySet().iterator();
+        while (iterator.hasNext()) {
+            CacheEntry entry = iterator.next().getValue();
+            if (entry.isExpired()) {
+                iterator.remove();
+                currentBytes -= entry.bytes;
+            }
+        }
+        iterator = cache.entrySet().iterator();
+        while ((cache.size() > maxEntries || currentBytes > maxBytes) && iterator.hasNext()) {
+            CacheEntry entry = iterator.next().getValue();
+            iterator.remove();
+            currentBytes -= entry.bytes;
+            evictionCount.increment();
+        }
+    }
+
+    private static long estimateBytes(String key, String id) {
+        return ENTRY_OVERHEAD_BYTES + (key.length() + id.length()) * 2L;
+    }
+
+    private static String normalize(String path) {
+        String key = StringUtils.concatTrimEndSlashes(path);
+        return StringUtils.isEmpty(key) ? StringUtils.SLASH : key;
+    }
+
+    private static class CacheEntry {
+
+        private final String id;
+
+        private final long expireTime;
+
+        private final long bytes;
+
+        private CacheEntry(String id, long expireTime, long bytes) {
+            this.id = id;
+            this.expireTime = expireTime;
+            this.bytes = bytes;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() > expireTime;
+        }
+
+    }
+
+}
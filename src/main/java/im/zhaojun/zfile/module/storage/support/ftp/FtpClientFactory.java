@@ -49,15 +49,27 @@ public class FtpClientFactory extends BasePooledObjectFactory<Ftp> {
         return new DefaultPooledObject(ftpClient);
     }
 
+    /**
+     * 借出连接时只检查本地连接状态, 不与服务端交互, 连接的可用性由空闲检测 {@link #validateObject} 保证.
+     */
+    @Override
+    public void activateObject(PooledObject<Ftp> p) throws Exception {
+        if (!p.getObject().getClient().isConnected()) {
+            throw new IllegalStateException("FTP connection is closed");
+        }
+    }
+
+    /**
+     * 空闲检测时发送 NOOP 命令, 同时起到保活作用, 避免空闲连接被服务端断开.
+     */
     @Override
     public boolean validateObject(PooledObject<Ftp> p) {
-        String pwd = null;
+        boolean isValid = false;
         try {
-            pwd = p.getObject().pwd();
+            isValid = p.getObject().getClient().sendNoOp();
         } catch (Exception fex) {
             // ignore
         }
-        boolean isValid = pwd != null;
         log.debug("Validating object: {} isValid: {}", p.getObject(), isValid);
         return isValid;
     }
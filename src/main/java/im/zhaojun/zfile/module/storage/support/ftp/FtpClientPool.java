@@ -1,12 +1,22 @@
 package im.zhaojun.zfile.module.storage.support.ftp;
 
 import cn.hutool.extra.ftp.Ftp;
+import im.zhaojun.zfile.module.storage.model.result.ConnectionPoolStatsResult;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.pool2.PooledObjectFactory;
 import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 
+@Slf4j
 public class FtpClientPool extends GenericObjectPool<Ftp> {
 
+    /**
+     * 连接池名称, 用于区分同一存储源的多个连接池.
+     */
+    @Getter
+    private String poolName;
+
     public FtpClientPool(PooledObjectFactory<Ftp> factory) {
         super(factory);
     }
@@ -14,4 +24,54 @@ public class FtpClientPool extends GenericObjectPool<Ftp> {
     public FtpClientPool(PooledObjectFactory<Ftp> factory, GenericObjectPoolConfig config) {
         super(factory, config);
     }
-}
\ No newline at end of file
+
+    public FtpClientPool(String poolName, PooledObjectFactory<Ftp> factory, GenericObjectPoolConfig config) {
+        super(factory, config);
+        this.poolName = poolName;
+    }
+
+    /**
+     * 归还连接, 如果连接已断开 (如操作过程中服务端关闭了连接), 则直接销毁, 避免下次借出不可用的连接.
+     */
+    @Override
+    public void returnObject(Ftp ftp) {
+        if (ftp.getClient().isConnected()) {
+            super.returnObject(ftp);
+            return;
+        }
+        invalidate(ftp);
+    }
+
+    /**
+     * 销毁连接, 用于操作过程中出现异常, 无法确定连接状态时.
+     */
+    public void invalidate(Ftp ftp) {
+        try {
+            invalidateObject(ftp);
+        } catch (Exception e) {
+            log.warn("销毁 FTP 连接失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取连接池统计信息
+     */
+    public ConnectionPoolStatsResult getStats() {
+        ConnectionPoolStatsResult stats = new ConnectionPoolStatsResult();
+        stats.setPoolName(poolName);
+        stats.setMaxTotal(getMaxTotal());
+        stats.setMinIdle(getMinIdle());
+        stats.setActive(getNumActive());
+        stats.setIdle(getNumIdle());
+        stats.setWaiters(getNumWaiters());
+        stats.setBorrowedCount(getBorrowedCount());
+        stats.setCreatedCount(getCreatedCount());
+        stats.setDestroyedCount(getDestroyedCount());
+        stats.setDestroyedByEvictorCount(getDestroyedByEvictorCount());
+        stats.setMeanBorrowWaitMillis(getMeanBorrowWaitDuration().toMillis());
+        stats.setMaxBorrowWaitMillis(getMaxBorrowWaitDuration().toMillis());
+        stats.setMeanActiveMillis(getMeanActiveDuration().toMillis());
+        return stats;
+    }
+
+}
@@ -0,0 +1,215 @@
+package im.zhaojun.zfile.module.storage.support.http;
+
+import im.zhaojun.zfile.core.config.ZFileProperties;
+import im.zhaojun.zfile.module.storage.model.result.HttpClientStatsResult;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 存储源 HTTP 客户端.
+ * <p>
+ * 每个基于 HTTP 接口的存储源实例持有一个此类的实例, 该存储源的所有请求共用一个连接池, 复用已建立的 TLS 连接,
+ * 避免每次请求都重新握手. 连接数、超时时间及连接保持时间见 {@link ZFileProperties.HttpClientProperties}.
+ * 代理下载等长时间占用连接的请求使用 {@link #forDownload} 创建的独立实例, 避免占满接口请求的连接池.
+ * <p>
+ * 同时统计该存储源的请求数、失败数、被限流数及响应时间.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public class StorageHttpClient {
+
+    private final int maxConnectionsPerRoute;
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    @Getter
+    private final CloseableHttpClient httpClient;
+
+    private final LongAdder requestCount = new LongAdder();
+
+    private final LongAdder errorCount = new LongAdder();
+
+    private final LongAdder throttledCount = new LongAdder();
+
+    private final LongAdder totalLatencyNanos = new LongAdder();
+
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    public StorageHttpClient(ZFileProperties.HttpClientProperties httpClientProperties) {
+        this(httpClientProperties, null);
+    }
+
+    /**
+     * @param   httpClientProperties
+     *          连接池配置
+     *
+     * @param   responseTimeoutSecond
+     *          等待响应超时时间, 单位: 秒, 0 表示不限制. 为空时使用连接池配置中的值, 用于存储源单独配置了超时时间的情况.
+     */
+    public StorageHttpClient(ZFileProperties.HttpClientProperties httpClientProperties, Integer responseTimeoutSecond) {
+        this(httpClientProperties, responseTimeoutSecond, httpClientProperties.getMaxConnections(), httpClientProperties.getMaxConnectionsPerRoute());
+    }
+
+    private StorageHttpClient(ZFileProperties.HttpClientProperties httpClientProperties, Integer responseTimeoutSecond,
+                              int maxConnections, int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        long responseTimeout = responseTimeoutSecond == null ? httpClientProperties.getResponseTimeout() : responseTimeoutSecond;
+
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofSeconds(httpClientProperties.getConnectTimeout()))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofSeconds(httpClientProperties.getConnectionRequestTimeout()))
+                .setResponseTimeout(Timeout.ofSeconds(responseTimeout))
+                .setConnectionKeepAlive(TimeValue.ofSeconds(httpClientProperties.getKeepAlive()))
+                .build();
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(httpClientProperties.getKeepAlive()))
+                .addExecInterceptorFirst("stats", this::executeWithStats)
+                .build();
+    }
+
+    /**
+     * 创建代理下载使用的 HTTP 客户端, 连接池最大连接数及每个目标主机的最大连接数均为
+     * {@link ZFileProperties.HttpClientProperties#getMaxDownloadConnections()}.
+     *
+     * @param   httpClientProperties
+     *          连接池配置
+     *
+     * @return  代理下载使用的 HTTP 客户端
+     */
+    public static StorageHttpClient forDownload(ZFileProperties.HttpClientProperties httpClientProperties) {
+        int maxDownloadConnections = Math.max(httpClientProperties.getMaxDownloadConnections(), 1);
+        return new StorageHttpClient(httpClientProperties, null, maxDownloadConnections, maxDownloadConnections);
+    }
+
+    /**
+     * 获取基于此连接池的 RestTemplate 请求工厂
+     *
+     * @return  请求工厂
+     */
+    public ClientHttpRequestFactory getRequestFactory() {
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    /**
+     * 发送请求并以字符串读取响应体, 读取完成后连接归还到连接池.
+     *
+     * @param   request
+     *          请求
+     *
+     * @return  响应状态码及响应体
+     */
+    public TextResponse executeForText(ClassicHttpRequest request) throws IOException {
+        return httpClient.execute(request, response -> {
+            String body = response.getEntity() == null ? null : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+            return new TextResponse(response.getCode(), body);
+        });
+    }
+
+    private ClassicHttpResponse executeWithStats(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain) throws IOException, HttpException {
+        long startTime = System.nanoTime();
+        boolean success = false;
+        try {
+            ClassicHttpResponse response = chain.proceed(request, scope);
+            int code = response.getCode();
+            success = code < HttpStatus.SC_SERVER_ERROR;
+            if (code == HttpStatus.SC_TOO_MANY_REQUESTS) {
+                throttledCount.increment();
+            }
+            return response;
+        } finally {
+            long latency = System.nanoTime() - startTime;
+            requestCount.increment();
+            totalLatencyNanos.add(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            if (!success) {
+                errorCount.increment();
+            }
+        }
+    }
+
+    /**
+     * 获取连接池及请求统计信息
+     */
+    public HttpClientStatsResult getStats() {
+        PoolStats totalStats = connectionManager.getTotalStats();
+        long requests = requestCount.sum();
+
+        HttpClientStatsResult stats = new HttpClientStatsResult();
+        stats.setMaxConnections(totalStats.getMax());
+        stats.setMaxConnectionsPerRoute(maxConnectionsPerRoute);
+        stats.setLeased(totalStats.getLeased());
+        stats.setAvailable(totalStats.getAvailable());
+        stats.setPending(totalStats.getPending());
+        stats.setRequestCount(requests);
+        stats.setErrorCount(errorCount.sum());
+        stats.setThrottledCount(throttledCount.sum());
+        stats.setMeanLatencyMillis(requests == 0 ? 0 : totalLatencyNanos.sum() / requests / 1_000_000);
+        stats.setMaxLatencyMillis(maxLatencyNanos.get() / 1_000_000);
+        return stats;
+    }
+
+    /**
+     * 关闭连接池, 正在进行的请求会被中断.
+     */
+    public void close() {
+        httpClient.close(CloseMode.IMMEDIATE);
+    }
+
+    /**
+     * 文本响应
+     */
+    @Getter
+    public static class TextResponse {
+
+        private final int status;
+
+        private final String body;
+
+        public TextResponse(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        public boolean isOk() {
+            return status >= HttpStatus.SC_SUCCESS && status < HttpStatus.SC_REDIRECTION;
+        }
+
+    }
+
+}
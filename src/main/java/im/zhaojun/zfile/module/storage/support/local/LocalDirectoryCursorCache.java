@@ -0,0 +1,204 @@
+package im.zhaojun.zfile.module.storage.support.local;
+
+import cn.hutool.core.util.IdUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 本地存储分页获取文件列表时的目录游标.
+ * <p>
+ * 每页读取完成后保留打开的目录流, 下一页从上次读取的位置继续, 逐页读取 (包括流式获取) 整个文件夹只遍历一次目录,
+ * 内存中只保留当前页. 分页标识中包含游标 ID 及已读取的条数, 游标绑定文件夹路径, 不能用于其他文件夹.
+ * <p>
+ * 游标同一时间只能被一个请求使用, 超过空闲时间或最大游标数时关闭并淘汰. 游标被淘汰后, 其分页标识会重新打开目录流并跳过已读取的条数.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public class LocalDirectoryCursorCache {
+
+    /**
+     * 游标空闲超时时间, 单位: 毫秒
+     */
+    private static final long IDLE_TTL_MILLIS = 60_000;
+
+    /**
+     * 最多保留的游标数, 每个游标占用一个打开的目录句柄.
+     */
+    private static final int MAX_CURSORS = 16;
+
+    /**
+     * 按访问顺序排列的空闲游标, 所有读写均在 this 锁内进行.
+     */
+    private final LinkedHashMap<String, Cursor> cursorMap = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 取出游标, 取出后其他请求无法使用, 读取完当前页后需调用 {@link #release} 放回或 {@link #close} 关闭.
+     *
+     * @param   cursorId
+     *          游标 ID
+     *
+     * @param   folder
+     *          文件夹路径, 必须与打开游标时一致.
+     *
+     * @param   position
+     *          已读取的条数, 必须与游标当前位置一致.
+     *
+     * @return  游标, 不存在、已过期、不属于该文件夹或位置不一致时返回 null.
+     */
+    public Cursor take(String cursorId, Path folder, long position) {
+        Cursor cursor;
+        synchronized (this) {
+            closeExpired();
+            cursor = cursorMap.remove(cursorId);
+        }
+        if (cursor == null) {
+            return null;
+        }
+        if (!Objects.equals(cursor.folder, folder) || cursor.position != position) {
+            close(cursor);
+            return null;
+        }
+        return cursor;
+    }
+
+    /**
+     * 打开新的游标, 并跳过指定条数.
+     *
+     * @param   folder
+     *          文件夹路径
+     *
+     * @param   skip
+     *          跳过的条数 (游标已被淘汰时, 从分页标识中记录的位置继续)
+     *
+     * @return  游标
+     */
+    public Cursor open(Path folder, long skip) throws IOException {
+        Cursor cursor = new Cursor(IdUtil.fastSimpleUUID(), folder, Files.newDirectoryStream(folder));
+        try {
+            while (cursor.position < skip && cursor.hasNext()) {
+                cursor.next();
+            }
+        } catch (RuntimeException e) {
+            close(cursor);
+            throw e;
+        }
+        return cursor;
+    }
+
+    /**
+     * 读取完当前页后放回游标, 已读取到末尾时直接关闭.
+     *
+     * @param   cursor
+     *          游标
+     *
+     * @return  游标 ID, 已读取到末尾时返回 null.
+     */
+    public String release(Cursor cursor) {
+        if (!cursor.hasNext()) {
+            close(cursor);
+            return null;
+        }
+        cursor.lastAccessTime = System.currentTimeMillis();
+        List<Cursor> evictList = new ArrayList<>();
+        synchronized (this) {
+            cursorMap.put(cursor.id, cursor);
+            Iterator<Map.Entry<String, Cursor>> iterator = cursorMap.entrySet().iterator();
+            while (cursorMap.size() > MAX_CURSORS && iterator.hasNext()) {
+                evictList.add(iterator.next().getValue());
+                iterator.remove();
+            }
+        }
+        evictList.forEach(this::close);
+        return cursor.id;
+    }
+
+    /**
+     * 关闭游标
+     *
+     * @param   cursor
+     *          游标
+     */
+    public void close(Cursor cursor) {
+        try {
+            cursor.directoryStream.close();
+        } catch (IOException e) {
+            log.debug("关闭目录流失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 关闭所有游标, 在存储源销毁时调用.
+     */
+    public void clear() {
+        List<Cursor> cursorList;
+        synchronized (this) {
+            cursorList = new ArrayList<>(cursorMap.values());
+            cursorMap.clear();
+        }
+        cursorList.forEach(this::close);
+    }
+
+    private void closeExpired() {
+        long expireTime = System.currentTimeMillis() - IDLE_TTL_MILLIS;
+        cursorMap.values().removeIf(cursor -> {
+            boolean expired = cursor.lastAccessTime < expireTime;
+            if (expired) {
+                close(cursor);
+            }
+            return expired;
+        });
+    }
+
+    /**
+     * 目录游标
+     */
+    public static class Cursor {
+
+        private final String id;
+
+        private final Path folder;
+
+        private final DirectoryStream<Path> directoryStream;
+
+        private final Iterator<Path> iterator;
+
+        /**
+         * 已读取的条数
+         */
+        @Getter
+        private long position;
+
+        private volatile long lastAccessTime = System.currentTimeMillis();
+
+        private Cursor(String id, Path folder, DirectoryStream<Path> directoryStream) {
+            this.id = id;
+            this.folder = folder;
+            this.directoryStream = directoryStream;
+            this.iterator = directoryStream.iterator();
+        }
+
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        public Path next() {
+            Path path = iterator.next();
+            position++;
+            return path;
+        }
+
+    }
+
+}
@@ -0,0 +1,519 @@
+package im.zhaojun.zfile.module.storage.support.microsoft;
+
+import cn.hutool.core.util.NumberUtil;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import im.zhaojun.zfile.core.config.ZFileProperties;
+import im.zhaojun.zfile.core.util.StringUtils;
+import im.zhaojun.zfile.module.storage.model.result.UploadSessionStatsResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * OneDrive / SharePoint 上传会话上传器, 每个 OneDrive / SharePoint 类存储源实例持有一个此类的实例.
+ * <p>
+ * 从输入流中按分片大小 (320 KiB 的整数倍) 读取内容到缓冲区, 上传会话要求分片按顺序上传, 所以每个文件使用两个缓冲区,
+ * 上传当前分片的同时读取下一个分片. 存储源的缓冲区总数有上限, 用完时新的上传会等待, 以此限制内存占用.
+ * 单个分片上传失败时, 查询上传会话的 nextExpectedRanges, 从服务端期望的位置继续上传, 重试后仍失败则取消上传会话.
+ * <p>
+ * 如果是读取输入流失败 (如客户端断开连接) 且指定了上传会话 key (包含客户端提供的文件校验值), 则保留上传会话
+ * {@link ZFileProperties.MicrosoftUploadSessionProperties#getSessionTtl()} 秒, 客户端再次上传相同 key 的文件时, 会复用该上传会话.
+ * 续传时逐个分片读取服务端已接收的内容, 与之前上传时记录的分片 MD5 比对, 一致时才继续上传, 不一致时取消上传会话并上传失败.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public class MicrosoftUploadSessionUploader {
+
+    /**
+     * 分片大小需为 320 KiB 的整数倍
+     */
+    private static final long FRAGMENT_ALIGN_SIZE = 320 * 1024;
+
+    /**
+     * 单次请求最大分片大小
+     */
+    private static final long MAX_FRAGMENT_SIZE = 60 * 1024 * 1024;
+
+    /**
+     * 每个上传中的文件使用的缓冲区数量
+     */
+    private static final int BUFFERS_PER_UPLOAD = 2;
+
+    private static final long RETRY_INTERVAL_MILLIS = 1000;
+
+    private final RestTemplate restTemplate;
+
+    private final ZFileProperties.MicrosoftUploadSessionProperties properties;
+
+    private final Semaphore bufferSemaphore;
+
+    /**
+     * 可续传的上传会话, key 为文件完整路径 + 文件大小 + 文件校验值.
+     */
+    private final Map<String, UploadSession> sessionMap = new ConcurrentHashMap<>();
+
+    private final AtomicInteger activeUploads = new AtomicInteger();
+
+    private final LongAdder uploadCount = new LongAdder();
+
+    private final LongAdder successCount = new LongAdder();
+
+    private final LongAdder failCount = new LongAdder();
+
+    private final LongAdder resumeCount = new LongAdder();
+
+    private final LongAdder fragmentCount = new LongAdder();
+
+    private final LongAdder retryCount = new LongAdder();
+
+    private final LongAdder uploadedBytes = new LongAdder();
+
+    private final LongAdder skippedBytes = new LongAdder();
+
+    private final LongAdder uploadMillis = new LongAdder();
+
+    public MicrosoftUploadSessionUploader(RestTemplate restTemplate, ZFileProperties.MicrosoftUploadSessionProperties properties) {
+        this.restTemplate = restTemplate;
+        this.properties = properties;
+        this.bufferSemaphore = new Semaphore(Math.max(properties.getMaxBuffers(), BUFFERS_PER_UPLOAD), true);
+    }
+
+    /**
+     * 通过上传会话上传文件.
+     *
+     * @param   sessionKey
+     *          上传会话 key, 用于中断后续传, 需包含文件完整路径, 大小及客户端提供的文件校验值. 为 null 时不可续传.
+     *
+     * @param   uploadUrlCreator
+     *          创建上传会话并返回上传地址的函数
+     *
+     * @param   inputStream
+     *          文件输入流
+     *
+     * @param   size
+     *          文件大小, 需大于 0.
+     */
+    public void upload(String sessionKey, Supplier<String> uploadUrlCreator, InputStream inputStream, long size) throws IOException {
+        removeExpiredSessions();
+        uploadCount.increment();
+        activeUploads.incrementAndGet();
+        long startTime = System.currentTimeMillis();
+        try {
+            doUpload(sessionKey, uploadUrlCreator, inputStream, size);
+            successCount.increment();
+        } catch (IOException | RuntimeException e) {
+            failCount.increment();
+            throw e;
+        } finally {
+            activeUploads.decrementAndGet();
+            uploadMillis.add(System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private void doUpload(String sessionKey, Supplier<String> uploadUrlCreator, InputStream inputStream, long size) throws IOException {
+        long fragmentSize = getFragmentSize();
+
+        // 取出会话, 避免同一文件同时上传时共用同一个上传会话.
+        UploadSession session = sessionKey == null ? null : sessionMap.remove(sessionKey);
+        long offset = 0;
+        if (session != null) {
+            Long nextExpectedOffset = queryNextExpectedOffsetQuietly(session);
+            // 分片大小变化或服务端位置与已记录的分片不对应时, 无法校验已上传的内容, 重新创建上传会话.
+            if (nextExpectedOffset == null || nextExpectedOffset >= size
+                    || session.fragmentSize != fragmentSize
+                    || nextExpectedOffset != Math.min(size, session.fragmentDigests.size() * fragmentSize)) {
+                cancelQuietly(session);
+                session = null;
+            } else {
+                offset = nextExpectedOffset;
+                resumeCount.increment();
+                log.info("续传上传会话 {}, 已上传: {}/{} 字节", sessionKey, offset, size);
+            }
+        }
+        if (session == null) {
+            session = new UploadSession(uploadUrlCreator.get(), fragmentSize);
+        }
+
+        long fragments = (size - offset + fragmentSize - 1) / fragmentSize;
+        int bufferCount = (int) Math.max(1, Math.min(BUFFERS_PER_UPLOAD, fragments));
+        try {
+            bufferSemaphore.acquire(bufferCount);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (sessionKey == null) {
+                cancelQuietly(session);
+            } else {
+                sessionMap.put(sessionKey, session);
+            }
+            throw new InterruptedIOException("等待上传缓冲区时被中断");
+        }
+
+        IOException readFailure = null;
+        Throwable uploadFailure = null;
+        Future<?> pending = null;
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            byte[][] buffers = new byte[bufferCount][];
+            if (offset > 0) {
+                buffers[0] = new byte[(int) Math.min(fragmentSize, size)];
+                verifyUploadedFragments(session, inputStream, buffers[0], offset, size);
+                skippedBytes.add(offset);
+            }
+
+            for (int index = 0; offset < size; index++) {
+                int length = (int) Math.min(fragmentSize, size - offset);
+                int bufferIndex = index % bufferCount;
+                if (buffers[bufferIndex] == null) {
+                    buffers[bufferIndex] = new byte[(int) Math.min(fragmentSize, size)];
+                }
+                byte[] buffer = buffers[bufferIndex];
+
+                int read = inputStream.readNBytes(buffer, 0, length);
+                if (read < length) {
+                    throw new EOFException("文件内容不足, 期望大小: " + size + ", 实际大小: " + (offset + read));
+                }
+
+                // 分片需按顺序上传, 等待上一个分片上传完成后再上传当前分片.
+                if (pending != null) {
+                    pending.get();
+                }
+                long start = offset;
+                UploadSession uploadSession = session;
+                byte[] digest = md5(buffer, length);
+                pending = executor.submit(() -> {
+                    uploadFragment(uploadSession, buffer, start, length, size);
+                    uploadSession.fragmentDigests.add(digest);
+                    return null;
+                });
+                offset += length;
+            }
+            if (pending != null) {
+                pending.get();
+            }
+        } catch (ExecutionException e) {
+            uploadFailure = e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            uploadFailure = e;
+        } catch (ResumeContentMismatchException e) {
+            uploadFailure = e;
+        } catch (IOException e) {
+            readFailure = e;
+        } finally {
+            // 读取失败时可能仍有分片在上传, 等待其完成后再释放缓冲区.
+            if (pending != null && !pending.isDone()) {
+                try {
+                    pending.get();
+                } catch (ExecutionException e) {
+                    uploadFailure = e.getCause();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    pending.cancel(true);
+                    uploadFailure = e;
+                }
+            }
+            executor.shutdown();
+            bufferSemaphore.release(bufferCount);
+        }
+
+        if (uploadFailure != null) {
+            cancelQuietly(session);
+            if (uploadFailure instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (uploadFailure instanceof ResumeContentMismatchException resumeContentMismatchException) {
+                throw resumeContentMismatchException;
+            }
+            throw new IOException("上传会话分片上传失败", uploadFailure);
+        }
+
+        if (readFailure != null) {
+            if (sessionKey == null) {
+                cancelQuietly(session);
+                throw readFailure;
+            }
+            session.lastAccessTime = System.currentTimeMillis();
+            sessionMap.put(sessionKey, session);
+            log.info("上传会话 {} 读取文件内容失败, 保留 {} 秒以便续传.", sessionKey, properties.getSessionTtl());
+            throw readFailure;
+        }
+    }
+
+    /**
+     * 续传前逐个分片读取服务端已接收的内容, 与之前上传时记录的分片 MD5 比对.
+     *
+     * @throws  ResumeContentMismatchException
+     *          内容不一致时抛出, 此时已读取的内容无法重新上传, 只能取消上传会话.
+     */
+    private void verifyUploadedFragments(UploadSession session, InputStream inputStream, byte[] buffer, long uploadedSize, long size) throws IOException {
+        long position = 0;
+        for (byte[] expectedDigest : session.fragmentDigests) {
+            int length = (int) Math.min(session.fragmentSize, size - position);
+            int read = inputStream.readNBytes(buffer, 0, length);
+            if (read < length) {
+                throw new EOFException("文件内容不足, 期望大小: " + size + ", 实际大小: " + (position + read));
+            }
+            if (!MessageDigest.isEqual(expectedDigest, md5(buffer, length))) {
+                throw new ResumeContentMismatchException("文件分片 " + position + "-" + (position + length - 1) + " 的内容与中断前上传的不一致, 无法续传, 请重新上传.");
+            }
+            position += length;
+            if (position >= uploadedSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 取消所有可续传的上传会话, 在存储源销毁时调用.
+     */
+    public void cancelAll() {
+        sessionMap.values().forEach(this::cancelQuietly);
+        sessionMap.clear();
+    }
+
+    /**
+     * 获取上传统计信息
+     */
+    public UploadSessionStatsResult getStats() {
+        UploadSessionStatsResult stats = new UploadSessionStatsResult();
+        stats.setFragmentSize(getFragmentSize());
+        stats.setAvailableBuffers(bufferSemaphore.availablePermits());
+        stats.setActiveUploads(activeUploads.get());
+        stats.setPendingSessions(sessionMap.size());
+        stats.setUploadCount(uploadCount.sum());
+        stats.setSuccessCount(successCount.sum());
+        stats.setFailCount(failCount.sum());
+        stats.setResumeCount(resumeCount.sum());
+        stats.setFragmentCount(fragmentCount.sum());
+        stats.setRetryCount(retryCount.sum());
+        stats.setUploadedBytes(uploadedBytes.sum());
+        stats.setSkippedBytes(skippedBytes.sum());
+        long millis = uploadMillis.sum();
+        stats.setThroughput(millis == 0 ? 0 : uploadedBytes.sum() * 1000 / millis);
+        return stats;
+    }
+
+    /**
+     * 上传分片, 失败时查询服务端已接收的位置, 只重新上传缺失的部分.
+     */
+    private void uploadFragment(UploadSession session, byte[] buffer, long start, int length, long size) throws IOException, InterruptedException {
+        int maxRetries = Math.max(properties.getMaxRetries(), 0);
+        long end = start + length;
+        long position = start;
+        for (int attempt = 0; ; attempt++) {
+            long retryAfterMillis = RETRY_INTERVAL_MILLIS * (attempt + 1);
+            try {
+                putRange(session, buffer, (int) (position - start), (int) (end - position), position, size);
+                fragmentCount.increment();
+                uploadedBytes.add(end - position);
+                return;
+            } catch (HttpStatusCodeException e) {
+                if (attempt >= maxRetries || !isRetryable(e.getStatusCode().value())) {
+                    throw e;
+                }
+                retryAfterMillis = getRetryAfterMillis(e, retryAfterMillis);
+                log.warn("上传会话分片 {}-{} 上传失败, 状态码: {}, 第 {} 次重试.", position, end - 1, e.getStatusCode().value(), attempt + 1);
+            } catch (ResourceAccessException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                log.warn("上传会话分片 {}-{} 上传失败, 第 {} 次重试.", position, end - 1, attempt + 1, e);
+            }
+            retryCount.increment();
+            TimeUnit.MILLISECONDS.sleep(retryAfterMillis);
+
+            Long nextExpectedOffset;
+            try {
+                nextExpectedOffset = queryNextExpectedOffset(session);
+            } catch (RestClientException e) {
+                log.warn("查询上传会话状态失败, 从分片 {}-{} 重新上传.", position, end - 1, e);
+                continue;
+            }
+            if (nextExpectedOffset == null) {
+                throw new IOException("上传会话已失效");
+            }
+            if (nextExpectedOffset >= end) {
+                return;
+            }
+            if (nextExpectedOffset < start) {
+                throw new IOException("上传会话期望的位置 " + nextExpectedOffset + " 在当前分片 " + start + " 之前, 无法继续上传.");
+            }
+            position = nextExpectedOffset;
+        }
+    }
+
+    private void putRange(UploadSession session, byte[] buffer, int bufferOffset, int length, long position, long size) {
+        restTemplate.execute(URI.create(session.uploadUrl), HttpMethod.PUT, request -> {
+            HttpHeaders headers = request.getHeaders();
+            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+            headers.setContentLength(length);
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + position + "-" + (position + length - 1) + StringUtils.SLASH + size);
+            if (request instanceof StreamingHttpOutputMessage streamingHttpOutputMessage) {
+                streamingHttpOutputMessage.setBody(outputStream -> outputStream.write(buffer, bufferOffset, length));
+            } else {
+                request.getBody().write(buffer, bufferOffset, length);
+            }
+        }, response -> null);
+    }
+
+    /**
+     * 查询上传会话下一个期望接收的位置.
+     *
+     * @return  期望接收的位置, 已全部接收时返回 Long.MAX_VALUE, 上传会话不存在时返回 null.
+     */
+    private Long queryNextExpectedOffset(UploadSession session) {
+        JSONObject status;
+        try {
+            status = restTemplate.getForObject(URI.create(session.uploadUrl), JSONObject.class);
+        } catch (HttpStatusCodeException e) {
+            if (e.getStatusCode().value() == HttpStatus.NOT_FOUND.value()) {
+                return null;
+            }
+            throw e;
+        }
+        if (status == null) {
+            return null;
+        }
+        JSONArray nextExpectedRanges = status.getJSONArray("nextExpectedRanges");
+        if (nextExpectedRanges == null || nextExpectedRanges.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        // 格式如 "12345-" 或 "12345-55232", 取第一个区间的起始位置.
+        String range = nextExpectedRanges.getString(0);
+        return Long.parseLong(StringUtils.subBefore(range, "-", false));
+    }
+
+    private Long queryNextExpectedOffsetQuietly(UploadSession session) {
+        try {
+            return queryNextExpectedOffset(session);
+        } catch (Exception e) {
+            log.warn("查询上传会话状态失败, 将重新创建上传会话.", e);
+            return null;
+        }
+    }
+
+    private void cancelQuietly(UploadSession session) {
+        try {
+            restTemplate.delete(URI.create(session.uploadUrl));
+        } catch (Exception e) {
+            log.debug("取消上传会话失败: {}", e.getMessage());
+        }
+    }
+
+    private void removeExpiredSessions() {
+        long expireTime = System.currentTimeMillis() - properties.getSessionTtl() * 1000;
+        sessionMap.entrySet().removeIf(entry -> {
+            boolean expired = entry.getValue().lastAccessTime < expireTime;
+            if (expired) {
+                cancelQuietly(entry.getValue());
+            }
+            return expired;
+        });
+    }
+
+    /**
+     * 获取分片大小, 向下对齐到 320 KiB 的整数倍, 且不超过单次请求的上限.
+     */
+    private long getFragmentSize() {
+        long fragmentSize = Math.min(properties.getFragmentSize(), MAX_FRAGMENT_SIZE);
+        return Math.max(fragmentSize / FRAGMENT_ALIGN_SIZE, 1) * FRAGMENT_ALIGN_SIZE;
+    }
+
+    private static byte[] md5(byte[] buffer, int length) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+            messageDigest.update(buffer, 0, length);
+            return messageDigest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 请求超时, 冲突, 限流及服务端错误时可以重试, 416 表示服务端已接收过该范围, 查询状态后继续.
+     */
+    private static boolean isRetryable(int status) {
+        return status == HttpStatus.REQUEST_TIMEOUT.value()
+                || status == HttpStatus.CONFLICT.value()
+                || status == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()
+                || status == HttpStatus.TOO_MANY_REQUESTS.value()
+                || status >= 500;
+    }
+
+    private static long getRetryAfterMillis(HttpStatusCodeException e, long defaultMillis) {
+        HttpHeaders headers = e.getResponseHeaders();
+        String retryAfter = headers == null ? null : headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null && NumberUtil.isLong(retryAfter)) {
+            return Long.parseLong(retryAfter) * 1000;
+        }
+        return defaultMillis;
+    }
+
+    /**
+     * 上传会话
+     */
+    private static class UploadSession {
+
+        private final String uploadUrl;
+
+        /**
+         * 创建上传会话时使用的分片大小
+         */
+        private final long fragmentSize;
+
+        /**
+         * 已上传成功的分片 MD5, 按分片顺序记录, 续传时用于校验内容是否一致.
+         */
+        private final List<byte[]> fragmentDigests = new ArrayList<>();
+
+        private volatile long lastAccessTime = System.currentTimeMillis();
+
+        UploadSession(String uploadUrl, long fragmentSize) {
+            this.uploadUrl = uploadUrl;
+            this.fragmentSize = fragmentSize;
+        }
+
+    }
+
+    /**
+     * 续传时已上传的内容与当前文件内容不一致
+     */
+    private static class ResumeContentMismatchException extends IOException {
+
+        ResumeContentMismatchException(String message) {
+            super(message);
+        }
+
+    }
+
+}
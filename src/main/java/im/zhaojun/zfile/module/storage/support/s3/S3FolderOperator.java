@@ -0,0 +1,346 @@
+package im.zhaojun.zfile.module.storage.support.s3;
+
+import im.zhaojun.zfile.core.util.StringUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * S3 文件夹操作, 通过列出前缀下的所有对象, 在服务端批量复制/删除实现文件夹的复制、移动、重命名和删除.
+ * <p>
+ * 复制时并发执行服务端复制 (CopyObject), 超过 5GB 的对象使用分片复制 (UploadPartCopy); 删除时每 1000 个对象批量删除 (DeleteObjects).
+ * 单个对象操作失败不会中断整个操作, 所有失败的对象会记录在 {@link FolderOperationResult} 中.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public class S3FolderOperator {
+
+    /**
+     * 同时复制的对象数
+     */
+    private static final int COPY_CONCURRENCY = 8;
+
+    /**
+     * 单次批量删除的最大对象数
+     */
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    /**
+     * CopyObject 支持的最大对象大小, 超过此大小需使用分片复制.
+     */
+    private static final long MAX_COPY_OBJECT_SIZE = 5L * 1024 * 1024 * 1024;
+
+    /**
+     * 分片复制时每个分片的大小
+     */
+    private static final long COPY_PART_SIZE = 1024L * 1024 * 1024;
+
+    /**
+     * 每处理多少个对象输出一次进度日志
+     */
+    private static final int PROGRESS_LOG_INTERVAL = 1000;
+
+    private final S3Client s3Client;
+
+    private final String bucketName;
+
+    private final Consumer<AwsRequestOverrideConfiguration.Builder> overrideConfiguration;
+
+    public S3FolderOperator(S3Client s3Client, String bucketName, Consumer<AwsRequestOverrideConfiguration.Builder> overrideConfiguration) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.overrideConfiguration = overrideConfiguration;
+    }
+
+    /**
+     * 复制文件夹, 将源前缀下的所有对象复制到目标前缀下.
+     *
+     * @param   srcPrefix
+     *          源文件夹前缀, 以 / 结尾
+     *
+     * @param   targetPrefix
+     *          目标文件夹前缀, 以 / 结尾
+     *
+     * @param   deleteSource
+     *          复制成功后是否删除源对象 (即移动)
+     *
+     * @return  操作结果
+     */
+    public FolderOperationResult copyFolder(String srcPrefix, String targetPrefix, boolean deleteSource) {
+        checkPrefix(srcPrefix);
+        if (targetPrefix.startsWith(srcPrefix)) {
+            throw new IllegalArgumentException("目标文件夹 " + targetPrefix + " 不能是源文件夹 " + srcPrefix + " 本身或其子文件夹");
+        }
+        FolderOperationResult result = new FolderOperationResult();
+        List<String> copiedKeyList = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger processedCount = new AtomicInteger();
+        Semaphore semaphore = new Semaphore(COPY_CONCURRENCY);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (S3Object s3Object : listObjects(srcPrefix)) {
+                String srcKey = s3Object.key();
+                String targetKey = targetPrefix + srcKey.substring(srcPrefix.length());
+                result.totalCount.incrementAndGet();
+
+                semaphore.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        copyObject(srcKey, targetKey, s3Object.size());
+                        copiedKeyList.add(srcKey);
+                    } catch (Exception e) {
+                        log.warn("复制 S3 对象 {} 到 {} 失败.", srcKey, targetKey, e);
+                        result.addFailed(srcKey, e);
+                    } finally {
+                        semaphore.release();
+                        int processed = processedCount.incrementAndGet();
+                        if (processed % PROGRESS_LOG_INTERVAL == 0) {
+                            log.info("复制 S3 文件夹 {} 到 {}, 已处理 {} 个对象.", srcPrefix, targetPrefix, processed);
+                        }
+                    }
+                });
+            }
+        }
+
+        // 移动时只删除已复制成功的源对象, 复制失败的对象保留在原位置.
+        if (deleteSource) {
+            deleteObjects(copiedKeyList, result);
+        }
+        return result;
+    }
+
+    /**
+     * 删除文件夹, 删除前缀下的所有对象.
+     *
+     * @param   prefix
+     *          文件夹前缀, 以 / 结尾
+     *
+     * @return  操作结果
+     */
+    public FolderOperationResult deleteFolder(String prefix) {
+        checkPrefix(prefix);
+        FolderOperationResult result = new FolderOperationResult();
+        List<String> keyList = new ArrayList<>(DELETE_BATCH_SIZE);
+        for (S3Object s3Object : listObjects(prefix)) {
+            result.totalCount.incrementAndGet();
+            keyList.add(s3Object.key());
+            if (keyList.size() >= DELETE_BATCH_SIZE) {
+                deleteObjects(keyList, result);
+                keyList.clear();
+            }
+        }
+        deleteObjects(keyList, result);
+        return result;
+    }
+
+    /**
+     * 校验文件夹前缀, 不能为空 (即整个存储桶) 且必须以 / 结尾, 防止误操作其他文件夹.
+     */
+    private static void checkPrefix(String prefix) {
+        if (prefix == null || prefix.isEmpty() || "/".equals(prefix) || !prefix.endsWith("/") || prefix.endsWith("//")) {
+            throw new IllegalArgumentException("无效的文件夹前缀: " + prefix);
+        }
+    }
+
+    /**
+     * 分页列出前缀下的所有对象 (包括子文件夹中的对象).
+     */
+    private Iterable<S3Object> listObjects(String prefix) {
+        return s3Client.listObjectsV2Paginator(ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .maxKeys(1000)
+                .build()).contents();
+    }
+
+    private void copyObject(String srcKey, String targetKey, Long size) {
+        if (size != null && size > MAX_COPY_OBJECT_SIZE) {
+            multipartCopyObject(srcKey, targetKey, size);
+            return;
+        }
+        s3Client.copyObject(CopyObjectRequest.builder()
+                .overrideConfiguration(overrideConfiguration)
+                .sourceBucket(bucketName)
+                .sourceKey(srcKey)
+                .destinationBucket(bucketName)
+                .destinationKey(targetKey)
+                .build());
+    }
+
+    /**
+     * 分片复制超过 5GB 的对象. 分片复制不会像 CopyObject 一样自动复制源对象的元数据, 需先读取源对象的
+     * Content-Type 等响应头及用户自定义元数据, 在创建分片上传时设置.
+     */
+    private void multipartCopyObject(String srcKey, String targetKey, long size) {
+        HeadObjectResponse srcObject = s3Client.headObject(HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(srcKey)
+                .build());
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(targetKey)
+                .contentType(srcObject.contentType())
+                .contentEncoding(srcObject.contentEncoding())
+                .contentDisposition(srcObject.contentDisposition())
+                .contentLanguage(srcObject.contentLanguage())
+                .cacheControl(srcObject.cacheControl())
+                .metadata(srcObject.metadata())
+                .build()).uploadId();
+        try {
+            List<CompletedPart> completedPartList = new ArrayList<>();
+            int partNumber = 1;
+            for (long start = 0; start < size; start += COPY_PART_SIZE, partNumber++) {
+                long end = Math.min(start + COPY_PART_SIZE, size) - 1;
+                String eTag = s3Client.uploadPartCopy(UploadPartCopyRequest.builder()
+                        .overrideConfiguration(overrideConfiguration)
+                        .sourceBucket(bucketName)
+                        .sourceKey(srcKey)
+                        .destinationBucket(bucketName)
+                        .destinationKey(targetKey)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .copySourceRange("bytes=" + start + "-" + end)
+                        .build()).copyPartResult().eTag();
+                completedPartList.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+            }
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(targetKey)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedPartList).build())
+                    .build());
+        } catch (RuntimeException e) {
+            try {
+                s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(targetKey)
+                        .uploadId(uploadId)
+                        .build());
+            } catch (Exception abortException) {
+                log.warn("取消 S3 分片复制 {} 失败, uploadId: {}", targetKey, uploadId, abortException);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 批量删除对象, 每批最多 1000 个, 存储源不支持批量删除时逐个删除.
+     */
+    private void deleteObjects(List<String> keyList, FolderOperationResult result) {
+        for (int i = 0; i < keyList.size(); i += DELETE_BATCH_SIZE) {
+            List<String> batchKeyList = keyList.subList(i, Math.min(i + DELETE_BATCH_SIZE, keyList.size()));
+            List<ObjectIdentifier> objectIdentifierList = batchKeyList.stream()
+                    .map(key -> ObjectIdentifier.builder().key(key).build())
+                    .collect(Collectors.toList());
+            try {
+                DeleteObjectsResponse response = s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                        .bucket(bucketName)
+                        .delete(Delete.builder().objects(objectIdentifierList).quiet(true).build())
+                        .build());
+                response.errors().forEach(error -> result.addFailed(error.key(), error.code() + ": " + error.message()));
+            } catch (S3Exception e) {
+                log.debug("批量删除 S3 对象失败, 尝试逐个删除.", e);
+                for (String key : batchKeyList) {
+                    try {
+                        s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucketName).key(key).build());
+                    } catch (Exception deleteException) {
+                        result.addFailed(key, deleteException);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 文件夹操作结果
+     */
+    public static class FolderOperationResult {
+
+        /**
+         * 最多记录的失败对象数, 避免失败过多时占用过多内存.
+         */
+        private static final int MAX_FAILED_RECORD = 100;
+
+        private final AtomicInteger totalCount = new AtomicInteger();
+
+        private final AtomicInteger failedCount = new AtomicInteger();
+
+        /**
+         * 失败的对象 key 及原因, 最多记录 {@link #MAX_FAILED_RECORD} 个.
+         */
+        @Getter
+        private final List<String> failedList = Collections.synchronizedList(new ArrayList<>());
+
+        public int getTotalCount() {
+            return totalCount.get();
+        }
+
+        public int getFailedCount() {
+            return failedCount.get();
+        }
+
+        public boolean isSuccess() {
+            return failedCount.get() == 0;
+        }
+
+        /**
+         * 获取操作结果摘要, 用于提示部分失败的情况.
+         */
+        public String getSummary() {
+            StringBuilder summary = new StringBuilder();
+            summary.append("共 ").append(getTotalCount()).append(" 个对象, 失败 ").append(getFailedCount()).append(" 个");
+            synchronized (failedList) {
+                if (!failedList.isEmpty()) {
+                    summary.append(": ").append(StringUtils.join(", ", failedList.subList(0, Math.min(failedList.size(), 5))));
+                    if (failedList.size() > 5) {
+                        summary.append(" 等");
+                    }
+                }
+            }
+            return summary.toString();
+        }
+
+        private void addFailed(String key, Exception e) {
+            addFailed(key, e.getMessage());
+        }
+
+        private void addFailed(String key, String reason) {
+            failedCount.incrementAndGet();
+            synchronized (failedList) {
+                if (failedList.size() < MAX_FAILED_RECORD) {
+                    failedList.add(key + " (" + reason + ")");
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,401 @@
+package im.zhaojun.zfile.module.storage.support.s3;
+
+import cn.hutool.core.util.HexUtil;
+import im.zhaojun.zfile.core.config.ZFileProperties;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * S3 分片上传器, 每个 S3 类存储源实例持有一个此类的实例.
+ * <p>
+ * 从输入流中按分片大小读取内容到缓冲区, 同时最多上传 concurrency 个分片, 缓冲区用完时读取线程会阻塞等待, 以此限制内存占用.
+ * 同一存储源所有上传的缓冲区总大小不超过 {@link ZFileProperties.S3MultipartUploadProperties#getMaxBufferBytes()},
+ * 超出时新的上传等待其他上传释放缓冲区, 已在上传的文件只复用自己已有的缓冲区.
+ * 单个分片上传失败时会进行重试, 重试后仍失败则取消分片上传, 清理已上传的分片.
+ * <p>
+ * 如果是读取输入流失败 (如客户端断开连接), 则保留已上传的分片 {@link ZFileProperties.S3MultipartUploadProperties#getSessionTtl()} 秒,
+ * 客户端再次上传相同路径, 相同大小的文件时, 会复用该分片上传, 内容摘要与已上传分片一致的分片将跳过上传.
+ *
+ * @author zhaojun
+ */
+@Slf4j
+public class S3MultipartUploader {
+
+    /**
+     * S3 分片最小大小
+     */
+    private static final long MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    /**
+     * S3 最大分片数量
+     */
+    private static final int MAX_PART_COUNT = 10000;
+
+    private static final long RETRY_INTERVAL_MILLIS = 1000;
+
+    /**
+     * 缓冲区预算信号量的单位, 每个许可代表 1 KiB.
+     */
+    private static final int BUFFER_PERMIT_BYTES = 1024;
+
+    private final S3Client s3Client;
+
+    private final ZFileProperties.S3MultipartUploadProperties properties;
+
+    private final Consumer<AwsRequestOverrideConfiguration.Builder> overrideConfiguration;
+
+    /**
+     * 可续传的分片上传, key 为 bucket + 对象 key + 文件大小.
+     */
+    private final Map<String, UploadSession> sessionMap = new ConcurrentHashMap<>();
+
+    /**
+     * 存储源所有上传共用的缓冲区预算, 单位: KiB.
+     */
+    private final Semaphore bufferBudget;
+
+    private final int maxBufferPermits;
+
+    public S3MultipartUploader(S3Client s3Client, ZFileProperties.S3MultipartUploadProperties properties,
+                               Consumer<AwsRequestOverrideConfiguration.Builder> overrideConfiguration) {
+        this.s3Client = s3Client;
+        this.properties = properties;
+        this.overrideConfiguration = overrideConfiguration;
+        this.maxBufferPermits = (int) Math.max(Math.min(properties.getMaxBufferBytes() / BUFFER_PERMIT_BYTES, Integer.MAX_VALUE), 1);
+        this.bufferBudget = new Semaphore(maxBufferPermits, true);
+    }
+
+    /**
+     * 判断指定大小的文件是否应该使用分片上传.
+     *
+     * @param   size
+     *          文件大小
+     *
+     * @return  是否使用分片上传
+     */
+    public boolean shouldMultipartUpload(Long size) {
+        return size != null && properties.getThreshold() > 0 && size >= properties.getThreshold();
+    }
+
+    /**
+     * 分片上传文件.
+     *
+     * @param   bucketName
+     *          存储桶名称
+     *
+     * @param   key
+     *          对象 key
+     *
+     * @param   contentType
+     *          文件类型
+     *
+     * @param   inputStream
+     *          文件输入流
+     *
+     * @param   size
+     *          文件大小
+     */
+    public void upload(String bucketName, String key, String contentType, InputStream inputStream, long size) throws IOException {
+        removeExpiredSessions();
+
+        long partSize = getPartSize(size);
+        String sessionKey = bucketName + ":" + key + ":" + size;
+        // 取出会话, 避免同一文件同时上传时共用同一个分片上传.
+        UploadSession session = sessionMap.remove(sessionKey);
+        if (session != null && session.partSize != partSize) {
+            abortQuietly(session);
+            session = null;
+        }
+        if (session == null) {
+            String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .contentType(contentType)
+                    .build()).uploadId();
+            session = new UploadSession(bucketName, key, uploadId, partSize);
+        } else {
+            log.info("续传 S3 分片上传 {}, 已上传分片数: {}", key, session.partMap.size());
+        }
+
+        int concurrency = Math.max(properties.getConcurrency(), 1);
+        Semaphore semaphore = new Semaphore(concurrency);
+        BlockingQueue<byte[]> bufferPool = new LinkedBlockingQueue<>();
+        // 单个缓冲区占用的预算, 分片大小超过总预算时按总预算计算, 保证至少能分配一个缓冲区.
+        int permitsPerBuffer = (int) Math.min((partSize + BUFFER_PERMIT_BYTES - 1) / BUFFER_PERMIT_BYTES, maxBufferPermits);
+        int allocatedBuffers = 0;
+        AtomicReference<Exception> uploadFailure = new AtomicReference<>();
+        UploadSession uploadSession = session;
+
+        IOException readFailure = null;
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            long offset = 0;
+            for (int partNumber = 1; offset < size && uploadFailure.get() == null; partNumber++) {
+                int length = (int) Math.min(partSize, size - offset);
+                semaphore.acquire();
+                byte[] buffer = bufferPool.poll();
+                if (buffer == null) {
+                    if (allocatedBuffers == 0) {
+                        // 第一个缓冲区, 等待其他上传释放预算.
+                        bufferBudget.acquire(permitsPerBuffer);
+                        allocatedBuffers++;
+                        buffer = new byte[(int) partSize];
+                    } else if (bufferBudget.tryAcquire(permitsPerBuffer)) {
+                        allocatedBuffers++;
+                        buffer = new byte[(int) partSize];
+                    } else {
+                        // 预算不足时不再分配, 等待自己正在上传的分片归还缓冲区.
+                        buffer = bufferPool.take();
+                    }
+                }
+
+                int read;
+                try {
+                    read = inputStream.readNBytes(buffer, 0, length);
+                } catch (IOException e) {
+                    bufferPool.offer(buffer);
+                    semaphore.release();
+                    throw e;
+                }
+                if (read < length) {
+                    bufferPool.offer(buffer);
+                    semaphore.release();
+                    throw new EOFException("文件内容不足, 期望大小: " + size + ", 实际大小: " + (offset + read));
+                }
+                offset += length;
+
+                String md5 = md5(buffer, length);
+                PartRecord partRecord = uploadSession.partMap.get(partNumber);
+                if (partRecord != null && partRecord.md5.equals(md5)) {
+                    bufferPool.offer(buffer);
+                    semaphore.release();
+                    continue;
+                }
+
+                int currentPartNumber = partNumber;
+                byte[] currentBuffer = buffer;
+                executor.execute(() -> {
+                    try {
+                        if (uploadFailure.get() == null) {
+                            CompletedPart completedPart = uploadPart(uploadSession, currentPartNumber, currentBuffer, length, md5);
+                            uploadSession.partMap.put(currentPartNumber, new PartRecord(md5, completedPart));
+                        }
+                    } catch (Exception e) {
+                        uploadFailure.compareAndSet(null, e);
+                    } finally {
+                        bufferPool.offer(currentBuffer);
+                        semaphore.release();
+                    }
+                });
+            }
+        } catch (IOException e) {
+            readFailure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            uploadFailure.compareAndSet(null, e);
+        } finally {
+            // 等待已提交的分片上传完成, 保证会话中记录的分片都已上传成功.
+            executor.shutdown();
+            awaitTermination(executor, uploadFailure);
+            bufferPool.clear();
+            bufferBudget.release(allocatedBuffers * permitsPerBuffer);
+        }
+
+        if (uploadFailure.get() != null) {
+            abortQuietly(uploadSession);
+            Exception e = uploadFailure.get();
+            if (e instanceof SdkException sdkException) {
+                throw sdkException;
+            }
+            throw new IOException("S3 分片上传失败", e);
+        }
+
+        if (readFailure != null) {
+            uploadSession.lastAccessTime = System.currentTimeMillis();
+            sessionMap.put(sessionKey, uploadSession);
+            log.info("S3 分片上传 {} 读取文件内容失败, 已上传分片数: {}, 保留 {} 秒以便续传.",
+                    key, uploadSession.partMap.size(), properties.getSessionTtl());
+            throw readFailure;
+        }
+
+        List<CompletedPart> completedPartList = new ArrayList<>(uploadSession.partMap.size());
+        uploadSession.partMap.values().forEach(partRecord -> completedPartList.add(partRecord.completedPart));
+        completedPartList.sort(Comparator.comparing(CompletedPart::partNumber));
+        try {
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadSession.uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedPartList).build())
+                    .build());
+        } catch (SdkException e) {
+            abortQuietly(uploadSession);
+            throw e;
+        }
+    }
+
+    /**
+     * 取消所有可续传的分片上传, 在存储源销毁时调用.
+     */
+    public void abortAll() {
+        sessionMap.values().forEach(this::abortQuietly);
+        sessionMap.clear();
+    }
+
+    /**
+     * 上传分片, 失败时重试.
+     */
+    private CompletedPart uploadPart(UploadSession session, int partNumber, byte[] buffer, int length, String md5) throws InterruptedException {
+        int maxRetries = Math.max(properties.getMaxRetries(), 0);
+        for (int attempt = 0; ; attempt++) {
+            try {
+                UploadPartResponse response = s3Client.uploadPart(UploadPartRequest.builder()
+                                .overrideConfiguration(overrideConfiguration)
+                                .bucket(session.bucketName)
+                                .key(session.key)
+                                .uploadId(session.uploadId)
+                                .partNumber(partNumber)
+                                .contentLength((long) length)
+                                .contentMD5(Base64.getEncoder().encodeToString(HexUtil.decodeHex(md5)))
+                                .build(),
+                        RequestBody.fromContentProvider(() -> new ByteArrayInputStream(buffer, 0, length), length, "application/octet-stream"));
+                return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+            } catch (SdkException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                log.warn("S3 分片上传 {} 第 {} 个分片上传失败, 第 {} 次重试.", session.key, partNumber, attempt + 1, e);
+                TimeUnit.MILLISECONDS.sleep(RETRY_INTERVAL_MILLIS * (attempt + 1));
+            }
+        }
+    }
+
+    /**
+     * 获取分片大小, 保证分片大小不小于 5MB, 且分片数不超过 10000.
+     */
+    private long getPartSize(long size) {
+        long partSize = Math.max(properties.getPartSize(), MIN_PART_SIZE);
+        long minPartSize = (size + MAX_PART_COUNT - 1) / MAX_PART_COUNT;
+        if (partSize < minPartSize) {
+            // 按 MB 向上取整
+            partSize = (minPartSize + 1024 * 1024 - 1) / (1024 * 1024) * (1024 * 1024);
+        }
+        return partSize;
+    }
+
+    private void removeExpiredSessions() {
+        long expireTime = System.currentTimeMillis() - properties.getSessionTtl() * 1000;
+        sessionMap.entrySet().removeIf(entry -> {
+            boolean expired = entry.getValue().lastAccessTime < expireTime;
+            if (expired) {
+                abortQuietly(entry.getValue());
+            }
+            return expired;
+        });
+    }
+
+    private void abortQuietly(UploadSession session) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(session.bucketName)
+                    .key(session.key)
+                    .uploadId(session.uploadId)
+                    .build());
+        } catch (Exception e) {
+            log.warn("取消 S3 分片上传 {} 失败, uploadId: {}", session.key, session.uploadId, e);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor, AtomicReference<Exception> uploadFailure) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.debug("等待 S3 分片上传完成...");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+            uploadFailure.compareAndSet(null, e);
+        }
+    }
+
+    private static String md5(byte[] buffer, int length) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+            messageDigest.update(buffer, 0, length);
+            return HexUtil.encodeHexStr(messageDigest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 分片上传会话
+     */
+    private static class UploadSession {
+
+        private final String bucketName;
+
+        private final String key;
+
+        private final String uploadId;
+
+        private final long partSize;
+
+        /**
+         * 已上传的分片, key 为分片序号.
+         */
+        private final Map<Integer, PartRecord> partMap = new ConcurrentHashMap<>();
+
+        private volatile long lastAccessTime = System.currentTimeMillis();
+
+        UploadSession(String bucketName, String key, String uploadId, long partSize) {
+            this.bucketName = bucketName;
+            this.key = key;
+            this.uploadId = uploadId;
+            this.partSize = partSize;
+        }
+
+    }
+
+    @AllArgsConstructor
+    private static class PartRecord {
+
+        private final String md5;
+
+        private final CompletedPart completedPart;
+
+    }
+
+}
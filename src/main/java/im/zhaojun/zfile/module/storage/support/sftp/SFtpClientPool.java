@@ -1,12 +1,22 @@
 package im.zhaojun.zfile.module.storage.support.sftp;
 
 import cn.hutool.extra.ssh.Sftp;
+import im.zhaojun.zfile.module.storage.model.result.ConnectionPoolStatsResult;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.pool2.PooledObjectFactory;
 import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 
+@Slf4j
 public class SFtpClientPool extends GenericObjectPool<Sftp> {
 
+    /**
+     * 连接池名称, 用于区分同一存储源的多个连接池.
+     */
+    @Getter
+    private String poolName;
+
     public SFtpClientPool(PooledObjectFactory<Sftp> factory) {
         super(factory);
     }
@@ -14,4 +24,42 @@ public class SFtpClientPool extends GenericObjectPool<Sftp> {
     public SFtpClientPool(PooledObjectFactory<Sftp> factory, GenericObjectPoolConfig config) {
         super(factory, config);
     }
-}
\ No newline at end of file
+
+    public SFtpClientPool(String poolName, PooledObjectFactory<Sftp> factory, GenericObjectPoolConfig config) {
+        super(factory, config);
+        this.poolName = poolName;
+    }
+
+    /**
+     * 销毁连接, 用于操作过程中出现异常, 无法确定连接状态时.
+     */
+    public void invalidate(Sftp sftp) {
+        try {
+            invalidateObject(sftp);
+        } catch (Exception e) {
+            log.warn("销毁 SFTP 连接失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取连接池统计信息
+     */
+    public ConnectionPoolStatsResult getStats() {
+        ConnectionPoolStatsResult stats = new ConnectionPoolStatsResult();
+        stats.setPoolName(poolName);
+        stats.setMaxTotal(getMaxTotal());
+        stats.setMinIdle(getMinIdle());
+        stats.setActive(getNumActive());
+        stats.setIdle(getNumIdle());
+        stats.setWaiters(getNumWaiters());
+        stats.setBorrowedCount(getBorrowedCount());
+        stats.setCreatedCount(getCreatedCount());
+        stats.setDestroyedCount(getDestroyedCount());
+        stats.setDestroyedByEvictorCount(getDestroyedByEvictorCount());
+        stats.setMeanBorrowWaitMillis(getMeanBorrowWaitDuration().toMillis());
+        stats.setMaxBorrowWaitMillis(getMaxBorrowWaitDuration().toMillis());
+        stats.setMeanActiveMillis(getMeanActiveDuration().toMillis());
+        return stats;
+    }
+
+}
@@ -0,0 +1,180 @@
+package im.zhaojun.zfile.module.user.context;
+
+import im.zhaojun.zfile.core.util.StringUtils;
+import im.zhaojun.zfile.module.storage.model.enums.FileOperatorTypeEnum;
+import im.zhaojun.zfile.module.user.model.entity.User;
+import im.zhaojun.zfile.module.user.model.entity.UserStorageSource;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 请求级访问上下文, 在一次请求内缓存当前登录用户、用户信息及用户在各存储源的权限和基础路径,
+ * 避免列出文件夹等请求对每个文件重复解析登录状态和查询权限.
+ * <br>
+ * 由 {@link im.zhaojun.zfile.core.filter.AccessContextFilter} 在请求开始时创建, 请求结束时清理.
+ * 不在请求线程中 (如异步任务, 存储源初始化) 时不存在上下文, 调用方应直接查询.
+ * <br>
+ * 分享访问的用户及基础路径仍由 {@link im.zhaojun.zfile.module.share.context.ShareAccessContext} 决定,
+ * 此处按用户 ID 缓存, 因此分享访问开始或结束后无需清理.
+ *
+ * @author zhaojun
+ */
+public class RequestAccessContext {
+
+    private static final ThreadLocal<RequestAccessContext> CONTEXT = new ThreadLocal<>();
+
+    /**
+     * 当前登录用户 ID, 为 null 表示尚未解析.
+     */
+    private Integer loginUserId;
+
+    /**
+     * Map<用户 ID, 用户信息>
+     */
+    private final Map<Integer, User> userMap = new HashMap<>();
+
+    /**
+     * Map<用户 ID 与存储源 ID 组合, 用户存储源访问权限>
+     */
+    private final Map<Long, StorageAccess> storageAccessMap = new HashMap<>();
+
+    /**
+     * 创建当前线程的访问上下文, 请求开始时调用.
+     */
+    public static void init() {
+        CONTEXT.set(new RequestAccessContext());
+    }
+
+    /**
+     * 清理当前线程的访问上下文, 请求结束时调用.
+     */
+    public static void clear() {
+        CONTEXT.remove();
+    }
+
+    /**
+     * 获取当前线程的访问上下文
+     *
+     * @return  访问上下文, 不在请求线程中时返回 null.
+     */
+    public static RequestAccessContext current() {
+        return CONTEXT.get();
+    }
+
+    /**
+     * 重置已解析的登录用户, 在请求中登录或注销后调用.
+     */
+    public static void resetLoginUser() {
+        RequestAccessContext context = CONTEXT.get();
+        if (context != null) {
+            context.loginUserId = null;
+        }
+    }
+
+    /**
+     * 获取当前登录用户 ID, 本次请求首次获取时通过 loader 解析.
+     */
+    public Integer getLoginUserId(Supplier<Integer> loader) {
+        if (loginUserId == null) {
+            loginUserId = loader.get();
+        }
+        return loginUserId;
+    }
+
+    /**
+     * 获取用户信息, 本次请求首次获取时通过 loader 查询.
+     */
+    public User getUser(Integer userId, Function<Integer, User> loader) {
+        User user = userMap.get(userId);
+        if (user == null) {
+            user = loader.apply(userId);
+            if (user != null) {
+                userMap.put(userId, user);
+            }
+        }
+        return user;
+    }
+
+    /**
+     * 获取用户在存储源的访问权限, 本次请求首次获取时通过 loader 查询.
+     */
+    public StorageAccess getStorageAccess(Integer userId, Integer storageId, Supplier<UserStorageSource> loader) {
+        Long key = ((long) userId << 32) | (storageId & 0xFFFFFFFFL);
+        StorageAccess storageAccess = storageAccessMap.get(key);
+        if (storageAccess == null) {
+            storageAccess = StorageAccess.of(loader.get());
+            storageAccessMap.put(key, storageAccess);
+        }
+        return storageAccess;
+    }
+
+
+    /**
+     * 用户在某个存储源的访问权限, 创建后不可修改.
+     */
+    @Getter
+    public static class StorageAccess {
+
+        private static final StorageAccess NONE = new StorageAccess(false, StringUtils.SLASH, Collections.emptySet());
+
+        /**
+         * 是否已授权该存储源
+         */
+        private final boolean enable;
+
+        /**
+         * 用户在该存储源的基础路径, 未设置时为 /
+         */
+        private final String basePath;
+
+        private final Set<FileOperatorTypeEnum> permissions;
+
+        private StorageAccess(boolean enable, String basePath, Set<FileOperatorTypeEnum> permissions) {
+            this.enable = enable;
+            this.basePath = basePath;
+            this.permissions = permissions;
+        }
+
+        /**
+         * 根据用户存储源权限记录创建
+         *
+         * @param   userStorageSource
+         *          用户存储源权限记录, 可为 null.
+         */
+        public static StorageAccess of(UserStorageSource userStorageSource) {
+            if (userStorageSource == null) {
+                return NONE;
+            }
+
+            EnumSet<FileOperatorTypeEnum> permissions = EnumSet.noneOf(FileOperatorTypeEnum.class);
+            Set<String> permissionValues = userStorageSource.getPermissions();
+            if (permissionValues != null) {
+                for (FileOperatorTypeEnum operatorTypeEnum : FileOperatorTypeEnum.values()) {
+                    if (permissionValues.contains(operatorTypeEnum.getValue())) {
+                        permissions.add(operatorTypeEnum);
+                    }
+                }
+            }
+
+            String rootPath = userStorageSource.getRootPath();
+            String basePath = StringUtils.isEmpty(rootPath) ? StringUtils.SLASH : rootPath;
+            return new StorageAccess(Boolean.TRUE.equals(userStorageSource.getEnable()), basePath, Collections.unmodifiableSet(permissions));
+        }
+
+        /**
+         * 是否有指定操作的权限
+         */
+        public boolean hasPermission(FileOperatorTypeEnum operatorTypeEnum) {
+            return permissions.contains(operatorTypeEnum);
+        }
+
+    }
+
+}
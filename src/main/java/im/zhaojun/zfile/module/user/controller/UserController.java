@@ -15,6 +15,7 @@ import im.zhaojun.zfile.core.util.ZFileAuthUtil;
 import im.zhaojun.zfile.module.config.model.dto.SystemConfigDTO;
 import im.zhaojun.zfile.module.config.model.entity.SystemConfig;
 import im.zhaojun.zfile.module.config.service.SystemConfigService;
+import im.zhaojun.zfile.module.user.context.RequestAccessContext;
 import im.zhaojun.zfile.module.user.model.entity.User;
 import im.zhaojun.zfile.module.user.model.enums.LoginVerifyModeEnum;
 import im.zhaojun.zfile.module.user.model.request.ResetAdminUserNameAndPasswordRequest;
@@ -99,6 +100,7 @@ public class UserController {
         User user = userService.getByUsername(userLoginRequest.getUsername());
         Integer userId = user.getId();
         StpUtil.login(userId);
+        RequestAccessContext.resetLoginUser();
 
         // 返回登录结果
         boolean isAdmin = userService.isAdmin(userId);
@@ -111,6 +113,7 @@ public class UserController {
     @PostMapping("/logout")
     public AjaxJson<Void> logout() {
         StpUtil.logout();
+        RequestAccessContext.resetLoginUser();
         return AjaxJson.getSuccess("注销成功");
     }
 
@@ -4,6 +4,7 @@ import im.zhaojun.zfile.core.util.ZFileAuthUtil;
 import im.zhaojun.zfile.module.storage.event.StorageSourceCopyEvent;
 import im.zhaojun.zfile.module.storage.event.StorageSourceDeleteEvent;
 import im.zhaojun.zfile.module.storage.model.enums.FileOperatorTypeEnum;
+import im.zhaojun.zfile.module.user.context.RequestAccessContext;
 import im.zhaojun.zfile.module.user.event.UserCopyEvent;
 import im.zhaojun.zfile.module.user.manager.UserManager;
 import im.zhaojun.zfile.module.user.mapper.UserStorageSourceMapper;
@@ -68,8 +69,7 @@ public class UserStorageSourceService {
      * @return  当前登录用户在指定存储策略是否有指定操作的权限
      */
     public boolean hasCurrentUserStorageOperatorPermission(Integer storageId, FileOperatorTypeEnum operatorTypeEnum) {
-        UserStorageSource userStorageSource = ((UserStorageSourceService) AopContext.currentProxy()).getByUserIdAndStorageId(ZFileAuthUtil.getCurrentUserId(), storageId);
-        return userStorageSource.getPermissions().contains(operatorTypeEnum.getValue());
+        return getStorageAccess(ZFileAuthUtil.getCurrentUserId(), storageId).hasPermission(operatorTypeEnum);
     }
 
     /**
@@ -79,11 +79,28 @@ public class UserStorageSourceService {
         if (userId == null) {
             return hasCurrentUserStorageOperatorPermission(storageId, operatorTypeEnum);
         }
-        UserStorageSource userStorageSource = ((UserStorageSourceService) AopContext.currentProxy()).getByUserIdAndStorageId(userId, storageId);
-        if (userStorageSource == null || userStorageSource.getPermissions() == null) {
-            return false;
+        return getStorageAccess(userId, storageId).hasPermission(operatorTypeEnum);
+    }
+
+
+    /**
+     * 获取指定用户在指定存储策略的访问权限 (是否授权, 基础路径及操作权限), 同一请求内只查询一次, 见 {@link RequestAccessContext}.
+     *
+     * @param   userId
+     *          用户 ID
+     *
+     * @param   storageId
+     *          存储策略 ID
+     *
+     * @return  访问权限, 未授权时所有权限均为 false.
+     */
+    public RequestAccessContext.StorageAccess getStorageAccess(Integer userId, Integer storageId) {
+        RequestAccessContext requestAccessContext = RequestAccessContext.current();
+        if (requestAccessContext == null || userId == null || storageId == null) {
+            return RequestAccessContext.StorageAccess.of(((UserStorageSourceService) AopContext.currentProxy()).getByUserIdAndStorageId(userId, storageId));
         }
-        return userStorageSource.getPermissions().contains(operatorTypeEnum.getValue());
+        return requestAccessContext.getStorageAccess(userId, storageId,
+                () -> ((UserStorageSourceService) AopContext.currentProxy()).getByUserIdAndStorageId(userId, storageId));
     }
 
 
@@ -0,0 +1,20 @@
+-- 下载日志: 按存储源删除、按短链 key 关联删除、按时间范围查询和清理
+CREATE INDEX `idx_download_log_storage_key` ON `download_log` (`storage_key`);
+CREATE INDEX `idx_download_log_short_key` ON `download_log` (`short_key`);
+CREATE INDEX `idx_download_log_create_time` ON `download_log` (`create_time`);
+
+-- 短链: 按 key 查询、按存储源和 url 查询 (url 为 text 类型, 使用前缀索引)、删除过期短链
+CREATE INDEX `idx_short_link_short_key` ON `short_link` (`short_key`);
+CREATE INDEX `idx_short_link_storage_id_url` ON `short_link` (`storage_id`, `url`(255));
+CREATE INDEX `idx_short_link_expire_date` ON `short_link` (`expire_date`);
+
+-- 用户存储源: 按用户、按存储源查询
+CREATE INDEX `idx_user_storage_source_user_id` ON `user_storage_source` (`user_id`, `storage_source_id`);
+CREATE INDEX `idx_user_storage_source_storage_id` ON `user_storage_source` (`storage_source_id`);
+
+-- 下载日志保留天数, 0 表示永久保留
+INSERT INTO system_config (`name`, `title`, `value`)
+SELECT 'downloadLogRetentionDays', '下载日志保留天数', '0'
+WHERE NOT EXISTS (
+    SELECT 1 FROM system_config WHERE name = 'downloadLogRetentionDays'
+);
@@ -0,0 +1,20 @@
+-- 下载日志: 按存储源删除、按短链 key 关联删除、按时间范围查询和清理
+create index if not exists idx_download_log_storage_key on download_log(storage_key);
+create index if not exists idx_download_log_short_key on download_log(short_key);
+create index if not exists idx_download_log_create_time on download_log(create_time);
+
+-- 短链: 按 key 查询、按存储源和 url 查询、删除过期短链
+create index if not exists idx_short_link_short_key on short_link(short_key);
+create index if not exists idx_short_link_storage_id_url on short_link(storage_id, url);
+create index if not exists idx_short_link_expire_date on short_link(expire_date);
+
+-- 用户存储源: 按用户、按存储源查询
+create index if not exists idx_user_storage_source_user_id on user_storage_source(user_id, storage_source_id);
+create index if not exists idx_user_storage_source_storage_id on user_storage_source(storage_source_id);
+
+-- 下载日志保留天数, 0 表示永久保留
+INSERT INTO system_config (`name`, `title`, `value`)
+SELECT 'downloadLogRetentionDays', '下载日志保留天数', '0'
+WHERE NOT EXISTS (
+    SELECT 1 FROM system_config WHERE name = 'downloadLogRetentionDays'
+);